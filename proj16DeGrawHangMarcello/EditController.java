@@ -12,6 +12,10 @@
  * Edited By: Zeb Keith-Hardy, Michael Li, Iris Lian, Kevin Zhou
  * Project 6/7/9
  * Date: October 26, 2018/ November 3, 2018/ November 20, 2018
+ * ---------------------------
+ * Edited By: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Project 16
+ * Date: April 11, 2019
  */
 
 package proj16DeGrawHangMarcello;
@@ -132,8 +136,6 @@ public class EditController {
         }
 
         curCodeArea.replaceSelection(modified);
-        //restyle Code Area
-        curCodeArea.setStyleSpans(0, JavaStyle.computeHighlighting(curCodeArea.getText()));
     }
 
     /**
@@ -399,9 +401,6 @@ public class EditController {
 
         newContent = beforeCurrentLine + currentLine + afterComment;
         codeArea.replaceText(newContent);
-
-        //restyle Code Area
-        codeArea.setStyleSpans(0, JavaStyle.computeHighlighting(codeArea.getText()));
         codeArea.moveTo(beforeComment.length() + currentLine.length());
     }
 
@@ -558,9 +557,6 @@ public class EditController {
             //move the caret to the end of the comment
             codeArea.moveTo(selectedRange.getEnd() + 4);
         }
-
-        //restyle Code Area
-        codeArea.setStyleSpans(0, JavaStyle.computeHighlighting(codeArea.getText()));
     }
 
     /**
@@ -7,6 +7,10 @@
  * Edited By: Zeb Keith-Hardy, Michael Li, Iris Lian, Kevin Zhou
  * Project 6/7/9
  * Date: October 26, 2018/ November 3, 2018/ November 20, 2018
+ * ---------------------------
+ * Edited By: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Project 16
+ * Date: April 11, 2019
  */
 
 package proj16DeGrawHangMarcello;
@@ -18,14 +22,15 @@ import org.fxmisc.richtext.CodeArea;
 import org.fxmisc.richtext.Selection;
 import org.fxmisc.richtext.SelectionImpl;
 import org.fxmisc.richtext.event.MouseOverTextEvent;
+import org.fxmisc.richtext.model.PlainTextChange;
 import org.fxmisc.richtext.model.StyleSpans;
 import org.fxmisc.richtext.model.StyleSpansBuilder;
-import org.reactfx.Subscription;
 
 import java.time.Duration;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import proj16DeGrawHangMarcello.bantam.lexer.IncrementalLexer;
+import proj16DeGrawHangMarcello.bantam.lexer.Token;
+import proj16DeGrawHangMarcello.bantam.lexer.TokenDelta;
 import proj16DeGrawHangMarcello.bantam.util.Error;
 
 /**
@@ -42,6 +47,8 @@ public class JavaCodeArea extends CodeArea{
 
     ArrayList<Selection> selections;
     HashMap<Integer, String> lineErrorMap;
+    IncrementalLexer lexer;
+    boolean syntaxChanged;   // whether an edit since the last check could change its result
 
     /**
      * This is the constructor of JavaCodeArea
@@ -50,6 +57,8 @@ public class JavaCodeArea extends CodeArea{
         super();
         selections = new ArrayList<>();
         lineErrorMap = new HashMap<>();
+        lexer = new IncrementalLexer(null);
+        syntaxChanged = true;
         this.subscribeToSyntaxHighlighting();
         setupErrorTooltip();
     }
@@ -186,31 +195,71 @@ public class JavaCodeArea extends CodeArea{
 
 
     /**
-     * Method obtained from the RichTextFX Keywords Demo. Method allows
-     * for syntax highlighting after a delay of 500ms after typing has ended.
-     * This method was copied from JavaKeyWordsDemo
-     * Original Author: Jordan Martinez
+     * Tells whether any edit since the last call could change the result of
+     * scanning, parsing or checking, and resets the answer for the next call.
+     * Edits only to comments, or that only move tokens along their lines, cannot.
+     *
+     * @return true if the code should be checked again
+     */
+    public boolean takeSyntaxChanged() {
+        boolean changed = syntaxChanged;
+        syntaxChanged = false;
+        return changed;
+    }
+
+    /**
+     * Re-lexes the code area as it is edited.  Each change re-scans only the
+     * lines it damages, and only those lines are restyled, so the cost of
+     * highlighting grows with the size of the edit rather than of the file.
      */
     private void subscribeToSyntaxHighlighting() {
-        // recompute the syntax highlighting 500 ms after user stops editing area
-        Subscription codeCheck = this
+        // plain changes = ignore style changes that are emitted when syntax highlighting is reapplied
+        this.plainTextChanges().subscribe(this::relex);
+    }
 
-                // plain changes = ignore style changes that are emitted when syntax highlighting is reapplied
-                // multi plain changes = save computation by not rerunning the code multiple times
-                //   when making multiple changes (e.g. renaming a method at multiple parts in file)
-                .multiPlainChanges()
+    /**
+     * Passes the lines damaged by a change to the lexer and restyles the lines
+     * whose tokens changed
+     *
+     * @param change the change made to the text of this code area
+     */
+    private void relex(PlainTextChange change) {
+        // the text before the change is unchanged, so its position is still valid
+        int firstLine = this.offsetToPosition(change.getPosition(), Bias.Forward).getMajor();
+        int numOldLines = 1 + countLineEnds(change.getRemoved());
+        int numNewLines = 1 + countLineEnds(change.getInserted());
+
+        List<String> newLines = new ArrayList<>(numNewLines);
+        for (int i = firstLine; i < firstLine + numNewLines; i++) {
+            newLines.add(this.getParagraph(i).getText());
+        }
+        TokenDelta delta = lexer.replaceLines(firstLine, numOldLines, newLines);
+        syntaxChanged |= delta.isSyntaxChanged();
 
-                // do not emit an event until 500 ms have passed since the last emission of previous stream
-                .successionEnds(Duration.ofMillis(500))
+        this.setStyleSpans(this.getAbsolutePosition(delta.getFirstLine(), 0),
+                JavaStyle.computeHighlighting(lexer, delta.getFirstLine(), delta.getNumNewLines()));
+    }
 
-                // run the following code block when previous stream emits an event
-                .subscribe(ignore -> this.setStyleSpans(0, JavaStyle.computeHighlighting(this.getText())));
+    /**
+     * @return the number of line ends in text
+     */
+    private static int countLineEnds(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
     }
 
 
 }
 
     /**
+     * Gives the style classes of the tokens found by the Bantam Java lexer.
+     * Originally styled the text with the regular expressions of the RichTextFX
+     * Java keywords demo.
      * source:  https://moodle.colby.edu/pluginfile.php/294745/mod_resource/content/0/JavaKeywordsDemo.java
      * @author  Matt Jones, Kevin Zhou, Kevin Ahn, Jackie Hang
      * @author  Zena Abulhab, Paige Hanssen, Kyle Slager Kevin Zhou
@@ -219,78 +268,103 @@ public class JavaCodeArea extends CodeArea{
      */
     class JavaStyle {
 
-        // a list of strings that contain the keywords for the IDE to identify.
-        private static final String[] KEYWORDS = new String[]{
-                "abstract", "assert", "boolean", "break", "byte",
-                "case", "catch", "char", "class", "const",
-                "continue", "default", "do", "double", "else",
-                "enum", "extends", "final", "finally", "float",
-                "for", "goto", "if", "implements", "import",
-                "instanceof", "int", "interface", "long", "native",
-                "new", "package", "private", "protected", "public",
-                "return", "short", "static", "strictfp", "super",
-                "switch", "synchronized", "this", "throw", "throws",
-                "transient", "try", "void", "volatile", "while", "var"
+        // the words styled as keywords that the lexer scans as identifiers
+        private static final String[] IDENTIFIER_KEYWORDS = new String[]{
+                "this", "super", "null", "int", "void", "boolean"
         };
 
-        // the regex rules for the ide
-        private static final String IDENTIFIER_PATTERN = "[a-zA-Z]+[a-zA-Z0-9_]*";
-        private static final String FLOAT_PATTERN = "(\\d+\\.\\d+)";
-        private static final String INTCONST_PATTERN = "\\d+";
-        private static final String KEYWORD_PATTERN = "\\b(" + String.join("|", KEYWORDS) + ")\\b";
-        private static final String PAREN_PATTERN = "\\(|\\)";
-        private static final String BRACE_PATTERN = "\\{|\\}";
-        private static final String BRACKET_PATTERN = "\\[|\\]";
-        private static final String SEMICOLON_PATTERN = "\\;";
-        private static final String STRING_PATTERN = "\"([^\"\\\\]|\\\\.)*\"";
-        private static final String CHAR_PATTERN = "\"([^\'\\\\]|\\\\.)*\'";
-        private static final String COMMENT_PATTERN = "//[^\n]*" + "|" + "/\\*(.|\\R)*?\\*/";
-
-        private static final Pattern PATTERN = Pattern.compile(
-                "(?<KEYWORD>" + KEYWORD_PATTERN + ")"
-                        + "|(?<PAREN>" + PAREN_PATTERN + ")"
-                        + "|(?<BRACE>" + BRACE_PATTERN + ")"
-                        + "|(?<BRACKET>" + BRACKET_PATTERN + ")"
-                        + "|(?<SEMICOLON>" + SEMICOLON_PATTERN + ")"
-                        + "|(?<STRING>" + STRING_PATTERN + ")"
-                        + "|(?<COMMENT>" + COMMENT_PATTERN + ")"
-                        + "|(?<FLOAT>" + FLOAT_PATTERN + ")"
-                        + "|(?<INTCONST>" + INTCONST_PATTERN + ")"
-                        + "|(?<IDENTIFIER>" + IDENTIFIER_PATTERN + ")"
-                        + "|(?<CHARACTER>" + CHAR_PATTERN + ")"
+        /**
+         * Gets the style class of a token
+         *
+         * @param kind the kind of the token
+         * @param text the text of the line holding the token
+         * @param colPos the column the token starts at
+         * @param length the number of characters in the token
+         * @return the name of the style class, or null if the token is not styled
+         */
+        private static String getStyleClass(Token.Kind kind, String text, int colPos, int length) {
+            switch (kind) {
+                case BOOLEAN:
+                case BREAK:
+                case CAST:
+                case CLASS:
+                case VAR:
+                case ELSE:
+                case EXTENDS:
+                case FOR:
+                case IF:
+                case INSTANCEOF:
+                case NEW:
+                case RETURN:
+                case WHILE:
+                    return "keyword";
+                case IDENTIFIER:
+                    // the special variables and primitive types are identifiers to the lexer
+                    for (String word : IDENTIFIER_KEYWORDS) {
+                        if (isWord(text, colPos, length, word)) {
+                            return "keyword";
+                        }
+                    }
+                    return "identifier";
+                case LPAREN:
+                case RPAREN:
+                    return "paren";
+                case LCURLY:
+                case RCURLY:
+                    return "brace";
+                case LBRACKET:
+                case RBRACKET:
+                    return "bracket";
+                case SEMICOLON:
+                    return "semicolon";
+                case STRCONST:
+                    return "string";
+                case COMMENT:
+                    return "comment";
+                case INTCONST:
+                    return "intconst";
+                default:
+                    return null;
+            }
+        }
 
-        );
+        /**
+         * @return true if the token at colPos in text is spelled word
+         */
+        private static boolean isWord(String text, int colPos, int length, String word) {
+            return length == word.length() && text.startsWith(word, colPos);
+        }
 
         /**
-         * Method to highlight all of the regex rules and keywords.
-         * Code obtained from the RichTextFX Demo from GitHub.
+         * Computes the style spans of a range of lines from their tokens.
          *
-         * @param text a string analyzed for proper syntax highlighting
+         * @param lexer the lexer holding the tokens of the code area
+         * @param firstLine the index of the first line to style
+         * @param numLines the number of lines to style
+         * @return the style spans from the start of firstLine to the end of the last line
          */
-        public static StyleSpans<Collection<String>> computeHighlighting(String text) {
-            Matcher matcher = PATTERN.matcher(text);
-            int lastKwEnd = 0;
+        public static StyleSpans<Collection<String>> computeHighlighting(IncrementalLexer lexer,
+                                                                       int firstLine, int numLines) {
             StyleSpansBuilder<Collection<String>> spansBuilder
                     = new StyleSpansBuilder<>();
-            while (matcher.find()) {
-                String styleClass = matcher.group("KEYWORD") != null ? "keyword" :
-                        matcher.group("PAREN") != null ? "paren" :
-                                matcher.group("BRACE") != null ? "brace" :
-                                        matcher.group("BRACKET") != null ? "bracket" :
-                                                matcher.group("SEMICOLON") != null ? "semicolon" :
-                                                        matcher.group("STRING") != null ? "string" :
-                                                                matcher.group("COMMENT") != null ? "comment" :
-                                                                        matcher.group("IDENTIFIER") != null ? "identifier" :
-                                                                                matcher.group("INTCONST") != null ? "intconst" :
-                                                                                        matcher.group("CHARACTER") != null ? "char" :
-                                                                                        null; /* never happens */
-                assert styleClass != null;
-                spansBuilder.add(Collections.emptyList(), matcher.start() - lastKwEnd);
-                spansBuilder.add(Collections.singleton(styleClass), matcher.end() - matcher.start());
-                lastKwEnd = matcher.end();
+            int lineStart = 0;   // offset of the current line from the start of firstLine
+            int lastEnd = 0;     // offset just past the last styled token
+            for (int line = firstLine; line < firstLine + numLines; line++) {
+                String text = lexer.getLineText(line);
+                for (int i = 0; i < lexer.getNumTokens(line); i++) {
+                    int colPos = lexer.getColPos(line, i);
+                    int length = lexer.getLength(line, i);
+                    String styleClass = getStyleClass(lexer.getKind(line, i), text, colPos, length);
+                    if (styleClass != null) {
+                        spansBuilder.add(Collections.emptyList(), lineStart + colPos - lastEnd);
+                        spansBuilder.add(Collections.singleton(styleClass), length);
+                        lastEnd = lineStart + colPos + length;
+                    }
+                }
+                lineStart += text.length() + 1;
             }
-            spansBuilder.add(Collections.emptyList(), text.length() - lastKwEnd);
+            // the range ends at the end of the last line, without its line end
+            spansBuilder.add(Collections.emptyList(), Math.max(lineStart - 1 - lastEnd, 0));
             return spansBuilder.create();
         }
 }
-
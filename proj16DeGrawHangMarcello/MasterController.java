@@ -279,8 +279,13 @@ public class MasterController {
                 // do not emit an event until 1000 ms have passed since the last emission of previous stream
                 .successionEnds(Duration.ofMillis(500))
 
-                // run the following code block when previous stream emits an event
-                .subscribe((ignore)-> this.toolbarController.handleScanParseCheck(false, false));
+                // run the following code block when previous stream emits an event,
+                // unless the edits only touched comments or moved tokens along their lines
+                .subscribe((ignore)-> {
+                    if (codeArea.takeSyntaxChanged()) {
+                        this.toolbarController.handleScanParseCheck(false, false);
+                    }
+                });
     }
 
     /**
@@ -586,7 +591,15 @@ public class MasterController {
         this.handleCompilationPhases("compile");
         if (toolbarController.compileIsDone()) {
             String asmFileName = codeTabPane.getFileName().replace(".btm", ".asm");
-            this.fileController.handleOpen(asmFileName);
+            String assembly = toolbarController.getCompiledAssembly();
+            if (assembly != null) {
+                // show the assembly just generated rather than reading the file back
+                File asmFile = new File(asmFileName);
+                this.codeTabPane.createNewTab(asmFile.getName(), assembly, true, asmFile);
+            }
+            else {
+                this.fileController.handleOpen(asmFileName);
+            }
         }
         toolbarController.setCompileNotDone();
     }
@@ -22,6 +22,8 @@ import proj16DeGrawHangMarcello.bantam.ast.Class_;
 import proj16DeGrawHangMarcello.bantam.ast.Field;
 import proj16DeGrawHangMarcello.bantam.ast.Method;
 import proj16DeGrawHangMarcello.bantam.semant.SemanticAnalyzer;
+import proj16DeGrawHangMarcello.bantam.util.ClassLayout;
+import proj16DeGrawHangMarcello.bantam.util.ClassTreeNode;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -41,6 +43,8 @@ public class Navigator {
     // keys are the name of the class and values are an arrayList
     // class' fields and methods
     private HashMap<String, ArrayList<ASTNode>> classFieldsAndMethods;
+    // root of the class hierarchy tree, whose layouts give the inherited methods
+    private ClassTreeNode root;
     private CodeArea curCodeArea;
 
     /**
@@ -53,6 +57,7 @@ public class Navigator {
         this.classes = checker.getClasses();
         this.curCodeArea = codeArea;
         classFieldsAndMethods = checker.getClassFieldsAndMethods();
+        this.root = checker.getRoot();
         createNavigatorDialog();
     }
 
@@ -312,24 +317,27 @@ public class Navigator {
     }
 
     /**
-     * Tries to find the Overridden method in the parent class
+     * Tries to find the Overridden method in the parent class, or in the
+     * nearest ancestor declaring it if the parent inherits it
      * @param parentClassName class name
      * @param methodName method name
      */
     private void findOverriddenMethodDeclaration(String parentClassName, String methodName) {
-        ASTNode node = null;
-        for(ASTNode n : classFieldsAndMethods.get(parentClassName)){
-            if(((Method) n).getName().equals(methodName)){
-                highlightText(n,methodName);
-                node = n;
-                break;
-            }
-        }
+        ClassTreeNode parentNode = root.lookupClass(parentClassName);
+        ClassLayout layout = parentNode.getLayout();
+        int slot = layout.getMethodSlot(methodName);
 
         //if the method does not exist in the parent class
-        if(node == null){
+        if(slot < 0){
             displayWarningDialog("Parent class '" + parentClassName + "' does not contain method of name '" + methodName + "'");
         }
+        else if(!classFieldsAndMethods.containsKey(layout.getMethodClass(slot))){
+            displayWarningDialog("Method '" + methodName + "' is inherited from built-in class '"
+                    + layout.getMethodClass(slot) + "' and cannot be navigated to.");
+        }
+        else {
+            highlightText(layout.getMethod(slot), methodName);
+        }
     }
 
     /**
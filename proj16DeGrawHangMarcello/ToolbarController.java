@@ -35,6 +35,8 @@ package proj16DeGrawHangMarcello;
 
 import javafx.application.Platform;
 import proj16DeGrawHangMarcello.bantam.ast.Program;
+import proj16DeGrawHangMarcello.bantam.codegenmips.AssemblyWriter;
+import proj16DeGrawHangMarcello.bantam.codegenmips.CompilationCache;
 import proj16DeGrawHangMarcello.bantam.codegenmips.MipsCodeGenerator;
 import proj16DeGrawHangMarcello.bantam.semant.*;
 import proj16DeGrawHangMarcello.bantam.treedrawer.Drawer;
@@ -46,6 +48,7 @@ import proj16DeGrawHangMarcello.bantam.lexer.Scanner;
 import proj16DeGrawHangMarcello.bantam.lexer.Token;
 import proj16DeGrawHangMarcello.bantam.parser.Parser;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -71,6 +74,13 @@ public class ToolbarController {
     private Program AST;
     private SemanticAnalyzer checker;
     private ClassTreeNode root;
+    private CompilationCache cache;
+    private String cacheKey;  // the cache key of the file last parsed
+    private Parser parser;  // the parser of the file last parsed, kept to parse edits
+    private ErrorHandler parserErrorHandler;
+    private String parsedFilename;
+    private Program parsedAST;  // the AST the parser built last, or null
+    private String compiledAssembly;  // the assembly generated last, or null if read from the cache
 
     /**
      * This is the constructor of ToolbarController.
@@ -85,6 +95,21 @@ public class ToolbarController {
         this.parseIsDone = true;
         this.checkIsDone = false;
         this.compileIsDone = false;
+        this.cache = CompilationCache.getDefault();
+    }
+
+    /**
+     * Writes each error registered with an error handler to the console as
+     * soon as it is registered, rather than once the phase is over
+     *
+     * @param errorHandler the error handler of a compilation phase
+     * @return the listener added to the handler, to be removed when the phase ends
+     */
+    private ErrorHandler.Listener streamErrorsToConsole(ErrorHandler errorHandler) {
+        ErrorHandler.Listener listener = error -> Platform.runLater(() ->
+                this.console.writeToConsole(error.toString() + "\n", "Error"));
+        errorHandler.addListener(listener);
+        return listener;
     }
 
     /**
@@ -362,6 +387,14 @@ public class ToolbarController {
      */
     public void setCompileNotDone() { this.compileIsDone = false; }
 
+    /**
+     * gets the assembly the last compilation generated, so it can be shown
+     * without reading the .asm file again
+     *
+     * @return the assembly, or null if it was taken from the cache
+     */
+    public String getCompiledAssembly() { return this.compiledAssembly; }
+
     /**
      * A private inner class used to scan a file in a separate thread
      * Print error messages to the console and write tokens in a new tab
@@ -376,6 +409,8 @@ public class ToolbarController {
         public String call() {
 
             ErrorHandler errorHandler = new ErrorHandler();
+            // show the errors as the scanner finds them
+            streamErrorsToConsole(errorHandler);
             Scanner scanner = new Scanner(ToolbarController.this.codeTabPane.getFileName(), errorHandler);
             Token token = scanner.scan();
             StringBuilder tokenString = new StringBuilder();
@@ -390,18 +425,6 @@ public class ToolbarController {
                 ToolbarController.this.console.writeToConsole("There were: " +
                         errorHandler.getErrorList().size() + " errors in " +
                         ToolbarController.this.codeTabPane.getFileName() + "\n", "Output");
-
-                if (errorHandler.errorsFound()) {
-
-                    List<Error> errorList = errorHandler.getErrorList();
-                    Iterator<Error> errorIterator = errorList.iterator();
-                    ToolbarController.this.console.writeToConsole("\n", "Error");
-
-                    while (errorIterator.hasNext()) {
-                        ToolbarController.this.console.writeToConsole(
-                                errorIterator.next().toString() + "\n", "Error");
-                    }
-                }
                 ToolbarController.this.codeTabPane.createTabWithContent(resultString);
                 ToolbarController.this.scanIsDone = true;
             });
@@ -425,12 +448,42 @@ public class ToolbarController {
 
             JavaCodeArea codeArea = (JavaCodeArea) codeTabPane.getCodeArea();
 
-            ErrorHandler errorHandler = new ErrorHandler();
-            Parser parser = new Parser(errorHandler);
             String filename = ToolbarController.this.codeTabPane.getFileName();
+            if (parser == null || !filename.equals(parsedFilename)) {
+                parserErrorHandler = new ErrorHandler();
+                parser = new Parser(parserErrorHandler);
+                parsedFilename = filename;
+                parsedAST = null;
+            }
+            ErrorHandler errorHandler = parserErrorHandler;
+            errorHandler.clear();
+            // show the errors as the parser finds them
+            ErrorHandler.Listener listener =
+                    this.writeToConsole ? streamErrorsToConsole(errorHandler) : null;
             Program AST = null;
             try {
-                AST = parser.parse(filename);
+                cacheKey = cache.getKey(filename);
+                if (parsedAST != null) {
+                    // parse again only the member or class that was edited
+                    AST = parser.reparse(parsedAST, filename);
+                    if (parser.getNumSyntaxErrors() > 0) {
+                        throw new CompilationException("Parser error found.");
+                    }
+                    parsedAST = AST;
+                }
+                else {
+                    // use the AST of the file's contents from the cache if it has one
+                    if (cacheKey != null) {
+                        AST = cache.loadProgram(cacheKey, filename);
+                    }
+                    if (AST == null) {
+                        AST = parser.parse(filename);
+                        parsedAST = AST;
+                        if (cacheKey != null) {
+                            cache.storeProgram(cacheKey, AST);
+                        }
+                    }
+                }
                 codeArea.removePreviousSelections();    // remove errors due to success
 
                 if (this.writeToConsole) {  // inherited field
@@ -441,6 +494,8 @@ public class ToolbarController {
                     });
                 }
             } catch (CompilationException e) {
+                // the next parse must start over
+                parsedAST = null;
 
                 Platform.runLater(() -> {
 
@@ -451,23 +506,21 @@ public class ToolbarController {
                         // tell code area to actively display errors
                         codeArea.setRealTimeErrors(errorList);
 
+                        // the errors themselves were written as they were found
                         if (this.writeToConsole) {  // inherited field
 
                             ToolbarController.this.console.writeToConsole("Parsing Failed\n", "Error");
                             ToolbarController.this.console.writeToConsole("There were: " +
-                                    errorHandler.getErrorList().size() + " errors in " +
+                                    errorList.size() + " errors in " +
                                     ToolbarController.this.codeTabPane.getFileName() + "\n", "Output");
-
-                            Iterator<Error> errorIterator = errorList.iterator();
-                            ToolbarController.this.console.writeToConsole("\n", "Error");
-                            while (errorIterator.hasNext()) {
-                                ToolbarController.this.console.writeToConsole(errorIterator.next().toString() +
-                                        "\n", "Error");
-                            }
                         }
                     }
                 });
 
+            } finally {
+                if (listener != null) {
+                    errorHandler.removeListener(listener);
+                }
             }
             return AST;
         }
@@ -484,17 +537,22 @@ public class ToolbarController {
 
             JavaCodeArea codeArea = (JavaCodeArea) codeTabPane.getCodeArea();
 
-            // create an error handler
-            ErrorHandler errorHandler = new ErrorHandler();
-
-            // create a checker that uses the new error handler
-            checker = new SemanticAnalyzer(errorHandler);
+            // keep one checker, so that after an edit only the members the
+            // edit could affect are checked again
+            if (checker == null) {
+                checker = new SemanticAnalyzer(new ErrorHandler());
+            }
+            ErrorHandler errorHandler = checker.getErrorHandler();
+            errorHandler.clear();
+            // show the errors as the checker finds them
+            ErrorHandler.Listener listener =
+                    this.writeToConsole ? streamErrorsToConsole(errorHandler) : null;
 
             // initialize the root of the class hierarchy tree to be used for code generation
             ClassTreeNode root = null;
             try {
                 // attempt to analyze the abstract syntax tree
-                root = checker.analyze(AST);
+                root = checker.reanalyze(AST);
                 codeArea.removePreviousSelections();    // remove errors due to success
 
                 if (this.writeToConsole) {
@@ -516,6 +574,7 @@ public class ToolbarController {
                         // tell code area to actively display errors
                         codeArea.setRealTimeErrors(errorList);
 
+                        // the errors themselves were written as they were found
                         if (this.writeToConsole) {
 
                             // display error message in the console
@@ -523,18 +582,15 @@ public class ToolbarController {
 
                             // display num errors in the console
                             ToolbarController.this.console.writeToConsole("There were: " +
-                                    errorHandler.getErrorList().size() + " errors in " +
+                                    errorList.size() + " errors in " +
                                     ToolbarController.this.codeTabPane.getFileName() + "\n", "Output");
-
-                            Iterator<Error> errorIterator = errorList.iterator();
-                            ToolbarController.this.console.writeToConsole("\n", "Error");
-                            while (errorIterator.hasNext()) {
-                                ToolbarController.this.console.writeToConsole(errorIterator.next().toString() +
-                                        "\n", "Error");
-                            }
                         }
                     }
                 });
+            } finally {
+                if (listener != null) {
+                    errorHandler.removeListener(listener);
+                }
             }
             return root;
         }
@@ -549,11 +605,33 @@ public class ToolbarController {
         public Boolean call() {
             // create an error handler
             ErrorHandler errorHandler = new ErrorHandler();
+            // show the errors as the generator finds them
+            if (this.writeToConsole) {
+                streamErrorsToConsole(errorHandler);
+            }
 
             MipsCodeGenerator mipsCodeGenerator = new MipsCodeGenerator(errorHandler, false, false);
+            compiledAssembly = null;
 
             try {
-                mipsCodeGenerator.generate(root, codeTabPane.getFileName().replace(".btm", ".asm"), AST);
+                String asmFilename = codeTabPane.getFileName().replace(".btm", ".asm");
+                // generate the assembly only if the cache does not have it already
+                if (cacheKey == null || !cache.loadAsm(cacheKey, asmFilename, false, false)) {
+                    // generate it in memory to show it, and write the file to assemble it
+                    AssemblyWriter assembly = new AssemblyWriter();
+                    mipsCodeGenerator.generate(root, asmFilename, AST, assembly);
+                    try {
+                        assembly.writeTo(asmFilename);
+                    } catch (IOException e) {
+                        errorHandler.register(Error.Kind.CODEGEN_ERROR, "IOException when writing " +
+                                "to file: " + asmFilename);
+                        throw new CompilationException("Could not write to output file.");
+                    }
+                    compiledAssembly = assembly.getText();
+                    if (cacheKey != null) {
+                        cache.storeAsm(cacheKey, asmFilename, false, false);
+                    }
+                }
                 if (this.writeToConsole) {
                     // if checking phase generated no errors, display a success message
                     Platform.runLater(() -> ToolbarController.this.console.writeToConsole(
@@ -572,6 +650,7 @@ public class ToolbarController {
                         // tell code area to actively display errors
                         ((JavaCodeArea) codeTabPane.getCodeArea()).setRealTimeErrors(errorList);
 
+                        // the errors themselves were written as they were found
                         if (this.writeToConsole) {
 
                             // display error message in the console
@@ -579,15 +658,8 @@ public class ToolbarController {
 
                             // display num errors in the console
                             ToolbarController.this.console.writeToConsole("There were: " +
-                                    errorHandler.getErrorList().size() + " errors in " +
+                                    errorList.size() + " errors in " +
                                     ToolbarController.this.codeTabPane.getFileName() + "\n", "Output");
-
-                            Iterator<Error> errorIterator = errorList.iterator();
-                            ToolbarController.this.console.writeToConsole("\n", "Error");
-                            while (errorIterator.hasNext()) {
-                                ToolbarController.this.console.writeToConsole(errorIterator.next().toString() +
-                                        "\n", "Error");
-                            }
                         }
                     }
                 });
@@ -253,11 +253,18 @@ import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
  */
 public abstract class ASTNode {
     /**
-     * The source line number corresponding to this AST node
+     * The source line number corresponding to this AST node, relative to the
+     * line of lineBase if there is one
      */
     protected int lineNum;
     protected int colPos;
 
+    /**
+     * The node whose line this node's line number is relative to, or null if
+     * the line number is absolute
+     */
+    private ASTNode lineBase;
+
     /**
      * ASTNode constructor
      *
@@ -274,7 +281,32 @@ public abstract class ASTNode {
      * @return line number
      */
     public int getLineNum() {
-        return lineNum;
+        if (lineBase == null) {
+            return lineNum;
+        }
+        return lineBase.getLineNum() + lineNum;
+    }
+
+    /**
+     * Makes the line number of this node relative to the line of another node,
+     * so that moving that node to another line moves this one with it.  The
+     * line number returned by getLineNum() does not change.
+     *
+     * @param lineBase the node to follow, whose line must not depend on this node
+     */
+    public void setLineBase(ASTNode lineBase) {
+        lineNum = getLineNum() - lineBase.getLineNum();
+        this.lineBase = lineBase;
+    }
+
+    /**
+     * Moves this node, and every node whose line is relative to it, up or
+     * down by a number of lines
+     *
+     * @param numLines the number of lines to move down (negative to move up)
+     */
+    public void shiftLines(int numLines) {
+        lineNum += numLines;
     }
 
     public int getColPos(){return colPos;}
@@ -55,6 +55,17 @@ public class AssignExpr extends Expr {
      */
     protected Expr expr;
 
+    /**
+     * The location of the variable, set by the semantic analyzer
+     */
+    protected Location location;
+
+    /**
+     * The location of the reference object variable, set by the semantic
+     * analyzer (null if there is no reference name or it is 'this' or 'super')
+     */
+    protected Location refLocation;
+
     /**
      * AssignExpr constructor
      *
@@ -97,6 +108,44 @@ public class AssignExpr extends Expr {
         return expr;
     }
 
+    /**
+     * Get the location of the lefthand variable, set once the semantic analyzer
+     * has checked the program (null if it is not a variable, such as
+     * the length of an array)
+     *
+     * @return location of the lefthand variable
+     */
+    public Location getLocation() {
+        return location;
+    }
+
+    /**
+     * Set the location of the lefthand variable
+     *
+     * @param location location of the lefthand variable
+     */
+    public void setLocation(Location location) {
+        this.location = location;
+    }
+
+    /**
+     * Get the location of the reference object variable
+     *
+     * @return location of the reference object variable
+     */
+    public Location getRefLocation() {
+        return refLocation;
+    }
+
+    /**
+     * Set the location of the reference object variable
+     *
+     * @param refLocation location of the reference object variable
+     */
+    public void setRefLocation(Location refLocation) {
+        this.refLocation = refLocation;
+    }
+
     /**
      * Visitor method
      *
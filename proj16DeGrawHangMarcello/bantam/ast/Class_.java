@@ -58,6 +58,15 @@ public class Class_ extends ASTNode {
      */
     protected MemberList memberList;
 
+    /**
+     * Where the first and last tokens of the class are in the source,
+     * with the lines relative to lineNum
+     */
+    private int firstLineOffset;
+    private int firstColPos;
+    private int lastLineOffset;
+    private int lastColPos;
+
     /**
      * Class_ constructor
      *
@@ -111,6 +120,51 @@ public class Class_ extends ASTNode {
         return memberList;
     }
 
+    /**
+     * Records where the class starts and ends in the source.  The lines are
+     * kept relative to the line of this node, so they move with it.
+     *
+     * @param firstLineNum the line number of the first token of the class
+     * @param firstColPos  the column of the first token
+     * @param lastLineNum  the line number of the last token of the class
+     * @param lastColPos   the column of the last token
+     */
+    public void setSourceRange(int firstLineNum, int firstColPos, int lastLineNum, int lastColPos) {
+        int lineNum = getLineNum();
+        firstLineOffset = firstLineNum - lineNum;
+        this.firstColPos = firstColPos;
+        lastLineOffset = lastLineNum - lineNum;
+        this.lastColPos = lastColPos;
+    }
+
+    /**
+     * @return the line number of the first token of the class
+     */
+    public int getFirstLineNum() {
+        return getLineNum() + firstLineOffset;
+    }
+
+    /**
+     * @return the column of the first token of the class
+     */
+    public int getFirstColPos() {
+        return firstColPos;
+    }
+
+    /**
+     * @return the line number of the last token of the class
+     */
+    public int getLastLineNum() {
+        return getLineNum() + lastLineOffset;
+    }
+
+    /**
+     * @return the column of the last token of the class
+     */
+    public int getLastColPos() {
+        return lastColPos;
+    }
+
     /**
      * Visitor method
      *
@@ -54,6 +54,11 @@ public class DeclStmt extends Stmt {
      */
     protected Expr init;
 
+    /**
+     * The slot of the variable among the method's locals, set by the semantic analyzer
+     */
+    protected Location location;
+
     /**
      * DeclStmt constructor
      *
@@ -98,6 +103,25 @@ public class DeclStmt extends Stmt {
         return init;
     }
 
+    /**
+     * Get the location of the declared variable, set once the semantic
+     * analyzer has checked the program
+     *
+     * @return location of the declared variable
+     */
+    public Location getLocation() {
+        return location;
+    }
+
+    /**
+     * Set the location of the declared variable
+     *
+     * @param location location of the declared variable
+     */
+    public void setLocation(Location location) {
+        this.location = location;
+    }
+
     /**
      * Visitor method
      *
@@ -28,28 +28,54 @@
    --added get(int index) method
    --changed getIterator to iterator and added "implements Iterable<ListNode>"
      so that foreach loops can be used
+   Modified by Lucas DeGraw, Jackie Hang, Chris Marcello
+   April 2019
+   --keeps the elements in a plain array instead of a synchronized Vector,
+     and added trimToSize()
 */
 
 package proj16DeGrawHangMarcello.bantam.ast;
 
 import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
 
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.Vector;
+import java.util.NoSuchElementException;
 
 /**
  * The abstract <tt>ListNode</tt> class represents a generic list of AST
  * nodes.  It contains a line number (<tt>lineNum</tt>) and a list
  * (<tt>listElements</tt>).
+ * <p>
+ * The elements are kept in an array that grows as they are added.  The parser
+ * trims the array to the number of elements once it has finished a list, so
+ * a finished AST holds no unused slots, and empty lists share one array.
+ * A ListNode is not synchronized.
  *
  * @see ASTNode
  */
 public abstract class ListNode extends ASTNode
     implements Iterable<ASTNode> {
     /**
-     * List of ASTNode elements
+     * The array of every empty list
      */
-    private Vector<ASTNode> listElements;
+    private static final ASTNode[] NO_ELEMENTS = new ASTNode[0];
+
+    /**
+     * The capacity of a list when its first element is added
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * List of ASTNode elements; only the first numElements are used
+     */
+    private ASTNode[] listElements;
+
+    /**
+     * The number of elements in the list
+     */
+    private int numElements;
 
     /**
      * ListNode constructor
@@ -58,7 +84,7 @@ public abstract class ListNode extends ASTNode
      */
     protected ListNode(int lineNum, int colPos ) {
         super(lineNum,colPos);
-        listElements = new Vector<ASTNode>();
+        listElements = NO_ELEMENTS;
     }
 
     /**
@@ -68,17 +94,49 @@ public abstract class ListNode extends ASTNode
      * @return the updated list
      */
     public ListNode addElement(ASTNode node) {
-        listElements.add(node);
+        if (numElements == listElements.length) {
+            listElements = Arrays.copyOf(listElements,
+                    Math.max(INITIAL_CAPACITY, numElements + (numElements >> 1)));
+        }
+        listElements[numElements++] = node;
         return this;
     }
 
+    /**
+     * Shrink the array holding the elements to the number of elements, once
+     * no more are going to be added
+     */
+    public void trimToSize() {
+        if (listElements.length > numElements) {
+            listElements = numElements == 0 ? NO_ELEMENTS
+                    : Arrays.copyOf(listElements, numElements);
+        }
+    }
+
     /**
      * Returns an iterator for this list
      *
      * @return iterator for this list
      */
     public Iterator<ASTNode> iterator() {
-        return listElements.iterator();
+        return new Iterator<ASTNode>() {
+            private int next = 0;
+            private final int expectedSize = numElements;
+
+            public boolean hasNext() {
+                return next < numElements;
+            }
+
+            public ASTNode next() {
+                if (numElements != expectedSize) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= numElements) {
+                    throw new NoSuchElementException();
+                }
+                return listElements[next++];
+            }
+        };
     }
 
     /**
@@ -87,7 +145,7 @@ public abstract class ListNode extends ASTNode
      * @return list size
      */
     public int getSize() {
-        return listElements.size();
+        return numElements;
     }
 
     /**
@@ -98,7 +156,28 @@ public abstract class ListNode extends ASTNode
      *         too large or too small
      */
     public ASTNode get(int index) {
-        return listElements.get(index);
+        checkIndex(index);
+        return listElements[index];
+    }
+
+    /**
+     * replace the index-th element
+     *
+     * @param index the index of the element to replace
+     * @param node  the element to put in its place
+     * @throws java.lang.ArrayIndexOutOfBoundsException if the index is
+     *         too large or too small
+     */
+    public void set(int index, ASTNode node) {
+        checkIndex(index);
+        listElements[index] = node;
+    }
+
+    // the array may be longer than the list, so check against the list size
+    private void checkIndex(int index) {
+        if (index < 0 || index >= numElements) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
     }
 
     /**
@@ -0,0 +1,75 @@
+/*
+ * File: Location.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.ast;
+
+/**
+ * Where the value of a variable is kept at run time: a slot among the local
+ * variables of the method, one of the method's parameters, or a field at an
+ * offset within the object.  The semantic analyzer stores a Location in each
+ * node that names a variable once it has checked the program, so the later
+ * phases can use the integer directly instead of looking the name up again.
+ */
+public class Location
+{
+    /**
+     * The kinds of variables
+     */
+    public enum Kind
+    {
+        LOCAL, PARAM, FIELD
+    }
+
+    private Kind kind;
+    private int index;
+    private String type;
+
+    /**
+     * creates a location
+     *
+     * @param kind  the kind of the variable
+     * @param index the slot of a local, the position of a parameter, or the
+     *              byte offset of a field within its object
+     * @param type  the declared type of the variable
+     */
+    public Location(Kind kind, int index, String type) {
+        this.kind = kind;
+        this.index = index;
+        this.type = type;
+    }
+
+    /**
+     * @return the kind of the variable
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the slot of a local variable (numbered from 0 in the order the
+     *         method declares them), the position of a parameter (from 0),
+     *         or the byte offset of a field within its object
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the declared type of the variable
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return a description such as "local 2" or "field 16"
+     */
+    @Override
+    public String toString() {
+        return kind.name().toLowerCase() + " " + index;
+    }
+}
@@ -39,6 +39,15 @@ import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
  * @see Field
  */
 public abstract class Member extends ASTNode {
+    /**
+     * Where the first and last tokens of the member are in the source,
+     * with the lines relative to lineNum
+     */
+    private int firstLineOffset;
+    private int firstColPos;
+    private int lastLineOffset;
+    private int lastColPos;
+
     /**
      * Member constructor
      *
@@ -48,6 +57,51 @@ public abstract class Member extends ASTNode {
         super(lineNum,colPos);
     }
 
+    /**
+     * Records where the member starts and ends in the source.  The lines are
+     * kept relative to the line of this node, so they move with it.
+     *
+     * @param firstLineNum the line number of the first token of the member
+     * @param firstColPos  the column of the first token
+     * @param lastLineNum  the line number of the last token of the member
+     * @param lastColPos   the column of the last token
+     */
+    public void setSourceRange(int firstLineNum, int firstColPos, int lastLineNum, int lastColPos) {
+        int lineNum = getLineNum();
+        firstLineOffset = firstLineNum - lineNum;
+        this.firstColPos = firstColPos;
+        lastLineOffset = lastLineNum - lineNum;
+        this.lastColPos = lastColPos;
+    }
+
+    /**
+     * @return the line number of the first token of the member
+     */
+    public int getFirstLineNum() {
+        return getLineNum() + firstLineOffset;
+    }
+
+    /**
+     * @return the column of the first token of the member
+     */
+    public int getFirstColPos() {
+        return firstColPos;
+    }
+
+    /**
+     * @return the line number of the last token of the member
+     */
+    public int getLastLineNum() {
+        return getLineNum() + lastLineOffset;
+    }
+
+    /**
+     * @return the column of the last token of the member
+     */
+    public int getLastColPos() {
+        return lastColPos;
+    }
+
     /**
      * Visitor method
      *
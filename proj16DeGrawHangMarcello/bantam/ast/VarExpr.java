@@ -52,6 +52,11 @@ public class VarExpr extends Expr {
      */
     protected String name;
 
+    /**
+     * The location of the variable, set by the semantic analyzer
+     */
+    protected Location location;
+
     /**
      * VarExpr constructor
      *
@@ -85,6 +90,26 @@ public class VarExpr extends Expr {
         return name;
     }
 
+    /**
+     * Get the location of the variable, set once the semantic analyzer
+     * has checked the program (null if it is not a variable, such as
+     * the length of an array)
+     *
+     * @return location of the variable
+     */
+    public Location getLocation() {
+        return location;
+    }
+
+    /**
+     * Set the location of the variable
+     *
+     * @param location location of the variable
+     */
+    public void setLocation(Location location) {
+        this.location = location;
+    }
+
     /**
      * Visitor method
      *
@@ -0,0 +1,179 @@
+/*
+ * File: AstFootprintBenchmark.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.benchmark;
+
+import proj16DeGrawHangMarcello.bantam.ast.*;
+import proj16DeGrawHangMarcello.bantam.parser.Parser;
+import proj16DeGrawHangMarcello.bantam.util.CompilationException;
+import proj16DeGrawHangMarcello.bantam.util.ErrorHandler;
+import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the heap an AST takes once it is parsed, for programs from
+ * SyntheticCorpus of about the given numbers of nodes.  The AST measured is
+ * the one the Parser builds, with the ListNodes as they are, so to compare two
+ * layouts of ListNode, run the benchmark on a build with each of them.  It uses
+ * only the parser and the public methods of the AST nodes, so it builds the
+ * same against older versions of the tree.
+ * <p>
+ * The heap is measured from the used heap after garbage collections.  Only
+ * the parallel collector reports it reliably enough straight after a collection,
+ * so run the benchmark with -XX:+UseParallelGC, and with enough heap for the
+ * largest AST.
+ * <p>
+ * Usage: java -XX:+UseParallelGC AstFootprintBenchmark [-nodes n,n,...]
+ */
+public class AstFootprintBenchmark
+{
+    private static final String DEFAULT_NODES = "10000,100000,1000000";
+
+    // the size of the program used to find the number of nodes per line
+    private static final int SAMPLE_LINES = 1000;
+
+    private String filename;
+
+    // what is being measured, kept in a field so that letting go of it
+    // is certain to make it garbage
+    private Program program;
+
+    /**
+     * Counts the ListNodes of an AST and the elements they hold
+     */
+    private static class ListCounter extends Visitor
+    {
+        private int numLists;
+        private int numElements;
+
+        private Object count(ListNode node) {
+            numLists++;
+            numElements += node.getSize();
+            return null;
+        }
+
+        public Object visit(ClassList node) {
+            count(node);
+            return super.visit(node);
+        }
+
+        public Object visit(MemberList node) {
+            count(node);
+            return super.visit(node);
+        }
+
+        public Object visit(FormalList node) {
+            count(node);
+            return super.visit(node);
+        }
+
+        public Object visit(StmtList node) {
+            count(node);
+            return super.visit(node);
+        }
+
+        public Object visit(ExprList node) {
+            count(node);
+            return super.visit(node);
+        }
+    }
+
+    /**
+     * creates a benchmark that writes its programs to a temporary file
+     */
+    private AstFootprintBenchmark() {
+        try {
+            File file = File.createTempFile("footprint", ".btm");
+            file.deleteOnExit();
+            filename = file.getPath();
+        } catch (IOException e) {
+            throw new CompilationException("Could not create a temporary file.");
+        }
+    }
+
+    /**
+     * @return the number of lines of a program with about the given number of nodes
+     */
+    private int getNumLines(int numNodes) {
+        SyntheticCorpus.write(filename, SAMPLE_LINES);
+        NodeCountVisitor counter = new NodeCountVisitor();
+        counter.count(new Parser(new ErrorHandler()).parse(filename));
+        double nodesPerLine = (double) counter.getNumNodes() / SAMPLE_LINES;
+        return Math.max(1, (int) (numNodes / nodesPerLine));
+    }
+
+    /**
+     * Measures the AST of a program of about the given number of nodes
+     *
+     * @param targetNodes the number of nodes
+     */
+    private void measure(int targetNodes) {
+        int numLines = getNumLines(targetNodes);
+        SyntheticCorpus.write(filename, numLines);
+        program = new Parser(new ErrorHandler()).parse(filename);
+
+        NodeCountVisitor counter = new NodeCountVisitor();
+        counter.count(program);
+        ListCounter lists = new ListCounter();
+        program.accept(lists);
+
+        // the AST is measured by the heap freed when it is let go, since
+        // that does not count the objects loaded or cached while parsing
+        long used = usedHeap();
+        program = null;
+        long astBytes = used - usedHeap();
+
+        System.out.printf("%9d nodes %8d lines %8d lists %9d list elements"
+                        + " %10.0f KB AST %6.1f B/node%n",
+                counter.getNumNodes(), numLines, lists.numLists, lists.numElements,
+                astBytes / 1024.0, (double) astBytes / counter.getNumNodes());
+    }
+
+    /**
+     * @return the bytes of heap in use once the garbage has been collected,
+     *         collecting until that no longer frees anything, since objects
+     *         waiting to be cleaned up are only freed by a later collection
+     */
+    private static long usedHeap() {
+        long used = Long.MAX_VALUE;
+        long last;
+        do {
+            last = used;
+            System.gc();
+            used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        } while (used < last);
+        return used;
+    }
+
+    public static void main(String[] args) {
+        String nodes = DEFAULT_NODES;
+        if (args.length == 2 && args[0].equals("-nodes")) {
+            nodes = args[1];
+        }
+        else if (args.length != 0) {
+            System.out.println("Usage: AstFootprintBenchmark [-nodes n,n,...]");
+            return;
+        }
+
+        boolean parallelGC = false;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            parallelGC |= collector.getName().startsWith("PS ");
+        }
+        if (!parallelGC) {
+            System.out.println("Warning: without -XX:+UseParallelGC the sizes may be wrong.");
+        }
+
+        AstFootprintBenchmark benchmark = new AstFootprintBenchmark();
+        for (String numNodes : nodes.split(",")) {
+            benchmark.measure(Integer.parseInt(numNodes.trim()));
+        }
+    }
+}
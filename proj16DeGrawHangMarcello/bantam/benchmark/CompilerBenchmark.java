@@ -0,0 +1,413 @@
+/*
+ * File: CompilerBenchmark.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.benchmark;
+
+import proj16DeGrawHangMarcello.bantam.ast.Program;
+import proj16DeGrawHangMarcello.bantam.codegenmips.MipsCodeGenerator;
+import proj16DeGrawHangMarcello.bantam.lexer.Scanner;
+import proj16DeGrawHangMarcello.bantam.lexer.SymbolPool;
+import proj16DeGrawHangMarcello.bantam.parser.Parser;
+import proj16DeGrawHangMarcello.bantam.semant.SemanticAnalyzer;
+import proj16DeGrawHangMarcello.bantam.util.ClassTreeNode;
+import proj16DeGrawHangMarcello.bantam.util.CompilationException;
+import proj16DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * Measures the throughput of each phase of the compiler over synthetic
+ * programs from SyntheticCorpus: tokens scanned, AST nodes built by the parser,
+ * methods checked by the semantic analyzer, and MIPS instructions emitted by
+ * the code generator, each per second.  It also measures the bytes the phase
+ * allocates, read from the JVM's per-thread allocation counter.
+ * <p>
+ * Each phase is first run until the JIT compiler has warmed it up, and then
+ * timed in a number of rounds, each of some runs on fresh input prepared
+ * outside the timing.  The rounds of the phases take turns, and the median
+ * round of each phase is reported, so a stretch of time in which the machine
+ * is slowed by other work, or the JVM by garbage collection, spoils only a few
+ * rounds of each phase rather than all of one.  The results can be saved as a
+ * baseline and later runs compared with it, so a change that makes a phase
+ * slower or allocate more shows up as a regression.
+ * <p>
+ * Even so, the speed of a phase on the same code usually differs between runs
+ * of the benchmark by 10-20%, and now and then by up to 40%, since each JVM's
+ * JIT compiler makes somewhat different code of it, while the bytes it
+ * allocates differ by a few percent.  So a phase must be more than
+ * SPEED_TOLERANCE slower than the baseline to count as a regression, but only
+ * ALLOCATION_TOLERANCE more allocation; allocation is the finer measure of a
+ * change.
+ * <p>
+ * Usage: CompilerBenchmark [-lines n,n,...] [-save file] [-compare file]
+ */
+public class CompilerBenchmark
+{
+    private static final long WARMUP_MILLIS = 2000;
+    private static final long ROUND_MILLIS = 300;
+    private static final int NUM_ROUNDS = 11;
+    private static final int MIN_RUNS = 5;
+
+    // a slowdown, or growth in allocation, by more than these fractions of the
+    // baseline is a regression
+    private static final double SPEED_TOLERANCE = 0.45;
+    private static final double ALLOCATION_TOLERANCE = 0.10;
+
+    private static final String DEFAULT_LINES = "100,1000,10000,100000";
+
+    private String filename;
+    private List<Result> results = new ArrayList<>();
+    private long checksum;  // keeps the JIT from discarding unused work
+
+    /**
+     * One phase of the compiler, run repeatedly on the same program
+     */
+    private abstract class Phase
+    {
+        private String name;
+        private String unit;
+
+        Phase(String name, String unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        /**
+         * prepares the input of the next run; not timed
+         */
+        void setUp() {
+        }
+
+        /**
+         * runs the phase once
+         *
+         * @return the number of units (tokens, nodes, ...) handled
+         */
+        abstract long run();
+    }
+
+    /**
+     * The measurements of the rounds of one phase
+     */
+    private static class Rounds
+    {
+        private List<Double> rates = new ArrayList<>();
+        private List<Double> nanosPerRun = new ArrayList<>();
+        private List<Double> bytesPerRun = new ArrayList<>();
+    }
+
+    /**
+     * The measurements of one phase on a program of one size
+     */
+    private static class Result
+    {
+        private String key;
+        private double unitsPerSecond;
+        private double bytesPerRun;
+
+        Result(String key, double unitsPerSecond, double bytesPerRun) {
+            this.key = key;
+            this.unitsPerSecond = unitsPerSecond;
+            this.bytesPerRun = bytesPerRun;
+        }
+    }
+
+    /**
+     * creates a benchmark that writes its programs to a temporary file
+     */
+    private CompilerBenchmark() {
+        try {
+            File file = File.createTempFile("bench", ".btm");
+            file.deleteOnExit();
+            filename = file.getPath();
+            new File(filename.replace(".btm", ".asm")).deleteOnExit();
+        } catch (IOException e) {
+            throw new CompilationException("Could not create a temporary file.");
+        }
+    }
+
+    /**
+     * Measures every phase on a program of about the given number of lines
+     *
+     * @param numLines the size of the program
+     */
+    private void measureAll(int numLines) {
+        SyntheticCorpus.write(filename, numLines);
+
+        List<Phase> phases = new ArrayList<>();
+        phases.add(new Phase("scan", "tokens") {
+            long run() {
+                Scanner scanner = new Scanner(filename, new ErrorHandler());
+                return scanner.scanAll(new SymbolPool()).size();
+            }
+        });
+
+        NodeCountVisitor counter = new NodeCountVisitor();
+        counter.count(new Parser(new ErrorHandler()).parse(filename));
+        int numNodes = counter.getNumNodes();
+        int numMethods = counter.getNumMethods();
+
+        phases.add(new Phase("parse", "nodes") {
+            long run() {
+                Program program = new Parser(new ErrorHandler()).parse(filename);
+                checksum += program.getClassList().getSize();
+                return numNodes;
+            }
+        });
+
+        phases.add(new Phase("check", "methods") {
+            private Program program;
+
+            void setUp() {
+                program = new Parser(new ErrorHandler()).parse(filename);
+            }
+
+            long run() {
+                ClassTreeNode root = new SemanticAnalyzer(new ErrorHandler()).analyze(program);
+                checksum += root.getNumDescendants();
+                return numMethods;
+            }
+        });
+
+        String asmFilename = filename.replace(".btm", ".asm");
+        phases.add(new Phase("generate", "instructions") {
+            private Program program;
+            private ClassTreeNode root;
+            private long numInstructions = -1;
+
+            void setUp() {
+                program = new Parser(new ErrorHandler()).parse(filename);
+                root = new SemanticAnalyzer(new ErrorHandler()).analyze(program);
+            }
+
+            long run() {
+                new MipsCodeGenerator(new ErrorHandler(), false, false)
+                        .generate(root, asmFilename, program);
+                if (numInstructions < 0) {
+                    numInstructions = countInstructions(asmFilename);
+                }
+                return numInstructions;
+            }
+        });
+
+        measure(numLines, phases);
+    }
+
+    /**
+     * Warms the phases up and then times them, a round of each in turn
+     *
+     * @param numLines the size of the program the phases run on
+     * @param phases   the phases
+     */
+    private void measure(int numLines, List<Phase> phases) {
+        for (Phase phase : phases) {
+            long end = System.currentTimeMillis() + WARMUP_MILLIS;
+            for (int i = 0; i < MIN_RUNS || System.currentTimeMillis() < end; i++) {
+                phase.setUp();
+                checksum += phase.run();
+            }
+        }
+
+        List<Rounds> rounds = new ArrayList<>();
+        for (int i = 0; i < phases.size(); i++) {
+            rounds.add(new Rounds());
+        }
+        for (int round = 0; round < NUM_ROUNDS; round++) {
+            for (int i = 0; i < phases.size(); i++) {
+                measureRound(phases.get(i), rounds.get(i));
+            }
+        }
+
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            double unitsPerSecond = median(rounds.get(i).rates);
+            double nanosPerRun = median(rounds.get(i).nanosPerRun);
+            double bytesPerRun = allocatedBytes() < 0 ? -1 : median(rounds.get(i).bytesPerRun);
+            results.add(new Result(phase.name + "." + numLines, unitsPerSecond, bytesPerRun));
+            System.out.printf("%-9s %7d lines %14.0f %s/s %10.3f ms/run %12.0f KB/run %9.1f MB/s%n",
+                    phase.name, numLines, unitsPerSecond, phase.unit, nanosPerRun / 1e6,
+                    bytesPerRun / 1024, bytesPerRun * 1e9 / nanosPerRun / (1024 * 1024));
+        }
+    }
+
+    /**
+     * Times one round of a phase: at least one run, and as many as fit in
+     * ROUND_MILLIS
+     *
+     * @param phase  the phase
+     * @param rounds the measurements of the phase's rounds, which this round's
+     *               are added to
+     */
+    private void measureRound(Phase phase, Rounds rounds) {
+        long units = 0;
+        long nanos = 0;
+        long bytes = 0;
+        int runs = 0;
+        while (runs < 1 || nanos < ROUND_MILLIS * 1000000) {
+            phase.setUp();
+            long startBytes = allocatedBytes();
+            long start = System.nanoTime();
+            units += phase.run();
+            nanos += System.nanoTime() - start;
+            bytes += allocatedBytes() - startBytes;
+            runs++;
+        }
+        rounds.rates.add(units * 1e9 / nanos);
+        rounds.nanosPerRun.add((double) nanos / runs);
+        rounds.bytesPerRun.add((double) bytes / runs);
+    }
+
+    /**
+     * @param values the measurements of the rounds, which are sorted
+     * @return the middle value, or the mean of the two middle values
+     */
+    private static double median(List<Double> values) {
+        Collections.sort(values);
+        int mid = values.size() / 2;
+        return values.size() % 2 == 1 ? values.get(mid)
+                : (values.get(mid - 1) + values.get(mid)) / 2;
+    }
+
+    /**
+     * @return the number of bytes allocated so far by this thread, or -1 if the
+     *         JVM does not count them
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Counts the instructions in an assembly file: the lines that are not
+     * blank, comments, labels or directives
+     *
+     * @param asmFilename the name of the assembly file
+     * @return the number of instructions
+     */
+    private static long countInstructions(String asmFilename) {
+        try (Stream<String> lines = Files.lines(Paths.get(asmFilename))) {
+            return lines.map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#")
+                            && !line.startsWith(".") && !line.endsWith(":"))
+                    .count();
+        } catch (IOException e) {
+            throw new CompilationException("Could not read " + asmFilename);
+        }
+    }
+
+    /**
+     * Saves the results as a baseline for later runs to be compared with
+     *
+     * @param baselineFilename the name of the file to write
+     */
+    private void save(String baselineFilename) {
+        Properties baseline = new Properties();
+        for (Result result : results) {
+            baseline.setProperty(result.key + ".rate", String.format("%.0f", result.unitsPerSecond));
+            baseline.setProperty(result.key + ".bytes", String.format("%.0f", result.bytesPerRun));
+        }
+        try (OutputStream out = new FileOutputStream(baselineFilename)) {
+            baseline.store(out, "CompilerBenchmark baseline: " + System.getProperty("java.vm.name")
+                    + " " + System.getProperty("java.version") + ", "
+                    + Runtime.getRuntime().availableProcessors() + " processors");
+        } catch (IOException e) {
+            throw new CompilationException("Could not write to file " + baselineFilename);
+        }
+    }
+
+    /**
+     * Compares the results with a saved baseline and reports each phase that
+     * became slower by more than SPEED_TOLERANCE or allocates more by more
+     * than ALLOCATION_TOLERANCE
+     *
+     * @param baselineFilename the name of the baseline file
+     * @return the number of regressions
+     */
+    private int compare(String baselineFilename) {
+        Properties baseline = new Properties();
+        try (InputStream in = new FileInputStream(baselineFilename)) {
+            baseline.load(in);
+        } catch (IOException e) {
+            throw new CompilationException("Could not read " + baselineFilename);
+        }
+
+        int numRegressions = 0;
+        System.out.println("\nCompared with " + baselineFilename + ":");
+        for (Result result : results) {
+            String rate = baseline.getProperty(result.key + ".rate");
+            String bytes = baseline.getProperty(result.key + ".bytes");
+            if (rate == null || bytes == null) {
+                System.out.printf("%-16s not in the baseline%n", result.key);
+                continue;
+            }
+            double rateRatio = result.unitsPerSecond / Double.parseDouble(rate);
+            double bytesRatio = result.bytesPerRun / Double.parseDouble(bytes);
+            boolean regression = rateRatio < 1 - SPEED_TOLERANCE
+                    || bytesRatio > 1 + ALLOCATION_TOLERANCE;
+            if (regression) {
+                numRegressions++;
+            }
+            System.out.printf("%-16s speed %6.2fx  allocation %6.2fx%s%n", result.key,
+                    rateRatio, bytesRatio, regression ? "  REGRESSION" : "");
+        }
+        return numRegressions;
+    }
+
+    public static void main(String[] args) {
+        String lines = DEFAULT_LINES;
+        String saveFilename = null;
+        String compareFilename = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-lines":
+                    lines = args[i + 1];
+                    break;
+                case "-save":
+                    saveFilename = args[i + 1];
+                    break;
+                case "-compare":
+                    compareFilename = args[i + 1];
+                    break;
+                default:
+                    System.out.println("Usage: CompilerBenchmark [-lines n,n,...] "
+                            + "[-save file] [-compare file]");
+                    return;
+            }
+        }
+
+        CompilerBenchmark benchmark = new CompilerBenchmark();
+        for (String numLines : lines.split(",")) {
+            benchmark.measureAll(Integer.parseInt(numLines.trim()));
+        }
+        if (saveFilename != null) {
+            benchmark.save(saveFilename);
+        }
+        if (compareFilename != null && benchmark.compare(compareFilename) > 0) {
+            System.exit(1);
+        }
+        // printed so the JIT cannot tell the results are never used
+        System.out.println("\n(checksum " + benchmark.checksum + ")");
+    }
+}
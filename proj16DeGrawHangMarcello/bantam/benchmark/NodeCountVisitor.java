@@ -0,0 +1,564 @@
+/*
+ * File: NodeCountVisitor.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.benchmark;
+
+import proj16DeGrawHangMarcello.bantam.ast.*;
+import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
+
+/**
+ * Counts the nodes of an AST, and the methods among them, so the benchmarks
+ * can report how many nodes and methods each phase handled per second.
+ */
+class NodeCountVisitor extends Visitor
+{
+    private int numNodes;
+    private int numMethods;
+
+    /**
+     * Counts the nodes of a program
+     *
+     * @param program the root of the AST
+     */
+    void count(Program program) {
+        numNodes = 0;
+        numMethods = 0;
+        program.accept(this);
+    }
+
+    /**
+     * @return the number of nodes counted
+     */
+    int getNumNodes() {
+        return numNodes;
+    }
+
+    /**
+     * @return the number of Method nodes counted
+     */
+    int getNumMethods() {
+        return numMethods;
+    }
+
+    /**
+     * Visit a program node
+     *
+     * @param node the program node
+     * @return result of the visit
+     */
+    public Object visit(Program node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a class list node
+     *
+     * @param node the class list node
+     * @return result of the visit
+     */
+    public Object visit(ClassList node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a class node
+     *
+     * @param node the class node
+     * @return result of the visit
+     */
+    public Object visit(Class_ node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a member list node
+     *
+     * @param node the member list node
+     * @return result of the visit
+     */
+    public Object visit(MemberList node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a field node
+     *
+     * @param node the field node
+     * @return result of the visit
+     */
+    public Object visit(Field node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a method node
+     *
+     * @param node the method node
+     * @return result of the visit
+     */
+    public Object visit(Method node) {
+        numNodes++;
+        numMethods++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a formal list node
+     *
+     * @param node the formal list node
+     * @return result of the visit
+     */
+    public Object visit(FormalList node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a formal node
+     *
+     * @param node the formal node
+     * @return result of the visit
+     */
+    public Object visit(Formal node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a statement list node
+     *
+     * @param node the statement list node
+     * @return result of the visit
+     */
+    public Object visit(StmtList node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return result of the visit
+     */
+    public Object visit(DeclStmt node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an expression statement node
+     *
+     * @param node the expression statement node
+     * @return result of the visit
+     */
+    public Object visit(ExprStmt node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an if statement node
+     *
+     * @param node the if statement node
+     * @return result of the visit
+     */
+    public Object visit(IfStmt node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a while statement node
+     *
+     * @param node the while statement node
+     * @return result of the visit
+     */
+    public Object visit(WhileStmt node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a for statement node
+     *
+     * @param node the for statement node
+     * @return result of the visit
+     */
+    public Object visit(ForStmt node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a break statement node
+     *
+     * @param node the break statement node
+     * @return result of the visit
+     */
+    public Object visit(BreakStmt node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a block statement node
+     *
+     * @param node the block statement node
+     * @return result of the visit
+     */
+    public Object visit(BlockStmt node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a return statement node
+     *
+     * @param node the return statement node
+     * @return result of the visit
+     */
+    public Object visit(ReturnStmt node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an expression list node
+     *
+     * @param node the expression list node
+     * @return result of the visit
+     */
+    public Object visit(ExprList node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a dispatch expression node
+     *
+     * @param node the dispatch expression node
+     * @return result of the visit
+     */
+    public Object visit(DispatchExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a new expression node
+     *
+     * @param node the new expression node
+     * @return result of the visit
+     */
+    public Object visit(NewExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a new array expression node
+     *
+     * @param node the new array expression node
+     * @return result of the visit
+     */
+    public Object visit(NewArrayExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an instanceof expression node
+     *
+     * @param node the instanceof expression node
+     * @return result of the visit
+     */
+    public Object visit(InstanceofExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a cast expression node
+     *
+     * @param node the cast expression node
+     * @return result of the visit
+     */
+    public Object visit(CastExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return result of the visit
+     */
+    public Object visit(AssignExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an array assignment expression node
+     *
+     * @param node the array assignment expression node
+     * @return result of the visit
+     */
+    public Object visit(ArrayAssignExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary comparison equals expression node
+     *
+     * @param node the binary comparison equals expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompEqExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary comparison not equals expression node
+     *
+     * @param node the binary comparison not equals expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompNeExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary comparison less than expression node
+     *
+     * @param node the binary comparison less than expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompLtExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary comparison less than or equal to expression node
+     *
+     * @param node the binary comparison less than or equal to expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompLeqExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary comparison greater than expression node
+     *
+     * @param node the binary comparison greater than expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompGtExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary comparison greater than or equal to expression node
+     *
+     * @param node the binary comparison greater than or equal to expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompGeqExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary arithmetic plus expression node
+     *
+     * @param node the binary arithmetic plus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithPlusExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary arithmetic minus expression node
+     *
+     * @param node the binary arithmetic minus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithMinusExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary arithmetic times expression node
+     *
+     * @param node the binary arithmetic times expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithTimesExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary arithmetic divide expression node
+     *
+     * @param node the binary arithmetic divide expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithDivideExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary arithmetic modulus expression node
+     *
+     * @param node the binary arithmetic modulus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithModulusExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary logical AND expression node
+     *
+     * @param node the binary logical AND expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryLogicAndExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a binary logical OR expression node
+     *
+     * @param node the binary logical OR expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryLogicOrExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an unary negation expression node
+     *
+     * @param node the unary negation expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryNegExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an unary NOT expression node
+     *
+     * @param node the unary NOT expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryNotExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an unary increment expression node
+     *
+     * @param node the unary increment expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryIncrExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an unary decrement expression node
+     *
+     * @param node the unary decrement expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryDecrExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return result of the visit
+     */
+    public Object visit(VarExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an array expression node
+     *
+     * @param node the array expression node
+     * @return result of the visit
+     */
+    public Object visit(ArrayExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit an int constant expression node
+     *
+     * @param node the int constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstIntExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a boolean constant expression node
+     *
+     * @param node the boolean constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstBooleanExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+
+    /**
+     * Visit a string constant expression node
+     *
+     * @param node the string constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstStringExpr node) {
+        numNodes++;
+        return super.visit(node);
+    }
+}
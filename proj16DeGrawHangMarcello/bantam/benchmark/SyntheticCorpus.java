@@ -0,0 +1,165 @@
+/*
+ * File: SyntheticCorpus.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.benchmark;
+
+import proj16DeGrawHangMarcello.bantam.util.CompilationException;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes Bantam Java programs of any size for the benchmarks to compile.
+ * A program is a number of classes, each with fields and methods full of
+ * loops, conditionals, arithmetic and dispatches, followed by a Main class
+ * that calls them.  Every class extends the one before it, up to a chain of
+ * CHAIN_LENGTH classes, so the checker has inherited members to look up.
+ * The programs are the same every time for the same size, and they parse
+ * and check without errors.
+ */
+public class SyntheticCorpus
+{
+    private static final int METHODS_PER_CLASS = 6;
+    private static final int CHAIN_LENGTH = 8;
+
+    // approximate number of lines written for each class
+    static final int LINES_PER_CLASS = 90;
+
+    /**
+     * Writes a program of about the given number of lines to a file
+     *
+     * @param filename the name of the file to write
+     * @param numLines the approximate number of lines of the program
+     */
+    public static void write(String filename, int numLines) {
+        try (Writer out = new FileWriter(filename)) {
+            out.write(generate(numLines));
+        } catch (IOException e) {
+            throw new CompilationException("Could not write to file " + filename);
+        }
+    }
+
+    /**
+     * Generates a program of about the given number of lines
+     *
+     * @param numLines the approximate number of lines of the program
+     * @return the text of the program
+     */
+    public static String generate(int numLines) {
+        int numClasses = Math.max(1, numLines / LINES_PER_CLASS);
+        StringBuilder program = new StringBuilder();
+        for (int k = 0; k < numClasses; k++) {
+            writeClass(program, k);
+        }
+        writeMain(program, numClasses);
+        return program.toString();
+    }
+
+    /**
+     * writes class C(k), which extends the class before it unless it starts a
+     * new chain
+     */
+    private static void writeClass(StringBuilder out, int k) {
+        out.append("class C").append(k);
+        if (k % CHAIN_LENGTH != 0) {
+            out.append(" extends C").append(k - 1);
+        }
+        out.append(" {\n");
+        out.append("    int f").append(k).append(" = ").append(k).append(";\n");
+        out.append("    boolean g").append(k).append(" = true;\n");
+        out.append("    String s").append(k).append(" = \"class ").append(k).append("\";\n");
+        out.append("    int[] a").append(k).append(" = new int[16];\n\n");
+        for (int m = 0; m < METHODS_PER_CLASS; m++) {
+            switch (m % 3) {
+                case 0:
+                    writeLoopMethod(out, k, m);
+                    break;
+                case 1:
+                    writeLogicMethod(out, k, m);
+                    break;
+                default:
+                    writeDispatchMethod(out, k, m);
+                    break;
+            }
+        }
+        out.append("}\n\n");
+    }
+
+    // a method of loops over the array field
+    private static void writeLoopMethod(StringBuilder out, int k, int m) {
+        out.append("    int m").append(k).append('_').append(m).append("(int x, int y) {\n");
+        out.append("        var sum = 0;\n");
+        out.append("        var i = 0;\n");
+        out.append("        for (i = 0; i < x; i++) {\n");
+        out.append("            if (i % 2 == 0) {\n");
+        out.append("                sum = sum + i * y;\n");
+        out.append("            }\n");
+        out.append("            else {\n");
+        out.append("                sum = sum - y / 3;\n");
+        out.append("            }\n");
+        out.append("            a").append(k).append("[i % 16] = sum;\n");
+        out.append("        }\n");
+        out.append("        while (sum > 1000) {\n");
+        out.append("            sum = sum / 2;\n");
+        out.append("        }\n");
+        out.append("        return sum + f").append(k).append(";\n");
+        out.append("    }\n\n");
+    }
+
+    // a method of boolean logic on the parameter and the fields
+    private static void writeLogicMethod(StringBuilder out, int k, int m) {
+        out.append("    boolean m").append(k).append('_').append(m).append("(int x) {\n");
+        out.append("        var b = x > ").append(m).append(" && g").append(k).append(";\n");
+        out.append("        if (!b) {\n");
+        out.append("            b = x <= 10 || x == 42 || x != f").append(k).append(";\n");
+        out.append("        }\n");
+        out.append("        var count = 0;\n");
+        out.append("        while (count < x && b) {\n");
+        out.append("            count++;\n");
+        out.append("            b = count >= 3;\n");
+        out.append("        }\n");
+        out.append("        return b;\n");
+        out.append("    }\n\n");
+    }
+
+    // a method that calls the other methods of the class
+    private static void writeDispatchMethod(StringBuilder out, int k, int m) {
+        out.append("    int m").append(k).append('_').append(m).append("(int n) {\n");
+        out.append("        var total = m").append(k).append('_').append(m - 2).append("(n, 2);\n");
+        out.append("        if (m").append(k).append('_').append(m - 1).append("(n)) {\n");
+        out.append("            total = total + this.m").append(k).append('_').append(m - 2)
+           .append("(total % 7, n);\n");
+        out.append("        }\n");
+        out.append("        var other = new C").append(k).append("();\n");
+        out.append("        other.f").append(k).append(" = total;\n");
+        out.append("        return -total + a").append(k).append("[n % 16];\n");
+        out.append("    }\n\n");
+    }
+
+    // class Main, whose main method calls a method of every class
+    private static void writeMain(StringBuilder out, int numClasses) {
+        out.append("class Main {\n");
+        out.append("    void main() {\n");
+        out.append("        var total = 0;\n");
+        for (int k = 0; k < numClasses; k++) {
+            out.append("        var c").append(k).append(" = new C").append(k).append("();\n");
+            out.append("        total = total + c").append(k).append(".m").append(k)
+               .append("_2(").append(k).append(");\n");
+        }
+        out.append("    }\n");
+        out.append("}\n");
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: SyntheticCorpus <filename> <number of lines>");
+            return;
+        }
+        write(args[0], Integer.parseInt(args[1]));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * File: AssemblyPrinter.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+/**
+ * Writes the code of methods to the assembly, once the RegisterAllocator has
+ * given all of its registers MIPS registers.  It is the one place
+ * Instructions become text: each is written from its Opcode, register
+ * numbers, immediate and Label straight into the AssemblyWriter, in the
+ * form MipsSupport writes the same instruction, without making a String of
+ * it first.
+ */
+class AssemblyPrinter
+{
+    private final AssemblyWriter out;
+
+    /**
+     * @param out the writer of the assembly
+     */
+    AssemblyPrinter(AssemblyWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the definition of a label
+     */
+    void printLabel(Label label) {
+        out.print(label.name).println(":");
+    }
+
+    private void printRegister(int register) {
+        out.print(Instruction.getName(register));
+    }
+
+    /**
+     * Writes an instruction
+     *
+     * @param instruction the instruction, with only MIPS registers
+     */
+    void print(Instruction instruction) {
+        Opcode op = instruction.op;
+        if (op.form == Opcode.Form.LABEL) {
+            printLabel(instruction.label);
+            return;
+        }
+        if (op.mnemonic == null) {
+            throw new IllegalStateException("Cannot print " + op);
+        }
+        out.print('\t').print(op.mnemonic).print(' ');
+        switch (op.form) {
+            case DEST:
+                printRegister(instruction.dest);
+                break;
+            case DEST_IMM:
+                printRegister(instruction.dest);
+                out.print(' ').print(instruction.imm);
+                break;
+            case DEST_LABEL:
+                printRegister(instruction.dest);
+                out.print(' ').print(instruction.label.name);
+                break;
+            case DEST_SRC:
+                printRegister(instruction.dest);
+                out.print(' ');
+                printRegister(instruction.src1);
+                break;
+            case DEST_SRC_SRC:
+                printRegister(instruction.dest);
+                out.print(' ');
+                printRegister(instruction.src1);
+                out.print(' ');
+                printRegister(instruction.src2);
+                break;
+            case DEST_SRC_IMM:
+                printRegister(instruction.dest);
+                out.print(' ');
+                printRegister(instruction.src1);
+                out.print(' ').print(instruction.imm);
+                break;
+            case LOAD:
+                printRegister(instruction.dest);
+                out.print(' ').print(instruction.imm).print('(');
+                printRegister(instruction.src1);
+                out.print(')');
+                break;
+            case STORE:
+                printRegister(instruction.src1);
+                out.print(' ').print(instruction.imm).print('(');
+                printRegister(instruction.src2);
+                out.print(')');
+                break;
+            case SRC:
+                printRegister(instruction.src1);
+                break;
+            case SRC_SRC:
+                printRegister(instruction.src1);
+                out.print(' ');
+                printRegister(instruction.src2);
+                break;
+            case SRC_SRC_LABEL:
+                printRegister(instruction.src1);
+                out.print(' ');
+                printRegister(instruction.src2);
+                out.print(' ').print(instruction.label.name);
+                break;
+            case LABEL_ONLY:
+                out.print(instruction.label.name);
+                break;
+            default:
+                throw new IllegalStateException("Cannot print " + op);
+        }
+        out.println();
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * File: AssemblyWriter.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the assembly the code generator produces, collecting it in a large
+ * buffer instead of passing on each directive and instruction as it comes.
+ * <p>
+ * Writing to a file, it writes the buffer through a FileChannel each time it
+ * fills, so the file is written in chunks of BUFFER_SIZE bytes.  The buffer
+ * is kept for the next file the thread writes, since a batch may write
+ * thousands of them.  Writing to memory, the buffer grows to hold all the
+ * assembly, which getText gives back, so the IDE can show it without reading
+ * the file again.
+ * <p>
+ * Everything is written as ASCII, except for string constants, whose other
+ * characters are written in UTF-8.  An error writing the file is thrown as
+ * an UncheckedIOException, which the MipsCodeGenerator reports.
+ */
+public class AssemblyWriter
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * the buffer of the last file each thread wrote, ready for its next one
+     */
+    private static final ThreadLocal<byte[]> spareBuffer = new ThreadLocal<>();
+
+    private byte[] buffer;
+    private int length;
+    private FileChannel channel;  // null when writing to memory
+
+    /**
+     * Makes a writer of the assembly to memory
+     */
+    public AssemblyWriter() {
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * Makes a writer of the assembly to a file, which it creates or empties
+     *
+     * @param filename the name of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public AssemblyWriter(String filename) throws IOException {
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = spareBuffer.get();
+        spareBuffer.set(null);
+        if (this.buffer == null) {
+            this.buffer = new byte[BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * Makes room for some more bytes in the buffer, writing it to the file or
+     * making it bigger
+     */
+    private void reserve(int numBytes) {
+        if (length + numBytes <= buffer.length) {
+            return;
+        }
+        if (channel != null) {
+            flush();
+        }
+        if (length + numBytes > buffer.length) {
+            byte[] bigger = new byte[Math.max(2 * buffer.length, length + numBytes)];
+            System.arraycopy(buffer, 0, bigger, 0, length);
+            buffer = bigger;
+        }
+    }
+
+    /**
+     * Writes the buffer to the file and empties it
+     */
+    private void flush() {
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            length = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a string
+     *
+     * @param string the string
+     * @return this writer
+     */
+    public AssemblyWriter print(String string) {
+        return print(string, 0, string.length());
+    }
+
+    /**
+     * Writes part of a string
+     *
+     * @param string the string
+     * @param start  the index of the first character
+     * @param end    the index after the last character
+     * @return this writer
+     */
+    public AssemblyWriter print(String string, int start, int end) {
+        reserve(end - start);
+        for (int i = start; i < end; i++) {
+            char c = string.charAt(i);
+            if (c >= 0x80) {
+                write(string.substring(i, end).getBytes(StandardCharsets.UTF_8));
+                return this;
+            }
+            buffer[length++] = (byte) c;
+        }
+        return this;
+    }
+
+    /**
+     * Writes a character
+     *
+     * @param c the character
+     * @return this writer
+     */
+    public AssemblyWriter print(char c) {
+        if (c >= 0x80) {
+            return print(String.valueOf(c));
+        }
+        reserve(1);
+        buffer[length++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Writes an int in decimal
+     *
+     * @param value the int
+     * @return this writer
+     */
+    public AssemblyWriter print(int value) {
+        if (value == Integer.MIN_VALUE) {
+            return print(String.valueOf(value));
+        }
+        reserve(11);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int numDigits = 1;
+        for (int rest = value; rest >= 10; rest /= 10) {
+            numDigits++;
+        }
+        int end = length + numDigits;
+        for (int i = end - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length = end;
+        return this;
+    }
+
+    /**
+     * Writes a string and ends the line
+     *
+     * @param string the string
+     * @return this writer
+     */
+    public AssemblyWriter println(String string) {
+        return print(string).print('\n');
+    }
+
+    /**
+     * Writes an int in decimal and ends the line
+     *
+     * @param value the int
+     * @return this writer
+     */
+    public AssemblyWriter println(int value) {
+        return print(value).print('\n');
+    }
+
+    /**
+     * Ends the line
+     *
+     * @return this writer
+     */
+    public AssemblyWriter println() {
+        return print('\n');
+    }
+
+    /**
+     * Writes some bytes
+     *
+     * @param bytes  the array holding the bytes
+     * @param offset the index of the first
+     * @param count  the number of bytes
+     * @return this writer
+     */
+    public AssemblyWriter write(byte[] bytes, int offset, int count) {
+        reserve(count);
+        System.arraycopy(bytes, offset, buffer, length, count);
+        length += count;
+        return this;
+    }
+
+    private void write(byte[] bytes) {
+        write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @return the assembly written to memory
+     */
+    public String getText() {
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the assembly written to memory to a file as well, so it can be
+     * assembled
+     *
+     * @param filename the name of the file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTo(String filename) throws IOException {
+        try (FileChannel file = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+            while (bytes.hasRemaining()) {
+                file.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Writes what is left in the buffer to the file and closes it.  A writer
+     * to memory is left as it is.
+     */
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                channel = null;
+                if (buffer.length == BUFFER_SIZE) {
+                    spareBuffer.set(buffer);
+                }
+                buffer = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * File: BasicBlock.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A basic block of the code of a method: a run of instructions that
+ * execution enters only at the first and leaves only after the last, with
+ * the blocks it may go on to.  The instructions are those from
+ * start up to end in the code the ControlFlowGraph was built from.
+ */
+class BasicBlock
+{
+    final int index;  // its place among the blocks, in the order of the code
+    final int start;
+    int end;
+    final List<BasicBlock> successors = new ArrayList<>(2);
+
+    BasicBlock(int index, int start) {
+        this.index = index;
+        this.start = start;
+    }
+}
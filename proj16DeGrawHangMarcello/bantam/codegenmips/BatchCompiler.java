@@ -0,0 +1,255 @@
+/*
+ * File: BatchCompiler.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+import proj16DeGrawHangMarcello.bantam.ast.Program;
+import proj16DeGrawHangMarcello.bantam.parser.Parser;
+import proj16DeGrawHangMarcello.bantam.semant.SemanticAnalyzer;
+import proj16DeGrawHangMarcello.bantam.util.ClassTreeNode;
+import proj16DeGrawHangMarcello.bantam.util.CompilationException;
+import proj16DeGrawHangMarcello.bantam.util.Error;
+import proj16DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Compiles many Bantam Java files at once on a fork-join pool.  Each file is
+ * parsed and checked by its own Parser and SemanticAnalyzer, which report to
+ * the file's own ErrorHandler, so the files share no state and are compiled
+ * on as many threads as the pool has.  Once every file has been checked, the
+ * assembly for each file that checked without errors is generated, again in
+ * parallel.  The errors of all the files are then merged into one ErrorHandler
+ * in the order the files were given, so the report is the same however the
+ * work was divided among the threads.
+ */
+public class BatchCompiler
+{
+    private ForkJoinPool pool;
+    private boolean gc;
+    private boolean opt;
+
+    /**
+     * creates a batch compiler that runs on the common fork-join pool
+     *
+     * @param gc  whether garbage collection is enabled in the generated code
+     * @param opt whether optimization is enabled
+     */
+    public BatchCompiler(boolean gc, boolean opt) {
+        this(ForkJoinPool.commonPool(), gc, opt);
+    }
+
+    /**
+     * creates a batch compiler
+     *
+     * @param pool the pool whose threads compile the files
+     * @param gc   whether garbage collection is enabled in the generated code
+     * @param opt  whether optimization is enabled
+     */
+    public BatchCompiler(ForkJoinPool pool, boolean gc, boolean opt) {
+        this.pool = pool;
+        this.gc = gc;
+        this.opt = opt;
+    }
+
+    /**
+     * Compiles each file to an assembly file of the same name ending in .asm
+     *
+     * @param filenames    the names of the Bantam Java files
+     * @param errorHandler the handler the errors of all the files are merged into
+     * @return the result of compiling each file, in the order of filenames
+     */
+    public List<FileResult> compile(List<String> filenames, ErrorHandler errorHandler) {
+        FileResult[] results = new FileResult[filenames.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new FileResult(filenames.get(i));
+        }
+
+        pool.invoke(new PhaseTask(results, 0, results.length, this::check));
+        pool.invoke(new PhaseTask(results, 0, results.length, this::generate));
+
+        for (FileResult result : results) {
+            errorHandler.registerAll(result.errorHandler);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Parses and checks one file
+     *
+     * @param result the result for the file
+     */
+    private void check(FileResult result) {
+        try {
+            Program program = new Parser(result.errorHandler).parse(result.filename);
+            result.root = new SemanticAnalyzer(result.errorHandler).analyze(program);
+            result.program = program;
+        } catch (CompilationException e) {
+            // the errors are in the file's error handler
+        } catch (RuntimeException e) {
+            // a bug in the compiler fails this file only, not the whole batch
+            registerInternalError(result, Error.Kind.SEMANT_ERROR, e);
+        }
+    }
+
+    /**
+     * Generates the assembly for one file if it was checked without errors.
+     * The file's AST is let go of afterwards, so the results of a large
+     * batch do not hold on to every AST.
+     *
+     * @param result the result for the file
+     */
+    private void generate(FileResult result) {
+        if (result.program == null) {
+            return;
+        }
+        String asmFilename = result.filename.replace(".btm", ".asm");
+        try {
+            MipsCodeGenerator generator = new MipsCodeGenerator(result.errorHandler, gc, opt);
+            generator.generate(result.root, asmFilename, result.program);
+            result.asmFilename = asmFilename;
+        } catch (CompilationException e) {
+            // the errors are in the file's error handler
+        } catch (RuntimeException e) {
+            // a bug in the compiler fails this file only, not the whole batch
+            registerInternalError(result, Error.Kind.CODEGEN_ERROR, e);
+        }
+        result.program = null;
+        result.root = null;
+    }
+
+    /**
+     * Reports an exception thrown while compiling a file as an error in the file
+     *
+     * @param result the result for the file
+     * @param kind   the kind of error, for the phase that threw the exception
+     * @param e      the exception
+     */
+    private void registerInternalError(FileResult result, Error.Kind kind, RuntimeException e) {
+        result.errorHandler.register(kind, "Internal compiler error in "
+                + result.filename + ": " + e);
+    }
+
+    /**
+     * Runs one phase of the compilation on a range of the files, splitting the
+     * range in half until each task has a single file
+     */
+    @SuppressWarnings("serial")  // only run in this process, never serialized
+    private static class PhaseTask extends RecursiveAction
+    {
+        private FileResult[] results;
+        private int low;
+        private int high;
+        private Consumer<FileResult> phase;
+
+        PhaseTask(FileResult[] results, int low, int high, Consumer<FileResult> phase) {
+            this.results = results;
+            this.low = low;
+            this.high = high;
+            this.phase = phase;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low <= 1) {
+                if (low < high) {
+                    phase.accept(results[low]);
+                }
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            invokeAll(new PhaseTask(results, low, mid, phase),
+                      new PhaseTask(results, mid, high, phase));
+        }
+    }
+
+    /**
+     * The outcome of compiling one file of a batch
+     */
+    public static class FileResult
+    {
+        private String filename;
+        private ErrorHandler errorHandler = new ErrorHandler();
+        private String asmFilename;
+        private Program program;
+        private ClassTreeNode root;
+
+        FileResult(String filename) {
+            this.filename = filename;
+        }
+
+        /**
+         * @return the name of the Bantam Java file
+         */
+        public String getFilename() {
+            return filename;
+        }
+
+        /**
+         * @return the handler holding the errors found in this file only
+         */
+        public ErrorHandler getErrorHandler() {
+            return errorHandler;
+        }
+
+        /**
+         * @return the name of the assembly file generated, or null if the
+         *         file had errors
+         */
+        public String getAsmFilename() {
+            return asmFilename;
+        }
+
+        /**
+         * @return true if the file was compiled without errors
+         */
+        public boolean isSuccessful() {
+            return asmFilename != null;
+        }
+    }
+
+    public static void main(String[] args) {
+        ErrorHandler errorHandler = new ErrorHandler();
+        // -opt before the file names enables optimization, and -gc garbage collection
+        boolean opt = false;
+        boolean gc = false;
+        int first = 0;
+        for (; first < args.length && args[first].startsWith("-"); first++) {
+            opt |= args[first].equals("-opt");
+            gc |= args[first].equals("-gc");
+        }
+        BatchCompiler compiler = new BatchCompiler(gc, opt);
+
+        long start = System.currentTimeMillis();
+        List<FileResult> results = compiler.compile(
+                Arrays.asList(Arrays.copyOfRange(args, first, args.length)), errorHandler);
+        long time = System.currentTimeMillis() - start;
+
+        int numFailed = 0;
+        for (FileResult result : results) {
+            System.out.println("\n========== MIPS Code Generation results for "
+                    + result.getFilename() + " =============");
+            if (result.isSuccessful()) {
+                System.out.println(" Generation of " + result.getAsmFilename() + " was successful.");
+            }
+            else {
+                System.out.println(" There were errors in generation:");
+                for (Error error : result.getErrorHandler().getErrorList()) {
+                    System.out.println("\t" + error.toString());
+                }
+                numFailed++;
+            }
+        }
+        System.out.println("\nCompiled " + results.size() + " files (" + numFailed
+                + " with errors) in " + time + " ms on "
+                + ForkJoinPool.commonPool().getParallelism() + " threads.");
+    }
+}
@@ -0,0 +1,1432 @@
+/*
+ * File: CodeGenVisitor.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+import proj16DeGrawHangMarcello.bantam.ast.*;
+import proj16DeGrawHangMarcello.bantam.util.ClassLayout;
+import proj16DeGrawHangMarcello.bantam.util.ClassTreeNode;
+import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Generates the code of the methods and initialization subroutines of a
+ * checked program, one at a time, with a virtual register for each variable
+ * and each value computed, which the RegisterAllocator then replaces with
+ * MIPS registers.  Visiting an expression returns the Integer number of the
+ * register holding its value.
+ * <p>
+ * A method gets its object in $a0 and its first three parameters in $a1-$a3;
+ * the others are in the caller's frame, the fourth at 0($sp) when the method
+ * is called.  It returns its result in $v0.  The code checks for a null
+ * object, a zero divisor, an array index out of bounds, a negative array size
+ * and a bad cast where the program can go wrong, and branches to a stub at
+ * the end of the method that jumps to the runtime's error routine with the
+ * line of the error.
+ * <p>
+ * Conditions are compiled to branches rather than computed as values where
+ * they decide a branch, and loops test their condition at the bottom, so a
+ * loop runs one branch per iteration.  A call is made straight to the method
+ * when no subclass of the object's static type overrides it.
+ * <p>
+ * The registers holding references to objects are recorded, so that the
+ * RegisterAllocator can tell the garbage collector where to find them.
+ * <p>
+ * When optimization is enabled, a ConstantFolder first finds the expressions
+ * whose values are constant, which are loaded rather than computed, and the
+ * branches of if and while statements that can never run are left out.
+ */
+class CodeGenVisitor extends Visitor
+{
+    private static final String OBJECT_CLONE = "Object.clone";
+    private static final String NEW_ARRAY = "_new_array";
+    private static final String NEW_OBJECT_ARRAY = "_new_object_array";
+    private static final String NULL_POINTER_ERROR = "_null_pointer_error";
+    private static final String DIVIDE_ZERO_ERROR = "_divide_zero_error";
+    private static final String ARRAY_INDEX_ERROR = "_array_index_error";
+    private static final String ARRAY_SIZE_ERROR = "_array_size_error";
+    private static final String CLASS_CAST_ERROR = "_class_cast_error";
+
+    private MipsCodeGenerator generator;
+    private ClassTreeNode root;
+    private boolean opt;
+
+    /**
+     * the slots of the dispatch table of each class that some subclass
+     * overrides, so calls through the others can go straight to the method
+     */
+    private HashMap<ClassTreeNode, BitSet> overriddenSlots = new HashMap<>();
+
+    // the state of the method being generated
+    private ClassTreeNode currentClass;
+    private List<Instruction> code;
+    private List<Instruction> errorCode;
+    private HashMap<String, Label> errorLabels;
+    private int numRegisters;
+    private int numOutgoingArgs;
+    private int thisRegister;
+    private int[] paramRegisters;
+    private HashMap<Integer, Integer> localRegisters;
+    private BitSet variableRegisters;
+    private BitSet pointerRegisters;
+    private Deque<Label> breakLabels;
+    private Label returnLabel;
+    private Stmt lastStmt;
+    private ConstantFolder folder;
+
+    /**
+     * @param generator the generator of the assembly file, which knows the
+     *                  labels and class ids of the data section
+     * @param root      the root of the class hierarchy tree
+     * @param opt       whether optimization is enabled
+     */
+    CodeGenVisitor(MipsCodeGenerator generator, ClassTreeNode root, boolean opt) {
+        this.generator = generator;
+        this.root = root;
+        this.opt = opt;
+    }
+
+    /**
+     * @return the number of virtual registers of the code last generated
+     */
+    int getNumRegisters() {
+        return numRegisters;
+    }
+
+    /**
+     * @return the virtual registers of the code last generated that hold
+     *         references to objects
+     */
+    BitSet getPointerRegisters() {
+        return pointerRegisters;
+    }
+
+    /**
+     * @return the largest number of parameters the code last generated
+     *         passes in its frame to a method it calls
+     */
+    int getNumOutgoingArgs() {
+        return numOutgoingArgs;
+    }
+
+    /**
+     * Starts the code of a method or initialization subroutine, moving its
+     * object into a register
+     *
+     * @param classNode the class the code belongs to
+     */
+    private void start(ClassTreeNode classNode) {
+        currentClass = classNode;
+        code = new ArrayList<>();
+        errorCode = new ArrayList<>();
+        errorLabels = new HashMap<>();
+        numRegisters = 0;
+        numOutgoingArgs = 0;
+        localRegisters = new HashMap<>();
+        variableRegisters = new BitSet();
+        pointerRegisters = new BitSet();
+        breakLabels = new ArrayDeque<>();
+        returnLabel = generator.getNewLabel();
+        lastStmt = null;
+        folder = new ConstantFolder();
+        thisRegister = newRegister();
+        pointerRegisters.set(thisRegister);
+        emitMove(thisRegister, Instruction.A0);
+    }
+
+    /**
+     * Ends the code of a method or initialization subroutine with its return
+     * and its error stubs
+     *
+     * @return the code
+     */
+    private List<Instruction> finish() {
+        emitLabel(returnLabel);
+        code.add(new Instruction(Opcode.RET));
+        code.addAll(errorCode);
+        return code;
+    }
+
+    /**
+     * Generates the code of a method
+     *
+     * @param classNode the class declaring the method
+     * @param method    the method
+     * @return the code, with virtual registers
+     */
+    List<Instruction> genMethod(ClassTreeNode classNode, Method method) {
+        start(classNode);
+        if (opt) {
+            folder.fold(method);
+        }
+        int numParams = method.getFormalList().getSize();
+        paramRegisters = new int[numParams];
+        for (int i = 0; i < numParams; i++) {
+            paramRegisters[i] = newVariableRegister();
+            markIfPointer(paramRegisters[i],
+                    ((Formal) method.getFormalList().get(i)).getType());
+            if (i < 3) {
+                emitMove(paramRegisters[i], Instruction.A1 + i);
+            }
+            else {
+                Instruction instruction = new Instruction(Opcode.LOAD_ARG);
+                instruction.dest = paramRegisters[i];
+                instruction.imm = i;
+                code.add(instruction);
+            }
+        }
+        StmtList stmts = method.getStmtList();
+        if (stmts.getSize() > 0) {
+            lastStmt = (Stmt) stmts.get(stmts.getSize() - 1);
+        }
+        stmts.accept(this);
+        return finish();
+    }
+
+    /**
+     * Generates the initialization subroutine of a class, which initializes
+     * the fields of a new object that have initializers, those of its
+     * superclasses first, and returns the object
+     *
+     * @param classNode the class
+     * @return the code, with virtual registers
+     */
+    List<Instruction> genInit(ClassTreeNode classNode) {
+        start(classNode);
+        paramRegisters = new int[0];
+        ClassTreeNode parent = classNode.getParent();
+        String parentInit = parent == null ? null : generator.getInitLabel(parent.getName());
+        if (parentInit != null) {
+            emitMove(Instruction.A0, thisRegister);
+            emitCall(parentInit);
+        }
+        ClassLayout layout = classNode.getLayout();
+        for (ASTNode member : classNode.getASTNode().getMemberList()) {
+            if (member instanceof Field && ((Field) member).getInit() != null) {
+                Field field = (Field) member;
+                if (opt) {
+                    folder.fold(field.getInit());
+                }
+                int value = genOperand(field.getInit());
+                int offset = layout.getFieldOffset(layout.getFieldIndex(field.getName()));
+                emitStore(value, offset, thisRegister);
+            }
+        }
+        emitMove(Instruction.V0, thisRegister);
+        return finish();
+    }
+
+    /* Helpers that add instructions */
+
+    private int newRegister() {
+        return Instruction.FIRST_VIRTUAL + numRegisters++;
+    }
+
+    /**
+     * @return a new register for a variable, which assignments change
+     */
+    private int newVariableRegister() {
+        int register = newRegister();
+        variableRegisters.set(register);
+        return register;
+    }
+
+    /**
+     * @return whether a type is a class or array type, whose values are
+     *         references
+     */
+    private static boolean isReference(String type) {
+        return type != null && !type.equals("int") && !type.equals("boolean")
+                && !type.equals("void") && !type.equals("null");
+    }
+
+    /**
+     * Records that a virtual register holds references if its type is a
+     * class or array type
+     *
+     * @param register the register
+     * @param type     the type of the values it holds
+     */
+    private void markIfPointer(int register, String type) {
+        if (register >= Instruction.FIRST_VIRTUAL && isReference(type)) {
+            pointerRegisters.set(register);
+        }
+    }
+
+    private Instruction emit(Opcode op, int dest, int src1, int src2) {
+        Instruction instruction = new Instruction(op);
+        instruction.dest = dest;
+        instruction.src1 = src1;
+        instruction.src2 = src2;
+        code.add(instruction);
+        return instruction;
+    }
+
+    private void emitImmediate(Opcode op, int dest, int src, int imm) {
+        emit(op, dest, src, Instruction.NONE).imm = imm;
+    }
+
+    private void emitLoadImm(int dest, int imm) {
+        emit(Opcode.LI, dest, Instruction.NONE, Instruction.NONE).imm = imm;
+    }
+
+    private void emitLoadAddr(int dest, String name) {
+        emit(Opcode.LA, dest, Instruction.NONE, Instruction.NONE).label = generator.getLabel(name);
+    }
+
+    private void emitMove(int dest, int src) {
+        emit(Opcode.MOVE, dest, src, Instruction.NONE);
+    }
+
+    private void emitLoad(int dest, int offset, int base) {
+        emit(Opcode.LW, dest, base, Instruction.NONE).imm = offset;
+    }
+
+    private void emitStore(int src, int offset, int base) {
+        emit(Opcode.SW, Instruction.NONE, src, base).imm = offset;
+    }
+
+    private void emitBranch(Opcode op, int src1, int src2, Label label) {
+        emit(op, Instruction.NONE, src1, src2).label = label;
+    }
+
+    private void emitJump(Label label) {
+        emit(Opcode.B, Instruction.NONE, Instruction.NONE, Instruction.NONE).label = label;
+    }
+
+    private void emitLabel(Label label) {
+        emit(Opcode.LABEL, Instruction.NONE, Instruction.NONE, Instruction.NONE).label = label;
+    }
+
+    private void emitCall(String name) {
+        emit(Opcode.JAL, Instruction.NONE, Instruction.NONE, Instruction.NONE).label =
+                generator.getLabel(name);
+    }
+
+    /**
+     * @return a register holding the result of the last call
+     */
+    private int emitResult() {
+        int result = newRegister();
+        emitMove(result, Instruction.V0);
+        return result;
+    }
+
+    /**
+     * Gets the label of the stub that jumps to a runtime error routine with
+     * the line of a node, adding the stub if the method has none yet
+     *
+     * @param routine the error routine
+     * @param node    the node the error is in
+     * @return the label of the stub
+     */
+    private Label getErrorLabel(String routine, ASTNode node) {
+        String key = routine + " " + node.getLineNum();
+        Label label = errorLabels.get(key);
+        if (label == null) {
+            label = generator.getNewLabel();
+            errorLabels.put(key, label);
+            List<Instruction> methodCode = code;
+            code = errorCode;
+            emitLabel(label);
+            emitLoadImm(Instruction.A1, node.getLineNum());
+            emitLoadAddr(Instruction.A2, generator.getFileLabel());
+            emit(Opcode.J, Instruction.NONE, Instruction.NONE, Instruction.NONE).label =
+                    generator.getLabel(routine);
+            code = methodCode;
+        }
+        return label;
+    }
+
+    /**
+     * Branches to the null pointer error if a register holds null
+     */
+    private void emitNullCheck(int register, ASTNode node) {
+        if (register != thisRegister) {
+            emitBranch(Opcode.BEQ, register, Instruction.ZERO,
+                    getErrorLabel(NULL_POINTER_ERROR, node));
+        }
+    }
+
+    /**
+     * Branches to the array index error unless an index is within an array
+     */
+    private void emitIndexCheck(int array, int index, ASTNode node) {
+        int length = newRegister();
+        emitLoad(length, 12, array);
+        // a negative index is a large unsigned one
+        emitBranch(Opcode.BGEU, index, length, getErrorLabel(ARRAY_INDEX_ERROR, node));
+    }
+
+    /**
+     * @return a register holding the address of an element of an array
+     *         less 16, the offset of the first element
+     */
+    private int emitElementAddress(int array, int index) {
+        int address = newRegister();
+        emitImmediate(Opcode.SLL, address, index, 2);
+        emit(Opcode.ADDU, address, address, array);
+        return address;
+    }
+
+    /* Helpers for expressions */
+
+    /**
+     * @return the value of an int expression if it is constant, or else null
+     */
+    private Integer getIntConstant(Expr expr) {
+        if (expr instanceof ConstIntExpr) {
+            return ((ConstIntExpr) expr).getIntConstant();
+        }
+        return (Integer) folder.getConstant(expr);
+    }
+
+    /**
+     * @return whether an expression is an int constant that fits in the
+     *         immediate operand of an instruction
+     */
+    private boolean isImmediate(Expr expr) {
+        Integer value = getIntConstant(expr);
+        return value != null && value >= Short.MIN_VALUE && value <= Short.MAX_VALUE;
+    }
+
+    /**
+     * Generates an expression, loading its value if it is constant
+     *
+     * @return the register holding the value
+     */
+    private int genValue(Expr expr) {
+        Object value = folder.getConstant(expr);
+        if (value == null || expr instanceof ConstIntExpr || expr instanceof ConstBooleanExpr) {
+            int result = (Integer) expr.accept(this);
+            markIfPointer(result, expr.getExprType());
+            return result;
+        }
+        int result = newRegister();
+        emitLoadImm(result, value instanceof Boolean ? ((Boolean) value ? 1 : 0) : (Integer) value);
+        return result;
+    }
+
+    /**
+     * Generates an expression whose value is only read, using $zero for a
+     * zero, false or null
+     *
+     * @return the register holding the value
+     */
+    private int genOperand(Expr expr) {
+        Object value = expr instanceof ConstBooleanExpr
+                ? (Object) ((ConstBooleanExpr) expr).getConstant().equals("true")
+                : expr instanceof ConstIntExpr ? ((ConstIntExpr) expr).getIntConstant()
+                : folder.getConstant(expr);
+        if (Boolean.FALSE.equals(value) || Integer.valueOf(0).equals(value)
+                || expr instanceof VarExpr && ((VarExpr) expr).getRef() == null
+                   && ((VarExpr) expr).getName().equals("null")) {
+            return Instruction.ZERO;
+        }
+        return genValue(expr);
+    }
+
+    /**
+     * Gives a variable the value held in a register, writing the value
+     * straight into the variable's register when the last instruction
+     * computed it into a register nothing else uses
+     *
+     * @param variable the register of the variable, or $v0 for a result
+     * @param value    the register holding the value
+     */
+    private void emitAssign(int variable, int value) {
+        Instruction last = code.isEmpty() ? null : code.get(code.size() - 1);
+        if (last != null && last.dest == value && value >= Instruction.FIRST_VIRTUAL
+                && value != thisRegister && !variableRegisters.get(value)
+                && last.op != Opcode.LABEL) {
+            last.dest = variable;
+        }
+        else {
+            emitMove(variable, value);
+        }
+    }
+
+    /**
+     * Copies the value of a variable to a new register if expressions
+     * evaluated after it may assign to variables, so that it is the value
+     * the variable had when it was read
+     *
+     * @param register the register holding a value
+     * @param later    the expressions evaluated after it
+     * @return the register, or the copy
+     */
+    private int protect(int register, Expr... later) {
+        if (!variableRegisters.get(register)) {
+            return register;
+        }
+        for (Expr expr : later) {
+            if (expr != null && AssignmentFinder.assigns(expr)) {
+                int copy = newRegister();
+                if (pointerRegisters.get(register)) {
+                    pointerRegisters.set(copy);
+                }
+                emitMove(copy, register);
+                return copy;
+            }
+        }
+        return register;
+    }
+
+    /**
+     * Finds whether an expression contains an assignment, increment or
+     * decrement, which may change a variable
+     */
+    private static class AssignmentFinder extends Visitor
+    {
+        private boolean found;
+
+        static boolean assigns(Expr expr) {
+            AssignmentFinder finder = new AssignmentFinder();
+            expr.accept(finder);
+            return finder.found;
+        }
+
+        public Object visit(AssignExpr node) {
+            found = true;
+            return null;
+        }
+
+        public Object visit(UnaryIncrExpr node) {
+            found = true;
+            return null;
+        }
+
+        public Object visit(UnaryDecrExpr node) {
+            found = true;
+            return null;
+        }
+    }
+
+    /**
+     * Generates the two operands of a binary expression
+     *
+     * @return the registers holding the values of the left and right operands
+     */
+    private int[] genOperands(BinaryExpr node) {
+        int left = protect(genOperand(node.getLeftExpr()), node.getRightExpr());
+        int right = genOperand(node.getRightExpr());
+        return new int[]{left, right};
+    }
+
+    /**
+     * @return whether a variable expression names the object the method
+     *         runs on, as "this" or "super"
+     */
+    private static boolean isThisOrSuper(Expr expr) {
+        return expr instanceof VarExpr && ((VarExpr) expr).getRef() == null
+                && (((VarExpr) expr).getName().equals("this")
+                    || ((VarExpr) expr).getName().equals("super"));
+    }
+
+    /**
+     * @return the register of a local variable or parameter
+     */
+    private int getVariableRegister(Location location) {
+        return location.getKind() == Location.Kind.PARAM ? paramRegisters[location.getIndex()]
+                : localRegisters.get(location.getIndex());
+    }
+
+    /**
+     * Generates the value of a variable of the method, or of a field of
+     * the method's object
+     *
+     * @return the register holding the value
+     */
+    private int genVariable(Location location) {
+        if (location.getKind() != Location.Kind.FIELD) {
+            return getVariableRegister(location);
+        }
+        int result = newRegister();
+        markIfPointer(result, location.getType());
+        emitLoad(result, location.getIndex(), thisRegister);
+        return result;
+    }
+
+    /**
+     * Generates the object whose field an assignment assigns to
+     *
+     * @param refName     the reference name of the assignment, or null
+     * @param refLocation the location of the reference name if it is a variable
+     * @return the register holding the object
+     */
+    private int genAssignedObject(String refName, Location refLocation) {
+        if (refName == null || refName.equals("this") || refName.equals("super")) {
+            return thisRegister;
+        }
+        return genVariable(refLocation);
+    }
+
+    /**
+     * @return the id of a class and the number of its subclasses, direct
+     *         and indirect, which have the ids after its own
+     */
+    private int[] getIdRange(String className) {
+        int id = generator.getClassId(className);
+        return new int[]{id, generator.getLastSubclassId(className) - id};
+    }
+
+    /**
+     * Generates a test of whether a non-null object is an instance of a class
+     *
+     * @param object    the register holding the object
+     * @param className the class
+     * @return a register holding 1 if it is, and 0 if it is not
+     */
+    private int genClassTest(int object, String className) {
+        int[] range = getIdRange(className);
+        int classId = newRegister();
+        emitLoad(classId, 0, object);
+        int offset = newRegister();
+        emitImmediate(Opcode.ADDIU, offset, classId, -range[0]);
+        int result = newRegister();
+        // an array's class id, -1, is below every range
+        emitImmediate(Opcode.SLTIU, result, offset, range[1] + 1);
+        return result;
+    }
+
+    /**
+     * @return the slots of the dispatch table of a class that some subclass
+     *         overrides
+     */
+    private BitSet getOverriddenSlots(ClassTreeNode classNode) {
+        BitSet slots = overriddenSlots.get(classNode);
+        if (slots == null) {
+            slots = new BitSet();
+            ClassLayout layout = classNode.getLayout();
+            Deque<ClassTreeNode> stack = new ArrayDeque<>();
+            stack.push(classNode);
+            while (!stack.isEmpty()) {
+                ClassTreeNode node = stack.pop();
+                ClassLayout subLayout = node.getLayout();
+                for (int slot = 0; slot < layout.getNumMethods(); slot++) {
+                    if (!subLayout.getMethodClass(slot).equals(layout.getMethodClass(slot))) {
+                        slots.set(slot);
+                    }
+                }
+                for (Iterator<ClassTreeNode> it = node.getChildrenList(); it.hasNext(); ) {
+                    ClassTreeNode child = it.next();
+                    if (child.getParent() == node) {
+                        stack.push(child);
+                    }
+                }
+            }
+            overriddenSlots.put(classNode, slots);
+        }
+        return slots;
+    }
+
+    /* Statements */
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return result of the visit
+     */
+    public Object visit(DeclStmt node) {
+        if (folder.isConstantLocal(node)) {
+            // every use of the variable is replaced by its value
+            return null;
+        }
+        int value = genOperand(node.getInit());
+        int local = newVariableRegister();
+        markIfPointer(local, node.getType());
+        localRegisters.put(node.getLocation().getIndex(), local);
+        emitAssign(local, value);
+        return null;
+    }
+
+    /**
+     * Visit an expression statement node
+     *
+     * @param node the expression statement node
+     * @return result of the visit
+     */
+    public Object visit(ExprStmt node) {
+        genUnused(node.getExpr());
+        return null;
+    }
+
+    /**
+     * Generates an expression whose value is not used
+     */
+    private void genUnused(Expr expr) {
+        if (folder.getConstant(expr) != null) {
+            // a folded expression has no side effects, and a constant local
+            // has no register to read
+            return;
+        }
+        if (expr instanceof DispatchExpr) {
+            genDispatch((DispatchExpr) expr, false);
+        }
+        else if (expr instanceof UnaryIncrExpr || expr instanceof UnaryDecrExpr) {
+            genIncrement((UnaryExpr) expr, expr instanceof UnaryIncrExpr ? 1 : -1, false);
+        }
+        else {
+            expr.accept(this);
+        }
+    }
+
+    /**
+     * Visit an if statement node
+     *
+     * @param node the if statement node
+     * @return result of the visit
+     */
+    public Object visit(IfStmt node) {
+        Object pred = folder.getConstant(node.getPredExpr());
+        if (pred != null) {
+            // only one branch can ever run
+            if ((Boolean) pred) {
+                node.getThenStmt().accept(this);
+            }
+            else if (node.getElseStmt() != null) {
+                node.getElseStmt().accept(this);
+            }
+            return null;
+        }
+        Label elseLabel = generator.getNewLabel();
+        genBranch(node.getPredExpr(), elseLabel, false);
+        node.getThenStmt().accept(this);
+        if (node.getElseStmt() == null) {
+            emitLabel(elseLabel);
+        }
+        else {
+            Label endLabel = generator.getNewLabel();
+            emitJump(endLabel);
+            emitLabel(elseLabel);
+            node.getElseStmt().accept(this);
+            emitLabel(endLabel);
+        }
+        return null;
+    }
+
+    /**
+     * Visit a while statement node
+     *
+     * @param node the while statement node
+     * @return result of the visit
+     */
+    public Object visit(WhileStmt node) {
+        genLoop(null, node.getPredExpr(), null, node.getBodyStmt());
+        return null;
+    }
+
+    /**
+     * Visit a for statement node
+     *
+     * @param node the for statement node
+     * @return result of the visit
+     */
+    public Object visit(ForStmt node) {
+        genLoop(node.getInitExpr(), node.getPredExpr(), node.getUpdateExpr(),
+                node.getBodyStmt());
+        return null;
+    }
+
+    /**
+     * Generates a loop, with its test at the bottom
+     *
+     * @param init   the expression evaluated before the loop, or null
+     * @param pred   the condition, or null if there is none
+     * @param update the expression evaluated after the body, or null
+     * @param body   the body
+     */
+    private void genLoop(Expr init, Expr pred, Expr update, Stmt body) {
+        if (init != null) {
+            genUnused(init);
+        }
+        Object predValue = pred == null ? null : folder.getConstant(pred);
+        if (Boolean.FALSE.equals(predValue)) {
+            // the body can never run
+            return;
+        }
+        else if (predValue != null) {
+            pred = null;
+        }
+        Label bodyLabel = generator.getNewLabel();
+        Label testLabel = generator.getNewLabel();
+        Label endLabel = generator.getNewLabel();
+        emitJump(testLabel);
+        emitLabel(bodyLabel);
+        breakLabels.push(endLabel);
+        body.accept(this);
+        breakLabels.pop();
+        if (update != null) {
+            genUnused(update);
+        }
+        emitLabel(testLabel);
+        if (pred == null) {
+            emitJump(bodyLabel);
+        }
+        else {
+            genBranch(pred, bodyLabel, true);
+        }
+        emitLabel(endLabel);
+    }
+
+    /**
+     * Visit a break statement node
+     *
+     * @param node the break statement node
+     * @return result of the visit
+     */
+    public Object visit(BreakStmt node) {
+        emitJump(breakLabels.peek());
+        return null;
+    }
+
+    /**
+     * Visit a return statement node
+     *
+     * @param node the return statement node
+     * @return result of the visit
+     */
+    public Object visit(ReturnStmt node) {
+        if (node.getExpr() != null) {
+            emitAssign(Instruction.V0, genOperand(node.getExpr()));
+        }
+        if (node != lastStmt) {
+            emitJump(returnLabel);
+        }
+        return null;
+    }
+
+    /* Conditions */
+
+    /**
+     * Generates a branch on a boolean expression
+     *
+     * @param expr  the expression
+     * @param label the label to branch to
+     * @param when  the value of the expression for which to branch
+     */
+    private void genBranch(Expr expr, Label label, boolean when) {
+        Object value = expr instanceof ConstBooleanExpr
+                ? (Object) ((ConstBooleanExpr) expr).getConstant().equals("true")
+                : folder.getConstant(expr);
+        if (value != null) {
+            if ((Boolean) value == when) {
+                emitJump(label);
+            }
+        }
+        else if (expr instanceof UnaryNotExpr) {
+            genBranch(((UnaryNotExpr) expr).getExpr(), label, !when);
+        }
+        else if (expr instanceof BinaryLogicAndExpr || expr instanceof BinaryLogicOrExpr) {
+            // the left operand alone decides an and that is false and an or
+            // that is true
+            BinaryExpr logic = (BinaryExpr) expr;
+            boolean decidingValue = expr instanceof BinaryLogicOrExpr;
+            if (when == decidingValue) {
+                genBranch(logic.getLeftExpr(), label, when);
+                genBranch(logic.getRightExpr(), label, when);
+            }
+            else {
+                Label skipLabel = generator.getNewLabel();
+                genBranch(logic.getLeftExpr(), skipLabel, decidingValue);
+                genBranch(logic.getRightExpr(), label, when);
+                emitLabel(skipLabel);
+            }
+        }
+        else if (expr instanceof BinaryCompExpr) {
+            int[] operands = genOperands((BinaryExpr) expr);
+            emitBranch(getBranchOp((BinaryCompExpr) expr, when), operands[0], operands[1], label);
+        }
+        else {
+            emitBranch(when ? Opcode.BNE : Opcode.BEQ, genOperand(expr), Instruction.ZERO, label);
+        }
+    }
+
+    /**
+     * @return the branch instruction that branches when a comparison has a value
+     */
+    private static Opcode getBranchOp(BinaryCompExpr expr, boolean when) {
+        if (expr instanceof BinaryCompEqExpr) {
+            return when ? Opcode.BEQ : Opcode.BNE;
+        }
+        else if (expr instanceof BinaryCompNeExpr) {
+            return when ? Opcode.BNE : Opcode.BEQ;
+        }
+        else if (expr instanceof BinaryCompLtExpr) {
+            return when ? Opcode.BLT : Opcode.BGE;
+        }
+        else if (expr instanceof BinaryCompGeqExpr) {
+            return when ? Opcode.BGE : Opcode.BLT;
+        }
+        else if (expr instanceof BinaryCompGtExpr) {
+            return when ? Opcode.BGT : Opcode.BLE;
+        }
+        else {
+            return when ? Opcode.BLE : Opcode.BGT;
+        }
+    }
+
+    /* Expressions */
+
+    /**
+     * Visit a dispatch expression node
+     *
+     * @param node the dispatch expression node
+     * @return the register holding the result
+     */
+    public Object visit(DispatchExpr node) {
+        return genDispatch(node, true);
+    }
+
+    /**
+     * Generates a call
+     *
+     * @param node       the dispatch expression node
+     * @param resultUsed whether the result is used
+     * @return the register holding the result, or null if it is not used
+     */
+    private Integer genDispatch(DispatchExpr node, boolean resultUsed) {
+        Expr ref = node.getRefExpr();
+        boolean isSuper = ref != null && isThisOrSuper(ref)
+                && ((VarExpr) ref).getName().equals("super");
+        ClassTreeNode staticClass;
+        int object;
+        if (ref == null || isThisOrSuper(ref)) {
+            staticClass = isSuper ? currentClass.getParent() : currentClass;
+            object = thisRegister;
+        }
+        else {
+            staticClass = root.lookupClass(ref.getExprType());
+            object = protect(genValue(ref), node.getActualList().getSize() > 0
+                    ? (Expr) node.getActualList().get(0) : null);
+            object = protect(object, getActuals(node, 0));
+        }
+
+        int numArgs = node.getActualList().getSize();
+        int[] args = new int[numArgs];
+        for (int i = 0; i < numArgs; i++) {
+            args[i] = protect(genOperand((Expr) node.getActualList().get(i)),
+                    getActuals(node, i + 1));
+        }
+        emitNullCheck(object, node);
+        emitMove(Instruction.A0, object);
+        for (int i = 0; i < numArgs; i++) {
+            if (i < 3) {
+                emitMove(Instruction.A1 + i, args[i]);
+            }
+            else {
+                emitStore(args[i], 4 * (i - 3), Instruction.SP);
+            }
+        }
+        numOutgoingArgs = Math.max(numOutgoingArgs, numArgs - 3);
+
+        ClassLayout layout = staticClass.getLayout();
+        int slot = layout.getMethodSlot(node.getMethodName());
+        if (isSuper || !getOverriddenSlots(staticClass).get(slot)) {
+            emitCall(layout.getMethodClass(slot) + "." + node.getMethodName());
+        }
+        else {
+            emitLoad(Instruction.V0, 8, Instruction.A0);
+            emitLoad(Instruction.V0, 4 * slot, Instruction.V0);
+            emit(Opcode.JALR, Instruction.NONE, Instruction.V0, Instruction.NONE);
+        }
+        return resultUsed ? emitResult() : null;
+    }
+
+    /**
+     * @return the actual parameters of a call from an index on
+     */
+    private static Expr[] getActuals(DispatchExpr node, int from) {
+        ExprList actuals = node.getActualList();
+        Expr[] result = new Expr[Math.max(0, actuals.getSize() - from)];
+        for (int i = from; i < actuals.getSize(); i++) {
+            result[i - from] = (Expr) actuals.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Visit a new expression node
+     *
+     * @param node the new expression node
+     * @return the register holding the new object
+     */
+    public Object visit(NewExpr node) {
+        emitLoadAddr(Instruction.A0, node.getType() + "_template");
+        emitCall(OBJECT_CLONE);
+        String init = generator.getInitLabel(node.getType());
+        if (init != null) {
+            emitMove(Instruction.A0, Instruction.V0);
+            emitCall(init);
+        }
+        return emitResult();
+    }
+
+    /**
+     * Visit a new array expression node
+     *
+     * @param node the new array expression node
+     * @return the register holding the new array
+     */
+    public Object visit(NewArrayExpr node) {
+        int size = genOperand(node.getSize());
+        emitBranch(Opcode.BLT, size, Instruction.ZERO, getErrorLabel(ARRAY_SIZE_ERROR, node));
+        emitMove(Instruction.A0, size);
+        // the collector follows the elements of an array of objects
+        emitCall(isReference(node.getType()) ? NEW_OBJECT_ARRAY : NEW_ARRAY);
+        return emitResult();
+    }
+
+    /**
+     * Visit an instanceof expression node
+     *
+     * @param node the instanceof expression node
+     * @return the register holding the result
+     */
+    public Object visit(InstanceofExpr node) {
+        int object = genOperand(node.getExpr());
+        int result = newRegister();
+        if (node.getUpCheck()) {
+            // only null is not an instance of a supertype
+            emit(Opcode.SLTU, result, Instruction.ZERO, object);
+            return result;
+        }
+        Label endLabel = generator.getNewLabel();
+        emitMove(result, Instruction.ZERO);
+        emitBranch(Opcode.BEQ, object, Instruction.ZERO, endLabel);
+        emitMove(result, genClassTest(object, node.getType()));
+        emitLabel(endLabel);
+        return result;
+    }
+
+    /**
+     * Visit a cast expression node
+     *
+     * @param node the cast expression node
+     * @return the register holding the object cast
+     */
+    public Object visit(CastExpr node) {
+        int object = genValue(node.getExpr());
+        if (!node.getUpCast()) {
+            Label endLabel = generator.getNewLabel();
+            emitBranch(Opcode.BEQ, object, Instruction.ZERO, endLabel);
+            emitBranch(Opcode.BEQ, genClassTest(object, node.getType()), Instruction.ZERO,
+                    getErrorLabel(CLASS_CAST_ERROR, node));
+            emitLabel(endLabel);
+        }
+        return object;
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return the register holding the value assigned
+     */
+    public Object visit(AssignExpr node) {
+        Location location = node.getLocation();
+        if (node.getRefName() == null && location.getKind() != Location.Kind.FIELD) {
+            int variable = getVariableRegister(location);
+            emitAssign(variable, genOperand(node.getExpr()));
+            return variable;
+        }
+        int object = protect(genAssignedObject(node.getRefName(), node.getRefLocation()),
+                node.getExpr());
+        int value = genOperand(node.getExpr());
+        emitNullCheck(object, node);
+        emitStore(value, location.getIndex(), object);
+        return value;
+    }
+
+    /**
+     * Visit an array assignment expression node
+     *
+     * @param node the array assignment expression node
+     * @return the register holding the value assigned
+     */
+    public Object visit(ArrayAssignExpr node) {
+        Location location = node.getLocation();
+        int array;
+        if (node.getRefName() == null && location.getKind() != Location.Kind.FIELD) {
+            array = getVariableRegister(location);
+        }
+        else {
+            int object = genAssignedObject(node.getRefName(), node.getRefLocation());
+            emitNullCheck(object, node);
+            array = newRegister();
+            pointerRegisters.set(array);
+            emitLoad(array, location.getIndex(), object);
+        }
+        array = protect(array, node.getIndex(), node.getExpr());
+        int index = protect(genOperand(node.getIndex()), node.getExpr());
+        int value = genOperand(node.getExpr());
+        emitNullCheck(array, node);
+        emitIndexCheck(array, index, node);
+        emitStore(value, 16, emitElementAddress(array, index));
+        return value;
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return the register holding the value
+     */
+    public Object visit(VarExpr node) {
+        Expr ref = node.getRef();
+        if (ref == null) {
+            switch (node.getName()) {
+                case "null":
+                    int result = newRegister();
+                    emitMove(result, Instruction.ZERO);
+                    return result;
+                case "this":
+                case "super":
+                    return thisRegister;
+                default:
+                    // a constant local is never given a register
+                    return folder.getConstant(node) != null ? genValue(node)
+                            : genVariable(node.getLocation());
+            }
+        }
+        int object = isThisOrSuper(ref) ? thisRegister : genValue(ref);
+        emitNullCheck(object, node);
+        int result = newRegister();
+        if (node.getLocation() == null) {
+            // the length of an array
+            emitLoad(result, 12, object);
+        }
+        else {
+            emitLoad(result, node.getLocation().getIndex(), object);
+        }
+        return result;
+    }
+
+    /**
+     * Visit an array expression node
+     *
+     * @param node the array expression node
+     * @return the register holding the element
+     */
+    public Object visit(ArrayExpr node) {
+        int array = protect(genValue(node.getRef()), node.getIndex());
+        int index = genOperand(node.getIndex());
+        emitNullCheck(array, node);
+        emitIndexCheck(array, index, node);
+        int result = newRegister();
+        emitLoad(result, 16, emitElementAddress(array, index));
+        return result;
+    }
+
+    /**
+     * Generates a comparison whose value is used
+     *
+     * @param node    the comparison
+     * @param op      slt to compare with less than, or xor to compare with equals
+     * @param swap    whether to swap the operands
+     * @param negate  whether to negate the result
+     * @return the register holding the result
+     */
+    private int genComparison(BinaryExpr node, Opcode op, boolean swap, boolean negate) {
+        int[] operands = genOperands(node);
+        int result = newRegister();
+        if (op == Opcode.XOR) {
+            int difference = newRegister();
+            emit(Opcode.XOR, difference, operands[0], operands[1]);
+            if (negate) {
+                emit(Opcode.SLTU, result, Instruction.ZERO, difference);
+            }
+            else {
+                emitImmediate(Opcode.SLTIU, result, difference, 1);
+            }
+            return result;
+        }
+        if (swap) {
+            emit(Opcode.SLT, result, operands[1], operands[0]);
+        }
+        else {
+            emit(Opcode.SLT, result, operands[0], operands[1]);
+        }
+        if (negate) {
+            emitImmediate(Opcode.XORI, result, result, 1);
+        }
+        return result;
+    }
+
+    public Object visit(BinaryCompEqExpr node) {
+        return genComparison(node, Opcode.XOR, false, false);
+    }
+
+    public Object visit(BinaryCompNeExpr node) {
+        return genComparison(node, Opcode.XOR, false, true);
+    }
+
+    public Object visit(BinaryCompLtExpr node) {
+        return genComparison(node, Opcode.SLT, false, false);
+    }
+
+    public Object visit(BinaryCompLeqExpr node) {
+        return genComparison(node, Opcode.SLT, true, true);
+    }
+
+    public Object visit(BinaryCompGtExpr node) {
+        return genComparison(node, Opcode.SLT, true, false);
+    }
+
+    public Object visit(BinaryCompGeqExpr node) {
+        return genComparison(node, Opcode.SLT, false, true);
+    }
+
+    /**
+     * Visit a binary arithmetic plus expression node
+     *
+     * @param node the binary arithmetic plus expression node
+     * @return the register holding the sum
+     */
+    public Object visit(BinaryArithPlusExpr node) {
+        int result = newRegister();
+        if (isImmediate(node.getRightExpr())) {
+            emitImmediate(Opcode.ADDIU, result, genOperand(node.getLeftExpr()),
+                    getIntConstant(node.getRightExpr()));
+        }
+        else if (isImmediate(node.getLeftExpr())) {
+            emitImmediate(Opcode.ADDIU, result, genOperand(node.getRightExpr()),
+                    getIntConstant(node.getLeftExpr()));
+        }
+        else {
+            int[] operands = genOperands(node);
+            emit(Opcode.ADDU, result, operands[0], operands[1]);
+        }
+        return result;
+    }
+
+    /**
+     * Visit a binary arithmetic minus expression node
+     *
+     * @param node the binary arithmetic minus expression node
+     * @return the register holding the difference
+     */
+    public Object visit(BinaryArithMinusExpr node) {
+        int result = newRegister();
+        if (isImmediate(node.getRightExpr())
+                && getIntConstant(node.getRightExpr()) != Short.MIN_VALUE) {
+            emitImmediate(Opcode.ADDIU, result, genOperand(node.getLeftExpr()),
+                    -getIntConstant(node.getRightExpr()));
+        }
+        else {
+            int[] operands = genOperands(node);
+            emit(Opcode.SUBU, result, operands[0], operands[1]);
+        }
+        return result;
+    }
+
+    /**
+     * Visit a binary arithmetic times expression node
+     *
+     * @param node the binary arithmetic times expression node
+     * @return the register holding the product
+     */
+    public Object visit(BinaryArithTimesExpr node) {
+        int result = newRegister();
+        Integer right = getIntConstant(node.getRightExpr());
+        if (right != null && right > 0 && Integer.bitCount(right) == 1) {
+            emitImmediate(Opcode.SLL, result, genOperand(node.getLeftExpr()),
+                    Integer.numberOfTrailingZeros(right));
+        }
+        else {
+            int[] operands = genOperands(node);
+            emit(Opcode.MUL, result, operands[0], operands[1]);
+        }
+        return result;
+    }
+
+    /**
+     * Generates a division, checking for a zero divisor
+     *
+     * @param node   the division or modulus
+     * @param result mflo for the quotient or mfhi for the remainder
+     * @return the register holding the result
+     */
+    private int genDivision(BinaryExpr node, Opcode result) {
+        int[] operands = genOperands(node);
+        Integer right = getIntConstant(node.getRightExpr());
+        if (right == null || right == 0) {
+            emitBranch(Opcode.BEQ, operands[1], Instruction.ZERO,
+                    getErrorLabel(DIVIDE_ZERO_ERROR, node));
+        }
+        emit(Opcode.DIV, Instruction.NONE, operands[0], operands[1]);
+        int register = newRegister();
+        emit(result, register, Instruction.NONE, Instruction.NONE);
+        return register;
+    }
+
+    public Object visit(BinaryArithDivideExpr node) {
+        return genDivision(node, Opcode.MFLO);
+    }
+
+    public Object visit(BinaryArithModulusExpr node) {
+        return genDivision(node, Opcode.MFHI);
+    }
+
+    /**
+     * Generates an and or an or, which evaluates its right operand only if
+     * its left one does not decide it
+     *
+     * @param node the binary logic expression
+     * @param op   beq for an and, bne for an or
+     * @return the register holding the result
+     */
+    private int genLogic(BinaryExpr node, Opcode op) {
+        int result = newRegister();
+        Label endLabel = generator.getNewLabel();
+        emitMove(result, genOperand(node.getLeftExpr()));
+        emitBranch(op, result, Instruction.ZERO, endLabel);
+        emitMove(result, genOperand(node.getRightExpr()));
+        emitLabel(endLabel);
+        return result;
+    }
+
+    public Object visit(BinaryLogicAndExpr node) {
+        return genLogic(node, Opcode.BEQ);
+    }
+
+    public Object visit(BinaryLogicOrExpr node) {
+        return genLogic(node, Opcode.BNE);
+    }
+
+    /**
+     * Visit a unary negation expression node
+     *
+     * @param node the unary negation expression node
+     * @return the register holding the result
+     */
+    public Object visit(UnaryNegExpr node) {
+        int result = newRegister();
+        emit(Opcode.SUBU, result, Instruction.ZERO, genOperand(node.getExpr()));
+        return result;
+    }
+
+    /**
+     * Visit a unary not expression node
+     *
+     * @param node the unary not expression node
+     * @return the register holding the result
+     */
+    public Object visit(UnaryNotExpr node) {
+        int result = newRegister();
+        emitImmediate(Opcode.XORI, result, genOperand(node.getExpr()), 1);
+        return result;
+    }
+
+    public Object visit(UnaryIncrExpr node) {
+        return genIncrement(node, 1, true);
+    }
+
+    public Object visit(UnaryDecrExpr node) {
+        return genIncrement(node, -1, true);
+    }
+
+    /**
+     * Generates an increment or decrement
+     *
+     * @param node       the increment or decrement
+     * @param amount     1 or -1
+     * @param resultUsed whether the result is used
+     * @return the register holding the result, or null if it is not used
+     */
+    private Integer genIncrement(UnaryExpr node, int amount, boolean resultUsed) {
+        Expr operand = node.getExpr();
+        boolean keepOld = resultUsed && node.isPostfix();
+        if (operand instanceof VarExpr && ((VarExpr) operand).getRef() == null
+                && ((VarExpr) operand).getLocation().getKind() != Location.Kind.FIELD) {
+            int variable = getVariableRegister(((VarExpr) operand).getLocation());
+            Integer old = null;
+            if (keepOld) {
+                old = newRegister();
+                emitMove(old, variable);
+            }
+            emitImmediate(Opcode.ADDIU, variable, variable, amount);
+            return keepOld ? old : (Integer) variable;
+        }
+
+        // load the value, add to it and store it back where it came from
+        int base;
+        int offset;
+        if (operand instanceof VarExpr) {
+            VarExpr var = (VarExpr) operand;
+            base = var.getRef() == null || isThisOrSuper(var.getRef()) ? thisRegister
+                    : genValue(var.getRef());
+            emitNullCheck(base, node);
+            offset = var.getLocation().getIndex();
+        }
+        else if (operand instanceof ArrayExpr) {
+            ArrayExpr element = (ArrayExpr) operand;
+            int array = protect(genValue(element.getRef()), element.getIndex());
+            int index = genOperand(element.getIndex());
+            emitNullCheck(array, node);
+            emitIndexCheck(array, index, node);
+            base = emitElementAddress(array, index);
+            offset = 16;
+        }
+        else {
+            // not a variable, so only the value changes
+            int result = newRegister();
+            emitImmediate(Opcode.ADDIU, result, genOperand(operand), keepOld ? 0 : amount);
+            return result;
+        }
+        int old = newRegister();
+        emitLoad(old, offset, base);
+        int updated = newRegister();
+        emitImmediate(Opcode.ADDIU, updated, old, amount);
+        emitStore(updated, offset, base);
+        return keepOld ? old : updated;
+    }
+
+    /**
+     * Visit an int constant expression node
+     *
+     * @param node the int constant expression node
+     * @return the register holding the constant
+     */
+    public Object visit(ConstIntExpr node) {
+        int result = newRegister();
+        emitLoadImm(result, node.getIntConstant());
+        return result;
+    }
+
+    /**
+     * Visit a boolean constant expression node
+     *
+     * @param node the boolean constant expression node
+     * @return the register holding the constant
+     */
+    public Object visit(ConstBooleanExpr node) {
+        int result = newRegister();
+        emitLoadImm(result, node.getConstant().equals("true") ? 1 : 0);
+        return result;
+    }
+
+    /**
+     * Visit a string constant expression node
+     *
+     * @param node the string constant expression node
+     * @return the register holding the string
+     */
+    public Object visit(ConstStringExpr node) {
+        int result = newRegister();
+        emitLoadAddr(result, generator.getStringLabel(node.getConstant()));
+        return result;
+    }
+}
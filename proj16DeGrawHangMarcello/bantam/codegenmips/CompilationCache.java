@@ -0,0 +1,368 @@
+/*
+ * File: CompilationCache.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+import proj16DeGrawHangMarcello.bantam.ast.Program;
+import proj16DeGrawHangMarcello.bantam.parser.AstReader;
+import proj16DeGrawHangMarcello.bantam.parser.AstWriter;
+import proj16DeGrawHangMarcello.bantam.parser.Parser;
+import proj16DeGrawHangMarcello.bantam.semant.SemanticAnalyzer;
+import proj16DeGrawHangMarcello.bantam.util.ClassTreeNode;
+import proj16DeGrawHangMarcello.bantam.util.CompilationException;
+import proj16DeGrawHangMarcello.bantam.util.Error;
+import proj16DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the results of compiling Bantam Java files in a directory, so a file
+ * that has not changed since it was last compiled need not be compiled again.
+ * The results of a file are kept under a key that is a hash of the file's
+ * contents and COMPILER_VERSION, so any change to the file, or a new version
+ * of the compiler, makes them unused.  For each key the cache can hold:
+ * <ul>
+ * <li>the AST the parser built, in the binary form of AstWriter, which is
+ * read back much faster than the file can be parsed again;</li>
+ * <li>the generated assembly, for each output file and setting of the gc and
+ * opt flags, which skips checking the file as well as generating its code.</li>
+ * </ul>
+ * The AST is kept once the file parses without errors, and the assembly once
+ * it compiles without them, so the errors of a file are always found by
+ * checking it again.  Each entry is written to a temporary file
+ * and then moved into place, so a compiler reading the cache at the same time
+ * never sees half an entry, and an entry that cannot be read or written is
+ * treated as missing: the cache can slow nothing down but a compilation.
+ * <p>
+ * Every edit of a file gives it a new key, so the cache is pruned whenever an
+ * entry is stored: entries not used for MAX_AGE_DAYS are deleted, and then
+ * the least recently used ones until the entries take at most the cache's
+ * size limit.  An entry counts as used when it is stored or loaded.
+ */
+public class CompilationCache
+{
+    /**
+     * Changed whenever the compiler produces different ASTs or assembly for
+     * the same source, so the results of older versions are not used
+     */
+    public static final String COMPILER_VERSION = "proj16-4";
+
+    /**
+     * The default limit on the bytes the entries of a cache take
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+
+    /**
+     * The number of days after which an entry that has not been used is deleted
+     */
+    public static final int MAX_AGE_DAYS = 30;
+
+    private File directory;
+    private long maxBytes;
+
+    /**
+     * creates a cache that keeps its entries in a directory, which is
+     * created when the first entry is stored
+     *
+     * @param directory the directory
+     */
+    public CompilationCache(File directory) {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * creates a cache that keeps its entries in a directory, which is
+     * created when the first entry is stored
+     *
+     * @param directory the directory
+     * @param maxBytes  the most bytes the entries may take
+     */
+    public CompilationCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return a cache in the directory .bantam/cache in the user's home directory
+     */
+    public static CompilationCache getDefault() {
+        return new CompilationCache(new File(System.getProperty("user.home"),
+                ".bantam" + File.separator + "cache"));
+    }
+
+    /**
+     * Gets the key of the current contents of a file
+     *
+     * @param filename the name of the Bantam Java file
+     * @return the key, or null if the file cannot be read
+     */
+    public String getKey(String filename) {
+        try {
+            return hash(COMPILER_VERSION, Files.readAllBytes(new File(filename).toPath()));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param prefix a string hashed before the bytes
+     * @param bytes  the bytes
+     * @return the SHA-256 hash of the string and the bytes, in hexadecimal
+     */
+    private static String hash(String prefix, byte[] bytes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every Java platform has SHA-256.", e);
+        }
+        digest.update(prefix.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest(bytes)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Loads the AST of a file
+     *
+     * @param key      the key of the file's contents
+     * @param filename the name of the file, given to each class of the AST
+     * @return the AST, or null if the cache does not have it
+     */
+    public Program loadProgram(String key, String filename) {
+        File file = new File(directory, key + ".ast");
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+            Program program = AstReader.read(in, filename);
+            markUsed(file);
+            return program;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the AST of a file, as the parser built it
+     *
+     * @param key     the key of the file's contents
+     * @param program the AST
+     */
+    public void storeProgram(String key, Program program) {
+        store(key + ".ast", out -> AstWriter.write(program, out));
+    }
+
+    /**
+     * @return the name of the entry holding the assembly generated for a file
+     *         into an output file with the given flags, since the assembly
+     *         names the source file
+     */
+    private static String getAsmEntry(String key, String asmFilename, boolean gc, boolean opt) {
+        String settings = new File(asmFilename).getAbsolutePath() + (gc ? " gc" : "")
+                + (opt ? " opt" : "");
+        return hash(key, settings.getBytes(StandardCharsets.UTF_8)) + ".asm";
+    }
+
+    /**
+     * Copies the assembly generated for a file to the output file, if the
+     * cache has it
+     *
+     * @param key         the key of the file's contents
+     * @param asmFilename the name of the output file
+     * @param gc          whether garbage collection is enabled
+     * @param opt         whether optimization is enabled
+     * @return whether the cache had the assembly
+     */
+    public boolean loadAsm(String key, String asmFilename, boolean gc, boolean opt) {
+        File file = new File(directory, getAsmEntry(key, asmFilename, gc, opt));
+        if (!file.isFile()) {
+            return false;
+        }
+        try {
+            Files.copy(file.toPath(), new File(asmFilename).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            markUsed(file);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores the assembly generated for a file
+     *
+     * @param key         the key of the file's contents
+     * @param asmFilename the name of the output file holding the assembly
+     * @param gc          whether garbage collection is enabled
+     * @param opt         whether optimization is enabled
+     */
+    public void storeAsm(String key, String asmFilename, boolean gc, boolean opt) {
+        store(getAsmEntry(key, asmFilename, gc, opt),
+              out -> Files.copy(new File(asmFilename).toPath(), out));
+    }
+
+    /**
+     * Something that writes the contents of an entry
+     */
+    private interface EntryWriter
+    {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes an entry to a temporary file and moves it into place, or does
+     * nothing if that fails
+     *
+     * @param name   the name of the entry
+     * @param writer writes the contents
+     */
+    private void store(String name, EntryWriter writer) {
+        Path temp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temp = Files.createTempFile(directory.toPath(), name, ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                writer.write(out);
+            }
+            Files.move(temp, new File(directory, name).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+        prune();
+    }
+
+    /**
+     * Records that an entry was used, so it is kept over entries used longer ago
+     *
+     * @param file the file of the entry
+     */
+    private static void markUsed(File file) {
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * Deletes the entries not used for MAX_AGE_DAYS, and then the least
+     * recently used entries until the rest take at most maxBytes.  Entries
+     * another compiler deletes at the same time are simply missing.
+     */
+    private void prune() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        // the times are read once, since a file's time may change while sorting
+        long[] lastUsed = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastUsed[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, (i, j) -> Long.compare(lastUsed[j], lastUsed[i]));
+
+        long oldest = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_AGE_DAYS);
+        long totalBytes = 0;
+        for (int i : order) {
+            totalBytes += files[i].length();
+            if (totalBytes > maxBytes || lastUsed[i] < oldest) {
+                files[i].delete();
+            }
+        }
+    }
+
+    /**
+     * Compiles a file to an assembly file of the same name ending in .asm,
+     * using and filling the cache.  If the cache has the assembly for the
+     * file's contents, it is copied to the output file; otherwise the file is
+     * compiled, from its cached AST if there is one.
+     *
+     * @param filename     the name of the Bantam Java file
+     * @param errorHandler the handler the errors are registered with
+     * @param gc           whether garbage collection is enabled
+     * @param opt          whether optimization is enabled
+     * @return whether the assembly came from the cache
+     * @throws CompilationException if the file has errors
+     */
+    public boolean compile(String filename, ErrorHandler errorHandler, boolean gc, boolean opt) {
+        String asmFilename = filename.replace(".btm", ".asm");
+        String key = getKey(filename);
+        if (key != null && loadAsm(key, asmFilename, gc, opt)) {
+            return true;
+        }
+
+        Program program = key == null ? null : loadProgram(key, filename);
+        if (program == null) {
+            program = new Parser(errorHandler).parse(filename);
+            if (key != null) {
+                storeProgram(key, program);
+            }
+        }
+        ClassTreeNode root = new SemanticAnalyzer(errorHandler).analyze(program);
+        new MipsCodeGenerator(errorHandler, gc, opt).generate(root, asmFilename, program);
+        if (key != null) {
+            storeAsm(key, asmFilename, gc, opt);
+        }
+        return false;
+    }
+
+    public static void main(String[] args) {
+        CompilationCache cache = getDefault();
+        List<String> filenames = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-dir") && i + 1 < args.length) {
+                cache = new CompilationCache(new File(args[++i]), cache.maxBytes);
+            }
+            else if (args[i].equals("-max") && i + 1 < args.length) {
+                cache = new CompilationCache(cache.directory, Long.parseLong(args[++i]));
+            }
+            else {
+                filenames.add(args[i]);
+            }
+        }
+        if (filenames.isEmpty()) {
+            System.out.println("Usage: CompilationCache [-dir directory] [-max bytes] file...");
+            return;
+        }
+
+        for (String filename : filenames) {
+            ErrorHandler errorHandler = new ErrorHandler();
+            long start = System.nanoTime();
+            try {
+                boolean cached = cache.compile(filename, errorHandler, false, false);
+                System.out.printf("%s: %s in %.1f ms%n", filename,
+                        cached ? "from the cache" : "compiled", (System.nanoTime() - start) / 1e6);
+            } catch (CompilationException e) {
+                System.out.println(filename + ": " + errorHandler.getErrorList().size()
+                        + " errors");
+                for (Error error : errorHandler.getErrorList()) {
+                    System.out.println("\t" + error);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * File: ConstantFolder.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+import proj16DeGrawHangMarcello.bantam.ast.*;
+import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * Finds the expressions of a method whose values are known before the
+ * program runs, so the CodeGenVisitor can load their values instead of
+ * computing them, and skip the branches of if and while statements whose
+ * conditions are constant.
+ * <p>
+ * An arithmetic, comparison, logic, negation or not expression whose
+ * operands are constant is folded, as Java computes it; a division by zero
+ * is not, so that it still fails when the program runs.  A local variable
+ * whose declaration gives it a constant and which is never assigned to
+ * afterwards is itself a constant, wherever it is used.
+ * <p>
+ * The AST is not changed, since the IDE keeps it to check later edits; the
+ * values found are kept here instead, by node.
+ */
+class ConstantFolder extends Visitor
+{
+    /**
+     * the Integer or Boolean value of each constant expression
+     */
+    private HashMap<Expr, Object> constants = new HashMap<>();
+
+    /**
+     * the values of the local variables that are constants, by index
+     */
+    private HashMap<Integer, Object> localConstants = new HashMap<>();
+
+    /**
+     * the indexes of the local variables assigned to after their declarations
+     */
+    private BitSet assignedLocals = new BitSet();
+
+    /**
+     * Finds the constant expressions of a method
+     *
+     * @param method the method, whose variables are resolved
+     * @return this folder, holding the constants found
+     */
+    ConstantFolder fold(Method method) {
+        method.accept(new AssignedLocalsFinder());
+        method.accept(this);
+        return this;
+    }
+
+    /**
+     * Finds the constant expressions of the initializer of a field
+     *
+     * @param init the initializer
+     * @return this folder, holding the constants found
+     */
+    ConstantFolder fold(Expr init) {
+        init.accept(this);
+        return this;
+    }
+
+    /**
+     * @param expr an expression
+     * @return the Integer or Boolean value of the expression, or null if it
+     *         is not constant
+     */
+    Object getConstant(Expr expr) {
+        return constants.get(expr);
+    }
+
+    /**
+     * @param stmt a declaration statement
+     * @return whether the variable declared is a constant, whose uses are
+     *         all replaced by its value
+     */
+    boolean isConstantLocal(DeclStmt stmt) {
+        return localConstants.containsKey(stmt.getLocation().getIndex());
+    }
+
+    /**
+     * Records the indexes of the local variables that are assigned to,
+     * incremented or decremented
+     */
+    private class AssignedLocalsFinder extends Visitor
+    {
+        private void addAssigned(Location location) {
+            if (location != null && location.getKind() == Location.Kind.LOCAL) {
+                assignedLocals.set(location.getIndex());
+            }
+        }
+
+        public Object visit(AssignExpr node) {
+            if (node.getRefName() == null) {
+                addAssigned(node.getLocation());
+            }
+            return super.visit(node);
+        }
+
+        public Object visit(UnaryIncrExpr node) {
+            if (node.getExpr() instanceof VarExpr && ((VarExpr) node.getExpr()).getRef() == null) {
+                addAssigned(((VarExpr) node.getExpr()).getLocation());
+            }
+            return super.visit(node);
+        }
+
+        public Object visit(UnaryDecrExpr node) {
+            if (node.getExpr() instanceof VarExpr && ((VarExpr) node.getExpr()).getRef() == null) {
+                addAssigned(((VarExpr) node.getExpr()).getLocation());
+            }
+            return super.visit(node);
+        }
+    }
+
+    /**
+     * Records the value of an expression if it is constant
+     *
+     * @return the value, or null
+     */
+    private Object record(Expr expr, Object value) {
+        if (value != null) {
+            constants.put(expr, value);
+        }
+        return value;
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return result of the visit
+     */
+    public Object visit(DeclStmt node) {
+        Object value = node.getInit().accept(this);
+        int index = node.getLocation().getIndex();
+        if (value != null && !assignedLocals.get(index)) {
+            localConstants.put(index, value);
+        }
+        return null;
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return the value of the variable, or null if it is not constant
+     */
+    public Object visit(VarExpr node) {
+        super.visit(node);
+        Location location = node.getLocation();
+        if (node.getRef() == null && location != null
+                && location.getKind() == Location.Kind.LOCAL) {
+            return record(node, localConstants.get(location.getIndex()));
+        }
+        return null;
+    }
+
+    public Object visit(ConstIntExpr node) {
+        return record(node, node.getIntConstant());
+    }
+
+    public Object visit(ConstBooleanExpr node) {
+        return record(node, node.getConstant().equals("true"));
+    }
+
+    /**
+     * Visits the operands of a binary expression
+     *
+     * @return the values of its operands, or null if either is not constant
+     */
+    private Object[] visitOperands(BinaryExpr node) {
+        Object left = node.getLeftExpr().accept(this);
+        Object right = node.getRightExpr().accept(this);
+        return left == null || right == null ? null : new Object[]{left, right};
+    }
+
+    /**
+     * Visits the operands of an int expression
+     *
+     * @return the values of its operands, or null if either is not constant
+     */
+    private int[] visitIntOperands(BinaryExpr node) {
+        Object[] operands = visitOperands(node);
+        if (operands == null || !(operands[0] instanceof Integer)) {
+            return null;
+        }
+        return new int[]{(Integer) operands[0], (Integer) operands[1]};
+    }
+
+    public Object visit(BinaryArithPlusExpr node) {
+        int[] operands = visitIntOperands(node);
+        return operands == null ? null : record(node, operands[0] + operands[1]);
+    }
+
+    public Object visit(BinaryArithMinusExpr node) {
+        int[] operands = visitIntOperands(node);
+        return operands == null ? null : record(node, operands[0] - operands[1]);
+    }
+
+    public Object visit(BinaryArithTimesExpr node) {
+        int[] operands = visitIntOperands(node);
+        return operands == null ? null : record(node, operands[0] * operands[1]);
+    }
+
+    public Object visit(BinaryArithDivideExpr node) {
+        int[] operands = visitIntOperands(node);
+        return operands == null || operands[1] == 0 ? null
+                : record(node, operands[0] / operands[1]);
+    }
+
+    public Object visit(BinaryArithModulusExpr node) {
+        int[] operands = visitIntOperands(node);
+        return operands == null || operands[1] == 0 ? null
+                : record(node, operands[0] % operands[1]);
+    }
+
+    public Object visit(BinaryCompEqExpr node) {
+        Object[] operands = visitOperands(node);
+        return operands == null ? null : record(node, operands[0].equals(operands[1]));
+    }
+
+    public Object visit(BinaryCompNeExpr node) {
+        Object[] operands = visitOperands(node);
+        return operands == null ? null : record(node, !operands[0].equals(operands[1]));
+    }
+
+    public Object visit(BinaryCompLtExpr node) {
+        int[] operands = visitIntOperands(node);
+        return operands == null ? null : record(node, operands[0] < operands[1]);
+    }
+
+    public Object visit(BinaryCompLeqExpr node) {
+        int[] operands = visitIntOperands(node);
+        return operands == null ? null : record(node, operands[0] <= operands[1]);
+    }
+
+    public Object visit(BinaryCompGtExpr node) {
+        int[] operands = visitIntOperands(node);
+        return operands == null ? null : record(node, operands[0] > operands[1]);
+    }
+
+    public Object visit(BinaryCompGeqExpr node) {
+        int[] operands = visitIntOperands(node);
+        return operands == null ? null : record(node, operands[0] >= operands[1]);
+    }
+
+    /**
+     * Folds an and or an or, which its left operand alone decides if it is
+     * false for an and or true for an or
+     *
+     * @param node           the binary logic expression
+     * @param decidingValue  the value of the left operand that decides it
+     * @return the value, or null if it is not constant
+     */
+    private Object visitLogic(BinaryExpr node, boolean decidingValue) {
+        Object left = node.getLeftExpr().accept(this);
+        Object right = node.getRightExpr().accept(this);
+        if (left != null && (Boolean) left == decidingValue) {
+            return record(node, decidingValue);
+        }
+        return left == null ? null : record(node, right);
+    }
+
+    public Object visit(BinaryLogicAndExpr node) {
+        return visitLogic(node, false);
+    }
+
+    public Object visit(BinaryLogicOrExpr node) {
+        return visitLogic(node, true);
+    }
+
+    public Object visit(UnaryNegExpr node) {
+        Object value = node.getExpr().accept(this);
+        return value == null ? null : record(node, -(Integer) value);
+    }
+
+    public Object visit(UnaryNotExpr node) {
+        Object value = node.getExpr().accept(this);
+        return value == null ? null : record(node, !(Boolean) value);
+    }
+}
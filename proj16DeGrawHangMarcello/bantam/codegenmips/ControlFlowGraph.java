@@ -0,0 +1,111 @@
+/*
+ * File: ControlFlowGraph.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The basic blocks of the code of a method and the edges between them, for
+ * the passes that follow the flow of control: the liveness analysis of the
+ * RegisterAllocator and the removal of unreachable code by the
+ * PeepholeOptimizer.
+ * <p>
+ * A block starts at the first instruction, at a label and after a branch or
+ * a jump.  Its successors are the block at the label its last instruction
+ * branches to, if it branches, and the next block, if execution can go on
+ * to it.  A jump out of the method, to a runtime error routine, and a
+ * return have no successors.
+ */
+class ControlFlowGraph
+{
+    private final List<BasicBlock> blocks = new ArrayList<>();
+
+    /**
+     * Splits code into basic blocks and links them
+     *
+     * @param code the code, which is not changed while the graph is used
+     */
+    ControlFlowGraph(List<Instruction> code) {
+        // the block of each label, by id from the smallest id the code
+        // defines: ids are numbered across the whole program, but the labels
+        // of one method are made together, so their ids are close
+        int minLabelId = Integer.MAX_VALUE;
+        int maxLabelId = -1;
+        for (Instruction instruction : code) {
+            if (instruction.op == Opcode.LABEL) {
+                minLabelId = Math.min(minLabelId, instruction.label.id);
+                maxLabelId = Math.max(maxLabelId, instruction.label.id);
+            }
+        }
+        BasicBlock[] labelBlocks = new BasicBlock[Math.max(maxLabelId - minLabelId + 1, 0)];
+
+        BasicBlock current = null;
+        for (int i = 0; i < code.size(); i++) {
+            Instruction instruction = code.get(i);
+            boolean afterJump = i > 0
+                    && (code.get(i - 1).isBranch() || code.get(i - 1).endsBlock());
+            if (current == null || afterJump || instruction.op == Opcode.LABEL) {
+                if (current != null) {
+                    current.end = i;
+                }
+                current = new BasicBlock(blocks.size(), i);
+                blocks.add(current);
+            }
+            if (instruction.op == Opcode.LABEL) {
+                labelBlocks[instruction.label.id - minLabelId] = current;
+            }
+        }
+        if (current != null) {
+            current.end = code.size();
+        }
+
+        for (BasicBlock block : blocks) {
+            Instruction last = code.get(block.end - 1);
+            int target = last.isBranch() ? last.label.id - minLabelId : -1;
+            if (target >= 0 && target < labelBlocks.length && labelBlocks[target] != null) {
+                block.successors.add(labelBlocks[target]);
+            }
+            if (!last.endsBlock() && block.index + 1 < blocks.size()) {
+                block.successors.add(blocks.get(block.index + 1));
+            }
+        }
+    }
+
+    /**
+     * @return the blocks, in the order of the code
+     */
+    List<BasicBlock> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return the blocks execution can reach from the first, by index
+     */
+    BitSet findReachable() {
+        BitSet reached = new BitSet(blocks.size());
+        if (blocks.isEmpty()) {
+            return reached;
+        }
+        Deque<BasicBlock> work = new ArrayDeque<>();
+        work.push(blocks.get(0));
+        reached.set(0);
+        while (!work.isEmpty()) {
+            for (BasicBlock successor : work.pop().successors) {
+                if (!reached.get(successor.index)) {
+                    reached.set(successor.index);
+                    work.push(successor);
+                }
+            }
+        }
+        return reached;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * File: Instruction.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+/**
+ * One instruction of the code of a method, as the CodeGenVisitor generates it
+ * and the RegisterAllocator rewrites it.  The operation is an Opcode.  A
+ * register operand is a MIPS register number below 32, or else a virtual
+ * register, which the RegisterAllocator replaces with a MIPS register.  A
+ * label operand is a Label, given out by the MipsCodeGenerator.  The code is
+ * written out only by the AssemblyPrinter.
+ * <p>
+ * Which operands an instruction has depends on its operation:
+ * <ul>
+ * <li>dest is the register written, if any;</li>
+ * <li>src1 and src2 are the registers read, in the order MIPS writes them,
+ * except that the base register of lw and sw is src1 for lw and src2 for sw,
+ * whose value is src1;</li>
+ * <li>imm is the immediate operand or the offset of lw and sw;</li>
+ * <li>label is the label defined, branched to, called or loaded.</li>
+ * </ul>
+ */
+class Instruction
+{
+    static final int NONE = -1;
+
+    // the MIPS registers the code generator uses by number
+    static final int ZERO = 0;
+    static final int V0 = 2;
+    static final int A0 = 4;
+    static final int A1 = 5;
+    static final int A2 = 6;
+    static final int A3 = 7;
+    static final int T0 = 8;
+    static final int S0 = 16;
+    static final int T8 = 24;
+    static final int T9 = 25;
+    static final int SP = 29;
+    static final int RA = 31;
+
+    /**
+     * The number of the first virtual register
+     */
+    static final int FIRST_VIRTUAL = 32;
+
+    private static final String[] NAMES =
+            {"$zero", "$at", "$v0", "$v1", "$a0", "$a1", "$a2", "$a3",
+             "$t0", "$t1", "$t2", "$t3", "$t4", "$t5", "$t6", "$t7",
+             "$s0", "$s1", "$s2", "$s3", "$s4", "$s5", "$s6", "$s7",
+             "$t8", "$t9", "$k0", "$k1", "$gp", "$sp", "$fp", "$ra"};
+
+    Opcode op;
+    int dest = NONE;
+    int src1 = NONE;
+    int src2 = NONE;
+    int imm;
+    Label label;
+
+    /**
+     * the frame of the method at a call, for the garbage collector, or null
+     */
+    StackMap stackMap;
+
+    /**
+     * creates an instruction with no operands, to which the caller adds them
+     *
+     * @param op the operation
+     */
+    Instruction(Opcode op) {
+        this.op = op;
+    }
+
+    /**
+     * @param register the number of a MIPS register
+     * @return the name of the register
+     */
+    static String getName(int register) {
+        return NAMES[register];
+    }
+
+    /**
+     * @return whether the instruction is a call, after which the registers
+     *         a method may change no longer hold what they held before
+     */
+    boolean isCall() {
+        return op.isCall();
+    }
+
+    /**
+     * @return whether the instruction may branch to its label
+     */
+    boolean isBranch() {
+        return op.isBranch();
+    }
+
+    /**
+     * @return whether the only effect of the instruction is to write its
+     *         destination register, so it is not needed if nothing reads it
+     */
+    boolean onlyWritesDest() {
+        return op.onlyWritesDest();
+    }
+
+    /**
+     * @return whether execution never continues with the next instruction
+     */
+    boolean endsBlock() {
+        return op.endsBlock();
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * File: Label.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+/**
+ * A label the code defines or refers to.  The MipsCodeGenerator gives out
+ * one Label for each name, so labels are compared by identity, and numbers
+ * them in order, so a pass can index an array by the ids of the labels
+ * rather than look their names up.  The ids count the labels of the whole
+ * program, so such an array should start at the smallest id a method uses:
+ * the labels made for one method have ids close together.
+ */
+final class Label
+{
+    final String name;
+    final int id;
+
+    Label(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -10,22 +10,25 @@
 package proj16DeGrawHangMarcello.bantam.codegenmips;
 
 import proj16DeGrawHangMarcello.bantam.ast.*;
-import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
+import proj16DeGrawHangMarcello.bantam.visitor.Pass;
+import proj16DeGrawHangMarcello.bantam.visitor.PassManager;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 
 
 /**
- * This visitor puts all the method names of a class
+ * This pass puts all the method names of a class
  * in an ArrayList and stores the list in hashmap where
- * the class name is a key and the list is a value
+ * the class name is a key and the list is a value.
+ * It can be run on its own by getMethods(Program), or
+ * together with other passes by a PassManager.
  *
  * @author Lucas DeGraw, Jackie Hang, ChrisMarcello
  * @since   4-11-2019
  *
  */
-public class MethodVisitor extends Visitor {
+public class MethodVisitor extends Pass {
     // key: class name, value: list of methods
     private HashMap<String, ArrayList<String>> classMethodsMap;
     private String curClassName;
@@ -38,36 +41,43 @@ public class MethodVisitor extends Visitor {
      *
      */
     public HashMap<String,ArrayList<String>> getMethods(Program ast) {
-        classMethodsMap = new HashMap<>();
-
         // traverse the abstract syntax tree
-        ast.accept(this);
+        new PassManager().add(this).run(ast);
 
         return classMethodsMap;
     }
 
     /**
-     * Visits a class node
+     * @return the map of class names and methods found by the last run of this pass
+     */
+    public HashMap<String,ArrayList<String>> getMethods() {
+        return classMethodsMap;
+    }
+
+    /**
+     * starts a new map for the program
      *
-     * @param node the class node
-     * @return null
+     * @param program the root of the AST
      */
-    public Object visit(Class_ node){
-        curClassName = node.getName();
-        classMethodsMap.put(node.getName(), new ArrayList<>() );
-        super.visit(node);
-        return null;
+    @Override
+    public void start(Program program) {
+        classMethodsMap = new HashMap<>();
     }
 
     /**
-     * Visits a Method node
-     * @param node the method node
-     * @return null
+     * Adds each class to the map, and each method to the list of its class
+     *
+     * @param node the node being entered
      */
-    public Object visit(Method node) {
-        classMethodsMap.get( curClassName ).add(node.getName());
-        super.visit(node);
-        return null;
+    @Override
+    public void enter(ASTNode node) {
+        if (node instanceof Class_) {
+            curClassName = ((Class_) node).getName();
+            classMethodsMap.put(curClassName, new ArrayList<>());
+        }
+        else if (node instanceof Method) {
+            classMethodsMap.get(curClassName).add(((Method) node).getName());
+        }
     }
 
 
@@ -41,10 +41,11 @@ import proj16DeGrawHangMarcello.bantam.semant.StringConstantsVisitor;
 import proj16DeGrawHangMarcello.bantam.util.*;
 import proj16DeGrawHangMarcello.bantam.util.Error;
 import proj16DeGrawHangMarcello.bantam.util.ErrorHandler;
+import proj16DeGrawHangMarcello.bantam.visitor.PassManager;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -53,7 +54,9 @@ import java.util.stream.Collectors;
  * The <tt>MipsCodeGenerator</tt> class generates mips assembly code
  * targeted for the SPIM or Mars emulators.
  * <p/>
- * This class is incomplete and will need to be implemented by the student.
+ * The code of each method is generated by a CodeGenVisitor and its registers
+ * are allocated by a RegisterAllocator.  The runtime system in runtime.s is
+ * copied to the end of the file, so the file runs on its own in Mars.
  */
 public class MipsCodeGenerator {
     /**
@@ -67,9 +70,9 @@ public class MipsCodeGenerator {
     private ClassTreeNode root;
 
     /**
-     * Print stream for output assembly file
+     * Writer of the assembly
      */
-    private PrintStream out;
+    private AssemblyWriter out;
 
     /**
      * Assembly support object (using Mips assembly support)
@@ -102,6 +105,48 @@ public class MipsCodeGenerator {
     private Map<String, Integer> classNameTable = new HashMap();
     private Set<String> classNames;
 
+    /**
+     * maps each class name to the largest id among the class and its
+     * subclasses, whose ids follow the class's own
+     */
+    private Map<String, Integer> lastSubclassIds = new HashMap<>();
+
+    /**
+     * maps each string constant, with its quotes, to the label of its object,
+     * and the source file name to the label of its String
+     */
+    private Map<String, String> stringLabels = new HashMap<>();
+    private String fileLabel;
+
+    /**
+     * Printer of the code of the methods
+     */
+    private AssemblyPrinter printer;
+
+    /**
+     * the Label of each name the code refers to
+     */
+    private Map<String, Label> labels = new HashMap<>();
+
+    /**
+     * the label of the return address of each call with a StackMap, in the
+     * order of the calls in the text section, and the map of each
+     */
+    private List<String> callLabels = new ArrayList<>();
+    private List<StackMap> stackMaps = new ArrayList<>();
+
+    /**
+     * maps each class name to the label of its initialization subroutine,
+     * or to null if neither it nor a superclass has a field initializer
+     */
+    private Map<String, String> initLabels = new HashMap<>();
+
+    /**
+     * the pass that gathers the string constants of the AST before any
+     * code is generated
+     */
+    private StringConstantsVisitor stringConstantsVisitor;
+
 
     /**
      * MipsCodeGenerator constructor
@@ -135,12 +180,10 @@ public class MipsCodeGenerator {
      * @param outFile filename of the assembly output file
      */
     public void generate(ClassTreeNode root, String outFile, Program program) {
-        this.root = root;
-        this.ast = program;
-        // set up the PrintStream for writing the assembly file.
+        // set up the AssemblyWriter for writing the assembly file.
+        AssemblyWriter out;
         try {
-            this.out = new PrintStream(new FileOutputStream(outFile));
-            this.assemblySupport = new MipsSupport(out);
+            out = new AssemblyWriter(outFile);
         } catch (IOException e) {
             // if don't have permission to write to file then throw an exception
             errorHandler.register(Error.Kind.CODEGEN_ERROR, "IOException when writing " +
@@ -148,7 +191,43 @@ public class MipsCodeGenerator {
             throw new CompilationException("Could not write to output file.");
         }
 
+        try {
+            try {
+                generate(root, outFile, program, out);
+            } finally {
+                // release the file, since a batch may generate thousands of them
+                out.close();
+            }
+        } catch (UncheckedIOException e) {
+            errorHandler.register(Error.Kind.CODEGEN_ERROR, "IOException when writing " +
+                    "to file: " + outFile);
+            throw new CompilationException("Could not write to output file.");
+        }
+    }
+
+    /**
+     * Generate assembly with a given writer, which may keep it in memory so
+     * the IDE can show it without reading the file
+     *
+     * @param root    root of the class hierarchy tree
+     * @param outFile filename of the assembly output file, which runtime
+     *                errors name the source file after
+     * @param out     writer of the assembly, which is left open
+     */
+    public void generate(ClassTreeNode root, String outFile, Program program,
+                         AssemblyWriter out) {
+        this.root = root;
+        this.ast = program;
+        this.out = out;
         this.assemblySupport = new MipsSupport(this.out);
+        this.printer = new AssemblyPrinter(this.out);
+        this.labels.clear();
+        this.callLabels.clear();
+        this.stackMaps.clear();
+
+        // gather the string constants in one walk of the AST
+        this.stringConstantsVisitor = new StringConstantsVisitor();
+        new PassManager().add(stringConstantsVisitor).run(ast);
 
         // begin generating data section
         this.assemblySupport.genDataStart();
@@ -167,51 +246,63 @@ public class MipsCodeGenerator {
 
         generateClassNameTable();
 
+        generatePointerFieldTables();
+
         generateObjectTemplates();
 
         generateDispatchTables();
         this.out.print("\n");
 
         this.assemblySupport.genTextStart();
-        generateTextStub();
-
+        generateText();
+        generateStackMapTable();
+        generateRuntime();
     }
 
     /**
-     * Gets the class names from the classMap
-     * and matches them to appropriate indices.
+     * Gives each class an id, numbering the classes in preorder of the class
+     * hierarchy tree so that the ids of a class and its subclasses form a
+     * range, which lets the generated code test the class of an object with
+     * a single comparison.  String, Sys, Main and TextIO come first among
+     * the subclasses of Object, so that they keep the ids 1 to 4 the runtime
+     * knows them by as long as Main has no subclasses.
      */
     private void makeClassnameIdentifierMap() {
 
-        //get class names as a set
-        Set<String> unorderedNames = root.getClassMap().keySet();
-
-        int counter = 5;
-        for(String cName: unorderedNames){
-            switch (cName) {
-                case "Object":
-                    classNameTable.put("Object", 0);
-                    break;
-                case "String":
-                    classNameTable.put("String", 1);
-                    break;
-
-                case "Sys":
-                    classNameTable.put("Sys", 2);
-                    break;
-
-                case "Main":
-                    classNameTable.put("Main", 3);
-                    break;
-
-                case "TextIO":
-                    classNameTable.put("TextIO", 4);
-                    break;
-
-                default:
-                    classNameTable.put(cName, counter);
-                    counter++;
-                    break;
+        List<String> builtInOrder = Arrays.asList("String", "Sys", "Main", "TextIO");
+
+        // a preorder walk, with a null marker under each class to record its
+        // last subclass once its subtree is numbered
+        Deque<ClassTreeNode> stack = new LinkedList<>();
+        Deque<String> finished = new ArrayDeque<>();
+        stack.push(root);
+        int counter = 0;
+        while (!stack.isEmpty()) {
+            ClassTreeNode node = stack.pop();
+            if (node == null) {
+                lastSubclassIds.put(finished.pop(), counter - 1);
+                continue;
+            }
+            classNameTable.put(node.getName(), counter++);
+            finished.push(node.getName());
+            stack.push(null);
+
+            List<ClassTreeNode> children = new ArrayList<>();
+            for (Iterator<ClassTreeNode> it = node.getChildrenList(); it.hasNext(); ) {
+                ClassTreeNode child = it.next();
+                // skip a class that was moved to another parent
+                if (child.getParent() == node) {
+                    children.add(child);
+                }
+            }
+            if (node == root) {
+                children.sort(Comparator.comparingInt(child -> {
+                    int index = builtInOrder.indexOf(child.getName());
+                    return index < 0 ? builtInOrder.size() : index;
+                }));
+            }
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
             }
         }
 
@@ -264,14 +355,16 @@ public class MipsCodeGenerator {
         }
 
         //Filename
-        genStrConstHelper(assemblySupport.getLabel(), fileName.replace(".asm", ".btm"));
+        this.fileLabel = assemblySupport.getLabel();
+        genStrConstHelper(fileLabel, fileName.replace(".asm", ".btm"));
 
         //All string constants in the file
-        StringConstantsVisitor stringConstantsVisitor = new StringConstantsVisitor();
-        Map<String,String> stringConstantsMap = stringConstantsVisitor.getStringConstants(ast);
+        Map<String,String> stringConstantsMap = stringConstantsVisitor.getStringConstants();
         for (Map.Entry<String,String> stringConstant : stringConstantsMap.entrySet()) {
             String strConst= stringConstant.getKey().substring(1,stringConstant.getKey().length()-1);
-            genStrConstHelper(assemblySupport.getLabel(), strConst);
+            String label = assemblySupport.getLabel();
+            stringLabels.put(stringConstant.getKey(), label);
+            genStrConstHelper(label, strConst);
         }
 
     }
@@ -285,12 +378,30 @@ public class MipsCodeGenerator {
      * @return
      */
     private int getStringSize(String string){
-        int length = 17 + string.length();
+        int length = 17 + getStringLength(string);
         double calc = Math.ceil((double)length/4);
         length = (int)calc * 4;
         return length;
     }
 
+    /**
+     * Calculates the number of characters of a string constant, in which an
+     * escape sequence stands for one character
+     *
+     * @param string string as written in the source, without its quotes
+     * @return the number of characters
+     */
+    private int getStringLength(String string){
+        int length = string.length();
+        for (int i = 0; i < string.length() - 1; i++) {
+            if (string.charAt(i) == '\\') {
+                length--;
+                i++;
+            }
+        }
+        return length;
+    }
+
     /**
      * Used to help generate string constants
      *
@@ -310,7 +421,7 @@ public class MipsCodeGenerator {
         assemblySupport.genWord("1");
         assemblySupport.genWord(String.valueOf(getStringSize(strConst))); //string length in bytes
         assemblySupport.genWord("String_dispatch_table"); //link to string dispatch table
-        assemblySupport.genWord(String.valueOf(strConst.length())); //length of the string in chars
+        assemblySupport.genWord(String.valueOf(getStringLength(strConst))); //length of the string in chars
         assemblySupport.genAscii(strConst);
         this.out.print("\n");
 
@@ -330,6 +441,38 @@ public class MipsCodeGenerator {
 
     }
 
+    /**
+     * generates the class_gc_table, which the garbage collector indexes by
+     * class id to find the offsets of the fields of an object that hold
+     * references, with a list of the offsets for each class: their number
+     * followed by the offsets
+     */
+    private void generatePointerFieldTables() {
+
+        Map<String, ClassTreeNode> classMap = this.root.getClassMap();
+
+        this.assemblySupport.genLabel("class_gc_table");
+        for (String s : this.classNames) {
+            this.assemblySupport.genWord(s + "_pointer_fields");
+        }
+
+        for (String s : this.classNames) {
+            ClassLayout layout = classMap.get(s).getLayout();
+            List<Integer> offsets = new ArrayList<>();
+            for (int i = 0; i < layout.getNumFields(); i++) {
+                String type = layout.getField(i).getType();
+                if (!type.equals("int") && !type.equals("boolean")) {
+                    offsets.add(layout.getFieldOffset(i));
+                }
+            }
+            this.assemblySupport.genLabel(s + "_pointer_fields");
+            this.assemblySupport.genWord(String.valueOf(offsets.size()));
+            for (int offset : offsets) {
+                this.assemblySupport.genWord(String.valueOf(offset));
+            }
+        }
+    }
+
     /**
      * generates a template section for each object
      */
@@ -337,31 +480,20 @@ public class MipsCodeGenerator {
 
         Map classMap = this.root.getClassMap();
 
-        // initialize vars that will change for each class in the loop
-        ClassTreeNode curClassNode;
-        int numVars;
-        int numTables;
-        int numFields;
-        int classID;
-
         // foreach key of classNameTable
         for (String s : this.classNames) {
 
             this.assemblySupport.genLabel("\n"+s+"_template");
 
-            curClassNode = (ClassTreeNode) classMap.get(s); // get the ClassTreeNode
-            numVars = curClassNode.getVarSymbolTable().getSize(); // get # entries in symbol table(s)
-            numTables = curClassNode.getVarSymbolTable().getCurrScopeLevel(); // get # symbol tables
-            numFields = numVars - 2 * numTables; // # fields = # entries - 2 * # STs
-            classID = this.classNameTable.get(s);
+            ClassLayout layout = ((ClassTreeNode) classMap.get(s)).getLayout();
 
             // write first 3 lines of object template
-            this.assemblySupport.genWord(String.valueOf(classID)); // write saved identifier
-            this.assemblySupport.genWord(String.valueOf(12 + 4*numFields)); // write object size
+            this.assemblySupport.genWord(String.valueOf(this.classNameTable.get(s))); // write saved identifier
+            this.assemblySupport.genWord(String.valueOf(layout.getObjectSize())); // write object size
             this.assemblySupport.genWord(s + "_dispatch_table"); // write name_dispatch_table
 
             // generate a word for each field
-            for (int i = 0; i < numFields; i++) {
+            for (int i = 0; i < layout.getNumFields(); i++) {
                 this.assemblySupport.genWord("0");
             }
 
@@ -369,110 +501,236 @@ public class MipsCodeGenerator {
     }
 
     /**
-     * generates a dispatch table for each object
+     * generates a dispatch table for each object, with a word for each
+     * slot of the class's layout naming the method in that slot
      */
     private void generateDispatchTables(){
 
         Map classMap = this.root.getClassMap();
 
-        List<String> methodNameList;
-
-        ClassTreeNode curNode;
-        LinkedHashMap<String, String> methodClassMap = new LinkedHashMap();
-        MemberList members;
-        String methodName;
-
-        String curName;
         for (String s : this.classNames) {
 
-            curNode =  (ClassTreeNode)classMap.get(s);
+            ClassLayout layout = ((ClassTreeNode) classMap.get(s)).getLayout();
 
             this.assemblySupport.genLabel("\n"+s+"_dispatch_table");
-            while (curNode != null) {
-
-                curName = curNode.getName();
-
-                // get each one's methods & fields (Members)
-                members = curNode.getASTNode().getMemberList();
-
-                int numMems = members.getSize();
+            for (int slot = 0; slot < layout.getNumMethods(); slot++) {
+                this.assemblySupport.genWord(layout.getMethodClass(slot) + "."
+                        + layout.getMethod(slot).getName());
+            }
+        }
+    }
 
-                // loop backwards through the members to add them in the order declared in .btm file
-                for (int i = numMems-1; i >= 0; i--) {
+    /**
+     * Generates the initialization subroutine of every class and the
+     * methods of the user-defined classes, allocating the registers of
+     * each one on its own
+     */
+    private void generateText() {
 
-                    // get current member
-                    Member member = (Member)members.get(i);
+        CodeGenVisitor codeGenVisitor = new CodeGenVisitor(this, root, this.opt);
+        Map<String, ClassTreeNode> classMap = this.root.getClassMap();
 
-                    // if it's a method
-                    if (member instanceof Method) {
-                        methodName = ((Method) member).getName();   // save method name
+        this.out.print("\n");
+        for (String className : this.classNames) {
+            ClassTreeNode classNode = classMap.get(className);
+            List<Instruction> code = codeGenVisitor.genInit(classNode);
+            genAllocated(className + "_init", code, codeGenVisitor);
+        }
 
-                        if (methodClassMap.containsKey(methodName)) {   // if method already declared
-                            methodClassMap.remove(methodName);  // remove existing declaration
-                            methodClassMap.put(methodName, s);  // add declaration
-                        }
-                        else {  // method is not already declared
-                            methodClassMap.put(methodName, curName);   // add new declaration
-                        }
-                    }
+        for (String className : this.classNames) {
+            ClassTreeNode classNode = classMap.get(className);
+            if (classNode.isBuiltIn()) {
+                continue;
+            }
+            for (ASTNode member : classNode.getASTNode().getMemberList()) {
+                if (member instanceof Method) {
+                    List<Instruction> code = codeGenVisitor.genMethod(classNode, (Method) member);
+                    genAllocated(className + "." + ((Method) member).getName(), code,
+                            codeGenVisitor);
                 }
-                curNode = curNode.getParent();    // reset node
             }
+        }
+    }
 
-            // save list of keys
-            methodNameList = new ArrayList<>(methodClassMap.keySet());
-
-            // loop backwards through list of method keys to write in order declared in file
-            for (int i = methodNameList.size()-1; i >= 0; i--) {
-
-                methodName = methodNameList.get(i);
-                curName = methodClassMap.get(methodName);
-                this.assemblySupport.genWord(curName+"."+methodName); // pop & write value of stack
+    /**
+     * Allocates the registers of the code of a method or initialization
+     * subroutine, removes the needless instructions left if optimization is
+     * enabled, and writes it under its label
+     *
+     * @param label          the label of the method or subroutine
+     * @param code           its code, with virtual registers
+     * @param codeGenVisitor the visitor that generated the code
+     */
+    private void genAllocated(String label, List<Instruction> code,
+                              CodeGenVisitor codeGenVisitor) {
+        RegisterAllocator allocator = new RegisterAllocator(code,
+                codeGenVisitor.getNumRegisters(), codeGenVisitor.getNumOutgoingArgs());
+        if (this.gc) {
+            allocator.setPointerRegisters(codeGenVisitor.getPointerRegisters());
+        }
+        List<Instruction> allocated = allocator.allocate();
+        if (this.opt) {
+            allocated = new PeepholeOptimizer().optimize(allocated);
+        }
+        this.out.print("\n");
+        this.printer.printLabel(getLabel(label));
+        for (Instruction instruction : allocated) {
+            this.printer.print(instruction);
+            if (instruction.stackMap != null) {
+                // label the return address, by which the collector finds the map
+                Label callLabel = getNewLabel();
+                this.printer.printLabel(callLabel);
+                this.callLabels.add(callLabel.name);
+                this.stackMaps.add(instruction.stackMap);
             }
-            methodClassMap.clear();
         }
     }
 
     /**
-     * Generates a stub for text section
+     * Generates the _gc_map_table the garbage collector looks the return
+     * address of a call up in to find the StackMap of the call: the number
+     * of calls followed by the return address and map of each, in order of
+     * their addresses.  Calls with the same map share it.
      */
-    private void generateTextStub() {
+    private void generateStackMapTable() {
+        this.out.print("\n\t.data\n");
+        this.assemblySupport.genLabel("_gc_map_table");
+        this.assemblySupport.genWord(String.valueOf(this.callLabels.size()));
+
+        Map<List<String>, String> mapLabels = new LinkedHashMap<>();
+        for (int i = 0; i < this.callLabels.size(); i++) {
+            List<String> words = this.stackMaps.get(i).getWords();
+            String mapLabel = mapLabels.get(words);
+            if (mapLabel == null) {
+                mapLabel = this.assemblySupport.getLabel();
+                mapLabels.put(words, mapLabel);
+            }
+            this.assemblySupport.genWord(this.callLabels.get(i));
+            this.assemblySupport.genWord(mapLabel);
+        }
+        for (Map.Entry<List<String>, String> map : mapLabels.entrySet()) {
+            this.assemblySupport.genLabel(map.getValue());
+            for (String word : map.getKey()) {
+                this.assemblySupport.genWord(word);
+            }
+        }
+    }
 
+    /**
+     * Copies the runtime system to the end of the assembly file, so that
+     * the file runs on its own
+     */
+    private void generateRuntime() {
         this.out.print("\n");
-        for (String className : this.classNames) {
-            this.assemblySupport.genLabel(className+"_init");
+        try (InputStream runtime = MipsCodeGenerator.class.getResourceAsStream("runtime.s")) {
+            if (runtime == null) {
+                throw new IOException("runtime.s not found");
+            }
+            byte[] buffer = new byte[8192];
+            for (int n = runtime.read(buffer); n > 0; n = runtime.read(buffer)) {
+                this.out.write(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            errorHandler.register(Error.Kind.CODEGEN_ERROR, "IOException when reading " +
+                    "the runtime system: " + e.getMessage());
+            throw new CompilationException("Could not read the runtime system.");
         }
-        this.out.print("\n");
-
-        //All methods in the file
-        MethodVisitor methodVisitor = new MethodVisitor();
-        Map<String,ArrayList<String>> classMethodsMap = methodVisitor.getMethods(ast);
+    }
 
+    /**
+     * @return a new label
+     */
+    Label getNewLabel() {
+        return getLabel(this.assemblySupport.getLabel());
+    }
 
-        for (Map.Entry<String,ArrayList<String>> methodList : classMethodsMap.entrySet()) {
-            for(String methodName: methodList.getValue()){
-                assemblySupport.genLabel(methodList.getKey()+"."+methodName);
-            }
+    /**
+     * @param name the name of a label
+     * @return the one Label with the name
+     */
+    Label getLabel(String name) {
+        Label label = this.labels.get(name);
+        if (label == null) {
+            label = new Label(name, this.labels.size());
+            this.labels.put(name, label);
         }
+        return label;
+    }
 
-        this.out.println("\njr $ra");
+    /**
+     * @param className the name of a class
+     * @return the id of the class
+     */
+    int getClassId(String className) {
+        return this.classNameTable.get(className);
+    }
 
+    /**
+     * @param className the name of a class
+     * @return the largest id among the class and its subclasses
+     */
+    int getLastSubclassId(String className) {
+        return this.lastSubclassIds.get(className);
     }
 
+    /**
+     * @param constant a string constant, with its quotes
+     * @return the label of the String object of the constant
+     */
+    String getStringLabel(String constant) {
+        return this.stringLabels.get(constant);
+    }
+
+    /**
+     * @return the label of the String naming the source file
+     */
+    String getFileLabel() {
+        return this.fileLabel;
+    }
+
+    /**
+     * @param className the name of a class
+     * @return the label of the initialization subroutine of the class, or
+     *         null if there is nothing for it to initialize
+     */
+    String getInitLabel(String className) {
+        if (!this.initLabels.containsKey(className)) {
+            ClassTreeNode classNode = this.root.lookupClass(className);
+            String label = classNode.getParent() == null ? null
+                    : getInitLabel(classNode.getParent().getName());
+            for (ASTNode member : classNode.getASTNode().getMemberList()) {
+                if (member instanceof Field && ((Field) member).getInit() != null) {
+                    label = className + "_init";
+                }
+            }
+            // a subclass calls its own subroutine, which calls its superclass's
+            this.initLabels.put(className, label == null ? null : className + "_init");
+        }
+        return this.initLabels.get(className);
+    }
 
     public static void main(String[] args) {
         ErrorHandler errorHandler = new ErrorHandler();
         Parser parser = new Parser(errorHandler);
         SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
 
-        for (String inFile : args) {
+        // -opt before the file names enables optimization, and -gc garbage collection
+        boolean opt = false;
+        boolean gc = false;
+        int first = 0;
+        for (; first < args.length && args[first].startsWith("-"); first++) {
+            opt |= args[first].equals("-opt");
+            gc |= args[first].equals("-gc");
+        }
+
+        for (String inFile : Arrays.copyOfRange(args, first, args.length)) {
             System.out.println("\n========== MIPS Code Generation results for " + inFile + " =============");
             try {
                 errorHandler.clear();
                 Program program = parser.parse(inFile);
                 ClassTreeNode classTreeNode = analyzer.analyze(program);
                 System.out.println(" Semantic Analysis was successful.");
-                MipsCodeGenerator mipsCodeGenerator = new MipsCodeGenerator(errorHandler, false, false);
+                MipsCodeGenerator mipsCodeGenerator = new MipsCodeGenerator(errorHandler, gc, opt);
                 mipsCodeGenerator.generate(classTreeNode, inFile.replace(".btm", ".asm"), program);
                 System.out.println(" Generation of "+ inFile.replace(".btm", ".asm") + " was successful.");
             } catch (CompilationException ex) {
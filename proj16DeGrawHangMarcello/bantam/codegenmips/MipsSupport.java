@@ -26,7 +26,6 @@
 
 package proj16DeGrawHangMarcello.bantam.codegenmips;
 
-import java.io.PrintStream;
 
 /**
  * Mips assembly support
@@ -83,16 +82,16 @@ public class MipsSupport {
     private int nextAvailStackOffset;
 
     /**
-     * The print stream for printing to an assembly file
+     * The writer of the assembly
      */
-    private PrintStream out;
+    private AssemblyWriter out;
 
     /**
      * MipsSupport constructor
      *
-     * @param out print stream
+     * @param out writer of the assembly
      */
-    public MipsSupport(PrintStream out) {
+    public MipsSupport(AssemblyWriter out) {
         this.out = out;
     }
 
@@ -288,7 +287,7 @@ public class MipsSupport {
      * @param text text to put in comment
      */
     public void genComment(String text) {
-        out.println("\t# " + text);
+        out.print("\t# ").println(text);
     }
 
     /**
@@ -325,7 +324,7 @@ public class MipsSupport {
      * @param label label to make global
      */
     public void genGlobal(String label) {
-        out.println("\t.globl\t" + label);
+        out.print("\t.globl\t").println(label);
     }
 
     /**
@@ -334,7 +333,7 @@ public class MipsSupport {
      * @param dataWord word string
      */
     public void genWord(String dataWord) {
-        out.println("\t.word\t" + dataWord);
+        out.print("\t.word\t").println(dataWord);
     }
 
     /**
@@ -343,7 +342,7 @@ public class MipsSupport {
      * @param dataByte byte string
      */
     public void genByte(String dataByte) {
-        out.println("\t.byte\t" + dataByte);
+        out.print("\t.byte\t").println(dataByte);
     }
 
     /**
@@ -352,7 +351,7 @@ public class MipsSupport {
      * @param n size of data segment
      */
     public void genSpace(int n) {
-        out.println("\t.space\t" + n);
+        out.print("\t.space\t").println(n);
     }
 
     /**
@@ -386,9 +385,12 @@ public class MipsSupport {
 //            }
 //        }
         /* DJS: the code above was replaced by the code below to work with MARS 4.4
-         *      last modified:  April 2017 */
-        for (int i = 0; i < ascii.length(); i++) {
-            if (ascii.charAt(i) == '\\' & i < ascii.length()-1) {
+         *      last modified:  April 2017
+         *      the characters between escapes are now written a run at a time */
+        int start = 0;
+        for (int i = 0; i < ascii.length() - 1; i++) {
+            if (ascii.charAt(i) == '\\') {
+                out.print(ascii, start, i);
                 out.println("\"");
                 if (ascii.charAt(i+1) == 'n') {
                     out.println("\t.byte\t0xA");
@@ -408,11 +410,10 @@ public class MipsSupport {
                 // backslash is not allowed in front of any other char
                 out.print("\t.ascii\t\"");
                 i++;
-            }
-            else {
-                out.print(ascii.charAt(i));
+                start = i + 1;
             }
         }
+        out.print(ascii, start, ascii.length());
 
         out.println("\"");
         out.println("\t.byte\t0");
@@ -423,7 +424,7 @@ public class MipsSupport {
      * Generate word alignment directive
      */
     public void genAlign() {
-        out.println("\t.align\t" + (getWordSize() / 2));
+        out.print("\t.align\t").println(getWordSize() / 2);
     }
 
     /* Code generation methods used by the code generator */
@@ -485,7 +486,8 @@ public class MipsSupport {
         checkReg(destReg);
         checkReg(baseReg);
         checkWordOffset(offset);
-        out.println("\tlw " + destReg + " " + offset + "(" + baseReg + ")");
+        out.print("\tlw ").print(destReg).print(' ').print(offset)
+                .print('(').print(baseReg).println(")");
     }
 
     /**
@@ -498,7 +500,8 @@ public class MipsSupport {
     public void genLoadByte(String destReg, int offset, String baseReg) {
         checkReg(destReg);
         checkReg(baseReg);
-        out.println("\tlb " + destReg + " " + offset + "(" + baseReg + ")");
+        out.print("\tlb ").print(destReg).print(' ').print(offset)
+                .print('(').print(baseReg).println(")");
     }
 
     /**
@@ -512,7 +515,8 @@ public class MipsSupport {
         checkReg(srcReg);
         checkReg(baseReg);
         checkWordOffset(offset);
-        out.println("\tsw " + srcReg + " " + offset + "(" + baseReg + ")");
+        out.print("\tsw ").print(srcReg).print(' ').print(offset)
+                .print('(').print(baseReg).println(")");
     }
 
     /**
@@ -525,7 +529,8 @@ public class MipsSupport {
     public void genStoreByte(String srcReg, int offset, String baseReg) {
         checkReg(srcReg);
         checkReg(baseReg);
-        out.println("\tsb " + srcReg + " " + offset + "(" + baseReg + ")");
+        out.print("\tsb ").print(srcReg).print(' ').print(offset)
+                .print('(').print(baseReg).println(")");
     }
 
     /**
@@ -536,7 +541,7 @@ public class MipsSupport {
      */
     public void genLoadAddr(String destReg, String label) {
         checkReg(destReg);
-        out.println("\tla " + destReg + " " + label);
+        out.print("\tla ").print(destReg).print(' ').println(label);
     }
 
     /**
@@ -547,7 +552,7 @@ public class MipsSupport {
      */
     public void genLoadImm(String destReg, int imm) {
         checkReg(destReg);
-        out.println("\tli " + destReg + " " + imm);
+        out.print("\tli ").print(destReg).print(' ').println(imm);
     }
 
     /**
@@ -562,7 +567,8 @@ public class MipsSupport {
                              String operand2) {
         checkReg(destReg);
         checkReg(srcReg);
-        out.println("\t" + op + " " + destReg + " " + srcReg + " " + operand2);
+        out.print('\t').print(op).print(' ').print(destReg).print(' ').print(srcReg)
+                .print(' ').println(operand2);
     }
 
     /**
@@ -657,6 +663,41 @@ public class MipsSupport {
         genBinaryOp("div", destReg, srcReg, "" + imm);
     }
 
+    /**
+     * Generate a divide instruction that leaves the quotient in the lo
+     * register and the remainder in the hi register
+     *
+     * @param srcReg1 string containing the first source register
+     * @param srcReg2 string containing the second source register
+     */
+    public void genDivLoHi(String srcReg1, String srcReg2) {
+        checkReg(srcReg1);
+        checkReg(srcReg2);
+        out.print("\tdiv ").print(srcReg1).print(' ').println(srcReg2);
+    }
+
+    /**
+     * Generate a move from the lo register, which holds the quotient
+     * after a divide
+     *
+     * @param destReg string containing the destination register
+     */
+    public void genMoveFromLo(String destReg) {
+        checkReg(destReg);
+        out.print("\tmflo ").println(destReg);
+    }
+
+    /**
+     * Generate a move from the hi register, which holds the remainder
+     * after a divide
+     *
+     * @param destReg string containing the destination register
+     */
+    public void genMoveFromHi(String destReg) {
+        checkReg(destReg);
+        out.print("\tmfhi ").println(destReg);
+    }
+
     /**
      * Generate a modulus instruction
      *
@@ -805,7 +846,7 @@ public class MipsSupport {
     private void genUnaryOp(String op, String destReg, String srcReg) {
         checkReg(destReg);
         checkReg(srcReg);
-        out.println("\t" + op + " " + destReg + " " + srcReg);
+        out.print('\t').print(op).print(' ').print(destReg).print(' ').println(srcReg);
     }
 
     /**
@@ -844,7 +885,7 @@ public class MipsSupport {
      * @param label label string
      */
     public void genLabel(String label) {
-        out.println(label + ":");
+        out.print(label).println(":");
     }
 
     /**
@@ -853,7 +894,7 @@ public class MipsSupport {
      * @param label label string
      */
     public void genDirCall(String label) {
-        out.println("\tjal " + label);
+        out.print("\tjal ").println(label);
     }
 
     /**
@@ -863,14 +904,14 @@ public class MipsSupport {
      */
     public void genInDirCall(String reg) {
         checkReg(reg);
-        out.println("\tjalr " + reg);
+        out.print("\tjalr ").println(reg);
     }
 
     /**
      * Generate a return
      */
     public void genRetn() {
-        out.println("\tjr " + getRAReg());
+        out.print("\tjr ").println(getRAReg());
     }
 
     /**
@@ -879,7 +920,17 @@ public class MipsSupport {
      * @param label label string
      */
     public void genUncondBr(String label) {
-        out.println("\tb " + label);
+        out.print("\tb ").println(label);
+    }
+
+    /**
+     * Generate an unconditional jump, which unlike a branch can reach any
+     * label of the program
+     *
+     * @param label label string
+     */
+    public void genJump(String label) {
+        out.print("\tj ").println(label);
     }
 
     /**
@@ -894,7 +945,8 @@ public class MipsSupport {
                            String label) {
         checkReg(reg1);
         checkReg(reg2);
-        out.println("\t" + op + " " + reg1 + " " + reg2 + " " + label);
+        out.print('\t').print(op).print(' ').print(reg1).print(' ').print(reg2)
+                .print(' ').println(label);
     }
 
     /**
@@ -969,6 +1021,19 @@ public class MipsSupport {
         genCondBr("bge", reg1, reg2, label);
     }
 
+    /**
+     * Generate a conditional branch
+     * branches if first operand is greater than or equal to second operand
+     * when both are taken as unsigned
+     *
+     * @param reg1  first register to compare
+     * @param reg2  second register to compare
+     * @param label label to branch to
+     */
+    public void genCondBgeu(String reg1, String reg2, String label) {
+        genCondBr("bgeu", reg1, reg2, label);
+    }
+
     /**
      * Generate a system call
      *
@@ -0,0 +1,150 @@
+/*
+ * File: Opcode.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+/**
+ * The operation of an Instruction: a MIPS instruction, or one of the
+ * pseudo-operations LABEL, RET and LOAD_ARG, which the RegisterAllocator
+ * replaces.  Each knows its mnemonic and the form of its operands, by which
+ * the AssemblyPrinter writes it, and the properties of its control flow that
+ * the passes over the code need.
+ */
+enum Opcode
+{
+    /**
+     * Defines a label
+     */
+    LABEL(null, Form.LABEL),
+
+    /**
+     * Returns from the method: the RegisterAllocator replaces it with the
+     * code that restores the saved registers and pops the frame
+     */
+    RET(null, Form.NONE),
+
+    /**
+     * Loads into dest the parameter numbered imm, one of those passed in
+     * the caller's frame, whose offset the RegisterAllocator knows
+     */
+    LOAD_ARG(null, Form.NONE),
+
+    LI("li", Form.DEST_IMM),
+    LA("la", Form.DEST_LABEL),
+    MOVE("move", Form.DEST_SRC),
+    LW("lw", Form.LOAD),
+    SW("sw", Form.STORE),
+    ADDU("addu", Form.DEST_SRC_SRC),
+    SUBU("subu", Form.DEST_SRC_SRC),
+    MUL("mul", Form.DEST_SRC_SRC),
+    AND("and", Form.DEST_SRC_SRC),
+    OR("or", Form.DEST_SRC_SRC),
+    XOR("xor", Form.DEST_SRC_SRC),
+    SLT("slt", Form.DEST_SRC_SRC),
+    SLTU("sltu", Form.DEST_SRC_SRC),
+    ADDIU("addiu", Form.DEST_SRC_IMM),
+    SLTI("slti", Form.DEST_SRC_IMM),
+    SLTIU("sltiu", Form.DEST_SRC_IMM),
+    XORI("xori", Form.DEST_SRC_IMM),
+    SLL("sll", Form.DEST_SRC_IMM),
+    SRA("sra", Form.DEST_SRC_IMM),
+    DIV("div", Form.SRC_SRC),
+    MFLO("mflo", Form.DEST),
+    MFHI("mfhi", Form.DEST),
+    BEQ("beq", Form.SRC_SRC_LABEL),
+    BNE("bne", Form.SRC_SRC_LABEL),
+    BLT("blt", Form.SRC_SRC_LABEL),
+    BGE("bge", Form.SRC_SRC_LABEL),
+    BGT("bgt", Form.SRC_SRC_LABEL),
+    BLE("ble", Form.SRC_SRC_LABEL),
+    BGEU("bgeu", Form.SRC_SRC_LABEL),
+    B("b", Form.LABEL_ONLY),
+    J("j", Form.LABEL_ONLY),
+    JAL("jal", Form.LABEL_ONLY),
+    JALR("jalr", Form.SRC),
+    JR("jr", Form.SRC);
+
+    /**
+     * The operands an instruction is written with, in order
+     */
+    enum Form
+    {
+        NONE, LABEL, DEST, DEST_IMM, DEST_LABEL, DEST_SRC, DEST_SRC_SRC, DEST_SRC_IMM,
+        LOAD, STORE, SRC, SRC_SRC, SRC_SRC_LABEL, LABEL_ONLY
+    }
+
+    final String mnemonic;
+    final Form form;
+
+    Opcode(String mnemonic, Form form) {
+        this.mnemonic = mnemonic;
+        this.form = form;
+    }
+
+    /**
+     * @return whether the operation is a call, after which the registers
+     *         a method may change no longer hold what they held before
+     */
+    boolean isCall() {
+        return this == JAL || this == JALR;
+    }
+
+    /**
+     * @return whether the operation may branch to its label
+     */
+    boolean isBranch() {
+        return form == Form.SRC_SRC_LABEL || this == B;
+    }
+
+    /**
+     * @return whether the only effect of the operation is to write its
+     *         destination register, so it is not needed if nothing reads it
+     */
+    boolean onlyWritesDest() {
+        switch (form) {
+            case DEST:
+            case DEST_IMM:
+            case DEST_LABEL:
+            case DEST_SRC:
+            case DEST_SRC_SRC:
+            case DEST_SRC_IMM:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the conditional branch that branches when this one does not,
+     *         or null if there is none
+     */
+    Opcode getInverseBranch() {
+        switch (this) {
+            case BEQ:
+                return BNE;
+            case BNE:
+                return BEQ;
+            case BLT:
+                return BGE;
+            case BGE:
+                return BLT;
+            case BGT:
+                return BLE;
+            case BLE:
+                return BGT;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return whether execution never continues with the next instruction
+     */
+    boolean endsBlock() {
+        return this == B || this == J || this == JR || this == RET;
+    }
+}
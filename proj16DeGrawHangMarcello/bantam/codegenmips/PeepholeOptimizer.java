@@ -0,0 +1,275 @@
+/*
+ * File: PeepholeOptimizer.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Removes needless instructions from the code of a method after its
+ * registers are allocated, by looking at a few instructions at a time:
+ * <ul>
+ * <li>a move of a register to itself, or back to the register it was just
+ * moved from;</li>
+ * <li>a load of the word just stored to the same address, which becomes a
+ * move of the register stored, or nothing if it is the same register;</li>
+ * <li>a move into $t8 or $t9 whose value is only stored or moved by the
+ * next instruction, which then uses the moved register instead, and a load
+ * into one of them whose value is only moved by the next instruction, which
+ * loads into the destination instead: the RegisterAllocator uses $t8 and $t9
+ * only to carry a spilled value to or from its slot, so they are dead after
+ * that instruction;</li>
+ * <li>a branch or jump to the label that follows it, or that only labels
+ * follow;</li>
+ * <li>a conditional branch over a branch, which becomes the opposite
+ * conditional branch to where the second one went;</li>
+ * <li>a branch to a branch, which goes straight to where the second one
+ * goes;</li>
+ * <li>a label that nothing branches to, so that the instructions around it
+ * can be combined;</li>
+ * <li>a basic block that execution cannot reach, which the ControlFlowGraph
+ * of the code finds.</li>
+ * </ul>
+ * The passes are repeated until they remove nothing more.
+ */
+class PeepholeOptimizer
+{
+    /**
+     * Optimizes the code of a method
+     *
+     * @param code the code, with only MIPS registers
+     * @return the optimized code
+     */
+    List<Instruction> optimize(List<Instruction> code) {
+        boolean changed = true;
+        while (changed) {
+            int size = code.size();
+            code = removeUnreachable(code);
+            code = removeUnusedLabels(code);
+            code = invertBranches(code);
+            threadJumps(code);
+            code = removeJumpsToNext(code);
+            code = combineMoves(code);
+            changed = code.size() < size;
+        }
+        return code;
+    }
+
+    /**
+     * @return whether an instruction is a move
+     */
+    private static boolean isMove(Instruction instruction) {
+        return instruction.op == Opcode.MOVE;
+    }
+
+    /**
+     * @return whether a register is one the RegisterAllocator uses only to
+     *         carry a spilled value to the next instruction
+     */
+    private static boolean isScratch(int register) {
+        return register == Instruction.T8 || register == Instruction.T9;
+    }
+
+    /**
+     * Removes the basic blocks that execution cannot reach from the start
+     */
+    private List<Instruction> removeUnreachable(List<Instruction> code) {
+        ControlFlowGraph graph = new ControlFlowGraph(code);
+        BitSet reachable = graph.findReachable();
+        if (reachable.cardinality() == graph.getBlocks().size()) {
+            return code;
+        }
+        List<Instruction> result = new ArrayList<>(code.size());
+        for (BasicBlock block : graph.getBlocks()) {
+            if (reachable.get(block.index)) {
+                result.addAll(code.subList(block.start, block.end));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the labels that no instruction refers to
+     */
+    private List<Instruction> removeUnusedLabels(List<Instruction> code) {
+        HashSet<Label> used = new HashSet<>();
+        for (Instruction instruction : code) {
+            if (instruction.op != Opcode.LABEL && instruction.label != null) {
+                used.add(instruction.label);
+            }
+        }
+        List<Instruction> result = new ArrayList<>(code.size());
+        for (Instruction instruction : code) {
+            if (instruction.op != Opcode.LABEL || used.contains(instruction.label)) {
+                result.add(instruction);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return whether one of the labels starting at an index of the code
+     *         is a given label
+     */
+    private static boolean labelsAt(List<Instruction> code, int index, Label label) {
+        for (int i = index; i < code.size() && code.get(i).op == Opcode.LABEL; i++) {
+            if (code.get(i).label == label) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces each conditional branch over a branch with the opposite
+     * conditional branch to where the second one went
+     */
+    private List<Instruction> invertBranches(List<Instruction> code) {
+        List<Instruction> result = new ArrayList<>(code.size());
+        for (int i = 0; i < code.size(); i++) {
+            Instruction instruction = code.get(i);
+            Opcode inverse = instruction.op.getInverseBranch();
+            if (inverse != null && i + 1 < code.size() && code.get(i + 1).op == Opcode.B
+                    && labelsAt(code, i + 2, instruction.label)) {
+                Instruction branch = new Instruction(inverse);
+                branch.src1 = instruction.src1;
+                branch.src2 = instruction.src2;
+                branch.label = code.get(i + 1).label;
+                result.add(branch);
+                i++;
+                continue;
+            }
+            result.add(instruction);
+        }
+        return result;
+    }
+
+    /**
+     * Makes each branch to a branch go straight to where the second one goes
+     */
+    private void threadJumps(List<Instruction> code) {
+        HashMap<Label, Label> targets = new HashMap<>();
+        for (int i = 0; i < code.size(); i++) {
+            if (code.get(i).op == Opcode.LABEL) {
+                int next = i + 1;
+                while (next < code.size() && code.get(next).op == Opcode.LABEL) {
+                    next++;
+                }
+                if (next < code.size() && code.get(next).op == Opcode.B) {
+                    targets.put(code.get(i).label, code.get(next).label);
+                }
+            }
+        }
+        for (Instruction instruction : code) {
+            if (instruction.isBranch()) {
+                // follow the chain of branches, stopping at a loop
+                Label target = instruction.label;
+                for (int steps = 0; targets.containsKey(target) && steps < targets.size(); steps++) {
+                    target = targets.get(target);
+                }
+                instruction.label = target;
+            }
+        }
+    }
+
+    /**
+     * Removes the branches and jumps to a label that comes before any other
+     * instruction after them
+     */
+    private List<Instruction> removeJumpsToNext(List<Instruction> code) {
+        List<Instruction> result = new ArrayList<>(code.size());
+        for (int i = 0; i < code.size(); i++) {
+            Instruction instruction = code.get(i);
+            if (instruction.isBranch() || instruction.op == Opcode.J) {
+                int next = i + 1;
+                boolean toNext = false;
+                while (next < code.size() && code.get(next).op == Opcode.LABEL) {
+                    toNext |= code.get(next).label == instruction.label;
+                    next++;
+                }
+                if (toNext) {
+                    continue;
+                }
+            }
+            result.add(instruction);
+        }
+        return result;
+    }
+
+    /**
+     * Removes needless moves and loads, looking at each pair of
+     * instructions in a row
+     */
+    private List<Instruction> combineMoves(List<Instruction> code) {
+        List<Instruction> result = new ArrayList<>(code.size());
+        for (Instruction instruction : code) {
+            if (isMove(instruction) && instruction.dest == instruction.src1) {
+                continue;
+            }
+            Instruction previous = result.isEmpty() ? null : result.get(result.size() - 1);
+            if (previous == null) {
+                result.add(instruction);
+                continue;
+            }
+
+            // move a b; move b a
+            if (isMove(previous) && isMove(instruction)
+                    && instruction.dest == previous.src1 && instruction.src1 == previous.dest) {
+                continue;
+            }
+
+            // sw a off(b); lw c off(b)
+            if (previous.op == Opcode.SW && instruction.op == Opcode.LW
+                    && previous.src2 == instruction.src1 && previous.imm == instruction.imm
+                    && previous.src1 != previous.src2) {
+                if (instruction.dest != previous.src1) {
+                    result.add(move(instruction.dest, previous.src1));
+                }
+                continue;
+            }
+
+            // move $t8 a; sw $t8 off(b)  or  move $t8 a; move c $t8
+            if (isMove(previous) && isScratch(previous.dest)
+                    && (instruction.op == Opcode.SW && instruction.src1 == previous.dest
+                        && instruction.src2 != previous.dest
+                        || isMove(instruction) && instruction.src1 == previous.dest)) {
+                result.remove(result.size() - 1);
+                if (isMove(instruction)) {
+                    result.add(move(instruction.dest, previous.src1));
+                }
+                else {
+                    Instruction store = new Instruction(Opcode.SW);
+                    store.src1 = previous.src1;
+                    store.src2 = instruction.src2;
+                    store.imm = instruction.imm;
+                    result.add(store);
+                }
+                continue;
+            }
+
+            // lw $t8 off(b); move c $t8
+            if (previous.op == Opcode.LW && isScratch(previous.dest) && isMove(instruction)
+                    && instruction.src1 == previous.dest) {
+                previous.dest = instruction.dest;
+                continue;
+            }
+            result.add(instruction);
+        }
+        return result;
+    }
+
+    private static Instruction move(int dest, int src) {
+        Instruction instruction = new Instruction(Opcode.MOVE);
+        instruction.dest = dest;
+        instruction.src1 = src;
+        return instruction;
+    }
+}
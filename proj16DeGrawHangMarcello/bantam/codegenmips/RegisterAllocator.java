@@ -0,0 +1,505 @@
+/*
+ * File: RegisterAllocator.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Gives the virtual registers of the code of one method MIPS registers by
+ * linear scan, and adds the code that makes and pops the method's frame.
+ * <p>
+ * The live range of a virtual register is taken as one interval, from the
+ * first to the last instruction at which it is live, found by liveness
+ * analysis over the basic blocks of the code.  The intervals are visited in
+ * order of their start, and each is given a register no interval overlapping
+ * it still holds.  An interval live across a call gets one of $s0-$s7, which
+ * the method saves in its frame and restores before it returns; any other
+ * interval gets one of $t0-$t7 if one is free, since those need not be saved.
+ * An interval defined by a move from an interval that ends there is given the
+ * same register when it can be, so that the move disappears.
+ * <p>
+ * Only when every suitable register is taken is an interval spilled to a
+ * slot of the frame: of it and the intervals holding the registers it could
+ * use, the one that ends last.  A spilled register is loaded into $t8 or $t9
+ * before each instruction that reads it, and stored after each that writes it.
+ * <p>
+ * An instruction whose only effect is to write a virtual register that no
+ * instruction reads is left out.
+ * <p>
+ * The frame holds, from $sp up, the words of the parameters the method passes
+ * to the methods it calls beyond the three passed in registers, the spill
+ * slots, the saved $s registers and the saved $ra, which is saved only if the
+ * method calls another.  A method that needs none of these has no frame.
+ * <p>
+ * When it is told which virtual registers hold references to objects, it
+ * gives each call a StackMap of the registers and spill slots holding the
+ * references live across the call, for the garbage collector.
+ */
+class RegisterAllocator
+{
+    private static final int[] CALLER_SAVED =
+            {Instruction.T0, Instruction.T0 + 1, Instruction.T0 + 2, Instruction.T0 + 3,
+             Instruction.T0 + 4, Instruction.T0 + 5, Instruction.T0 + 6, Instruction.T0 + 7};
+    private static final int[] CALLEE_SAVED =
+            {Instruction.S0, Instruction.S0 + 1, Instruction.S0 + 2, Instruction.S0 + 3,
+             Instruction.S0 + 4, Instruction.S0 + 5, Instruction.S0 + 6, Instruction.S0 + 7};
+
+    /**
+     * The live range of a virtual register
+     */
+    private static class Interval
+    {
+        int register;
+        int start = Integer.MAX_VALUE;
+        int end = -1;
+        boolean crossesCall;
+        int hint = Instruction.NONE;  // a virtual register moved to or from this one
+        int assigned = Instruction.NONE;  // the MIPS register, or NONE if spilled
+        int spillSlot = -1;
+
+        void extend(int position) {
+            start = Math.min(start, position);
+            end = Math.max(end, position);
+        }
+    }
+
+    private List<Instruction> code;
+    private int numRegisters;
+    private int numOutgoingArgs;
+    private Interval[] intervals;
+    private int numSpillSlots;
+    private boolean[] usedCalleeSaved = new boolean[32];
+    private BitSet read = new BitSet();  // the virtual registers read anywhere
+    private BitSet pointerRegisters;
+    private HashMap<Integer, BitSet> liveAcrossCalls = new HashMap<>();  // by index
+
+    /**
+     * @param code            the code of a method, with virtual registers
+     *                        numbered from Instruction.FIRST_VIRTUAL
+     * @param numRegisters    the number of virtual registers
+     * @param numOutgoingArgs the largest number of parameters the method
+     *                        passes in its frame to a method it calls
+     */
+    RegisterAllocator(List<Instruction> code, int numRegisters, int numOutgoingArgs) {
+        this.code = code;
+        this.numRegisters = numRegisters;
+        this.numOutgoingArgs = numOutgoingArgs;
+    }
+
+    /**
+     * Makes the allocator give each call of the code a StackMap
+     *
+     * @param pointerRegisters the virtual registers that hold references,
+     *                         numbered from Instruction.FIRST_VIRTUAL
+     */
+    void setPointerRegisters(BitSet pointerRegisters) {
+        this.pointerRegisters = pointerRegisters;
+    }
+
+    /**
+     * Allocates the registers
+     *
+     * @return the code of the method with only MIPS registers, its frame
+     *         made at its start and popped wherever it returns
+     */
+    List<Instruction> allocate() {
+        intervals = new Interval[numRegisters];
+        for (int i = 0; i < numRegisters; i++) {
+            intervals[i] = new Interval();
+            intervals[i].register = i;
+        }
+        findIntervals();
+        scan();
+        return rewrite();
+    }
+
+    /**
+     * @return whether a register is virtual
+     */
+    private static boolean isVirtual(int register) {
+        return register >= Instruction.FIRST_VIRTUAL;
+    }
+
+    /**
+     * Adds the virtual registers an instruction reads to a set
+     */
+    private static void addUses(Instruction instruction, BitSet set) {
+        if (isVirtual(instruction.src1)) {
+            set.set(instruction.src1 - Instruction.FIRST_VIRTUAL);
+        }
+        if (isVirtual(instruction.src2)) {
+            set.set(instruction.src2 - Instruction.FIRST_VIRTUAL);
+        }
+    }
+
+    /**
+     * Finds the interval of each virtual register by liveness analysis
+     */
+    private void findIntervals() {
+        List<BasicBlock> blocks = new ControlFlowGraph(code).getBlocks();
+        int numBlocks = blocks.size();
+
+        // the registers each block reads before writing them, and writes
+        BitSet[] uses = new BitSet[numBlocks];
+        BitSet[] defs = new BitSet[numBlocks];
+        for (int b = 0; b < numBlocks; b++) {
+            uses[b] = new BitSet();
+            defs[b] = new BitSet();
+            for (int i = blocks.get(b).end - 1; i >= blocks.get(b).start; i--) {
+                Instruction instruction = code.get(i);
+                if (isVirtual(instruction.dest)) {
+                    uses[b].clear(instruction.dest - Instruction.FIRST_VIRTUAL);
+                    defs[b].set(instruction.dest - Instruction.FIRST_VIRTUAL);
+                }
+                addUses(instruction, uses[b]);
+                addUses(instruction, read);
+            }
+        }
+
+        // the registers live at the end of each block, found by iterating
+        // backward over the blocks until nothing changes
+        BitSet[] liveOut = new BitSet[numBlocks];
+        BitSet[] liveIn = new BitSet[numBlocks];
+        for (int b = 0; b < numBlocks; b++) {
+            liveOut[b] = new BitSet();
+            liveIn[b] = (BitSet) uses[b].clone();
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int b = numBlocks - 1; b >= 0; b--) {
+                BitSet out = new BitSet();
+                for (BasicBlock successor : blocks.get(b).successors) {
+                    out.or(liveIn[successor.index]);
+                }
+                if (!out.equals(liveOut[b])) {
+                    liveOut[b] = out;
+                    BitSet in = (BitSet) out.clone();
+                    in.andNot(defs[b]);
+                    in.or(uses[b]);
+                    liveIn[b] = in;
+                    changed = true;
+                }
+            }
+        }
+
+        // walk each block backward, extending the interval of each register
+        // over the instructions at which it is live
+        for (int b = 0; b < numBlocks; b++) {
+            BitSet live = (BitSet) liveOut[b].clone();
+            int first = blocks.get(b).start;
+            int last = blocks.get(b).end - 1;
+            for (int r = live.nextSetBit(0); r >= 0; r = live.nextSetBit(r + 1)) {
+                intervals[r].extend(last);
+            }
+            for (int i = last; i >= first; i--) {
+                Instruction instruction = code.get(i);
+                if (instruction.isCall()) {
+                    for (int r = live.nextSetBit(0); r >= 0; r = live.nextSetBit(r + 1)) {
+                        intervals[r].crossesCall = true;
+                    }
+                    if (pointerRegisters != null) {
+                        liveAcrossCalls.put(i, (BitSet) live.clone());
+                    }
+                }
+                if (isVirtual(instruction.dest)) {
+                    intervals[instruction.dest - Instruction.FIRST_VIRTUAL].extend(i);
+                    live.clear(instruction.dest - Instruction.FIRST_VIRTUAL);
+                }
+                addUses(instruction, live);
+                for (int r = live.nextSetBit(0); r >= 0; r = live.nextSetBit(r + 1)) {
+                    intervals[r].extend(i);
+                }
+                if (instruction.op == Opcode.MOVE && isVirtual(instruction.dest)
+                        && isVirtual(instruction.src1)) {
+                    intervals[instruction.dest - Instruction.FIRST_VIRTUAL].hint = instruction.src1;
+                    intervals[instruction.src1 - Instruction.FIRST_VIRTUAL].hint = instruction.dest;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives each interval a register or a spill slot, in order of their starts
+     */
+    private void scan() {
+        List<Interval> sorted = new ArrayList<>();
+        for (Interval interval : intervals) {
+            if (interval.end >= 0) {
+                sorted.add(interval);
+            }
+        }
+        sorted.sort(Comparator.comparingInt((Interval interval) -> interval.start)
+                              .thenComparingInt(interval -> interval.register));
+
+        List<Interval> active = new ArrayList<>();  // by increasing end
+        boolean[] free = new boolean[32];
+        for (int register : CALLER_SAVED) {
+            free[register] = true;
+        }
+        for (int register : CALLEE_SAVED) {
+            free[register] = true;
+        }
+
+        for (Interval current : sorted) {
+            // an interval ending where this one starts only reads its
+            // register there, before this one writes it
+            while (!active.isEmpty() && active.get(0).end <= current.start) {
+                free[active.remove(0).assigned] = true;
+            }
+
+            int register = chooseRegister(current, free);
+            if (register == Instruction.NONE) {
+                Interval victim = null;
+                for (Interval interval : active) {
+                    if (!current.crossesCall || isCalleeSaved(interval.assigned)) {
+                        victim = interval;  // the last one found ends last
+                    }
+                }
+                if (victim == null || victim.end <= current.end) {
+                    current.spillSlot = numSpillSlots++;
+                    continue;
+                }
+                register = victim.assigned;
+                victim.assigned = Instruction.NONE;
+                victim.spillSlot = numSpillSlots++;
+                active.remove(victim);
+            }
+            current.assigned = register;
+            free[register] = false;
+            if (isCalleeSaved(register)) {
+                usedCalleeSaved[register] = true;
+            }
+            int index = 0;
+            while (index < active.size() && active.get(index).end <= current.end) {
+                index++;
+            }
+            active.add(index, current);
+        }
+    }
+
+    /**
+     * @return whether a MIPS register is one a method must restore
+     */
+    private static boolean isCalleeSaved(int register) {
+        return register >= Instruction.S0 && register < Instruction.S0 + CALLEE_SAVED.length;
+    }
+
+    /**
+     * Chooses a free register for an interval: the register of the interval
+     * it is moved to or from if that is free, and otherwise one that need not
+     * be saved if the interval does not cross a call
+     *
+     * @return the register, or NONE if none is free
+     */
+    private int chooseRegister(Interval interval, boolean[] free) {
+        if (interval.hint != Instruction.NONE) {
+            int hinted = intervals[interval.hint - Instruction.FIRST_VIRTUAL].assigned;
+            if (hinted != Instruction.NONE && free[hinted]
+                    && (!interval.crossesCall || isCalleeSaved(hinted))) {
+                return hinted;
+            }
+        }
+        if (!interval.crossesCall) {
+            for (int register : CALLER_SAVED) {
+                if (free[register]) {
+                    return register;
+                }
+            }
+        }
+        for (int register : CALLEE_SAVED) {
+            if (free[register]) {
+                return register;
+            }
+        }
+        return Instruction.NONE;
+    }
+
+    /**
+     * Replaces the virtual registers with the registers they were given,
+     * loading and storing the spilled ones, and adds the code of the frame
+     *
+     * @return the new code
+     */
+    private List<Instruction> rewrite() {
+        boolean makesCalls = false;
+        for (Instruction instruction : code) {
+            makesCalls |= instruction.isCall();
+        }
+        List<Integer> saved = new ArrayList<>();
+        for (int register : CALLEE_SAVED) {
+            if (usedCalleeSaved[register]) {
+                saved.add(register);
+            }
+        }
+        int savedOffset = 4 * (numOutgoingArgs + numSpillSlots);
+        int frameSize = savedOffset + 4 * saved.size() + (makesCalls ? 4 : 0);
+
+        List<Instruction> result = new ArrayList<>(code.size() + 16);
+        if (frameSize > 0) {
+            result.add(immediate(Opcode.ADDIU, Instruction.SP, Instruction.SP, -frameSize));
+            if (makesCalls) {
+                result.add(store(Instruction.RA, frameSize - 4));
+            }
+            for (int i = 0; i < saved.size(); i++) {
+                result.add(store(saved.get(i), savedOffset + 4 * i));
+            }
+        }
+
+        int savedMask = 0;
+        for (int register : saved) {
+            savedMask |= 1 << (register - Instruction.S0);
+        }
+
+        for (int index = 0; index < code.size(); index++) {
+            Instruction instruction = code.get(index);
+            if (instruction.op == Opcode.RET) {
+                for (int i = 0; i < saved.size(); i++) {
+                    result.add(load(saved.get(i), savedOffset + 4 * i));
+                }
+                if (makesCalls) {
+                    result.add(load(Instruction.RA, frameSize - 4));
+                }
+                if (frameSize > 0) {
+                    result.add(immediate(Opcode.ADDIU, Instruction.SP, Instruction.SP, frameSize));
+                }
+                Instruction ret = new Instruction(Opcode.JR);
+                ret.src1 = Instruction.RA;
+                result.add(ret);
+                continue;
+            }
+
+            if (isVirtual(instruction.dest) && instruction.onlyWritesDest()
+                    && !read.get(instruction.dest - Instruction.FIRST_VIRTUAL)) {
+                continue;
+            }
+
+            Instruction rewritten = new Instruction(instruction.op);
+            rewritten.imm = instruction.imm;
+            rewritten.label = instruction.label;
+            rewritten.src1 = mapUse(instruction.src1, Instruction.T8, result);
+            rewritten.src2 = instruction.src2 == instruction.src1 ? rewritten.src1
+                    : mapUse(instruction.src2, Instruction.T9, result);
+            Instruction spillStore = null;
+            if (isVirtual(instruction.dest)) {
+                Interval interval = intervals[instruction.dest - Instruction.FIRST_VIRTUAL];
+                if (interval.assigned == Instruction.NONE) {
+                    rewritten.dest = Instruction.T8;
+                    spillStore = store(Instruction.T8, getSpillOffset(interval));
+                }
+                else {
+                    rewritten.dest = interval.assigned;
+                }
+            }
+            else {
+                rewritten.dest = instruction.dest;
+            }
+
+            if (liveAcrossCalls.containsKey(index)) {
+                rewritten.stackMap = getStackMap(liveAcrossCalls.get(index), frameSize,
+                        savedOffset, savedMask);
+            }
+            if (rewritten.op == Opcode.LOAD_ARG) {
+                // the parameters beyond the third are where the caller put them
+                rewritten.op = Opcode.LW;
+                rewritten.src1 = Instruction.SP;
+                rewritten.imm = frameSize + 4 * (instruction.imm - 3);
+            }
+            if (rewritten.op != Opcode.MOVE || rewritten.dest != rewritten.src1) {
+                result.add(rewritten);
+            }
+            if (spillStore != null) {
+                result.add(spillStore);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Makes the StackMap of a call
+     *
+     * @param live        the virtual registers live across the call, numbered
+     *                    from 0
+     * @param frameSize   the size of the frame
+     * @param savedOffset the offset of the saved $s registers in the frame
+     * @param savedMask   the $s registers saved, bit k standing for $sk
+     * @return the map
+     */
+    private StackMap getStackMap(BitSet live, int frameSize, int savedOffset, int savedMask) {
+        StackMap map = new StackMap();
+        map.frameSize = frameSize;
+        map.savedOffset = savedOffset;
+        map.savedMask = savedMask;
+        for (int r = live.nextSetBit(0); r >= 0; r = live.nextSetBit(r + 1)) {
+            if (!pointerRegisters.get(r + Instruction.FIRST_VIRTUAL)) {
+                continue;
+            }
+            Interval interval = intervals[r];
+            if (interval.assigned == Instruction.NONE) {
+                map.pointerOffsets.add(getSpillOffset(interval));
+            }
+            else {
+                // an interval live across a call is always in an $s register
+                map.pointerRegisterMask |= 1 << (interval.assigned - Instruction.S0);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Maps a register an instruction reads to a MIPS register, loading it
+     * into a scratch register first if it was spilled
+     *
+     * @param register the register read, or NONE
+     * @param scratch  the register to load a spilled register into
+     * @param result   the code the load is added to
+     * @return the MIPS register
+     */
+    private int mapUse(int register, int scratch, List<Instruction> result) {
+        if (!isVirtual(register)) {
+            return register;
+        }
+        Interval interval = intervals[register - Instruction.FIRST_VIRTUAL];
+        if (interval.assigned != Instruction.NONE) {
+            return interval.assigned;
+        }
+        result.add(load(scratch, getSpillOffset(interval)));
+        return scratch;
+    }
+
+    /**
+     * @return the offset from $sp of the slot of a spilled interval
+     */
+    private int getSpillOffset(Interval interval) {
+        return 4 * (numOutgoingArgs + interval.spillSlot);
+    }
+
+    private static Instruction immediate(Opcode op, int dest, int src, int imm) {
+        Instruction instruction = new Instruction(op);
+        instruction.dest = dest;
+        instruction.src1 = src;
+        instruction.imm = imm;
+        return instruction;
+    }
+
+    private static Instruction load(int dest, int offset) {
+        return immediate(Opcode.LW, dest, Instruction.SP, offset);
+    }
+
+    private static Instruction store(int src, int offset) {
+        Instruction instruction = new Instruction(Opcode.SW);
+        instruction.src1 = src;
+        instruction.src2 = Instruction.SP;
+        instruction.imm = offset;
+        return instruction;
+    }
+}
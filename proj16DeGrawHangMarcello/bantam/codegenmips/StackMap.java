@@ -0,0 +1,53 @@
+/*
+ * File: StackMap.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.codegenmips;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes the frame of a method at one of its calls, for the garbage
+ * collector, which walks the stack from the call that allocates to the
+ * first method called.  It tells the collector which $s registers and which
+ * words of the frame hold references to objects that are still needed after
+ * the call, where the method saved the $s registers of its caller, and how
+ * big the frame is, so that the collector can find the caller's frame.
+ * <p>
+ * The MipsCodeGenerator writes it to the data section as the words
+ * <pre>
+ *     frame size, offset of the saved $s registers,
+ *     mask of the $s registers saved, mask of the $s registers holding
+ *     references, number of words holding references, their offsets...
+ * </pre>
+ * in which bit k of a mask stands for $sk, and the saved registers are
+ * stored in order from the offset.
+ */
+class StackMap
+{
+    int frameSize;
+    int savedOffset;
+    int savedMask;
+    int pointerRegisterMask;
+    List<Integer> pointerOffsets = new ArrayList<>();
+
+    /**
+     * @return the words of the map, in the order the collector reads them
+     */
+    List<String> getWords() {
+        List<String> words = new ArrayList<>();
+        words.add(String.valueOf(frameSize));
+        words.add(String.valueOf(savedOffset));
+        words.add(String.valueOf(savedMask));
+        words.add(String.valueOf(pointerRegisterMask));
+        words.add(String.valueOf(pointerOffsets.size()));
+        for (int offset : pointerOffsets) {
+            words.add(String.valueOf(offset));
+        }
+        return words;
+    }
+}
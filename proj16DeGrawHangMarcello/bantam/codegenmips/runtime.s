@@ -0,0 +1,983 @@
+# File: runtime.s
+# Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+# Class: CS 361
+# Project 16
+# Date: April 11, 2019
+#
+# The runtime system of Bantam Java programs compiled for MARS.  The
+# MipsCodeGenerator copies this file to the end of every assembly file it
+# generates, so a generated file runs on its own.
+#
+# The runtime starts the program, allocates objects and implements the
+# methods of the built-in classes Object, String, TextIO and Sys and the
+# runtime errors.  It follows the conventions of the generated code:
+#  - a method gets its object in $a0 and its first three parameters in
+#    $a1-$a3; the others are in the caller's frame, at 0($sp), 4($sp), ...
+#    when the method is called, and it returns its result in $v0
+#  - a method may change $t0-$t9, $a0-$a3 and $v0-$v1, but must restore
+#    $s0-$s7, $sp and $ra
+#  - an object starts with its class id, its size in bytes and the address
+#    of its dispatch table; a String then has its length and its characters,
+#    followed by a 0 byte, and an array has class id -1, the dispatch table
+#    of Object, its length and its elements
+#  - the registers and words of each frame that hold references to objects
+#    at a call are described by the StackMap of the call, which the
+#    _gc_map_table gives by return address, and the fields of an object that
+#    hold references by the list of offsets the class_gc_table gives by
+#    class id; an array of objects has class id -2
+#  - a runtime error routine is jumped to with the line of the error in $a1
+#    and the String naming the source file in $a2, or 0 in each if they are
+#    not known, and ends the program
+
+	.data
+	.align	2
+_heap_ptr:
+	.word	0
+_heap_limit:
+	.word	0
+# the end of the memory taken from the system, which MARS gives out one
+# piece after another from where its heap starts, and the end of the memory
+# it can give, past which it stops the program with its own exception
+_heap_break:
+	.word	0x10040000
+_heap_end:
+	.word	0x103ffffc
+# the half of the heap objects are allocated in and the half the garbage
+# collector copies them to, and the size of each
+_gc_from_start:
+	.word	0
+_gc_to_start:
+	.word	0
+_gc_space_size:
+	.word	0
+# the start of the memory the collector takes, where the first half starts
+# again each time the halves grow
+_gc_heap_start:
+	.word	0
+# the return address and $sp of the last call from the generated code to a
+# routine that allocates, where the collector starts walking the stack
+_gc_ra:
+	.word	0
+_gc_sp:
+	.word	0
+# references the runtime still needs after it allocates, which the
+# collector updates
+_gc_root_a:
+	.word	0
+_gc_root_b:
+	.word	0
+# the registers saved while collecting, by number
+_gc_regs:
+	.space	128
+# where each $s register holds its value for the frame being scanned
+_gc_s_locations:
+	.space	32
+_io_buffer:
+	.space	1024
+_int_buffer:
+	.space	12
+_array_name:
+	.word	1
+	.word	24
+	.word	String_dispatch_table
+	.word	5
+	.asciiz	"Array"
+	.align	2
+_msg_runtime_error:
+	.asciiz	"Bantam Java runtime error: "
+_msg_null_pointer:
+	.asciiz	"null pointer dereferenced"
+_msg_divide_zero:
+	.asciiz	"divide by zero"
+_msg_array_index:
+	.asciiz	"array index out of bounds"
+_msg_array_size:
+	.asciiz	"negative array size"
+_msg_class_cast:
+	.asciiz	"object cannot be cast to that class"
+_msg_string_index:
+	.asciiz	"string index out of bounds"
+_msg_file_open:
+	.asciiz	"file cannot be opened"
+_msg_out_of_memory:
+	.asciiz	"out of memory"
+_msg_at_line:
+	.asciiz	" at line "
+_msg_in_file:
+	.asciiz	" in "
+_msg_newline:
+	.asciiz	"\n"
+
+	.text
+
+# Starts the program: creates the Main object and calls its main method
+__start:
+	la	$a0 Main_template
+	jal	Object.clone
+	move	$a0 $v0
+	jal	Main_init
+	move	$a0 $v0
+	jal	Main.main
+	li	$v0 10
+	syscall
+
+# Allocates memory, which the heap gives out zeroed
+#   $a0: the number of bytes, a multiple of 4
+#   returns the address in $v0; changes only $v0, $t0 and $t1
+_alloc:
+	lw	$v0 _heap_ptr
+	lw	$t0 _heap_limit
+	addu	$t1 $v0 $a0
+	bgtu	$t1 $t0 _alloc_more
+	sw	$t1 _heap_ptr
+	jr	$ra
+_alloc_more:
+	lw	$t0 gc_flag
+	bnez	$t0 _gc_alloc
+	# take another megabyte from the system, or more for a larger object,
+	# or what is left if that is less, continuing the current chunk if the
+	# new one follows it
+	move	$t1 $a0
+	lw	$v0 _heap_break
+	lw	$t0 _heap_end
+	subu	$t0 $t0 $v0
+	bltu	$t0 $a0 _out_of_memory_error
+	li	$v0 1048576
+	bgeu	$a0 $v0 _alloc_sbrk
+	move	$a0 $v0
+	bleu	$a0 $t0 _alloc_sbrk
+	move	$a0 $t0
+_alloc_sbrk:
+	lw	$t0 _heap_break
+	addu	$t0 $t0 $a0
+	sw	$t0 _heap_break
+	li	$v0 9
+	syscall
+	lw	$t0 _heap_limit
+	beq	$v0 $t0 _alloc_grow
+	sw	$v0 _heap_ptr
+_alloc_grow:
+	addu	$t0 $v0 $a0
+	sw	$t0 _heap_limit
+	move	$a0 $t1
+	b	_alloc
+
+# Allocates an array with all its elements 0, of ints or booleans at
+# _new_array and of objects at _new_object_array
+#   $a0: the length, which is not negative
+_new_object_array:
+	li	$t4 -2
+	b	_new_array_start
+_new_array:
+	li	$t4 -1
+_new_array_start:
+	sw	$ra _gc_ra
+	sw	$sp _gc_sp
+	move	$t2 $a0
+	sll	$a0 $a0 2
+	addiu	$a0 $a0 16
+	move	$t3 $ra
+	jal	_alloc
+	move	$ra $t3
+	sw	$t4 0($v0)
+	sw	$a0 4($v0)
+	la	$t0 Object_dispatch_table
+	sw	$t0 8($v0)
+	sw	$t2 12($v0)
+	jr	$ra
+
+# Object.clone() returns a copy of the object, and is how every object is
+# created: the generated code clones the template of its class
+Object.clone:
+	sw	$ra _gc_ra
+	sw	$sp _gc_sp
+	sw	$a0 _gc_root_a
+	lw	$a0 4($a0)
+	move	$t3 $ra
+	jal	_alloc
+	move	$ra $t3
+	lw	$t2 _gc_root_a
+	move	$t3 $v0
+_clone_loop:
+	lw	$t0 0($t2)
+	sw	$t0 0($t3)
+	addiu	$t2 $t2 4
+	addiu	$t3 $t3 4
+	addiu	$a0 $a0 -4
+	bgtz	$a0 _clone_loop
+	jr	$ra
+
+# Object.equals(Object o) compares the addresses of the objects
+Object.equals:
+	xor	$v0 $a0 $a1
+	sltiu	$v0 $v0 1
+	jr	$ra
+
+# Object.toString() returns the name of the object's class
+Object.toString:
+	lw	$t0 0($a0)
+	bltz	$t0 _to_string_array
+	sll	$t0 $t0 2
+	lw	$v0 class_name_table($t0)
+	jr	$ra
+_to_string_array:
+	la	$v0 _array_name
+	jr	$ra
+
+# String.length()
+String.length:
+	lw	$v0 12($a0)
+	jr	$ra
+
+# String.toString()
+String.toString:
+	move	$v0 $a0
+	jr	$ra
+
+# String.equals(Object str) is true if str is a String with the same characters
+String.equals:
+	beqz	$a1 _equals_false
+	lw	$t0 0($a1)
+	li	$t1 1
+	bne	$t0 $t1 _equals_false
+	lw	$t0 12($a0)
+	lw	$t1 12($a1)
+	bne	$t0 $t1 _equals_false
+	addiu	$t2 $a0 16
+	addiu	$t3 $a1 16
+_equals_loop:
+	beqz	$t0 _equals_true
+	lbu	$t4 0($t2)
+	lbu	$t5 0($t3)
+	bne	$t4 $t5 _equals_false
+	addiu	$t2 $t2 1
+	addiu	$t3 $t3 1
+	addiu	$t0 $t0 -1
+	b	_equals_loop
+_equals_true:
+	li	$v0 1
+	jr	$ra
+_equals_false:
+	li	$v0 0
+	jr	$ra
+
+# Allocates a String
+#   $a0: the length
+#   returns the String in $v0, with its characters at 16($v0) still 0;
+#   changes only $v0, $t0, $t1, $t7, $t9 and $a0
+_new_string:
+	move	$t9 $ra
+	move	$t7 $a0
+	addiu	$a0 $a0 20
+	srl	$a0 $a0 2
+	sll	$a0 $a0 2
+	jal	_alloc
+	move	$ra $t9
+	li	$t0 1
+	sw	$t0 0($v0)
+	sw	$a0 4($v0)
+	la	$t0 String_dispatch_table
+	sw	$t0 8($v0)
+	sw	$t7 12($v0)
+	jr	$ra
+
+# Copies bytes
+#   $a0: the number of bytes, $t2: from, $t3: to
+#   changes $a0, $t0, $t2 and $t3
+_copy_bytes:
+	blez	$a0 _copy_bytes_done
+_copy_bytes_loop:
+	lbu	$t0 0($t2)
+	sb	$t0 0($t3)
+	addiu	$t2 $t2 1
+	addiu	$t3 $t3 1
+	addiu	$a0 $a0 -1
+	bgtz	$a0 _copy_bytes_loop
+_copy_bytes_done:
+	jr	$ra
+
+# String.concat(String str) returns the characters of this String followed by those of str
+String.concat:
+	bnez	$a1 _concat_nonnull
+	li	$a1 0
+	li	$a2 0
+	j	_null_pointer_error
+_concat_nonnull:
+	sw	$ra _gc_ra
+	sw	$sp _gc_sp
+	sw	$a0 _gc_root_a
+	sw	$a1 _gc_root_b
+	move	$t8 $ra
+	lw	$a0 12($a0)
+	lw	$t1 12($a1)
+	addu	$a0 $a0 $t1
+	jal	_new_string
+	lw	$t4 _gc_root_a
+	lw	$t5 _gc_root_b
+	move	$t6 $v0
+	addiu	$t3 $v0 16
+	addiu	$t2 $t4 16
+	lw	$a0 12($t4)
+	jal	_copy_bytes
+	addiu	$t2 $t5 16
+	lw	$a0 12($t5)
+	jal	_copy_bytes
+	move	$v0 $t6
+	jr	$t8
+
+# String.substring(int beginIndex, int endIndex) returns the characters from
+# beginIndex up to but not including endIndex
+String.substring:
+	bltz	$a1 _substring_error
+	blt	$a2 $a1 _substring_error
+	lw	$t0 12($a0)
+	bgt	$a2 $t0 _substring_error
+	sw	$ra _gc_ra
+	sw	$sp _gc_sp
+	sw	$a0 _gc_root_a
+	move	$t8 $ra
+	move	$t5 $a1
+	subu	$a0 $a2 $a1
+	move	$t6 $a0
+	jal	_new_string
+	lw	$t4 _gc_root_a
+	addiu	$t3 $v0 16
+	addu	$t2 $t4 $t5
+	addiu	$t2 $t2 16
+	move	$a0 $t6
+	move	$t6 $v0
+	jal	_copy_bytes
+	move	$v0 $t6
+	jr	$t8
+_substring_error:
+	li	$a1 0
+	li	$a2 0
+	j	_string_index_error
+
+# TextIO.readStdin() reads from standard input from now on
+TextIO.readStdin:
+	sw	$zero 12($a0)
+	jr	$ra
+
+# TextIO.writeStdout() writes to standard output from now on
+TextIO.writeStdout:
+	li	$t0 1
+	sw	$t0 16($a0)
+	jr	$ra
+
+# TextIO.writeStderr() writes to standard error from now on
+TextIO.writeStderr:
+	li	$t0 2
+	sw	$t0 16($a0)
+	jr	$ra
+
+# TextIO.readFile(String readFile) reads from the named file from now on
+TextIO.readFile:
+	li	$t1 0
+	addiu	$t4 $a0 12
+	b	_open_file
+
+# TextIO.writeFile(String writeFile) writes to the named file from now on
+TextIO.writeFile:
+	li	$t1 1
+	addiu	$t4 $a0 16
+_open_file:
+	bnez	$a1 _open_file_nonnull
+	li	$a2 0
+	j	_null_pointer_error
+_open_file_nonnull:
+	addiu	$a0 $a1 16
+	move	$a1 $t1
+	li	$a2 0
+	li	$v0 13
+	syscall
+	bltz	$v0 _open_file_error
+	sw	$v0 0($t4)
+	jr	$ra
+_open_file_error:
+	li	$a1 0
+	li	$a2 0
+	j	_file_open_error
+
+# TextIO.getString() reads a line and returns it without its end of line,
+# or returns null at the end of the input.  A line longer than the buffer
+# is returned in pieces.
+TextIO.getString:
+	sw	$ra _gc_ra
+	sw	$sp _gc_sp
+	move	$t8 $ra
+	jal	_read_line
+	bltz	$t5 _get_string_eof
+	move	$a0 $t5
+	jal	_new_string
+	la	$t2 _io_buffer
+	addiu	$t3 $v0 16
+	move	$a0 $t5
+	move	$t6 $v0
+	jal	_copy_bytes
+	move	$v0 $t6
+	jr	$t8
+_get_string_eof:
+	li	$v0 0
+	jr	$t8
+
+# Reads a line into _io_buffer
+#   $a0: the TextIO object
+#   returns the number of characters in $t5, or -1 at the end of the input;
+#   changes $a0-$a2, $v0, $t0 and $t3-$t5
+_read_line:
+	lw	$t4 12($a0)
+	li	$t5 0
+	la	$t3 _io_buffer
+_read_line_loop:
+	move	$a0 $t4
+	move	$a1 $t3
+	li	$a2 1
+	li	$v0 14
+	syscall
+	blez	$v0 _read_line_end
+	lbu	$t0 0($t3)
+	li	$v0 10
+	beq	$t0 $v0 _read_line_done
+	li	$v0 13
+	beq	$t0 $v0 _read_line_loop
+	addiu	$t3 $t3 1
+	addiu	$t5 $t5 1
+	blt	$t5 1024 _read_line_loop
+	jr	$ra
+_read_line_end:
+	bnez	$t5 _read_line_done
+	li	$t5 -1
+_read_line_done:
+	jr	$ra
+
+# TextIO.getInt() reads a line and returns the integer at its start, or 0 if
+# it does not start with one
+TextIO.getInt:
+	move	$t8 $ra
+	jal	_read_line
+	la	$t3 _io_buffer
+	addu	$t5 $t3 $t5
+	li	$v0 0
+	li	$t1 0
+	bge	$t3 $t5 _get_int_done
+	lbu	$t0 0($t3)
+	li	$t2 45
+	bne	$t0 $t2 _get_int_loop
+	li	$t1 1
+	addiu	$t3 $t3 1
+_get_int_loop:
+	bge	$t3 $t5 _get_int_done
+	lbu	$t0 0($t3)
+	addiu	$t0 $t0 -48
+	bltz	$t0 _get_int_done
+	bgt	$t0 9 _get_int_done
+	mul	$v0 $v0 10
+	addu	$v0 $v0 $t0
+	addiu	$t3 $t3 1
+	b	_get_int_loop
+_get_int_done:
+	beqz	$t1 _get_int_positive
+	subu	$v0 $zero $v0
+_get_int_positive:
+	jr	$t8
+
+# TextIO.putString(String str) writes the String and returns the TextIO object
+TextIO.putString:
+	bnez	$a1 _put_string_nonnull
+	li	$a2 0
+	j	_null_pointer_error
+_put_string_nonnull:
+	move	$t0 $a0
+	lw	$a0 16($t0)
+	lw	$a2 12($a1)
+	addiu	$a1 $a1 16
+	li	$v0 15
+	syscall
+	move	$v0 $t0
+	jr	$ra
+
+# TextIO.putInt(int n) writes the integer in decimal and returns the TextIO object
+TextIO.putInt:
+	move	$t0 $a0
+	la	$t3 _int_buffer
+	addiu	$t3 $t3 12
+	move	$t1 $a1
+	bgez	$t1 _put_int_digits
+	subu	$t1 $zero $t1
+_put_int_digits:
+	li	$t2 10
+_put_int_loop:
+	divu	$t1 $t2
+	mflo	$t1
+	mfhi	$t4
+	addiu	$t4 $t4 48
+	addiu	$t3 $t3 -1
+	sb	$t4 0($t3)
+	bnez	$t1 _put_int_loop
+	bgez	$a1 _put_int_write
+	li	$t4 45
+	addiu	$t3 $t3 -1
+	sb	$t4 0($t3)
+_put_int_write:
+	la	$a2 _int_buffer
+	addiu	$a2 $a2 12
+	subu	$a2 $a2 $t3
+	move	$a1 $t3
+	lw	$a0 16($t0)
+	li	$v0 15
+	syscall
+	move	$v0 $t0
+	jr	$ra
+
+# Sys.exit(int status) ends the program with the status
+Sys.exit:
+	move	$a0 $a1
+	li	$v0 17
+	syscall
+
+# Sys.time() returns the number of seconds since January 1, 1970
+Sys.time:
+	li	$v0 30
+	syscall
+	# divide the 64 bit milliseconds in $a1:$a0 by 1000, 16 bits at a time
+	li	$t2 1000
+	divu	$a1 $t2
+	mfhi	$t0
+	sll	$t0 $t0 16
+	srl	$t1 $a0 16
+	or	$t0 $t0 $t1
+	divu	$t0 $t2
+	mflo	$v0
+	mfhi	$t0
+	sll	$t0 $t0 16
+	andi	$t1 $a0 0xffff
+	or	$t0 $t0 $t1
+	divu	$t0 $t2
+	mflo	$t0
+	sll	$v0 $v0 16
+	or	$v0 $v0 $t0
+	jr	$ra
+
+# Sys.random() returns a random integer that is not negative
+Sys.random:
+	li	$a0 0
+	li	$v0 41
+	syscall
+	sll	$v0 $a0 1
+	srl	$v0 $v0 1
+	jr	$ra
+
+# The garbage collector, used when gc_flag is not 0.  It is a copying
+# collector: objects are allocated one after another in one half of the
+# heap, and when it is full, the objects the program can still reach are
+# copied to the other half, which objects are then allocated in.  If they
+# fill more than half of it, the halves grow to twice the size, or as far as
+# the heap has room for, and the objects are copied again, so a program needs
+# memory in proportion to what it keeps, not to what it allocates.
+#
+# The objects reached first are those the runtime holds in _gc_root_a and
+# _gc_root_b and those the frames on the stack hold, which the StackMap of
+# each call in progress describes; the objects copied are then scanned in
+# turn for the objects they refer to.  A copied object is marked in the half
+# being emptied by class id -3, with the address of its copy at offset 8.
+
+# Collects garbage and allocates, from _alloc
+#   $a0: the number of bytes wanted
+#   changes only $t0 and $t1 before allocating again
+_gc_alloc:
+	la	$t0 _gc_regs
+	sw	$v1 12($t0)
+	sw	$a0 16($t0)
+	sw	$a1 20($t0)
+	sw	$a2 24($t0)
+	sw	$a3 28($t0)
+	sw	$t2 40($t0)
+	sw	$t3 44($t0)
+	sw	$t4 48($t0)
+	sw	$t5 52($t0)
+	sw	$t6 56($t0)
+	sw	$t7 60($t0)
+	sw	$s0 64($t0)
+	sw	$s1 68($t0)
+	sw	$s2 72($t0)
+	sw	$s3 76($t0)
+	sw	$s4 80($t0)
+	sw	$s5 84($t0)
+	sw	$s6 88($t0)
+	sw	$s7 92($t0)
+	sw	$t8 96($t0)
+	sw	$t9 100($t0)
+	sw	$ra 124($t0)
+	lw	$t1 _gc_from_start
+	beqz	$t1 _gc_first
+	lw	$a1 _gc_space_size
+	jal	_gc_collect
+	# grow the heap if what is kept and wanted fills more than half of it
+	lw	$t0 _heap_ptr
+	lw	$t1 _gc_from_start
+	subu	$t0 $t0 $t1
+	lw	$a0 _gc_regs+16
+	addu	$t0 $t0 $a0
+	lw	$t1 _gc_space_size
+	srl	$t2 $t1 1
+	bleu	$t0 $t2 _gc_alloc_done
+	# to twice what is kept and wanted, and at least to twice their size,
+	# but no bigger than two halves the heap has room for
+	sll	$s7 $t0 1
+	sll	$t2 $t1 1
+	bgeu	$s7 $t2 _gc_grow_room
+	move	$s7 $t2
+_gc_grow_room:
+	lw	$t2 _gc_heap_start
+	lw	$t3 _gc_from_start
+	lw	$t4 _heap_end
+	lw	$t5 _heap_break
+	subu	$t6 $t4 $t2
+	srl	$t6 $t6 3
+	sll	$t6 $t6 2
+	bleu	$s7 $t6 _gc_grow_place
+	move	$s7 $t6
+_gc_grow_place:
+	# the new halves reuse the memory of the old ones: the first starts at
+	# the start of the heap, and the objects are copied to the second if it
+	# starts past the half they are in, and otherwise to memory past the heap
+	addu	$t6 $t3 $t1
+	addu	$t9 $t2 $s7
+	addu	$t8 $t9 $s7
+	bleu	$t6 $t9 _gc_grow_check
+	subu	$t6 $t4 $t5
+	bleu	$s7 $t6 _gc_grow_past
+	move	$s7 $t6
+_gc_grow_past:
+	move	$t9 $t5
+	addu	$t8 $t5 $s7
+_gc_grow_check:
+	# if the halves cannot grow, make do with them while what is wanted fits
+	bgtu	$s7 $t1 _gc_grow
+	bleu	$t0 $t1 _gc_alloc_done
+	b	_out_of_memory_error
+_gc_grow:
+	bltu	$s7 $t0 _out_of_memory_error
+	bleu	$t8 $t5 _gc_grow_copy
+	subu	$a0 $t8 $t5
+	sw	$t8 _heap_break
+	li	$v0 9
+	syscall
+_gc_grow_copy:
+	sw	$t9 _gc_to_start
+	move	$a1 $s7
+	jal	_gc_collect
+	lw	$t0 _gc_heap_start
+	sw	$t0 _gc_to_start
+	sw	$s7 _gc_space_size
+	b	_gc_alloc_done
+_gc_first:
+	# make the two halves, big enough for twice the object wanted, or as big
+	# as the heap has room for
+	li	$t1 262144
+	sll	$t0 $a0 1
+	bgeu	$t1 $t0 _gc_first_size
+	move	$t1 $t0
+_gc_first_size:
+	lw	$t2 _heap_break
+	lw	$t3 _heap_end
+	subu	$t3 $t3 $t2
+	srl	$t3 $t3 3
+	sll	$t3 $t3 2
+	bleu	$t1 $t3 _gc_first_room
+	move	$t1 $t3
+_gc_first_room:
+	bltu	$t1 $a0 _out_of_memory_error
+	sll	$a0 $t1 1
+	addu	$t0 $t2 $a0
+	sw	$t0 _heap_break
+	li	$v0 9
+	syscall
+	sw	$t1 _gc_space_size
+	sw	$v0 _gc_heap_start
+	sw	$v0 _gc_from_start
+	sw	$v0 _heap_ptr
+	addu	$t0 $v0 $t1
+	sw	$t0 _heap_limit
+	sw	$t0 _gc_to_start
+_gc_alloc_done:
+	la	$t0 _gc_regs
+	lw	$v1 12($t0)
+	lw	$a0 16($t0)
+	lw	$a1 20($t0)
+	lw	$a2 24($t0)
+	lw	$a3 28($t0)
+	lw	$t2 40($t0)
+	lw	$t3 44($t0)
+	lw	$t4 48($t0)
+	lw	$t5 52($t0)
+	lw	$t6 56($t0)
+	lw	$t7 60($t0)
+	lw	$s0 64($t0)
+	lw	$s1 68($t0)
+	lw	$s2 72($t0)
+	lw	$s3 76($t0)
+	lw	$s4 80($t0)
+	lw	$s5 84($t0)
+	lw	$s6 88($t0)
+	lw	$s7 92($t0)
+	lw	$t8 96($t0)
+	lw	$t9 100($t0)
+	lw	$ra 124($t0)
+	b	_alloc
+
+# Copies the objects that can still be reached to the other half of the
+# heap, which then becomes the half objects are allocated in
+#   $a1: the size of the other half
+#   uses $s0 as the end of the objects copied, $s1 as the end of those
+#   scanned and $s2-$s3 as the half being emptied
+_gc_collect:
+	move	$s6 $ra
+	move	$s5 $a1
+	lw	$s2 _gc_from_start
+	lw	$t0 _gc_space_size
+	addu	$s3 $s2 $t0
+	lw	$s0 _gc_to_start
+	move	$s1 $s0
+	la	$a0 _gc_root_a
+	jal	_gc_forward
+	la	$a0 _gc_root_b
+	jal	_gc_forward
+
+	# the $s registers hold their values for the first frame in _gc_regs
+	la	$t0 _gc_regs+64
+	la	$t1 _gc_s_locations
+	li	$t2 8
+_gc_locations_loop:
+	sw	$t0 0($t1)
+	addiu	$t0 $t0 4
+	addiu	$t1 $t1 4
+	addiu	$t2 $t2 -1
+	bnez	$t2 _gc_locations_loop
+
+	# walk the frames from the last call to the generated code, until a
+	# return address has no StackMap
+	lw	$s4 _gc_sp
+	lw	$t9 _gc_ra
+_gc_frame_loop:
+	la	$t0 _gc_map_table
+	lw	$t1 0($t0)
+	addiu	$t0 $t0 4
+	li	$t2 0
+_gc_search_loop:
+	bge	$t2 $t1 _gc_frames_done
+	addu	$t3 $t2 $t1
+	srl	$t3 $t3 1
+	sll	$t4 $t3 3
+	addu	$t4 $t0 $t4
+	lw	$t5 0($t4)
+	beq	$t5 $t9 _gc_search_found
+	bltu	$t5 $t9 _gc_search_right
+	move	$t1 $t3
+	b	_gc_search_loop
+_gc_search_right:
+	addiu	$t2 $t3 1
+	b	_gc_search_loop
+_gc_search_found:
+	lw	$t7 4($t4)
+	# the $s registers holding references
+	lw	$t8 12($t7)
+	la	$v1 _gc_s_locations
+_gc_registers_loop:
+	beqz	$t8 _gc_registers_done
+	andi	$t0 $t8 1
+	beqz	$t0 _gc_registers_next
+	lw	$a0 0($v1)
+	jal	_gc_forward
+_gc_registers_next:
+	srl	$t8 $t8 1
+	addiu	$v1 $v1 4
+	b	_gc_registers_loop
+_gc_registers_done:
+	# the words of the frame holding references
+	lw	$t8 16($t7)
+	addiu	$v1 $t7 20
+_gc_slots_loop:
+	beqz	$t8 _gc_slots_done
+	lw	$a0 0($v1)
+	addu	$a0 $s4 $a0
+	jal	_gc_forward
+	addiu	$v1 $v1 4
+	addiu	$t8 $t8 -1
+	b	_gc_slots_loop
+_gc_slots_done:
+	# the $s registers the frame saved hold their values for its caller
+	lw	$t8 8($t7)
+	lw	$t0 4($t7)
+	addu	$t0 $s4 $t0
+	la	$v1 _gc_s_locations
+_gc_saved_loop:
+	beqz	$t8 _gc_saved_done
+	andi	$t1 $t8 1
+	beqz	$t1 _gc_saved_next
+	sw	$t0 0($v1)
+	addiu	$t0 $t0 4
+_gc_saved_next:
+	srl	$t8 $t8 1
+	addiu	$v1 $v1 4
+	b	_gc_saved_loop
+_gc_saved_done:
+	lw	$t0 0($t7)
+	addu	$s4 $s4 $t0
+	lw	$t9 -4($s4)
+	b	_gc_frame_loop
+_gc_frames_done:
+
+	# scan the copied objects for the objects they refer to
+_gc_scan_loop:
+	bgeu	$s1 $s0 _gc_scan_done
+	lw	$t7 0($s1)
+	lw	$t8 4($s1)
+	bltz	$t7 _gc_scan_array
+	sll	$t0 $t7 2
+	lw	$t9 class_gc_table($t0)
+	lw	$v1 0($t9)
+_gc_fields_loop:
+	beqz	$v1 _gc_scan_next
+	addiu	$t9 $t9 4
+	lw	$a0 0($t9)
+	addu	$a0 $s1 $a0
+	jal	_gc_forward
+	addiu	$v1 $v1 -1
+	b	_gc_fields_loop
+_gc_scan_array:
+	li	$t0 -2
+	bne	$t7 $t0 _gc_scan_next
+	lw	$v1 12($s1)
+	addiu	$t9 $s1 16
+_gc_elements_loop:
+	beqz	$v1 _gc_scan_next
+	move	$a0 $t9
+	jal	_gc_forward
+	addiu	$t9 $t9 4
+	addiu	$v1 $v1 -1
+	b	_gc_elements_loop
+_gc_scan_next:
+	addu	$s1 $s1 $t8
+	b	_gc_scan_loop
+_gc_scan_done:
+
+	# zero the rest of the other half, where new objects will be, a word at
+	# a time until what is left is a multiple of 8 words, then 8 at a time
+	lw	$t0 _gc_to_start
+	addu	$t1 $t0 $s5
+	move	$t2 $s0
+_gc_zero_words:
+	subu	$t3 $t1 $t2
+	andi	$t3 $t3 31
+	beqz	$t3 _gc_zero_loop
+	sw	$zero 0($t2)
+	addiu	$t2 $t2 4
+	b	_gc_zero_words
+_gc_zero_loop:
+	bgeu	$t2 $t1 _gc_zero_done
+	sw	$zero 0($t2)
+	sw	$zero 4($t2)
+	sw	$zero 8($t2)
+	sw	$zero 12($t2)
+	sw	$zero 16($t2)
+	sw	$zero 20($t2)
+	sw	$zero 24($t2)
+	sw	$zero 28($t2)
+	addiu	$t2 $t2 32
+	b	_gc_zero_loop
+_gc_zero_done:
+	sw	$s2 _gc_to_start
+	sw	$t0 _gc_from_start
+	sw	$s0 _heap_ptr
+	sw	$t1 _heap_limit
+	jr	$s6
+
+# Copies the object a word refers to, if it is in the half being emptied and
+# not yet copied, and makes the word refer to the copy
+#   $a0: the address of the word
+#   changes $t0-$t6
+_gc_forward:
+	lw	$t0 0($a0)
+	bltu	$t0 $s2 _gc_forward_done
+	bgeu	$t0 $s3 _gc_forward_done
+	lw	$t1 0($t0)
+	li	$t2 -3
+	bne	$t1 $t2 _gc_forward_copy
+	lw	$t1 8($t0)
+	sw	$t1 0($a0)
+	jr	$ra
+_gc_forward_copy:
+	lw	$t3 4($t0)
+	move	$t1 $s0
+	move	$t4 $s0
+	move	$t5 $t0
+	addu	$s0 $s0 $t3
+_gc_forward_loop:
+	lw	$t6 0($t5)
+	sw	$t6 0($t4)
+	addiu	$t5 $t5 4
+	addiu	$t4 $t4 4
+	addiu	$t3 $t3 -4
+	bgtz	$t3 _gc_forward_loop
+	sw	$t2 0($t0)
+	sw	$t1 8($t0)
+	sw	$t1 0($a0)
+_gc_forward_done:
+	jr	$ra
+
+# The runtime errors, each of which prints a message and ends the program
+_null_pointer_error:
+	la	$t0 _msg_null_pointer
+	b	_runtime_error
+_divide_zero_error:
+	la	$t0 _msg_divide_zero
+	b	_runtime_error
+_array_index_error:
+	la	$t0 _msg_array_index
+	b	_runtime_error
+_array_size_error:
+	la	$t0 _msg_array_size
+	b	_runtime_error
+_class_cast_error:
+	la	$t0 _msg_class_cast
+	b	_runtime_error
+_string_index_error:
+	la	$t0 _msg_string_index
+	b	_runtime_error
+_file_open_error:
+	la	$t0 _msg_file_open
+	b	_runtime_error
+_out_of_memory_error:
+	li	$a1 0
+	li	$a2 0
+	la	$t0 _msg_out_of_memory
+_runtime_error:
+	move	$t1 $a1
+	move	$t2 $a2
+	la	$a0 _msg_runtime_error
+	li	$v0 4
+	syscall
+	move	$a0 $t0
+	syscall
+	beqz	$t1 _runtime_error_file
+	la	$a0 _msg_at_line
+	syscall
+	move	$a0 $t1
+	li	$v0 1
+	syscall
+_runtime_error_file:
+	beqz	$t2 _runtime_error_exit
+	la	$a0 _msg_in_file
+	li	$v0 4
+	syscall
+	addiu	$a0 $t2 16
+	syscall
+_runtime_error_exit:
+	la	$a0 _msg_newline
+	li	$v0 4
+	syscall
+	li	$a0 1
+	li	$v0 17
+	syscall
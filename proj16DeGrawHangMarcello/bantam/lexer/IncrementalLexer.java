@@ -0,0 +1,385 @@
+/*
+ * File: IncrementalLexer.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.lexer;
+
+import proj16DeGrawHangMarcello.bantam.util.Error;
+import proj16DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the tokens of a document that is being edited, one line at a time, and
+ * re-scans only the lines an edit damages.  Each line caches the state the lexer
+ * is in when the line starts: between tokens, or inside a block comment begun on
+ * an earlier line.  (A string cannot continue past the end of its line in Bantam
+ * Java, so no other token can be open at the start of a line.)  An edit is
+ * re-scanned from the nearest line at or before it that starts between tokens,
+ * and scanning stops at the first line after the edit that again starts between
+ * tokens and did so before the edit, since every token from there on is unchanged.
+ * Token columns are kept relative to their line, so the unchanged lines need no
+ * updating at all.
+ */
+public class IncrementalLexer
+{
+    // lexer states at the start of a line
+    private static final byte NORMAL = 0;      // between tokens
+    private static final byte IN_COMMENT = 1;  // inside a comment begun on an earlier line
+
+    private String filename;
+    private ArrayList<Line> lines;
+
+    /**
+     * creates a lexer for an empty document
+     *
+     * @param filename the name used in the lexical errors
+     */
+    public IncrementalLexer(String filename) {
+        this.filename = filename;
+        lines = new ArrayList<>();
+        lines.add(new Line("", NORMAL));
+    }
+
+    /**
+     * Replaces lines of the document and re-scans as few lines as possible.
+     * An edit of the text of a document replaces the lines from the line the
+     * edit starts on through the line the removed text ended on by the lines
+     * from the start of the edit through the end of the inserted text.
+     *
+     * @param firstLine   the index (from 0) of the first line replaced
+     * @param numOldLines the number of lines replaced, at least 1
+     * @param newLines    the text of the lines replacing them, without line ends; at least 1
+     * @return the lines whose tokens were changed
+     */
+    public TokenDelta replaceLines(int firstLine, int numOldLines, List<String> newLines) {
+        // a scan must start between tokens
+        int scanLine = firstLine;
+        while (lines.get(scanLine).state != NORMAL) {
+            scanLine--;
+        }
+        int oldEnd = firstLine + numOldLines;
+        // the lines before this relative index are always re-scanned
+        int numDamaged = firstLine - scanLine + newLines.size();
+
+        LineReader reader = new LineReader(scanLine, firstLine, newLines, oldEnd);
+        ErrorHandler errorHandler = new ErrorHandler();
+        Scanner scanner = new Scanner(reader, errorHandler);
+
+        ArrayList<Line> scanned = new ArrayList<>();
+        scanned.add(new Line(reader.getLineText(0), NORMAL));
+        int resyncLine = -1;  // relative index of the first line that was not re-scanned
+        int prevEnd = 0;
+        Token.Kind prevKind = null;
+        Token.Kind kind;
+        do {
+            kind = scanner.scanToken();
+            int start = scanner.getTokenStart();
+            int end = scanner.getTokenEnd();
+
+            // add the lines between the previous token and this one
+            while (resyncLine < 0 && scanned.size() < reader.getNumLinesRead()
+                    && reader.getLineStart(scanned.size()) <= start) {
+                int line = scanned.size();
+                // an unclosed comment may end at the start of an empty last line,
+                // and anything typed there would still be part of it
+                if (reader.getLineStart(line) < prevEnd || kind == Token.Kind.EOF
+                        && prevKind == Token.Kind.ERROR && reader.getLineStart(line) == prevEnd) {
+                    scanned.add(new Line(reader.getLineText(line), IN_COMMENT));
+                }
+                else if (line >= numDamaged && lines.get(oldEnd + line - numDamaged).state == NORMAL) {
+                    // the tokens from here on are the same as before the edit
+                    resyncLine = line;
+                }
+                else {
+                    scanned.add(new Line(reader.getLineText(line), NORMAL));
+                }
+            }
+            if (resyncLine >= 0) {
+                break;
+            }
+            int line = scanned.size() - 1;
+            if (kind != Token.Kind.EOF) {
+                scanned.get(line).addToken(kind, start - reader.getLineStart(line), end - start);
+            }
+            // file the token's errors under the line it starts on, since it is
+            // re-scanned exactly when that line is
+            for (Error error : errorHandler.getErrorList()) {
+                scanned.get(line).addError(error.getLineNum() - 1 - line, error.getMessage());
+            }
+            errorHandler.clear();
+            prevEnd = end;
+            prevKind = kind;
+        } while (kind != Token.Kind.EOF);
+        if (resyncLine < 0) {
+            resyncLine = scanned.size();
+        }
+
+        // splice the re-scanned lines in place of the old ones
+        int numOldScanned = oldEnd + (resyncLine - numDamaged) - scanLine;
+        List<Line> oldLines = lines.subList(scanLine, scanLine + numOldScanned);
+        boolean syntaxChanged = numOldScanned != resyncLine;
+        for (int i = 0; !syntaxChanged && i < resyncLine; i++) {
+            syntaxChanged = !oldLines.get(i).hasSameSyntax(scanned.get(i));
+        }
+        oldLines.clear();
+        lines.addAll(scanLine, scanned);
+
+        return new TokenDelta(scanLine, numOldScanned, resyncLine, syntaxChanged);
+    }
+
+    /**
+     * @return the number of lines in the document
+     */
+    public int getNumLines() {
+        return lines.size();
+    }
+
+    /**
+     * @param line the index of a line
+     * @return the text of the line, without its line end
+     */
+    public String getLineText(int line) {
+        return lines.get(line).text;
+    }
+
+    /**
+     * @param line the index of a line
+     * @return the number of tokens that start on the line
+     */
+    public int getNumTokens(int line) {
+        return lines.get(line).numTokens;
+    }
+
+    /**
+     * @param line  the index of a line
+     * @param index the index of a token among those starting on the line
+     * @return the kind of the token
+     */
+    public Token.Kind getKind(int line, int index) {
+        return Line.KINDS[lines.get(line).kinds[index]];
+    }
+
+    /**
+     * @param line  the index of a line
+     * @param index the index of a token among those starting on the line
+     * @return the column the token starts at
+     */
+    public int getColPos(int line, int index) {
+        return lines.get(line).colPositions[index];
+    }
+
+    /**
+     * @param line  the index of a line
+     * @param index the index of a token among those starting on the line
+     * @return the number of characters in the token, counting the line ends
+     *         of a comment that continues onto later lines
+     */
+    public int getLength(int line, int index) {
+        return lines.get(line).lengths[index];
+    }
+
+    /**
+     * Gets the lexical errors of the whole document in order of line number
+     *
+     * @return the list of errors
+     */
+    public List<Error> getErrors() {
+        List<Error> errors = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            Line line = lines.get(i);
+            for (int j = 0; j < line.numErrors; j++) {
+                errors.add(new Error(Error.Kind.LEX_ERROR, filename,
+                        i + 1 + line.errorLineOffsets[j], line.errorMessages[j]));
+            }
+        }
+        // an unclosed comment is reported on the last line, not the line it starts on
+        errors.sort(Comparator.comparingInt(Error::getLineNum));
+        return errors;
+    }
+
+    /**
+     * A line of the document with its cached lexer state and the tokens
+     * starting on it
+     */
+    private static class Line
+    {
+        private static final Token.Kind[] KINDS = Token.Kind.values();
+
+        private String text;
+        private byte state;
+        private byte[] kinds = new byte[4];
+        private int[] colPositions = new int[4];
+        private int[] lengths = new int[4];
+        private int numTokens;
+        private int[] errorLineOffsets;  // lines from this one to each error's line
+        private String[] errorMessages;
+        private int numErrors;
+
+        Line(String text, byte state) {
+            this.text = text;
+            this.state = state;
+        }
+
+        void addToken(Token.Kind kind, int colPos, int length) {
+            if (numTokens == kinds.length) {
+                kinds = Arrays.copyOf(kinds, 2 * numTokens);
+                colPositions = Arrays.copyOf(colPositions, 2 * numTokens);
+                lengths = Arrays.copyOf(lengths, 2 * numTokens);
+            }
+            kinds[numTokens] = (byte) kind.ordinal();
+            colPositions[numTokens] = colPos;
+            lengths[numTokens] = length;
+            numTokens++;
+        }
+
+        void addError(int lineOffset, String message) {
+            if (errorMessages == null) {
+                errorLineOffsets = new int[2];
+                errorMessages = new String[2];
+            }
+            else if (numErrors == errorMessages.length) {
+                errorLineOffsets = Arrays.copyOf(errorLineOffsets, 2 * numErrors);
+                errorMessages = Arrays.copyOf(errorMessages, 2 * numErrors);
+            }
+            errorLineOffsets[numErrors] = lineOffset;
+            errorMessages[numErrors] = message;
+            numErrors++;
+        }
+
+        /**
+         * @return true if the other line has the same tokens apart from comments,
+         *         with the same spellings, and the same errors
+         */
+        boolean hasSameSyntax(Line other) {
+            if (numErrors != other.numErrors) {
+                return false;
+            }
+            for (int k = 0; k < numErrors; k++) {
+                if (errorLineOffsets[k] != other.errorLineOffsets[k]
+                        || !errorMessages[k].equals(other.errorMessages[k])) {
+                    return false;
+                }
+            }
+            int i = 0;
+            int j = 0;
+            while (true) {
+                while (i < numTokens && KINDS[kinds[i]] == Token.Kind.COMMENT) {
+                    i++;
+                }
+                while (j < other.numTokens && KINDS[other.kinds[j]] == Token.Kind.COMMENT) {
+                    j++;
+                }
+                if (i == numTokens || j == other.numTokens) {
+                    return i == numTokens && j == other.numTokens;
+                }
+                if (kinds[i] != other.kinds[j] || lengths[i] != other.lengths[j]
+                        || !text.regionMatches(colPositions[i], other.text,
+                                               other.colPositions[j], lengths[i])) {
+                    return false;
+                }
+                i++;
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Supplies the scanner with the text of the document from the line where the
+     * scan starts, reading the replaced lines from the new lines and all others
+     * from the cache.  Records the offset at which each line starts.
+     */
+    private class LineReader extends Reader
+    {
+        private int scanLine;
+        private int firstLine;
+        private List<String> newLines;
+        private int oldEnd;
+        private int numLines;      // number of lines from scanLine to the end of the document
+
+        private int lineIndex;     // relative index of the line being read
+        private int linePos;       // number of chars of that line already read
+        private int offset;        // number of chars read
+        private int[] lineStarts = new int[16];
+        private int numLinesRead;
+
+        LineReader(int scanLine, int firstLine, List<String> newLines, int oldEnd) {
+            this.scanLine = scanLine;
+            this.firstLine = firstLine;
+            this.newLines = newLines;
+            this.oldEnd = oldEnd;
+            numLines = firstLine - scanLine + newLines.size() + lines.size() - oldEnd;
+            numLinesRead = 1;
+        }
+
+        /**
+         * @param line the index of a line relative to the line the scan started on
+         * @return the text of the line
+         */
+        String getLineText(int line) {
+            int index = scanLine + line;
+            if (index < firstLine) {
+                return lines.get(index).text;
+            }
+            index -= firstLine;
+            if (index < newLines.size()) {
+                return newLines.get(index);
+            }
+            return lines.get(oldEnd + index - newLines.size()).text;
+        }
+
+        /**
+         * @return the number of lines whose first char has been read
+         */
+        int getNumLinesRead() {
+            return numLinesRead;
+        }
+
+        /**
+         * @param line the index of a line relative to the line the scan started on
+         * @return the offset of the line's first char
+         */
+        int getLineStart(int line) {
+            return lineStarts[line];
+        }
+
+        @Override
+        public int read(char[] chars, int off, int len) {
+            if (lineIndex == numLines) {
+                return -1;
+            }
+            String text = getLineText(lineIndex);
+            if (linePos < text.length()) {
+                int n = Math.min(len, text.length() - linePos);
+                text.getChars(linePos, linePos + n, chars, off);
+                linePos += n;
+                offset += n;
+                return n;
+            }
+            lineIndex++;
+            if (lineIndex == numLines) {
+                // the last line has no line end
+                return -1;
+            }
+            chars[off] = '\n';
+            offset++;
+            linePos = 0;
+            if (numLinesRead == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, 2 * numLinesRead);
+            }
+            lineStarts[numLinesRead++] = offset;
+            return 1;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * File: MappedSourceFile.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.lexer;
+
+import proj16DeGrawHangMarcello.bantam.util.CompilationException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A SourceFile that memory-maps its file instead of reading it into the heap.
+ * Each character is decoded from its byte in the mapped buffer only when the
+ * scanner asks for it, and the text of a token is only copied out of the
+ * buffer when its spelling is needed, so the heap used for the source stays
+ * the same however large the file is.  Each byte is decoded as one ASCII
+ * character, so only files that are entirely ASCII are mapped; see isAscii().
+ */
+class MappedSourceFile extends SourceFile
+{
+    private MappedByteBuffer bytes;  // the contents of the file
+
+    /**
+     * creates a SourceFile reading the mapped contents of a file
+     *
+     * @param filename the name of the file
+     * @param bytes the contents of the file, mapped by map()
+     */
+    MappedSourceFile(String filename, MappedByteBuffer bytes) {
+        super(filename, bytes.capacity());
+        this.bytes = bytes;
+    }
+
+    /**
+     * Maps the whole of a file read-only.  The mapping stays valid after the
+     * channel is closed.
+     *
+     * @param filename the name of the file to be mapped
+     * @return the mapped contents of the file
+     */
+    static MappedByteBuffer map(String filename) {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new CompilationException("File " + filename + " is too large to be read.");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (FileNotFoundException e) {
+            throw new CompilationException("File " + filename + " not found.");
+        } catch (IOException e) {
+            throw new CompilationException("File " + filename + " could not be read.");
+        }
+    }
+
+    /**
+     * Checks that every byte is an ASCII character.  A file in any other
+     * encoding must be decoded by a Reader instead.
+     *
+     * @param bytes the mapped contents of a file
+     * @return true if there are no bytes above 127
+     */
+    static boolean isAscii(MappedByteBuffer bytes) {
+        for (int i = 0; i < bytes.capacity(); i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param index the offset of a character
+     * @return the character decoded from the byte at that offset
+     */
+    @Override
+    public char charAt(int index) {
+        return (char) bytes.get(index);
+    }
+
+    /**
+     * Copies a range of the file into a new String
+     *
+     * @param start the offset of the first character
+     * @param end the offset after the last character
+     * @return the characters from start to end
+     */
+    @Override
+    String getText(int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = charAt(i);
+        }
+        return new String(chars);
+    }
+}
@@ -11,10 +11,6 @@
 package proj16DeGrawHangMarcello.bantam.lexer;
 
 import java.io.Reader;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Arrays;
-import java.util.Map;
 import proj16DeGrawHangMarcello.bantam.util.ErrorHandler;
 import proj16DeGrawHangMarcello.bantam.util.Error;
 import proj16DeGrawHangMarcello.bantam.util.CompilationException;
@@ -26,9 +22,71 @@ public class Scanner
     private ErrorHandler errorHandler;
     private char currentChar;
     private char prevChar;
-    private Map<Character,Token.Kind> singleOperatorMap;
-    private Map<String,Token.Kind> doubleOperatorMap;
-    private HashMap<Character,Integer> characterIntegerMap;
+    private int prevCharLineNum;  // line number of prevChar
+    private int prevCharColPos;   // column of prevChar
+    private int tokenLineNum;     // line number of the first char of the current token
+    private int tokenColPos;      // column of the first char of the current token
+    private int prevCharOffset;   // offset of prevChar in the source buffer
+    private int tokenStart;       // offset of the first char of the current token
+    private int tokenEnd;         // offset just past the last char of the current token
+
+    // bit flags for the ASCII character classes used by the scanner
+    private static final byte WHITESPACE = 1;
+    private static final byte DIGIT = 2;
+    private static final byte IDENTIFIER_START = 4;
+    private static final byte IDENTIFIER_PART = 8;
+
+    /**
+     * character class flags of each ASCII character, indexed by char code
+     */
+    private static final byte[] asciiCharClasses = new byte[128];
+
+    /**
+     * kind of each ASCII character that is a single-character operator or
+     * punctuation token (null for all other characters), indexed by char code
+     */
+    private static final Token.Kind[] singleOperatorKinds = new Token.Kind[128];
+
+    /**
+     * shared one-character spellings of the ASCII characters, indexed by char code
+     */
+    private static final String[] asciiSpellings = new String[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            asciiSpellings[c] = String.valueOf(c);
+            if (c >= '0' && c <= '9') {
+                asciiCharClasses[c] = DIGIT | IDENTIFIER_PART;
+            }
+            else if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_') {
+                asciiCharClasses[c] = IDENTIFIER_START | IDENTIFIER_PART;
+            }
+        }
+        asciiCharClasses[' '] = WHITESPACE;
+        asciiCharClasses['\n'] = WHITESPACE;
+        asciiCharClasses['\r'] = WHITESPACE;
+        asciiCharClasses['\t'] = WHITESPACE;
+
+        singleOperatorKinds['+'] = Token.Kind.PLUSMINUS;
+        singleOperatorKinds['-'] = Token.Kind.PLUSMINUS;
+        singleOperatorKinds['/'] = Token.Kind.MULDIV;
+        singleOperatorKinds['*'] = Token.Kind.MULDIV;
+        singleOperatorKinds['%'] = Token.Kind.MULDIV;
+        singleOperatorKinds['='] = Token.Kind.ASSIGN;
+        singleOperatorKinds['<'] = Token.Kind.COMPARE;
+        singleOperatorKinds['>'] = Token.Kind.COMPARE;
+        singleOperatorKinds['!'] = Token.Kind.UNARYNOT;
+        singleOperatorKinds['['] = Token.Kind.LBRACKET;
+        singleOperatorKinds[']'] = Token.Kind.RBRACKET;
+        singleOperatorKinds['{'] = Token.Kind.LCURLY;
+        singleOperatorKinds['}'] = Token.Kind.RCURLY;
+        singleOperatorKinds['('] = Token.Kind.LPAREN;
+        singleOperatorKinds[')'] = Token.Kind.RPAREN;
+        singleOperatorKinds['.'] = Token.Kind.DOT;
+        singleOperatorKinds[';'] = Token.Kind.SEMICOLON;
+        singleOperatorKinds[':'] = Token.Kind.COLON;
+        singleOperatorKinds[','] = Token.Kind.COMMA;
+    }
 
     /**
      * constructor for the scanner when fed into an errorhandler
@@ -39,8 +97,6 @@ public class Scanner
         currentChar = ' ';
         prevChar = ' ';
         sourceFile = null;
-        characterIntegerMap = new HashMap<>();
-        this.createOperatorMaps();
     }
 
     /**
@@ -52,9 +108,7 @@ public class Scanner
         errorHandler = handler;
         currentChar = ' ';
         prevChar = ' ';
-        sourceFile = new SourceFile(filename);
-        characterIntegerMap = new HashMap<>();
-        this.createOperatorMaps();
+        sourceFile = SourceFile.open(filename);
     }
 
     /**
@@ -67,12 +121,20 @@ public class Scanner
         sourceFile = new SourceFile(reader);
         currentChar = ' ';
         prevChar = ' ';
-        characterIntegerMap = new HashMap<>();
-        this.createOperatorMaps();
     }
 
     public String getFilename() { return this.sourceFile.getFilename(); }
 
+    /**
+     * @return the offset in the source of the first char of the token most recently scanned
+     */
+    int getTokenStart() { return tokenStart; }
+
+    /**
+     * @return the offset in the source just past the token most recently scanned
+     */
+    int getTokenEnd() { return tokenEnd; }
+
     /**
      * setter for the source file
      */
@@ -85,106 +147,157 @@ public class Scanner
      * @return the first complete token object
      */
     public Token scan() {
+        Token.Kind kind = scanToken();
+        return new Token(kind, getTokenSpelling(kind), tokenLineNum, tokenColPos);
+    }
+
+    /**
+     * scan the whole file into a compact token stream.  The stream keeps each
+     * token's kind and position in parallel arrays over the source buffer instead
+     * of creating a Token object per token; spellings are only built when asked for.
+     *
+     * @param symbolPool the pool used to intern identifier spellings
+     * @return the stream of all tokens, ending with the EOF token
+     */
+    public TokenStream scanAll(SymbolPool symbolPool) {
+        TokenStream tokens = new TokenStream(getFilename(), symbolPool);
+        Token.Kind kind;
+        do {
+            kind = scanToken();
+            tokens.add(kind, tokenStart, tokenEnd - tokenStart, tokenLineNum, tokenColPos);
+        } while (kind != Token.Kind.EOF);
+        tokens.finish(sourceFile);
+        return tokens;
+    }
+
+    /**
+     * scan the next token, recording its position and extent in the token fields
+     * @return the kind of the token
+     */
+    Token.Kind scanToken() {
         updateChars();
         //read through whitespace until reach valid token character
-        while(Character.isSpaceChar(prevChar)||prevChar == '\n'||prevChar == '\r'|| prevChar == '\t'){
+        while(isWhitespace(prevChar)){
             updateChars();
         }
-        int colPos = characterIntegerMap.get(prevChar);
-        int lineNumber = sourceFile.getCurrentLineNumber();
-        String lastTwoChars = Character.toString(prevChar)+Character.toString(currentChar);
-        //fixes bug where line number gets incremented too early on WindowsOS
-        if(currentChar == '\r' || currentChar == '\n'){
-            lineNumber--;
-        }
+        //record where the token starts
+        tokenLineNum = prevCharLineNum;
+        tokenColPos = prevCharColPos;
+        tokenStart = prevCharOffset;
+        Token.Kind kind;
 
         if(prevChar=='/'&&(currentChar=='/'||currentChar=='*')){
-            return readComment();
+            kind = readComment();
         }
-        else if(doubleOperatorMap.containsKey(lastTwoChars)){
+        else if(getDoubleOperator(prevChar, currentChar) != null){
+            kind = getDoubleOperatorKind(prevChar);
             updateChars();
-            return new Token(doubleOperatorMap.get(lastTwoChars), lastTwoChars, lineNumber,colPos);
         }
-        else if(singleOperatorMap.containsKey(prevChar)){
-            return new Token(singleOperatorMap.get(prevChar),Character.toString(prevChar),lineNumber,colPos);
+        else if(prevChar < 128 && singleOperatorKinds[prevChar] != null){
+            kind = singleOperatorKinds[prevChar];
         }
-        else if(Character.isDigit(prevChar)){
-            return readIntConst();
+        else if(isDigit(prevChar)){
+            kind = readIntConst();
         }
         else if(prevChar == '"'){
-            return readString();
+            kind = readString();
         }
-        else if(Character.isLetter(prevChar)||prevChar == '_'){
-            return readIdentifier();
+        else if(isIdentifierStart(prevChar)){
+            kind = readIdentifier();
         }
         else if(prevChar == SourceFile.eof){
-            return new Token(Token.Kind.EOF,"",lineNumber,colPos);
+            tokenEnd = tokenStart;
+            return Token.Kind.EOF;
+        }
+        else {
+            //If not one of the above characters, is not a legal character in Bantam Java, throw error
+            errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
+                    tokenLineNum,"Illegal Character.");
+            kind = Token.Kind.ERROR;
         }
-        //If not one of the above characters, is not a legal character in Bantam Java, throw error
-        errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
-                lineNumber,"Illegal Character.");
-        return new Token(Token.Kind.ERROR, Character.toString(prevChar),lineNumber,colPos);
+        if(kind != Token.Kind.COMMENT) {
+            tokenEnd = sourceFile.getCurrentOffset();
+        }
+        return kind;
     }
 
     /**
-     * Reached a character that could be in an identifier, reads until character that could not be in an identifier
-     * @return Identifier Token
+     * Gets the spelling of the token most recently scanned, sharing the
+     * spellings of one- and two-character tokens
+     *
+     * @param kind the kind of the token
+     * @return the characters of the token
      */
-    private Token readIdentifier(){
-        StringBuilder result = new StringBuilder().append(prevChar);
-        int colPos = characterIntegerMap.get(prevChar);
-        int lineNumber = sourceFile.getCurrentLineNumber();
+    private String getTokenSpelling(Token.Kind kind) {
+        int length = tokenEnd - tokenStart;
+        if(kind == Token.Kind.EOF){
+            return "";
+        }
+        char first = sourceFile.charAt(tokenStart);
+        if(length == 1 && first < 128){
+            return asciiSpellings[first];
+        }
+        if(length == 2){
+            String doubleOperator = getDoubleOperator(first, sourceFile.charAt(tokenStart + 1));
+            if(doubleOperator != null){
+                return doubleOperator;
+            }
+        }
+        return sourceFile.getText(tokenStart, tokenEnd);
+    }
 
+    /**
+     * Reached a character that could be in an identifier, reads until character that could not be in an identifier
+     * @return IDENTIFIER, BOOLEAN or a reserved word kind
+     */
+    private Token.Kind readIdentifier(){
         //read while character is valid identifier character
-        while(Character.isLetter(currentChar)||currentChar == '_'||Character.isDigit(currentChar)){
-            result.append(currentChar);
+        while(isIdentifierPart(currentChar)){
             updateChars();
         }
 
-        String resultString = result.toString();
-        if(resultString.startsWith("_")){
+        if(sourceFile.charAt(tokenStart) == '_'){
             //Identifiers cannot just be the "_" character in Bantam
             errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
-                    lineNumber,"Invalid Identifier Name.");
-            return new Token(Token.Kind.ERROR,resultString,lineNumber,colPos);
+                    tokenLineNum,"Invalid Identifier Name.");
+            return Token.Kind.ERROR;
         }
-        return new Token(Token.Kind.IDENTIFIER,resultString,lineNumber,colPos);
+        return Token.getReservedWordKind(sourceFile, tokenStart,
+                sourceFile.getCurrentOffset() - tokenStart);
     }
 
     /**
      * Reached an integer, reads until reaches character that is not an int and then returns
-     * @return Integer Token
+     * @return INTCONST, or ERROR if the integer is too large
      */
-    private Token readIntConst(){
-        StringBuilder result = new StringBuilder().append(prevChar);
-        int colPos = characterIntegerMap.get(prevChar);
-        int lineNumber = sourceFile.getCurrentLineNumber();
+    private Token.Kind readIntConst(){
+        int numDigits = 1;
+        long value = Character.digit(prevChar, 10);
 
         //read while character is a digit
-        while(Character.isDigit(currentChar)){
-            result.append(currentChar);
+        while(isDigit(currentChar)){
+            if(numDigits <= 11) {
+                value = 10 * value + Character.digit(currentChar, 10);
+            }
+            numDigits++;
             updateChars();
         }
-        String resultString = result.toString();
 
         //case where integer is too large
-        if(resultString.length()>11||Long.parseLong(resultString) > Integer.MAX_VALUE){
+        if(numDigits>11||value > Integer.MAX_VALUE){
             errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
-                    lineNumber,"Integer Value Too Large");
-            return new Token(Token.Kind.ERROR,resultString,lineNumber,colPos);
+                    tokenLineNum,"Integer Value Too Large");
+            return Token.Kind.ERROR;
         }
-        return new Token(Token.Kind.INTCONST,resultString,lineNumber,colPos);
+        return Token.Kind.INTCONST;
     }
 
     /**
      * Entered a string, now continues scanning until scan reaches closing string character.
-     * @return Token with string inside
+     * @return STRCONST, or ERROR if the string is illegal
      */
-    private Token readString(){
-        List<Character> legalEscapeChars = Arrays.asList('t','n','"','f');
-        StringBuilder result = new StringBuilder().append('"');
-        int lineNumber = sourceFile.getCurrentLineNumber();
-        int colPos = characterIntegerMap.get(prevChar);
+    private Token.Kind readString(){
+        int lineNumber = tokenLineNum;
         boolean hasError = false;
         boolean inBackslash = false;
         boolean reachedEOF = true;
@@ -195,10 +308,9 @@ public class Scanner
                 prevChar = ' ';
                 inBackslash = false;
             }
-            result.append(currentChar);
 
             //string too long
-            if(result.length()>5000){
+            if(sourceFile.getCurrentOffset() - tokenStart + 1 > 5000){
                 updateChars();
                 errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
                         lineNumber,"String Literal Too Long");
@@ -211,7 +323,7 @@ public class Scanner
             }
             //handle escape characters
             else if(prevChar == '\\'){
-                if(!legalEscapeChars.contains(currentChar)) {
+                if(!isLegalEscapeChar(currentChar)) {
                     errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getFilename(),
                             lineNumber, "Illegal escape character in string literal");
                     hasError = true;
@@ -241,107 +353,151 @@ public class Scanner
             hasError = true;
         }
         //we read all the way through so that we can report all errors in the string to the errorHandler
-        if(hasError) {
-            return new Token(Token.Kind.ERROR, result.toString(), lineNumber,colPos);
-        }
-        else{
-            return new Token(Token.Kind.STRCONST,result.toString(),lineNumber,colPos);
-        }
+        return hasError ? Token.Kind.ERROR : Token.Kind.STRCONST;
     }
 
     /**
-     * Entered comment, now reads all characters into the token until reaches the closing comment characters
-     * @return Full comment token, either block comment or line comment.
+     * Entered comment, now reads all characters into the token until reaches the closing comment characters.
+     * Sets tokenEnd, since a line comment does not include its closing newline.
+     * @return COMMENT for a line or block comment, or ERROR for an unclosed block comment
      */
-    private Token readComment(){
+    private Token.Kind readComment(){
         boolean inLineComment = false;
-        StringBuilder result = new StringBuilder().append('/');
-        int lineNumber = sourceFile.getCurrentLineNumber();
-        int colPos = characterIntegerMap.get(prevChar);
         //first character always '/', now check second character to know what closing characters should be
         if (currentChar   == '/'){
             inLineComment = true;
         }
 
-        result.append(currentChar);
         updateChars();
         while(currentChar!=SourceFile.eof){
-            result.append(currentChar);
-
             if(inLineComment){
                 //closing chracter \n
                 if(currentChar == '\n'){
                     updateChars();
-                    String resultString = result.toString().substring(0,result.length()-1);
-                    return new Token(Token.Kind.COMMENT,resultString,lineNumber,colPos);
+                    tokenEnd = prevCharOffset;
+                    return Token.Kind.COMMENT;
                 }
             }
             else{
                 //closing character */
                 if(currentChar == '/'&&prevChar=='*'){
                     updateChars();
-                    return new Token(Token.Kind.COMMENT, result.toString(),lineNumber,colPos);
+                    tokenEnd = sourceFile.getCurrentOffset();
+                    return Token.Kind.COMMENT;
                 }
             }
             updateChars();
         }
+        tokenEnd = sourceFile.getCurrentOffset();
         //handles line comment on last line of file, no new line char afterward.
         if(inLineComment){
-            return new Token(Token.Kind.COMMENT,result.toString(),lineNumber,colPos);
+            return Token.Kind.COMMENT;
         }
 
         //unclosed comment error
-        errorHandler.register(Error.Kind.LEX_ERROR,result.toString(),
+        errorHandler.register(Error.Kind.LEX_ERROR,sourceFile.getText(tokenStart, tokenEnd),
                 sourceFile.getCurrentLineNumber(),"Unclosed Comment");
-        return new Token(Token.Kind.ERROR, result.toString(),lineNumber,colPos);
+        return Token.Kind.ERROR;
     }
 
     /**
-     * Increments prevChar and currentChar
+     * Increments prevChar and currentChar, and records the line, column and offset of the
+     * new prevChar (the position of the character most recently read from the file)
      */
     private void updateChars(){
         prevChar = currentChar;
-        characterIntegerMap.put(prevChar,sourceFile.getCurrentColPos());
+        prevCharLineNum = sourceFile.getCurrentLineNumber();
+        prevCharColPos = sourceFile.getCurrentColPos();
+        prevCharOffset = sourceFile.getCurrentOffset();
         currentChar = sourceFile.getNextChar();
     }
 
     /**
-     * Creates single and double character operator maps to check when scanning
+     * Gets the spelling of a two-character operator
+     *
+     * @param first the first character of the operator
+     * @param second the second character of the operator
+     * @return the operator's spelling, or null if the characters are not a two-character operator
      */
-    private void createOperatorMaps(){
-        this.singleOperatorMap = Map.ofEntries(
-                Map.entry('+',Token.Kind.PLUSMINUS),
-                Map.entry('-',Token.Kind.PLUSMINUS),
-                Map.entry('/',Token.Kind.MULDIV),
-                Map.entry('*',Token.Kind.MULDIV),
-                Map.entry('=',Token.Kind.ASSIGN),
-                Map.entry('%',Token.Kind.MULDIV),
-                Map.entry('<',Token.Kind.COMPARE),
-                Map.entry('>',Token.Kind.COMPARE),
-                Map.entry('!',Token.Kind.UNARYNOT),
-                Map.entry('[',Token.Kind.LBRACKET),
-                Map.entry(']',Token.Kind.RBRACKET),
-                Map.entry('{',Token.Kind.LCURLY),
-                Map.entry('}',Token.Kind.RCURLY),
-                Map.entry('(',Token.Kind.LPAREN),
-                Map.entry(')',Token.Kind.RPAREN),
-                Map.entry('.',Token.Kind.DOT),
-                Map.entry(';',Token.Kind.SEMICOLON),
-                Map.entry(':',Token.Kind.COLON),
-                Map.entry(',',Token.Kind.COMMA)
-        );
-
-        this.doubleOperatorMap = Map.ofEntries(
-                Map.entry("==",Token.Kind.COMPARE),
-                Map.entry("!=",Token.Kind.COMPARE),
-                Map.entry("<=",Token.Kind.COMPARE),
-                Map.entry(">=",Token.Kind.COMPARE),
-                Map.entry("++",Token.Kind.UNARYINCR),
-                Map.entry("--",Token.Kind.UNARYDECR),
-                Map.entry("&&",Token.Kind.BINARYLOGIC),
-                Map.entry("||",Token.Kind.BINARYLOGIC)
-        );
+    private static String getDoubleOperator(char first, char second){
+        switch(first){
+            case '=':
+                return second == '=' ? "==" : null;
+            case '!':
+                return second == '=' ? "!=" : null;
+            case '<':
+                return second == '=' ? "<=" : null;
+            case '>':
+                return second == '=' ? ">=" : null;
+            case '+':
+                return second == '+' ? "++" : null;
+            case '-':
+                return second == '-' ? "--" : null;
+            case '&':
+                return second == '&' ? "&&" : null;
+            case '|':
+                return second == '|' ? "||" : null;
+            default:
+                return null;
+        }
     }
+
+    /**
+     * Gets the kind of a two-character operator
+     *
+     * @param first the first character of an operator found by getDoubleOperator
+     * @return the token kind of the operator
+     */
+    private static Token.Kind getDoubleOperatorKind(char first){
+        switch(first){
+            case '+':
+                return Token.Kind.UNARYINCR;
+            case '-':
+                return Token.Kind.UNARYDECR;
+            case '&':
+            case '|':
+                return Token.Kind.BINARYLOGIC;
+            default:
+                return Token.Kind.COMPARE;
+        }
+    }
+
+    /**
+     * @return true if c can appear after a backslash in a string literal
+     */
+    private static boolean isLegalEscapeChar(char c){
+        return c == 't' || c == 'n' || c == '"' || c == 'f';
+    }
+
+    /**
+     * @return true if c is skipped between tokens
+     */
+    private static boolean isWhitespace(char c){
+        return c < 128 ? (asciiCharClasses[c] & WHITESPACE) != 0 : Character.isSpaceChar(c);
+    }
+
+    /**
+     * @return true if c is a digit
+     */
+    private static boolean isDigit(char c){
+        return c < 128 ? (asciiCharClasses[c] & DIGIT) != 0 : Character.isDigit(c);
+    }
+
+    /**
+     * @return true if c can be the first character of an identifier
+     */
+    private static boolean isIdentifierStart(char c){
+        return c < 128 ? (asciiCharClasses[c] & IDENTIFIER_START) != 0 : Character.isLetter(c);
+    }
+
+    /**
+     * @return true if c can appear after the first character of an identifier
+     */
+    private static boolean isIdentifierPart(char c){
+        return c < 128 ? (asciiCharClasses[c] & IDENTIFIER_PART) != 0
+                : Character.isLetter(c) || Character.isDigit(c);
+    }
+
     public static void main(String[] argv){
         if(argv.length == 0){
             System.out.println("Please Provide Test Files");
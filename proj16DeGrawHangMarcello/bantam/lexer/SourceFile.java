@@ -23,18 +23,34 @@ package proj16DeGrawHangMarcello.bantam.lexer;
 import proj16DeGrawHangMarcello.bantam.util.CompilationException;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
 
 /**
  * A class for extracting the characters, one at a time, from a text file or an
  * InputStream.
+ * The characters are kept in an in-memory buffer so that the scanner's per-character
+ * calls are plain array reads instead of calls through a Reader.  A file is read
+ * into the buffer in one bulk read when the SourceFile is created; a Reader is
+ * drained into the buffer in large chunks as the scanner needs more characters.
+ * The line and column of the current character are tracked by index into the buffer.
+ * A SourceFile is also a CharSequence of the characters read so far, so that token
+ * spellings can be taken from it as slices by offset.  Large files are instead
+ * memory-mapped by a MappedSourceFile, which supplies its own characters.
  */
-class SourceFile
+class SourceFile implements CharSequence
 {
     static final char eol = '\n';         // end of line character
     private static final char cr = '\r';  // carriage return character
     static final char eof = '\u0000';     // end of file character
 
-    private Reader sourceReader;   // the reader of the file
+    private static final int CHUNK_SIZE = 8192; // chars read from a Reader per refill
+    private static final long MAPPING_THRESHOLD = 1 << 20; // smallest file worth mapping, in bytes
+
+    private Reader sourceReader;   // the reader of the stream (null once fully read)
+    private char[] buffer;         // the characters read so far
+    private int count;             // number of valid characters in the buffer
+    private int offset;            // index of the next character to return
+    private int curOffset;         // index of the character most recently returned
     private int currentLineNumber; // for bantam.error messages
     private int prevChar;          // the previous character read
     private String filename;       // the file currently being scanned.
@@ -42,19 +58,31 @@ class SourceFile
 
     /**
      * creates a new SourceFile object for the file with the given name
+     * and reads the whole file into the buffer.
      * Note:  You should always call isValid() to check that the SourceFile
      * was set up properly before calling getNextChar().
      *
      * @param filename the name of the file to be read.
      */
     SourceFile(String filename) {
-        try {
-            sourceReader = new FileReader(filename);
+        File file = new File(filename);
+        try (Reader in = new InputStreamReader(new FileInputStream(file))) {
+            // the number of bytes is an upper bound on the number of chars for
+            // the single-byte and UTF-8 encodings used for Bantam sources
+            buffer = new char[(int) Math.max(file.length(), 1)];
+            sourceReader = in;
+            while (fill()) {
+                // keep reading until the whole file is in the buffer
+            }
         } catch (FileNotFoundException e) {
             throw new CompilationException("File " + filename + " not found.");
+        } catch (IOException e) {
+            throw new CompilationException("File " + filename + " could not be read.");
         }
+        sourceReader = null;
         currentLineNumber = 1;
         curColPos = -1;
+        curOffset = -1;
         prevChar = -1;
         this.filename = filename;
     }
@@ -62,9 +90,44 @@ class SourceFile
 
     SourceFile(Reader in) {
         sourceReader = in;
+        buffer = new char[CHUNK_SIZE];
         currentLineNumber = 1;
         prevChar = -1;
         curColPos = -1;
+        curOffset = -1;
+    }
+
+    /**
+     * creates a SourceFile for a subclass that supplies the characters itself
+     * through charAt() and getText() instead of keeping them in the buffer
+     *
+     * @param filename the name of the file
+     * @param length the number of characters in the file
+     */
+    SourceFile(String filename, int length) {
+        count = length;
+        currentLineNumber = 1;
+        prevChar = -1;
+        curColPos = -1;
+        curOffset = -1;
+        this.filename = filename;
+    }
+
+    /**
+     * Opens the file with the given name, memory-mapping it if it is large
+     * enough that reading it into the heap would be costly and it is plain ASCII
+     *
+     * @param filename the name of the file to be read.
+     * @return a SourceFile for the file
+     */
+    static SourceFile open(String filename) {
+        if (new File(filename).length() >= MAPPING_THRESHOLD) {
+            MappedByteBuffer bytes = MappedSourceFile.map(filename);
+            if (MappedSourceFile.isAscii(bytes)) {
+                return new MappedSourceFile(filename, bytes);
+            }
+        }
+        return new SourceFile(filename);
     }
 
     int getCurrentColPos(){return curColPos;}
@@ -74,33 +137,120 @@ class SourceFile
 
     String getFilename() { return filename; }
 
+    /**
+     * Gets the index in the buffer of the character most recently returned by
+     * getNextChar().  Once the end of the file has been reached, this is the
+     * number of characters in the file.
+     *
+     * @return the offset of the current character
+     */
+    int getCurrentOffset() { return curOffset; }
+
+    /**
+     * @param index the offset of a character already read
+     * @return the character at that offset
+     */
+    @Override
+    public char charAt(int index) { return buffer[index]; }
+
+    /**
+     * @return the number of characters read so far
+     */
+    @Override
+    public int length() { return count; }
+
+    /**
+     * @return the characters from start to end, copied into a String
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) { return getText(start, end); }
+
+    @Override
+    public String toString() { return getText(0, count); }
+
+    /**
+     * Copies a range of the characters read so far into a new String
+     *
+     * @param start the offset of the first character
+     * @param end the offset after the last character
+     * @return the characters from start to end
+     */
+    String getText(int start, int end) {
+        return new String(buffer, start, end - start);
+    }
+
     /**
      * Finds and returns the next character in the source file.
-     * If the end of the file has been reached or an exception occurs,
-     * then an exception is thrown.
+     * If the end of the file has been reached, the eof character is returned.
      * If the character is the cr character or the eol char not preceded by the cr
      * character, the current line number is also incremented.
      *
      * @return the next character in the source file
      */
     char getNextChar(){
-        try {
-            int c = sourceReader.read();
-            curColPos++;
+        curColPos++;
+        if (offset >= count && !readMore()) {
+            curOffset = count;
+            prevChar = eof;
+            return eof;
+        }
 
-            if (c == -1) {
-                c = eof;
-            }
-            else if (c == cr || (c == eol && prevChar != cr)) {
-                currentLineNumber++;
-                curColPos = -1;
+        curOffset = offset;
+        char c = charAt(offset++);
+        if (c == cr || (c == eol && prevChar != cr)) {
+            currentLineNumber++;
+            curColPos = -1;
+        }
+        prevChar = c;
+        return c;
+    }
+
+    /**
+     * Reads the next chunk of the stream into the buffer, if there is a stream
+     * that has not been fully read yet.
+     *
+     * @return true if more characters were added to the buffer
+     */
+    private boolean readMore() {
+        if (sourceReader == null) {
+            return false;
+        }
+        try {
+            if (fill()) {
+                return true;
             }
-            prevChar = c;
-            return (char) c;
+            sourceReader = null;
+            return false;
         } catch (IOException e) {
             throw new CompilationException("File " + filename + " could not be read.");
         }
     }
 
-}
+    /**
+     * Reads one bulk chunk from sourceReader into the end of the buffer,
+     * growing the buffer if it is full.  A full buffer is only grown once a
+     * single char read shows there is more to come, so a buffer sized to the
+     * whole file is never copied just to find the end of the file.
+     *
+     * @return false if the reader has no more characters
+     */
+    private boolean fill() throws IOException {
+        int start = count;
+        if (count == buffer.length) {
+            int c = sourceReader.read();
+            if (c == -1) {
+                return false;
+            }
+            char[] bigger = new char[Math.max(2 * buffer.length, CHUNK_SIZE)];
+            System.arraycopy(buffer, 0, bigger, 0, count);
+            buffer = bigger;
+            buffer[count++] = (char) c;
+        }
+        int n = sourceReader.read(buffer, count, buffer.length - count);
+        if (n > 0) {
+            count += n;
+        }
+        return count > start;
+    }
 
+}
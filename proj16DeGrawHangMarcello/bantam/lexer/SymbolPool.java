@@ -0,0 +1,105 @@
+/*
+ * File: SymbolPool.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.lexer;
+
+/**
+ * A pool of identifier spellings shared by one compilation.  Each distinct
+ * identifier is turned into a String only once, however many times it appears,
+ * and every later occurrence returns that same String.  The pool looks spellings
+ * up straight from the characters of the source, so finding an identifier
+ * that is already pooled allocates nothing.
+ */
+public class SymbolPool
+{
+    private String[] table;
+    private int size;
+
+    /**
+     * creates an empty symbol pool
+     */
+    public SymbolPool() {
+        table = new String[256];
+        size = 0;
+    }
+
+    /**
+     * Gets the pooled String holding the given characters, adding it to the
+     * pool if it is not there yet
+     *
+     * @param chars  the source holding the characters
+     * @param start  the offset of the first character in the source
+     * @param length the number of characters
+     * @return the pooled String with those characters
+     */
+    public String intern(CharSequence chars, int start, int length) {
+        // same hash as String.hashCode(), so a pooled String never needs to recompute it
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+
+        int mask = table.length - 1;
+        int index = hash & mask;
+        String symbol = table[index];
+        while (symbol != null) {
+            if (symbol.hashCode() == hash && matches(symbol, chars, start, length)) {
+                return symbol;
+            }
+            index = (index + 1) & mask;
+            symbol = table[index];
+        }
+
+        symbol = chars.subSequence(start, start + length).toString();
+        table[index] = symbol;
+        size++;
+        if (2 * size > table.length) {
+            rehash();
+        }
+        return symbol;
+    }
+
+    /**
+     * @return the number of distinct spellings in the pool
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if symbol holds exactly the given characters
+     */
+    private static boolean matches(String symbol, CharSequence chars, int start, int length) {
+        if (symbol.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) != chars.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * doubles the size of the table, keeping it at most half full
+     */
+    private void rehash() {
+        String[] oldTable = table;
+        table = new String[2 * oldTable.length];
+        int mask = table.length - 1;
+        for (String symbol : oldTable) {
+            if (symbol != null) {
+                int index = symbol.hashCode() & mask;
+                while (table[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = symbol;
+            }
+        }
+    }
+}
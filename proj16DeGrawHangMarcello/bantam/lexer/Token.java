@@ -19,8 +19,6 @@
 
  package proj16DeGrawHangMarcello.bantam.lexer;
 
- import java.util.Set;
-
  public class Token
  {
      //instance variables
@@ -39,17 +37,7 @@
          this.spelling = spelling;
          this.position = position;
          this.colPos = colPos;
-
-         //patch the kind in the case of boolean constants and keywords
-         if (kind == Kind.IDENTIFIER && (spelling.equals("true") || spelling.equals("false"))) {
-             this.kind = Kind.BOOLEAN;
-         }
-         else if (kind == Kind.IDENTIFIER && reservedWords.contains(spelling)) {
-             this.kind = Enum.valueOf(Kind.class, spelling.toUpperCase());
-         }
-         else {
-             this.kind = kind;
-         }
+         this.kind = kind;
      }
 
      public String toString() {
@@ -81,8 +69,77 @@
          RETURN, WHILE
      }
 
-     private static Set<String> reservedWords = Set.of("break", "cast", "class", "var",
-             "else", "extends", "for", "if", "instanceof", "new", "return", "while");
+     /**
+      * Classifies an identifier as a boolean constant, a reserved word or a plain
+      * identifier.  The reserved words are told apart by their length and first
+      * character, so the lookup works directly on the characters and allocates nothing.
+      *
+      * @param chars  the source holding the identifier
+      * @param start  the offset of the identifier in the source
+      * @param length the number of characters in the identifier
+      * @return BOOLEAN, the kind of the reserved word, or IDENTIFIER
+      */
+     static Kind getReservedWordKind(CharSequence chars, int start, int length) {
+         switch (length) {
+             case 2:
+                 return matches(chars, start, "if") ? Kind.IF : Kind.IDENTIFIER;
+             case 3:
+                 switch (chars.charAt(start)) {
+                     case 'f':
+                         return matches(chars, start, "for") ? Kind.FOR : Kind.IDENTIFIER;
+                     case 'n':
+                         return matches(chars, start, "new") ? Kind.NEW : Kind.IDENTIFIER;
+                     case 'v':
+                         return matches(chars, start, "var") ? Kind.VAR : Kind.IDENTIFIER;
+                     default:
+                         return Kind.IDENTIFIER;
+                 }
+             case 4:
+                 switch (chars.charAt(start)) {
+                     case 'c':
+                         return matches(chars, start, "cast") ? Kind.CAST : Kind.IDENTIFIER;
+                     case 'e':
+                         return matches(chars, start, "else") ? Kind.ELSE : Kind.IDENTIFIER;
+                     case 't':
+                         return matches(chars, start, "true") ? Kind.BOOLEAN : Kind.IDENTIFIER;
+                     default:
+                         return Kind.IDENTIFIER;
+                 }
+             case 5:
+                 switch (chars.charAt(start)) {
+                     case 'b':
+                         return matches(chars, start, "break") ? Kind.BREAK : Kind.IDENTIFIER;
+                     case 'c':
+                         return matches(chars, start, "class") ? Kind.CLASS : Kind.IDENTIFIER;
+                     case 'f':
+                         return matches(chars, start, "false") ? Kind.BOOLEAN : Kind.IDENTIFIER;
+                     case 'w':
+                         return matches(chars, start, "while") ? Kind.WHILE : Kind.IDENTIFIER;
+                     default:
+                         return Kind.IDENTIFIER;
+                 }
+             case 6:
+                 return matches(chars, start, "return") ? Kind.RETURN : Kind.IDENTIFIER;
+             case 7:
+                 return matches(chars, start, "extends") ? Kind.EXTENDS : Kind.IDENTIFIER;
+             case 10:
+                 return matches(chars, start, "instanceof") ? Kind.INSTANCEOF : Kind.IDENTIFIER;
+             default:
+                 return Kind.IDENTIFIER;
+         }
+     }
+
+     /**
+      * @return true if the characters of chars from start on are those of word
+      */
+     private static boolean matches(CharSequence chars, int start, String word) {
+         for (int i = 0; i < word.length(); i++) {
+             if (chars.charAt(start + i) != word.charAt(i)) {
+                 return false;
+             }
+         }
+         return true;
+     }
 
  }
 
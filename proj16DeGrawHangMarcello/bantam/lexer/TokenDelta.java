@@ -0,0 +1,69 @@
+/*
+ * File: TokenDelta.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.lexer;
+
+/**
+ * Describes the tokens changed by one edit given to an IncrementalLexer.  The
+ * lines from firstLine on that held numOldLines lines before the edit now hold
+ * numNewLines re-scanned lines; the tokens of every other line are unchanged
+ * apart from being moved up or down.
+ */
+public class TokenDelta
+{
+    private int firstLine;
+    private int numOldLines;
+    private int numNewLines;
+    private boolean syntaxChanged;
+
+    /**
+     * creates a delta
+     *
+     * @param firstLine     the index of the first re-scanned line
+     * @param numOldLines   the number of lines replaced
+     * @param numNewLines   the number of re-scanned lines that replaced them
+     * @param syntaxChanged whether anything other than comments and columns changed
+     */
+    TokenDelta(int firstLine, int numOldLines, int numNewLines, boolean syntaxChanged) {
+        this.firstLine = firstLine;
+        this.numOldLines = numOldLines;
+        this.numNewLines = numNewLines;
+        this.syntaxChanged = syntaxChanged;
+    }
+
+    /**
+     * @return the index (from 0) of the first re-scanned line
+     */
+    public int getFirstLine() {
+        return firstLine;
+    }
+
+    /**
+     * @return the number of lines the re-scanned lines replaced
+     */
+    public int getNumOldLines() {
+        return numOldLines;
+    }
+
+    /**
+     * @return the number of re-scanned lines
+     */
+    public int getNumNewLines() {
+        return numNewLines;
+    }
+
+    /**
+     * Tells whether the edit could change the result of parsing or checking.
+     * It did not if the same lines hold the same tokens other than comments,
+     * with the same spellings and lexical errors, so only columns changed.
+     *
+     * @return true if the non-comment tokens, their lines or the errors changed
+     */
+    public boolean isSyntaxChanged() {
+        return syntaxChanged;
+    }
+}
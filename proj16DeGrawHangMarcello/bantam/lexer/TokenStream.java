@@ -0,0 +1,254 @@
+/*
+ * File: TokenStream.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.lexer;
+
+import java.util.Arrays;
+
+/**
+ * The tokens of one source file, stored compactly.  Rather than one Token object
+ * per token, the stream keeps parallel arrays of each token's kind, offset and
+ * length in the source, line number and column.  The spelling of a token
+ * is only built when it is asked for: identifiers and reserved words come from
+ * the compilation's SymbolPool, and literals are copied out of the source.
+ */
+public class TokenStream
+{
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+
+    private String filename;
+    private SymbolPool symbolPool;
+    private CharSequence source;
+
+    private byte[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lineNums;
+    private int[] colPositions;
+    private int count;
+
+    /**
+     * creates an empty token stream
+     *
+     * @param filename   the name of the file the tokens come from
+     * @param symbolPool the pool used to intern identifier spellings
+     */
+    TokenStream(String filename, SymbolPool symbolPool) {
+        this.filename = filename;
+        this.symbolPool = symbolPool;
+        kinds = new byte[1024];
+        starts = new int[1024];
+        lengths = new int[1024];
+        lineNums = new int[1024];
+        colPositions = new int[1024];
+        count = 0;
+    }
+
+    /**
+     * Adds a token to the end of the stream
+     *
+     * @param kind   the kind of the token
+     * @param start  the offset of the token in the source
+     * @param length the number of characters in the token
+     * @param lineNum the line number of the token
+     * @param colPos the column of the token
+     */
+    void add(Token.Kind kind, int start, int length, int lineNum, int colPos) {
+        if (count == kinds.length) {
+            resize(2 * count);
+        }
+        kinds[count] = (byte) kind.ordinal();
+        starts[count] = start;
+        lengths[count] = length;
+        lineNums[count] = lineNum;
+        colPositions[count] = colPos;
+        count++;
+    }
+
+    /**
+     * Called once the whole file has been scanned.  Records the source the
+     * tokens are slices of and trims the arrays to the number of tokens.
+     *
+     * @param source the characters of the file
+     */
+    void finish(CharSequence source) {
+        this.source = source;
+        resize(count);
+    }
+
+    /**
+     * @return the name of the file the tokens come from
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * @return the number of tokens in the stream, including the final EOF token
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the kind of the token
+     */
+    public Token.Kind getKind(int index) {
+        return KINDS[kinds[index]];
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the offset of the token in the source
+     */
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the number of characters in the token
+     */
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the line number of the token
+     */
+    public int getLineNum(int index) {
+        return lineNums[index];
+    }
+
+    /**
+     * @param index the index of a token
+     * @return the column of the token
+     */
+    public int getColPos(int index) {
+        return colPositions[index];
+    }
+
+    /**
+     * Gets the spelling of a token.  Identifiers, reserved words and operators
+     * are shared through the symbol pool; literals, comments and errors are
+     * copied out of the source.
+     *
+     * @param index the index of a token
+     * @return the characters of the token
+     */
+    public String getSpelling(int index) {
+        switch (getKind(index)) {
+            case EOF:
+                return "";
+            case INTCONST:
+            case STRCONST:
+            case COMMENT:
+            case ERROR:
+                return source.subSequence(starts[index], starts[index] + lengths[index]).toString();
+            default:
+                return symbolPool.intern(source, starts[index], lengths[index]);
+        }
+    }
+
+    /**
+     * Checks the spelling of a token without building it
+     *
+     * @param index    the index of a token
+     * @param spelling the expected spelling
+     * @return true if the token is spelled exactly as spelling
+     */
+    public boolean hasSpelling(int index, String spelling) {
+        if (lengths[index] != spelling.length()) {
+            return false;
+        }
+        int start = starts[index];
+        for (int i = 0; i < spelling.length(); i++) {
+            if (source.charAt(start + i) != spelling.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param index the index of a token
+     * @return a Token object holding the token's kind, spelling and position
+     */
+    public Token getToken(int index) {
+        return new Token(getKind(index), getSpelling(index), lineNums[index], colPositions[index]);
+    }
+
+    /**
+     * Finds the token at a position by binary search, since the tokens are in
+     * order of line and then column
+     *
+     * @param lineNum the line number of the token
+     * @param colPos  the column of the token
+     * @return the index of the token starting there, or -1 if there is none
+     */
+    public int indexOf(int lineNum, int colPos) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = lineNums[mid] != lineNum ? Integer.compare(lineNums[mid], lineNum)
+                                               : Integer.compare(colPositions[mid], colPos);
+            if (cmp < 0) {
+                low = mid + 1;
+            }
+            else if (cmp > 0) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares a token with a token of another stream, allowing the other one
+     * to have been moved up or down by whole lines
+     *
+     * @param index      the index of a token in this stream
+     * @param other      another token stream
+     * @param otherIndex the index of a token in the other stream
+     * @param lineDelta  the number of lines the other token is below this one
+     * @return true if the tokens have the same kind, spelling and column,
+     *         and are lineDelta lines apart
+     */
+    public boolean matches(int index, TokenStream other, int otherIndex, int lineDelta) {
+        if (kinds[index] != other.kinds[otherIndex] || lengths[index] != other.lengths[otherIndex]
+                || colPositions[index] != other.colPositions[otherIndex]
+                || lineNums[index] + lineDelta != other.lineNums[otherIndex]) {
+            return false;
+        }
+        int start = starts[index];
+        int otherStart = other.starts[otherIndex];
+        for (int i = 0; i < lengths[index]; i++) {
+            if (source.charAt(start + i) != other.source.charAt(otherStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * changes the capacity of the arrays
+     *
+     * @param capacity the new capacity, at least the number of tokens
+     */
+    private void resize(int capacity) {
+        kinds = Arrays.copyOf(kinds, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lineNums = Arrays.copyOf(lineNums, capacity);
+        colPositions = Arrays.copyOf(colPositions, capacity);
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * File: AstReader.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.parser;
+
+import proj16DeGrawHangMarcello.bantam.ast.*;
+import proj16DeGrawHangMarcello.bantam.parser.AstWriter.Tag;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Reads back an AST written by AstWriter.  The nodes are built just as the
+ * parser builds them, the lines inside each member relative to the member
+ * and the members relative to their class, so the AST cannot be told apart
+ * from one the parser built from the same source.
+ */
+public class AstReader
+{
+    private static final Tag[] TAGS = Tag.values();
+
+    private DataInputStream in;
+    private String filename;
+    private ArrayList<String> strings = new ArrayList<>();
+    private int lastLineNum;  // the line number read last
+    private MemberLinesVisitor memberLinesVisitor = new MemberLinesVisitor();
+
+    /**
+     * creates a reader
+     *
+     * @param in       the stream to read from
+     * @param filename the name of the source file, given to each class
+     */
+    private AstReader(InputStream in, String filename) {
+        this.in = new DataInputStream(in);
+        this.filename = filename;
+    }
+
+    /**
+     * Reads a program from a stream
+     *
+     * @param in       the stream, which is not closed
+     * @param filename the name of the source file the program was parsed from
+     * @return the root of the AST
+     * @throws IOException if the stream cannot be read or does not hold an AST
+     *                     in the current format
+     */
+    public static Program read(InputStream in, String filename) throws IOException {
+        AstReader reader = new AstReader(in, filename);
+        if (reader.in.readInt() != AstWriter.MAGIC
+                || reader.readNumber() != AstWriter.FORMAT_VERSION) {
+            throw new IOException("Not an AST in the current format.");
+        }
+        Tag tag = reader.readTag();
+        if (tag != Tag.PROGRAM) {
+            throw new IOException("An AST must start with a program, not " + tag + ".");
+        }
+        int lineNum = reader.readLineNum();
+        int colPos = reader.readNumber();
+        ClassList classList = new ClassList(reader.readLineNum(), reader.readNumber());
+        for (int i = reader.readNumber(); i > 0; i--) {
+            classList.addElement(reader.readClass());
+        }
+        classList.trimToSize();
+        return new Program(lineNum, colPos, classList);
+    }
+
+    /**
+     * Reads a number written by AstWriter.writeNumber()
+     *
+     * @return the number
+     * @throws IOException if the stream cannot be read
+     */
+    private int readNumber() throws IOException {
+        int bits = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 28) {
+                throw new IOException("A number is too long.");
+            }
+            b = in.readUnsignedByte();
+            bits |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (bits >>> 1) ^ -(bits & 1);
+    }
+
+    /**
+     * Reads a line number written by AstWriter.writeLineNum()
+     *
+     * @return the line number
+     * @throws IOException if the stream cannot be read
+     */
+    private int readLineNum() throws IOException {
+        lastLineNum += readNumber();
+        return lastLineNum;
+    }
+
+    /**
+     * Reads a string written by AstWriter.writeString()
+     *
+     * @return the string, or null
+     * @throws IOException if the stream cannot be read
+     */
+    private String readString() throws IOException {
+        int index = readNumber();
+        if (index == 0) {
+            return null;
+        }
+        if (index >= 2) {
+            if (index - 2 >= strings.size()) {
+                throw new IOException("A string refers to one not read yet.");
+            }
+            return strings.get(index - 2);
+        }
+        byte[] bytes = new byte[readNumber()];
+        in.readFully(bytes);
+        String s = new String(bytes, StandardCharsets.UTF_8);
+        strings.add(s);
+        return s;
+    }
+
+    /**
+     * @return the tag that starts the next node
+     * @throws IOException if the stream cannot be read or the tag is unknown
+     */
+    private Tag readTag() throws IOException {
+        int tag = in.readUnsignedByte();
+        if (tag >= TAGS.length) {
+            throw new IOException("Unknown tag " + tag + ".");
+        }
+        return TAGS[tag];
+    }
+
+    /**
+     * Reads a class and makes its members' lines relative to it
+     *
+     * @return the class
+     * @throws IOException if the stream cannot be read or holds something else
+     */
+    private Class_ readClass() throws IOException {
+        expect(Tag.CLASS);
+        int lineNum = readLineNum();
+        int colPos = readNumber();
+        String name = readString();
+        String parent = readString();
+        int firstLineNum = readLineNum();
+        int firstColPos = readNumber();
+        int lastLineNum = readLineNum();
+        int lastColPos = readNumber();
+        MemberList memberList = new MemberList(readLineNum(), readNumber());
+        for (int i = readNumber(); i > 0; i--) {
+            memberList.addElement(readMember());
+        }
+        memberList.trimToSize();
+
+        Class_ aClass = new Class_(lineNum, colPos, filename, name, parent, memberList);
+        aClass.setSourceRange(firstLineNum, firstColPos, lastLineNum, lastColPos);
+        // the members move with the class, as in Parser.parseClass()
+        memberList.setLineBase(aClass);
+        for (ASTNode member : memberList) {
+            member.setLineBase(aClass);
+        }
+        return aClass;
+    }
+
+    /**
+     * Reads a field or method and makes the lines inside it relative to it
+     *
+     * @return the member
+     * @throws IOException if the stream cannot be read or holds something else
+     */
+    private Member readMember() throws IOException {
+        Tag tag = readTag();
+        if (tag != Tag.FIELD && tag != Tag.METHOD) {
+            throw new IOException("Expected a member, not " + tag + ".");
+        }
+        int lineNum = readLineNum();
+        int colPos = readNumber();
+        String type = readString();
+        String name = readString();
+        int firstLineNum = readLineNum();
+        int firstColPos = readNumber();
+        int lastLineNum = readLineNum();
+        int lastColPos = readNumber();
+
+        Member member;
+        if (tag == Tag.FIELD) {
+            member = new Field(lineNum, colPos, type, name, readExpr());
+        }
+        else {
+            FormalList formalList = new FormalList(readLineNum(), readNumber());
+            for (int i = readNumber(); i > 0; i--) {
+                expect(Tag.FORMAL);
+                int formalLineNum = readLineNum();
+                int formalColPos = readNumber();
+                formalList.addElement(new Formal(formalLineNum, formalColPos,
+                        readString(), readString()));
+            }
+            formalList.trimToSize();
+            member = new Method(lineNum, colPos, type, name, formalList, readStmtList());
+        }
+        member.setSourceRange(firstLineNum, firstColPos, lastLineNum, lastColPos);
+        // the nodes inside the member move with it, as in Parser.parseMember()
+        memberLinesVisitor.makeRelative(member);
+        return member;
+    }
+
+    /**
+     * @return a list of statements
+     * @throws IOException if the stream cannot be read or holds something else
+     */
+    private StmtList readStmtList() throws IOException {
+        StmtList stmtList = new StmtList(readLineNum(), readNumber());
+        for (int i = readNumber(); i > 0; i--) {
+            Stmt stmt = readStmt();
+            if (stmt == null) {
+                throw new IOException("A statement list holds a missing statement.");
+            }
+            stmtList.addElement(stmt);
+        }
+        stmtList.trimToSize();
+        return stmtList;
+    }
+
+    /**
+     * @return a statement, or null if a missing one was written
+     * @throws IOException if the stream cannot be read or holds something else
+     */
+    private Stmt readStmt() throws IOException {
+        Tag tag = readTag();
+        if (tag == Tag.NULL) {
+            return null;
+        }
+        int lineNum = readLineNum();
+        int colPos = readNumber();
+        switch (tag) {
+            case DECL_STMT:
+                return new DeclStmt(lineNum, colPos, readString(), readExpr());
+            case EXPR_STMT:
+                return new ExprStmt(lineNum, colPos, readExpr());
+            case IF_STMT:
+                return new IfStmt(lineNum, colPos, readExpr(), readStmt(), readStmt());
+            case WHILE_STMT:
+                return new WhileStmt(lineNum, colPos, readExpr(), readStmt());
+            case FOR_STMT:
+                return new ForStmt(lineNum, colPos, readExpr(), readExpr(), readExpr(),
+                        readStmt());
+            case BREAK_STMT:
+                return new BreakStmt(lineNum, colPos);
+            case BLOCK_STMT:
+                return new BlockStmt(lineNum, colPos, readStmtList());
+            case RETURN_STMT:
+                return new ReturnStmt(lineNum, colPos, readExpr());
+            default:
+                throw new IOException("Expected a statement, not " + tag + ".");
+        }
+    }
+
+    /**
+     * @return an expression, or null if a missing one was written
+     * @throws IOException if the stream cannot be read or holds something else
+     */
+    private Expr readExpr() throws IOException {
+        Tag tag = readTag();
+        if (tag == Tag.NULL) {
+            return null;
+        }
+        int lineNum = readLineNum();
+        int colPos = readNumber();
+        switch (tag) {
+            case DISPATCH_EXPR: {
+                Expr refExpr = readExpr();
+                String methodName = readString();
+                ExprList actualList = new ExprList(readLineNum(), readNumber());
+                for (int i = readNumber(); i > 0; i--) {
+                    actualList.addElement(readExpr());
+                }
+                actualList.trimToSize();
+                return new DispatchExpr(lineNum, colPos, refExpr, methodName, actualList);
+            }
+            case NEW_EXPR:
+                return new NewExpr(lineNum, colPos, readString());
+            case NEW_ARRAY_EXPR:
+                return new NewArrayExpr(lineNum, colPos, readString(), readExpr());
+            case INSTANCEOF_EXPR:
+                return new InstanceofExpr(lineNum, colPos, readExpr(), readString());
+            case CAST_EXPR:
+                return new CastExpr(lineNum, colPos, readString(), readExpr());
+            case ASSIGN_EXPR:
+                return new AssignExpr(lineNum, colPos, readString(), readString(), readExpr());
+            case ARRAY_ASSIGN_EXPR:
+                return new ArrayAssignExpr(lineNum, colPos, readString(), readString(),
+                        readExpr(), readExpr());
+            case COMP_EQ_EXPR:
+                return new BinaryCompEqExpr(lineNum, colPos, readExpr(), readExpr());
+            case COMP_NE_EXPR:
+                return new BinaryCompNeExpr(lineNum, colPos, readExpr(), readExpr());
+            case COMP_LT_EXPR:
+                return new BinaryCompLtExpr(lineNum, colPos, readExpr(), readExpr());
+            case COMP_LEQ_EXPR:
+                return new BinaryCompLeqExpr(lineNum, colPos, readExpr(), readExpr());
+            case COMP_GT_EXPR:
+                return new BinaryCompGtExpr(lineNum, colPos, readExpr(), readExpr());
+            case COMP_GEQ_EXPR:
+                return new BinaryCompGeqExpr(lineNum, colPos, readExpr(), readExpr());
+            case ARITH_PLUS_EXPR:
+                return new BinaryArithPlusExpr(lineNum, colPos, readExpr(), readExpr());
+            case ARITH_MINUS_EXPR:
+                return new BinaryArithMinusExpr(lineNum, colPos, readExpr(), readExpr());
+            case ARITH_TIMES_EXPR:
+                return new BinaryArithTimesExpr(lineNum, colPos, readExpr(), readExpr());
+            case ARITH_DIVIDE_EXPR:
+                return new BinaryArithDivideExpr(lineNum, colPos, readExpr(), readExpr());
+            case ARITH_MODULUS_EXPR:
+                return new BinaryArithModulusExpr(lineNum, colPos, readExpr(), readExpr());
+            case LOGIC_AND_EXPR:
+                return new BinaryLogicAndExpr(lineNum, colPos, readExpr(), readExpr());
+            case LOGIC_OR_EXPR:
+                return new BinaryLogicOrExpr(lineNum, colPos, readExpr(), readExpr());
+            case NEG_EXPR:
+                return new UnaryNegExpr(lineNum, colPos, readExpr());
+            case NOT_EXPR:
+                return new UnaryNotExpr(lineNum, colPos, readExpr());
+            case INCR_EXPR:
+                return new UnaryIncrExpr(lineNum, colPos, readExpr(), readNumber() != 0);
+            case DECR_EXPR:
+                return new UnaryDecrExpr(lineNum, colPos, readExpr(), readNumber() != 0);
+            case VAR_EXPR:
+                return new VarExpr(lineNum, colPos, readExpr(), readString());
+            case ARRAY_EXPR:
+                return new ArrayExpr(lineNum, colPos, readExpr(), readString(), readExpr());
+            case CONST_INT_EXPR:
+                return new ConstIntExpr(lineNum, colPos, readString());
+            case CONST_BOOLEAN_EXPR:
+                return new ConstBooleanExpr(lineNum, colPos, readString());
+            case CONST_STRING_EXPR:
+                return new ConstStringExpr(lineNum, colPos, readString());
+            default:
+                throw new IOException("Expected an expression, not " + tag + ".");
+        }
+    }
+
+    /**
+     * Reads the tag of the next node and checks it is the one expected
+     *
+     * @param expected the tag expected
+     * @throws IOException if the stream cannot be read or holds another tag
+     */
+    private void expect(Tag expected) throws IOException {
+        Tag tag = readTag();
+        if (tag != expected) {
+            throw new IOException("Expected " + expected + ", not " + tag + ".");
+        }
+    }
+}
@@ -0,0 +1,495 @@
+/*
+ * File: AstWriter.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.parser;
+
+import proj16DeGrawHangMarcello.bantam.ast.*;
+import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * Writes an AST as the parser built it in a compact binary form, which
+ * AstReader reads back much faster than the source can be scanned and parsed.
+ * <p>
+ * Each node is written as a tag byte naming its class, its line and column,
+ * its own strings and flags, and then its children in the order its
+ * constructor takes them.  A missing child is written as the tag NULL, and a
+ * list as the number of its elements followed by them.  Numbers are written
+ * in as few bytes as they need, line numbers as the difference from the line
+ * number written before, and each string is written in full only the
+ * first time; later uses refer to it by number.  The annotations added by the
+ * semantic analyzer are not written.
+ */
+public class AstWriter extends Visitor
+{
+    /**
+     * The first bytes of every file, and the version of the format, which
+     * changes whenever the format does
+     */
+    static final int MAGIC = 0x4254414D;  // "BTAM"
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * The tags that start each node
+     */
+    enum Tag
+    {
+        NULL, PROGRAM, CLASS, FIELD, METHOD, FORMAL,
+        DECL_STMT, EXPR_STMT, IF_STMT, WHILE_STMT, FOR_STMT, BREAK_STMT, BLOCK_STMT,
+        RETURN_STMT, DISPATCH_EXPR, NEW_EXPR, NEW_ARRAY_EXPR, INSTANCEOF_EXPR,
+        CAST_EXPR, ASSIGN_EXPR, ARRAY_ASSIGN_EXPR, COMP_EQ_EXPR, COMP_NE_EXPR,
+        COMP_LT_EXPR, COMP_LEQ_EXPR, COMP_GT_EXPR, COMP_GEQ_EXPR, ARITH_PLUS_EXPR,
+        ARITH_MINUS_EXPR, ARITH_TIMES_EXPR, ARITH_DIVIDE_EXPR, ARITH_MODULUS_EXPR,
+        LOGIC_AND_EXPR, LOGIC_OR_EXPR, NEG_EXPR, NOT_EXPR, INCR_EXPR, DECR_EXPR,
+        VAR_EXPR, ARRAY_EXPR, CONST_INT_EXPR, CONST_BOOLEAN_EXPR, CONST_STRING_EXPR
+    }
+
+    private DataOutputStream out;
+    private HashMap<String, Integer> strings = new HashMap<>();
+    private int lastLineNum;  // the line number written last
+
+    /**
+     * creates a writer
+     *
+     * @param out the stream to write to
+     */
+    private AstWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Writes a program to a stream
+     *
+     * @param program the root of the AST
+     * @param out     the stream, which is flushed but not closed
+     * @throws IOException if the stream cannot be written to
+     */
+    public static void write(Program program, OutputStream out) throws IOException {
+        AstWriter writer = new AstWriter(out);
+        try {
+            writer.out.writeInt(MAGIC);
+            writer.writeNumber(FORMAT_VERSION);
+            program.accept(writer);
+            writer.out.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes a number that is usually small and not negative in as few bytes
+     * as it needs, seven bits to a byte
+     *
+     * @param n the number
+     */
+    private void writeNumber(int n) {
+        // move the sign to the lowest bit, so small negative numbers are small too
+        int bits = (n << 1) ^ (n >> 31);
+        try {
+            while ((bits & ~0x7F) != 0) {
+                out.writeByte((bits & 0x7F) | 0x80);
+                bits >>>= 7;
+            }
+            out.writeByte(bits);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a line number as the difference from the one written last,
+     * which is small since nodes are written in the order of the source
+     *
+     * @param lineNum the line number
+     */
+    private void writeLineNum(int lineNum) {
+        writeNumber(lineNum - lastLineNum);
+        lastLineNum = lineNum;
+    }
+
+    /**
+     * Writes a string, or just its number if it was written before
+     *
+     * @param s the string, or null
+     */
+    private void writeString(String s) {
+        if (s == null) {
+            writeNumber(0);
+            return;
+        }
+        Integer index = strings.get(s);
+        if (index != null) {
+            writeNumber(index + 2);
+            return;
+        }
+        strings.put(s, strings.size());
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeNumber(1);
+        writeNumber(bytes.length);
+        try {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the tag, line and column that start a node
+     *
+     * @param tag  the tag of the node's class
+     * @param node the node
+     */
+    private void writeHeader(Tag tag, ASTNode node) {
+        try {
+            out.writeByte(tag.ordinal());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writeLineNum(node.getLineNum());
+        writeNumber(node.getColPos());
+    }
+
+    /**
+     * Writes a child that may be missing
+     *
+     * @param node the child, or null
+     */
+    private void writeOptional(ASTNode node) {
+        if (node == null) {
+            try {
+                out.writeByte(Tag.NULL.ordinal());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        else {
+            node.accept(this);
+        }
+    }
+
+    /**
+     * Writes the line, column and number of elements of a list, and then
+     * the elements
+     *
+     * @param list the list
+     */
+    private void writeList(ListNode list) {
+        writeLineNum(list.getLineNum());
+        writeNumber(list.getColPos());
+        writeNumber(list.getSize());
+        for (ASTNode node : list) {
+            node.accept(this);
+        }
+    }
+
+    /**
+     * Writes where a member starts and ends in the source
+     *
+     * @param member the member
+     */
+    private void writeSourceRange(Member member) {
+        writeLineNum(member.getFirstLineNum());
+        writeNumber(member.getFirstColPos());
+        writeLineNum(member.getLastLineNum());
+        writeNumber(member.getLastColPos());
+    }
+
+    /**
+     * Writes a binary expression
+     *
+     * @param tag  the tag of the expression's class
+     * @param node the expression
+     * @return null
+     */
+    private Object writeBinary(Tag tag, BinaryExpr node) {
+        writeHeader(tag, node);
+        node.getLeftExpr().accept(this);
+        node.getRightExpr().accept(this);
+        return null;
+    }
+
+    /**
+     * Writes a unary expression
+     *
+     * @param tag  the tag of the expression's class
+     * @param node the expression
+     * @return null
+     */
+    private Object writeUnary(Tag tag, UnaryExpr node) {
+        writeHeader(tag, node);
+        node.getExpr().accept(this);
+        return null;
+    }
+
+    /**
+     * Writes a constant expression
+     *
+     * @param tag  the tag of the expression's class
+     * @param node the expression
+     * @return null
+     */
+    private Object writeConst(Tag tag, ConstExpr node) {
+        writeHeader(tag, node);
+        writeString(node.getConstant());
+        return null;
+    }
+
+    public Object visit(Program node) {
+        writeHeader(Tag.PROGRAM, node);
+        writeList(node.getClassList());
+        return null;
+    }
+
+    public Object visit(Class_ node) {
+        writeHeader(Tag.CLASS, node);
+        writeString(node.getName());
+        writeString(node.getParent());
+        writeLineNum(node.getFirstLineNum());
+        writeNumber(node.getFirstColPos());
+        writeLineNum(node.getLastLineNum());
+        writeNumber(node.getLastColPos());
+        writeList(node.getMemberList());
+        return null;
+    }
+
+    public Object visit(Field node) {
+        writeHeader(Tag.FIELD, node);
+        writeString(node.getType());
+        writeString(node.getName());
+        writeSourceRange(node);
+        writeOptional(node.getInit());
+        return null;
+    }
+
+    public Object visit(Method node) {
+        writeHeader(Tag.METHOD, node);
+        writeString(node.getReturnType());
+        writeString(node.getName());
+        writeSourceRange(node);
+        writeList(node.getFormalList());
+        writeList(node.getStmtList());
+        return null;
+    }
+
+    public Object visit(Formal node) {
+        writeHeader(Tag.FORMAL, node);
+        writeString(node.getType());
+        writeString(node.getName());
+        return null;
+    }
+
+    public Object visit(DeclStmt node) {
+        writeHeader(Tag.DECL_STMT, node);
+        writeString(node.getName());
+        node.getInit().accept(this);
+        return null;
+    }
+
+    public Object visit(ExprStmt node) {
+        writeHeader(Tag.EXPR_STMT, node);
+        node.getExpr().accept(this);
+        return null;
+    }
+
+    public Object visit(IfStmt node) {
+        writeHeader(Tag.IF_STMT, node);
+        node.getPredExpr().accept(this);
+        node.getThenStmt().accept(this);
+        writeOptional(node.getElseStmt());
+        return null;
+    }
+
+    public Object visit(WhileStmt node) {
+        writeHeader(Tag.WHILE_STMT, node);
+        node.getPredExpr().accept(this);
+        node.getBodyStmt().accept(this);
+        return null;
+    }
+
+    public Object visit(ForStmt node) {
+        writeHeader(Tag.FOR_STMT, node);
+        writeOptional(node.getInitExpr());
+        writeOptional(node.getPredExpr());
+        writeOptional(node.getUpdateExpr());
+        node.getBodyStmt().accept(this);
+        return null;
+    }
+
+    public Object visit(BreakStmt node) {
+        writeHeader(Tag.BREAK_STMT, node);
+        return null;
+    }
+
+    public Object visit(BlockStmt node) {
+        writeHeader(Tag.BLOCK_STMT, node);
+        writeList(node.getStmtList());
+        return null;
+    }
+
+    public Object visit(ReturnStmt node) {
+        writeHeader(Tag.RETURN_STMT, node);
+        writeOptional(node.getExpr());
+        return null;
+    }
+
+    public Object visit(DispatchExpr node) {
+        writeHeader(Tag.DISPATCH_EXPR, node);
+        writeOptional(node.getRefExpr());
+        writeString(node.getMethodName());
+        writeList(node.getActualList());
+        return null;
+    }
+
+    public Object visit(NewExpr node) {
+        writeHeader(Tag.NEW_EXPR, node);
+        writeString(node.getType());
+        return null;
+    }
+
+    public Object visit(NewArrayExpr node) {
+        writeHeader(Tag.NEW_ARRAY_EXPR, node);
+        writeString(node.getType());
+        node.getSize().accept(this);
+        return null;
+    }
+
+    public Object visit(InstanceofExpr node) {
+        writeHeader(Tag.INSTANCEOF_EXPR, node);
+        node.getExpr().accept(this);
+        writeString(node.getType());
+        return null;
+    }
+
+    public Object visit(CastExpr node) {
+        writeHeader(Tag.CAST_EXPR, node);
+        writeString(node.getType());
+        node.getExpr().accept(this);
+        return null;
+    }
+
+    public Object visit(AssignExpr node) {
+        writeHeader(Tag.ASSIGN_EXPR, node);
+        writeString(node.getRefName());
+        writeString(node.getName());
+        node.getExpr().accept(this);
+        return null;
+    }
+
+    public Object visit(ArrayAssignExpr node) {
+        writeHeader(Tag.ARRAY_ASSIGN_EXPR, node);
+        writeString(node.getRefName());
+        writeString(node.getName());
+        node.getIndex().accept(this);
+        node.getExpr().accept(this);
+        return null;
+    }
+
+    public Object visit(BinaryCompEqExpr node) {
+        return writeBinary(Tag.COMP_EQ_EXPR, node);
+    }
+
+    public Object visit(BinaryCompNeExpr node) {
+        return writeBinary(Tag.COMP_NE_EXPR, node);
+    }
+
+    public Object visit(BinaryCompLtExpr node) {
+        return writeBinary(Tag.COMP_LT_EXPR, node);
+    }
+
+    public Object visit(BinaryCompLeqExpr node) {
+        return writeBinary(Tag.COMP_LEQ_EXPR, node);
+    }
+
+    public Object visit(BinaryCompGtExpr node) {
+        return writeBinary(Tag.COMP_GT_EXPR, node);
+    }
+
+    public Object visit(BinaryCompGeqExpr node) {
+        return writeBinary(Tag.COMP_GEQ_EXPR, node);
+    }
+
+    public Object visit(BinaryArithPlusExpr node) {
+        return writeBinary(Tag.ARITH_PLUS_EXPR, node);
+    }
+
+    public Object visit(BinaryArithMinusExpr node) {
+        return writeBinary(Tag.ARITH_MINUS_EXPR, node);
+    }
+
+    public Object visit(BinaryArithTimesExpr node) {
+        return writeBinary(Tag.ARITH_TIMES_EXPR, node);
+    }
+
+    public Object visit(BinaryArithDivideExpr node) {
+        return writeBinary(Tag.ARITH_DIVIDE_EXPR, node);
+    }
+
+    public Object visit(BinaryArithModulusExpr node) {
+        return writeBinary(Tag.ARITH_MODULUS_EXPR, node);
+    }
+
+    public Object visit(BinaryLogicAndExpr node) {
+        return writeBinary(Tag.LOGIC_AND_EXPR, node);
+    }
+
+    public Object visit(BinaryLogicOrExpr node) {
+        return writeBinary(Tag.LOGIC_OR_EXPR, node);
+    }
+
+    public Object visit(UnaryNegExpr node) {
+        return writeUnary(Tag.NEG_EXPR, node);
+    }
+
+    public Object visit(UnaryNotExpr node) {
+        return writeUnary(Tag.NOT_EXPR, node);
+    }
+
+    public Object visit(UnaryIncrExpr node) {
+        writeUnary(Tag.INCR_EXPR, node);
+        writeNumber(node.isPostfix() ? 1 : 0);
+        return null;
+    }
+
+    public Object visit(UnaryDecrExpr node) {
+        writeUnary(Tag.DECR_EXPR, node);
+        writeNumber(node.isPostfix() ? 1 : 0);
+        return null;
+    }
+
+    public Object visit(VarExpr node) {
+        writeHeader(Tag.VAR_EXPR, node);
+        writeOptional(node.getRef());
+        writeString(node.getName());
+        return null;
+    }
+
+    public Object visit(ArrayExpr node) {
+        writeHeader(Tag.ARRAY_EXPR, node);
+        writeOptional(node.getRef());
+        writeString(node.getName());
+        node.getIndex().accept(this);
+        return null;
+    }
+
+    public Object visit(ConstIntExpr node) {
+        return writeConst(Tag.CONST_INT_EXPR, node);
+    }
+
+    public Object visit(ConstBooleanExpr node) {
+        return writeConst(Tag.CONST_BOOLEAN_EXPR, node);
+    }
+
+    public Object visit(ConstStringExpr node) {
+        return writeConst(Tag.CONST_STRING_EXPR, node);
+    }
+}
@@ -32,19 +32,26 @@
  * Edited By: Lucas DeGraw, Jackie Hang, Chris Marcello
  * Project 13
  * Date: March 7, 2019
+ * ---------------------------
+ * Edited By: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Project 16
+ * Date: April 11, 2019
  */
 
 package proj16DeGrawHangMarcello.bantam.parser;
 
 import proj16DeGrawHangMarcello.bantam.ast.*;
 import proj16DeGrawHangMarcello.bantam.lexer.Scanner;
+import proj16DeGrawHangMarcello.bantam.lexer.SymbolPool;
 import proj16DeGrawHangMarcello.bantam.lexer.Token;
+import proj16DeGrawHangMarcello.bantam.lexer.TokenStream;
 import proj16DeGrawHangMarcello.bantam.util.CompilationException;
 import proj16DeGrawHangMarcello.bantam.util.Error;
 import proj16DeGrawHangMarcello.bantam.util.ErrorHandler;
 
 import java.io.Reader;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static proj16DeGrawHangMarcello.bantam.lexer.Token.Kind.*;
 
@@ -52,9 +59,17 @@ import static proj16DeGrawHangMarcello.bantam.lexer.Token.Kind.*;
 public class Parser
 {
     // instance variables
-    private Scanner scanner;
-    private Token currentToken;
+    private TokenStream tokens;
+    private int currentIndex;          // index of the current token in the stream
+    private Token.Kind currentKind;    // kind of the current token
+    private int currentLineNum;        // line number of the current token
+    private int currentColPos;         // column of the current token
+    private String filename;
     private ErrorHandler errorHandler;
+    private int numSyntaxErrors;       // syntax errors found in the current parse
+    private int lastErrorIndex;        // index of the token the last error was reported at
+    private int previousIndex;         // index of the last token parsed
+    private MemberLinesVisitor memberLinesVisitor = new MemberLinesVisitor();
 
 
     // constructor
@@ -68,34 +83,97 @@ public class Parser
     // If not, reports a syntactic bantam.error.
 
     private void advanceIfMatches(Token.Kind tokenKindExpected) {
-        if (currentToken.kind == tokenKindExpected) {
+        if (currentKind == tokenKindExpected) {
             advance(); // move on to the next token
         }
         else {
-            reportSyntacticError(currentToken.position, tokenKindExpected.name(),
-                    currentToken.spelling);
+            reportSyntacticError(currentLineNum, tokenKindExpected.name(),
+                    currentSpelling());
         }
     }
 
-    // unconditionally fetch the next token
+    // unconditionally fetch the next token, staying on the EOF token once reached
     private void advance() {
+        previousIndex = currentIndex;
         do {
-            currentToken = scanner.scan();
-        } while (currentToken.kind == COMMENT);
+            if (currentIndex < tokens.size() - 1) {
+                currentIndex++;
+            }
+            currentKind = tokens.getKind(currentIndex);
+        } while (currentKind == COMMENT);
+        currentLineNum = tokens.getLineNum(currentIndex);
+        currentColPos = tokens.getColPos(currentIndex);
+    }
+
+    // the spelling of the current token
+    private String currentSpelling() {
+        return tokens.getSpelling(currentIndex);
+    }
+
+    // checks the spelling of the current token without building it
+    private boolean currentSpellingIs(String spelling) {
+        return tokens.hasSpelling(currentIndex, spelling);
+    }
+
+    // scan the whole file into the token stream and fetch the first token
+    private void start(Scanner scanner) {
+        tokens = scanner.scanAll(new SymbolPool());
+        filename = scanner.getFilename();
+        restart(0);
+    }
+
+    // start parsing again from the token at the given index
+    private void restart(int index) {
+        currentIndex = index - 1;
+        numSyntaxErrors = 0;
+        lastErrorIndex = -1;
+        advance();
     }
 
 
     //----------------------------------
-    //register a SyntaxError and throw a CompilationException to exit from parsing
+    //register a syntax error and throw a SyntaxError to unwind to the nearest
+    //statement, member or class, where parsing recovers and carries on.
+    //Errors at the token an error was just reported at are not reported again.
     private void reportSyntacticError(int position, String expectedToken,
                                       String metToken) {
-        String message =
-                "At line " + position + ", expected " + expectedToken + ", " + "got" +
-                        " " + metToken + " instead.\n ";
-        errorHandler.register(Error.Kind.PARSE_ERROR, scanner.getFilename(), position,
-                message);
-        // exit immediately because the parser can't continue
-        throw new CompilationException("Parser error found.");
+        if (currentIndex != lastErrorIndex) {
+            String message =
+                    "At line " + position + ", expected " + expectedToken + ", " + "got" +
+                            " " + metToken + " instead.\n ";
+            errorHandler.register(Error.Kind.PARSE_ERROR, filename, position,
+                    message);
+            numSyntaxErrors++;
+            lastErrorIndex = currentIndex;
+        }
+        throw new SyntaxError();
+    }
+
+    // panic mode: skip to the end of the statement or member containing the error,
+    // which is past a ";" or a nested block, or up to a "}" closing the
+    // enclosing block or class, or up to the next class
+    private void skipToSyncPoint() {
+        int depth = 0;
+        while (currentKind != EOF && currentKind != CLASS) {
+            if (currentKind == LCURLY) {
+                depth++;
+            }
+            else if (currentKind == RCURLY) {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+                if (depth == 0) {
+                    advance();
+                    return;
+                }
+            }
+            else if (currentKind == SEMICOLON && depth == 0) {
+                advance();
+                return;
+            }
+            advance();
+        }
     }
 
     /**
@@ -103,28 +181,252 @@ public class Parser
      *
      * @param filename The name of the Bantam Java file to be parsed
      * @return The Program node forming the root of the AST generated by the parser
+     * @throws CompilationException if there were syntax errors, after all of them
+     *         have been registered with the error handler
      */
     public Program parse(String filename) {
+        Program program = parseWithRecovery(filename);
+        if (numSyntaxErrors > 0) {
+            throw new CompilationException("Parser error found.");
+        }
+        return program;
+    }
+
+    // parse the characters in the reader and return the AST
+    public Program parse(Reader reader) {
+        Program program = parseWithRecovery(reader);
+        if (numSyntaxErrors > 0) {
+            throw new CompilationException("Parser error found.");
+        }
+        return program;
+    }
+
+    /**
+     * parse the given file, recovering from syntax errors, and return the root
+     * node of the AST.  Every syntax error is registered with the error handler.
+     * A statement, member or class that has an error is left out of the AST, so
+     * the rest of the program can still be analysed.
+     *
+     * @param filename The name of the Bantam Java file to be parsed
+     * @return The Program node of the (possibly partial) AST
+     */
+    public Program parseWithRecovery(String filename) {
 
         //set up scanner
-        scanner = new Scanner(filename, errorHandler);
+        Scanner scanner = new Scanner(filename, errorHandler);
 
         // start scanning and parsing
-        advance();
+        start(scanner);
         return parseProgram();
     }
 
-    // parse the characters in the reader and return the AST
-    public Program parse(Reader reader) {
+    // parse the characters in the reader, recovering from syntax errors,
+    // and return the (possibly partial) AST
+    public Program parseWithRecovery(Reader reader) {
 
         //set up scanner
-        scanner = new Scanner(reader, errorHandler);
+        Scanner scanner = new Scanner(reader, errorHandler);
 
         // start scanning and parsing
-        advance();
+        start(scanner);
         return parseProgram();
     }
 
+    /**
+     * @return the number of syntax errors found by the last parse
+     */
+    public int getNumSyntaxErrors() {
+        return numSyntaxErrors;
+    }
+
+    /**
+     * parse a new version of the file this parser parsed last, reusing as much
+     * of the AST built then as possible.  See reparse(Program, Scanner).
+     *
+     * @param program  the AST returned by the last parse of this parser
+     * @param filename the name of the file
+     * @return program, updated, or a new Program if the whole file was parsed
+     */
+    public Program reparse(Program program, String filename) {
+        return reparse(program, new Scanner(filename, errorHandler));
+    }
+
+    // parse the new contents of the file in the reader, reusing as much of
+    // the last AST as possible.  See reparse(Program, Scanner).
+    public Program reparse(Program program, Reader reader) {
+        return reparse(program, new Scanner(reader, errorHandler));
+    }
+
+    /**
+     * Rescans the file and compares the new tokens with those of the last parse
+     * to find the ones that changed.  If they all lie inside one member, only
+     * that member is parsed again and put in place of the old one in its
+     * MemberList; if they lie inside one class, only that class is parsed again.
+     * Every other node of the old AST is kept, and the members and classes after
+     * the change are moved by the number of lines the edit added or removed.
+     * Since the nodes inside a member have lines relative to the member, and
+     * the members of a class relative to the class, that moves only a few nodes.
+     * <p>
+     * The whole file is parsed again, as by parseWithRecovery(), if the last
+     * parse had syntax errors, if the change is not inside one member or class,
+     * or if the new member or class has errors or does not end where the old
+     * one did.  The AST and the errors registered are therefore always the
+     * same as those of a full parse.
+     *
+     * @param program the AST returned by the last parse of this parser
+     * @param scanner the scanner for the new contents of the file
+     * @return program, updated, or a new Program if the whole file was parsed
+     */
+    private Program reparse(Program program, Scanner scanner) {
+        TokenStream oldTokens = tokens;
+        boolean oldTreeComplete = oldTokens != null && numSyntaxErrors == 0;
+        start(scanner);
+        if (oldTreeComplete && reparseChange(program, oldTokens)) {
+            numSyntaxErrors = 0;
+            return program;
+        }
+        restart(0);
+        return parseProgram();
+    }
+
+    // find the tokens changed since oldTokens and parse again only the member
+    // or class holding them, returning false if that cannot be done
+    private boolean reparseChange(Program program, TokenStream oldTokens) {
+        int oldSize = oldTokens.size();
+        int newSize = tokens.size();
+        int sizeDelta = newSize - oldSize;
+        int lineDelta = tokens.getLineNum(newSize - 1) - oldTokens.getLineNum(oldSize - 1);
+
+        // the old tokens from changeStart to changeEnd were replaced by the
+        // new ones from changeStart to changeEnd + sizeDelta
+        int minSize = Math.min(oldSize, newSize);
+        int changeStart = 0;
+        while (changeStart < minSize && oldTokens.matches(changeStart, tokens, changeStart, 0)) {
+            changeStart++;
+        }
+        int numSame = 0;
+        while (numSame < minSize - changeStart && oldTokens.matches(oldSize - 1 - numSame,
+                tokens, newSize - 1 - numSame, lineDelta)) {
+            numSame++;
+        }
+        int changeEnd = oldSize - numSame;
+        boolean onlyLinesMoved = changeEnd == changeStart && sizeDelta == 0;
+        // a node whose last token is at index last holds the change if its
+        // tokens reach changeEnd; lines moved between two tokens must be
+        // strictly inside it
+        int reach = onlyLinesMoved ? 0 : 1;
+
+        ClassList classList = program.getClassList();
+        for (int i = 0; i < classList.getSize(); i++) {
+            Class_ aClass = (Class_) classList.get(i);
+            int classFirst = oldTokens.indexOf(aClass.getFirstLineNum(), aClass.getFirstColPos());
+            int classLast = oldTokens.indexOf(aClass.getLastLineNum(), aClass.getLastColPos());
+            if (onlyLinesMoved && classFirst >= changeStart) {
+                if (i == 0) {
+                    // the Program and ClassList have the line of the first class
+                    program.shiftLines(lineDelta);
+                    classList.shiftLines(lineDelta);
+                }
+                shiftClasses(classList, i, lineDelta);
+                return true;
+            }
+            if (classFirst > changeStart || changeEnd > classLast + reach) {
+                continue;
+            }
+
+            MemberList memberList = aClass.getMemberList();
+            // the MemberList has the line of the opening brace
+            int open = oldTokens.indexOf(memberList.getLineNum(), memberList.getColPos());
+            if (onlyLinesMoved && open >= changeStart) {
+                memberList.shiftLines(lineDelta);
+                shiftMembers(aClass, 0, lineDelta);
+                shiftClasses(classList, i + 1, lineDelta);
+                return true;
+            }
+            for (int j = 0; j < memberList.getSize(); j++) {
+                Member member = (Member) memberList.get(j);
+                int first = oldTokens.indexOf(member.getFirstLineNum(), member.getFirstColPos());
+                int last = oldTokens.indexOf(member.getLastLineNum(), member.getLastColPos());
+                if (onlyLinesMoved && first >= changeStart) {
+                    shiftMembers(aClass, j, lineDelta);
+                    shiftClasses(classList, i + 1, lineDelta);
+                    return true;
+                }
+                if (first > changeStart || changeEnd > last + reach) {
+                    continue;
+                }
+                Member newMember = (Member) reparseFrom(first, last + sizeDelta, this::parseMember);
+                if (newMember != null) {
+                    newMember.setLineBase(aClass);
+                    memberList.set(j, newMember);
+                    shiftMembers(aClass, j + 1, lineDelta);
+                    shiftClasses(classList, i + 1, lineDelta);
+                    return true;
+                }
+            }
+            if (onlyLinesMoved) {
+                // only the closing brace of the class moved
+                shiftMembers(aClass, memberList.getSize(), lineDelta);
+                shiftClasses(classList, i + 1, lineDelta);
+                return true;
+            }
+
+            // the first token of the class must not have changed, since the
+            // Program and ClassList have its line
+            if (classFirst == changeStart) {
+                return false;
+            }
+            Class_ newClass = (Class_) reparseFrom(classFirst, classLast + sizeDelta, this::parseClass);
+            if (newClass != null) {
+                classList.set(i, newClass);
+                shiftClasses(classList, i + 1, lineDelta);
+                return true;
+            }
+            return false;
+        }
+        // a change after the last class only matters if it is more than moved lines
+        return onlyLinesMoved && classList.getSize() > 0;
+    }
+
+    // parse a member or class again starting from the token at index first, and
+    // return it if it has no errors and its last token is at index last, or null
+    private ASTNode reparseFrom(int first, int last, Supplier<? extends ASTNode> parseNode) {
+        // any errors are found again by the full parse that follows a failure
+        ErrorHandler fullParseErrorHandler = errorHandler;
+        errorHandler = new ErrorHandler();
+        restart(first);
+        ASTNode node;
+        try {
+            node = parseNode.get();
+        } catch (SyntaxError e) {
+            node = null;
+        } finally {
+            errorHandler = fullParseErrorHandler;
+        }
+        if (node == null || numSyntaxErrors > 0 || previousIndex != last) {
+            return null;
+        }
+        return node;
+    }
+
+    // move the members of a class from the given index on, and the end of the
+    // class, up or down by a number of lines
+    private void shiftMembers(Class_ aClass, int firstIndex, int lineDelta) {
+        MemberList memberList = aClass.getMemberList();
+        for (int j = firstIndex; j < memberList.getSize(); j++) {
+            memberList.get(j).shiftLines(lineDelta);
+        }
+        aClass.setSourceRange(aClass.getFirstLineNum(), aClass.getFirstColPos(),
+                aClass.getLastLineNum() + lineDelta, aClass.getLastColPos());
+    }
+
+    // move the classes from the given index on up or down by a number of lines
+    private void shiftClasses(ClassList classList, int firstIndex, int lineDelta) {
+        for (int i = firstIndex; i < classList.getSize(); i++) {
+            classList.get(i).shiftLines(lineDelta);
+        }
+    }
+
 
     //------------------------------
     //Begin Parsing
@@ -132,15 +434,23 @@ public class Parser
     //<Program> ::= <Class> | <Class> <Program>
     private Program parseProgram() {
 
-        int position = currentToken.position;
-        ClassList clist = new ClassList(position,currentToken.colPos);
+        int position = currentLineNum;
+        ClassList clist = new ClassList(position,currentColPos);
 
-        while (currentToken.kind != EOF) {
-            Class_ aClass = parseClass();
-            clist.addElement(aClass);
+        while (currentKind != EOF) {
+            try {
+                Class_ aClass = parseClass();
+                clist.addElement(aClass);
+            } catch (SyntaxError e) {
+                // skip to the next class
+                while (currentKind != CLASS && currentKind != EOF) {
+                    advance();
+                }
+            }
         }
+        clist.trimToSize();
 
-        return new Program(position,currentToken.colPos, clist);
+        return new Program(position,currentColPos, clist);
     }
 
     //-----------------------------
@@ -150,15 +460,16 @@ public class Parser
     private Class_ parseClass() {
 
         Class_ aClass;
-        int position = currentToken.position;
+        int position = currentLineNum;
+        int firstColPos = currentColPos;
 
 
         advanceIfMatches(CLASS);
-        Token className = currentToken;
-        int colPos = currentToken.colPos;
+        String className = currentSpelling();
+        int colPos = currentColPos;
         advanceIfMatches(IDENTIFIER);
         String parentName = null;
-        if (currentToken.kind == EXTENDS) {
+        if (currentKind == EXTENDS) {
             advance();
             parentName = parseIdentifier();
         }
@@ -166,16 +477,32 @@ public class Parser
             parentName = "Object";
         }
 
-        MemberList memberList = new MemberList(currentToken.position,currentToken.colPos);
+        MemberList memberList = new MemberList(currentLineNum,currentColPos);
         advanceIfMatches(LCURLY);
-        while (currentToken.kind != RCURLY && currentToken.kind != EOF) {
-            Member member = parseMember();
-            memberList.addElement(member);
+        while (currentKind != RCURLY && currentKind != EOF && currentKind != CLASS) {
+            try {
+                Member member = parseMember();
+                memberList.addElement(member);
+            } catch (SyntaxError e) {
+                skipToSyncPoint();
+            }
         }
-        advanceIfMatches(RCURLY);
+        try {
+            advanceIfMatches(RCURLY);
+        } catch (SyntaxError e) {
+            // keep the members found so far; the next class starts here
+        }
+        memberList.trimToSize();
 
-        aClass = new Class_(position,colPos, scanner.getFilename(), className.spelling,
+        aClass = new Class_(position,colPos, filename, className,
                 parentName, memberList);
+        aClass.setSourceRange(position, firstColPos,
+                tokens.getLineNum(previousIndex), tokens.getColPos(previousIndex));
+        // the members move with the class
+        memberList.setLineBase(aClass);
+        for (ASTNode member : memberList) {
+            member.setLineBase(aClass);
+        }
         return aClass;
     }
 
@@ -190,36 +517,42 @@ public class Parser
 
 
     private Member parseMember() {
-        Method method;
+        int firstLineNum = currentLineNum;
+        int firstColPos = currentColPos;
+        Member member;
         String type = parseType();
-        int colPos = currentToken.colPos;
+        int colPos = currentColPos;
         String id = parseIdentifier();
         BlockStmt stmt;
-        int position = currentToken.position;
+        int position = currentLineNum;
 
-        if (currentToken.kind == LPAREN) // it is a method
+        if (currentKind == LPAREN) // it is a method
         {
             advance();
             FormalList parameters = parseParameters();
             advanceIfMatches(RPAREN);
             stmt = (BlockStmt) parseBlock();
-            method = new Method(position,colPos, type, id, parameters, stmt.getStmtList());
-            return method;
+            member = new Method(position,colPos, type, id, parameters, stmt.getStmtList());
         }
 
         else {
             Expr init = null;
 
-            if (currentToken.kind == ASSIGN) {
+            if (currentKind == ASSIGN) {
                 advance();
                 init = parseExpression();
             }
 
             advanceIfMatches(SEMICOLON);
 
-            return new Field(position,colPos, type, id, init);
+            member = new Field(position,colPos, type, id, init);
         }
 
+        member.setSourceRange(firstLineNum, firstColPos,
+                tokens.getLineNum(previousIndex), tokens.getColPos(previousIndex));
+        // the nodes inside the member move with it
+        memberLinesVisitor.makeRelative(member);
+        return member;
     }
 
 
@@ -229,7 +562,7 @@ public class Parser
     private Stmt parseStatement() {
         Stmt stmt;
 
-        switch (currentToken.kind) {
+        switch (currentKind) {
             case IF:
                 stmt = parseIf();
                 break;
@@ -261,8 +594,8 @@ public class Parser
 
     //<WhileStmt>::= WHILE ( <Expression> ) <Stmt>
     private Stmt parseWhile() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
 
         advance(); // past "while"
         advanceIfMatches(LPAREN);
@@ -276,13 +609,13 @@ public class Parser
 
     //<ReturnStmt>::= RETURN <Expression> ; | RETURN ;
     private Stmt parseReturn() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Expr expr = null;
 
         advance(); // accept the RETURN token
 
-        if (currentToken.kind != SEMICOLON) {
+        if (currentKind != SEMICOLON) {
             expr = parseExpression();
         }
         advanceIfMatches(SEMICOLON);
@@ -293,7 +626,7 @@ public class Parser
 
     //<BreakStmt>::= BREAK ;
     private Stmt parseBreak() {
-        Stmt stmt = new BreakStmt(currentToken.position, currentToken.colPos);
+        Stmt stmt = new BreakStmt(currentLineNum, currentColPos);
         advance();
         advanceIfMatches(SEMICOLON);
         return stmt;
@@ -302,8 +635,8 @@ public class Parser
 
     //<ExpressionStmt>::= <Expression> ;
     private ExprStmt parseExpressionStmt() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Expr expr = parseExpression();
         advanceIfMatches(SEMICOLON);
         return new ExprStmt(position,colPos, expr);
@@ -314,8 +647,8 @@ public class Parser
     //This makes sure that every local variable is initialized
     private Stmt parseDeclStmt() {
 
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Stmt stmt;
         advance(); // the keyword var
 
@@ -336,8 +669,8 @@ public class Parser
     //<Increment>::= EMPTY | <Expression>
     private Stmt parseFor() {
 
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Expr start = null;
         Expr terminate = null;
         Expr increment = null;
@@ -347,17 +680,17 @@ public class Parser
         advanceIfMatches(LPAREN);
 
         //allow the possibility that start,terminate and increment are null
-        if (currentToken.kind != SEMICOLON) {
+        if (currentKind != SEMICOLON) {
             start = parseExpression();
         }
         advanceIfMatches(SEMICOLON);
 
-        if (currentToken.kind != SEMICOLON) {
+        if (currentKind != SEMICOLON) {
             terminate = parseExpression();
         }
         advanceIfMatches(SEMICOLON);
 
-        if (currentToken.kind != RPAREN) {
+        if (currentKind != RPAREN) {
             increment = parseExpression();
         }
         advanceIfMatches(RPAREN);
@@ -371,15 +704,20 @@ public class Parser
     //<BlockStmt>::=  { <Body> }
     //<Body>::= EMPTY | <Stmt> <Body>
     private Stmt parseBlock() {
-        int colPos = currentToken.colPos;
-        int position = currentToken.position;
+        int colPos = currentColPos;
+        int position = currentLineNum;
         StmtList stmtList = new StmtList(position,colPos);
         advanceIfMatches(LCURLY);
 
-        while (currentToken.kind != RCURLY) {
-            stmtList.addElement(parseStatement());
+        while (currentKind != RCURLY && currentKind != EOF && currentKind != CLASS) {
+            try {
+                stmtList.addElement(parseStatement());
+            } catch (SyntaxError e) {
+                skipToSyncPoint();
+            }
         }
         advanceIfMatches(RCURLY);
+        stmtList.trimToSize();
 
         return new BlockStmt(position, colPos,stmtList);
     }
@@ -388,8 +726,8 @@ public class Parser
     //<IfStmt>::= IF (<Expr>) <Stmt> | IF (<Expr>) <Stmt> ELSE <Stmt>
     private Stmt parseIf() {
 
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Expr condition;
         Stmt thenStmt;
         Stmt elseStmt = null;
@@ -400,7 +738,7 @@ public class Parser
         advanceIfMatches(RPAREN);
         thenStmt = parseStatement();
 
-        if (currentToken.kind == ELSE) {
+        if (currentKind == ELSE) {
             advance();
             elseStmt = parseStatement();
         }
@@ -417,11 +755,11 @@ public class Parser
     // <OptionalAssignment>::=  = <Expression> | EMPTY
     private Expr parseExpression() {
         Expr result;
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
 
         result = parseOrExpr();
-        if (currentToken.kind == ASSIGN && result instanceof VarExpr) {
+        if (currentKind == ASSIGN && result instanceof VarExpr) {
             advance();
             VarExpr lhs = (VarExpr) result;
             Expr lhsRef = lhs.getRef();
@@ -434,7 +772,7 @@ public class Parser
                     ((VarExpr) lhs.getRef()).getName());
             result = new AssignExpr(position,colPos, lhsRefName, lhsName, right);
         }
-        else if (currentToken.kind == ASSIGN && result instanceof ArrayExpr) {
+        else if (currentKind == ASSIGN && result instanceof ArrayExpr) {
             advance();
             ArrayExpr lhs = (ArrayExpr) result;
             Expr lhsRef = lhs.getRef();
@@ -461,12 +799,12 @@ public class Parser
     //<LogicalOR>::= <logicalAND> <LogicalORRest>
     //<LogicalORRest>::= || <LogicalAND> <LogicalORRest> | EMPTY
     private Expr parseOrExpr() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Expr left;
 
         left = parseAndExpr();
-        while (currentToken.spelling.equals("||")) {
+        while (currentSpellingIs("||")) {
             advance();
             Expr right = parseAndExpr();
             left = new BinaryLogicOrExpr(position, colPos,left, right);
@@ -479,10 +817,10 @@ public class Parser
     //<LogicalAND>::=<ComparisonExpr> <LogicalANDRest>
     //<LogicalANDRest>::= && <ComparisonExpr> <LogicalANDRest> | EMPTY
     private Expr parseAndExpr() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Expr left = parseComparisonExpr();
-        while (currentToken.spelling.equals("&&")) {
+        while (currentSpellingIs("&&")) {
             advance();
             Expr right = parseComparisonExpr();
             left = new BinaryLogicAndExpr(position,colPos, left, right);
@@ -496,16 +834,16 @@ public class Parser
     //                     <RelationalExpr>
     //<EqualOrNotEqual>::=   == | !=
     private Expr parseComparisonExpr() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Expr left = parseRelationalExpr();
 
-        if (currentToken.spelling.equals("==")) {
+        if (currentSpellingIs("==")) {
             advance();
             Expr right = parseRelationalExpr();
             left = new BinaryCompEqExpr(position, colPos,left, right);
         }
-        else if (currentToken.spelling.equals("!=")) {
+        else if (currentSpellingIs("!=")) {
             advance();
             Expr right = parseRelationalExpr();
             left = new BinaryCompNeExpr(position,colPos, left, right);
@@ -518,12 +856,12 @@ public class Parser
     //<RelationalExpr>::= <AddExpr> | <AddExpr> <ComparisonOp> <AddExpr>
     //<ComparisonOp>::= < | > | <= | >= | INSTANCEOF
     private Expr parseRelationalExpr() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Expr left, right;
 
         left = parseAddExpr();
-        switch (currentToken.spelling) {
+        switch (currentSpelling()) {
             case "<":
                 advance();
                 right = parseAddExpr();
@@ -553,12 +891,12 @@ public class Parser
     //<AddExpr>::＝ <MultExpr> <MoreMult>
     //<MoreMult>::= + <MultExpr> <MoreMult> | - <MultiExpr> <MoreMult> | EMPTY
     private Expr parseAddExpr() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Expr left = parseMultExpr();
 
-        while (currentToken.kind == PLUSMINUS) {
-            if (currentToken.spelling.equals("+")) {
+        while (currentKind == PLUSMINUS) {
+            if (currentSpellingIs("+")) {
                 advance();
                 Expr right = parseMultExpr();
                 left = new BinaryArithPlusExpr(position, colPos,left, right);
@@ -580,14 +918,14 @@ public class Parser
     //             % <NewCastOrUnary> <MoreNCU> |
     //             EMPTY
     private Expr parseMultExpr() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         Expr left, right;
 
 
         left = parseNewCastOrUnary();
-        while (currentToken.kind == MULDIV) {
-            switch (currentToken.spelling) {
+        while (currentKind == MULDIV) {
+            switch (currentSpelling()) {
                 case "/":
                     advance();
                     right = parseNewCastOrUnary();
@@ -613,7 +951,7 @@ public class Parser
     private Expr parseNewCastOrUnary() {
         Expr result;
 
-        switch (currentToken.kind) {
+        switch (currentKind) {
             case NEW:
                 result = parseNew();
                 break;
@@ -630,12 +968,12 @@ public class Parser
 
     //<NewExpression>::= NEW <Identifier>() | NEW <Identifier> [ <Expression> ]
     private Expr parseNew() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         advance();
 
         String type = parseIdentifier();
-        if (currentToken.kind == LPAREN) {
+        if (currentKind == LPAREN) {
             advance();
             advanceIfMatches(RPAREN);
             return new NewExpr(position, colPos, type);
@@ -653,8 +991,8 @@ public class Parser
     private Expr parseCast() {
 
         Expr castExpression;
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         advance();
 
         advanceIfMatches(LPAREN);
@@ -671,11 +1009,11 @@ public class Parser
     //<UnaryPrefix>::= <PrefixOp> <UnaryPreFix> | <UnaryPostfix>
     //<PrefixOp>::= - | ! | ++ | --
     private Expr parseUnaryPrefix() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
-        Token.Kind kind = currentToken.kind;
+        int position = currentLineNum;
+        int colPos = currentColPos;
+        Token.Kind kind = currentKind;
 
-        if (currentToken.spelling.equals("-") || kind == UNARYDECR || kind == UNARYINCR || kind == UNARYNOT) {
+        if (currentSpellingIs("-") || kind == UNARYDECR || kind == UNARYINCR || kind == UNARYNOT) {
             advance();
             Expr expr = parseUnaryPrefix();
             if (kind == PLUSMINUS) {
@@ -704,15 +1042,15 @@ public class Parser
     private Expr parseUnaryPostfix() {
 
         Expr unary;
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
 
         unary = parsePrimary();
-        if (currentToken.kind == UNARYINCR) {
+        if (currentKind == UNARYINCR) {
             unary = new UnaryIncrExpr(position,colPos, unary, true);
             advance();
         }
-        else if (currentToken.kind == UNARYDECR) {
+        else if (currentKind == UNARYDECR) {
             unary = new UnaryDecrExpr(position, colPos, unary, true);
             advance();
         }
@@ -752,8 +1090,8 @@ public class Parser
      */
     private Expr parsePrimary() {
         Expr primary;
-        int colPos = currentToken.colPos;
-        switch (currentToken.kind) {
+        int colPos = currentColPos;
+        switch (currentKind) {
             case INTCONST:
                 return parseIntConst();
             case BOOLEAN:
@@ -765,20 +1103,20 @@ public class Parser
                 advance();
                 primary = parseExpression();
                 advanceIfMatches(RPAREN);
-                if(currentToken.kind == LPAREN) //cannot have ( expr )( args )
-                    reportSyntacticError(currentToken.position,
+                if(currentKind == LPAREN) //cannot have ( expr )( args )
+                    reportSyntacticError(currentLineNum,
                             "something other than \"(\"",
-                            currentToken.kind.name());
+                            currentKind.name());
                 break;
             default:
                 String id = parseIdentifier();
-                primary = new VarExpr(currentToken.position, currentToken.colPos,null, id);
+                primary = new VarExpr(currentLineNum, currentColPos,null, id);
         }
         // now add the suffixes
-        while (    currentToken.kind == DOT
-                || currentToken.kind == LPAREN && primary instanceof VarExpr
-                || currentToken.kind == LBRACKET) {
-            if (currentToken.kind == LPAREN) {
+        while (    currentKind == DOT
+                || currentKind == LPAREN && primary instanceof VarExpr
+                || currentKind == LBRACKET) {
+            if (currentKind == LPAREN) {
                 advance();
                 ExprList ar = parseArguments();
                 advanceIfMatches(RPAREN);
@@ -786,16 +1124,16 @@ public class Parser
                 primary = new DispatchExpr(primary.getLineNum(),primary.getColPos(), varExpr.getRef(),
                         varExpr.getName(), ar);
             }
-            else if (currentToken.kind == LBRACKET) {
+            else if (currentKind == LBRACKET) {
                 advance();
                 Expr index = parseExpression();
                 advanceIfMatches(RBRACKET);
                 primary = new ArrayExpr(primary.getLineNum(),primary.getColPos(), primary, null, index);
             }
-            else { // currentToken is a DOT
+            else { // the current token is a DOT
                 advance();
                 String id = parseIdentifier();
-                primary = new VarExpr(currentToken.position,currentToken.colPos, primary, id);
+                primary = new VarExpr(currentLineNum,currentColPos, primary, id);
             }
         }
 
@@ -806,20 +1144,21 @@ public class Parser
     //<Arguments> ::= EMPTY | <Expression> <MoreArgs>
     //<MoreArgs> ::= EMPTY | , <Expression> <MoreArgs>
     private ExprList parseArguments() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
         ExprList ar = new ExprList(position,colPos);
 
-        if (currentToken.kind == RPAREN) {
+        if (currentKind == RPAREN) {
             return ar;
         }
         else {
             ar.addElement(parseExpression());
-            while (currentToken.kind != RPAREN) {
+            while (currentKind != RPAREN) {
                 advanceIfMatches(COMMA);
                 ar.addElement(parseExpression());
             }
         }
+        ar.trimToSize();
 
         return ar;
     }
@@ -828,21 +1167,22 @@ public class Parser
     //<Parameters> ::=  EMPTY | <Formal> <MoreFormals>
     //<MoreFormals> ::= EMPTY | , <Formal> <MoreFormals
     private FormalList parseParameters() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
+        int position = currentLineNum;
+        int colPos = currentColPos;
 
         FormalList parameters = new FormalList(position, colPos);
 
-        if (currentToken.kind == RPAREN) {
+        if (currentKind == RPAREN) {
             return parameters;
         }
         else {
             parameters.addElement(parseFormal());
-            while (currentToken.kind != RPAREN) {
+            while (currentKind != RPAREN) {
                 advanceIfMatches(COMMA);
                 parameters.addElement(parseFormal());
             }
         }
+        parameters.trimToSize();
 
         return parameters;
     }
@@ -850,7 +1190,7 @@ public class Parser
 
     //<Formal> ::= <Type> <Identifier>
     private Formal parseFormal() {
-        return new Formal(currentToken.position, currentToken.colPos, parseType(), parseIdentifier());
+        return new Formal(currentLineNum, currentColPos, parseType(), parseIdentifier());
     }
 
 
@@ -859,7 +1199,7 @@ public class Parser
     private String parseType() {
         String id = parseIdentifier();
 
-        if (currentToken.kind == LBRACKET) {
+        if (currentKind == LBRACKET) {
             advance();
             advanceIfMatches(RBRACKET);
             id += "[]";
@@ -874,46 +1214,60 @@ public class Parser
 
 
     private String parseOperator() {
-        String op = currentToken.getSpelling();
+        String op = currentSpelling();
         advance();
         return op;
     }
 
 
     private String parseIdentifier() {
-        String name = currentToken.getSpelling();
+        String name = currentSpelling();
         advanceIfMatches(IDENTIFIER);
         return name;
     }
 
 
     private ConstStringExpr parseStringConst() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
-        String spelling = currentToken.spelling;
+        int position = currentLineNum;
+        int colPos = currentColPos;
+        String spelling = currentSpelling();
         advanceIfMatches(STRCONST);
         return new ConstStringExpr(position,colPos, spelling);
     }
 
 
     private ConstIntExpr parseIntConst() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
-        String spelling = currentToken.spelling;
+        int position = currentLineNum;
+        int colPos = currentColPos;
+        String spelling = currentSpelling();
         advanceIfMatches(INTCONST);
         return new ConstIntExpr(position,colPos, spelling);
     }
 
 
     private ConstBooleanExpr parseBoolean() {
-        int position = currentToken.position;
-        int colPos = currentToken.colPos;
-        String spelling = currentToken.spelling;
+        int position = currentLineNum;
+        int colPos = currentColPos;
+        String spelling = currentSpelling();
         advanceIfMatches(BOOLEAN);
         return new ConstBooleanExpr(position,colPos, spelling);
     }
 
 
+    /**
+     * Thrown when a syntax error has been reported, to unwind the parse to the
+     * point where it recovers.  It has no stack trace since it is only caught.
+     */
+    private static class SyntaxError extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        SyntaxError() {
+            super(null, null, false, false);
+        }
+    }
+
+
     public static void main(String[] args) {
         ErrorHandler errorHandler = new ErrorHandler();
         Parser parser = new Parser(errorHandler);
@@ -35,6 +35,8 @@ import proj16DeGrawHangMarcello.bantam.util.Error;
 import proj16DeGrawHangMarcello.bantam.parser.Parser;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * The <tt>SemanticAnalyzer</tt> class performs semantic analysis.
@@ -94,13 +96,45 @@ public class SemanticAnalyzer
      */
     private final int MAX_NUM_FIELDS = 1500;
 
+    /**
+     * The pool the members of the classes are type checked on, or null to
+     * check them one after another
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * What type checking found for each field and method at the last
+     * analysis by reanalyze().  The members are compared by identity, since
+     * Parser.reparse() keeps the nodes of the members an edit did not touch.
+     */
+    private IdentityHashMap<Member, MemberCheck> memberChecks = new IdentityHashMap<>();
+
+    /**
+     * The declarations of each class at the last analysis by reanalyze(), or
+     * null if analyze() was called since
+     */
+    private HashMap<String, String> classDeclarations;
+
     /**
      * SemanticAnalyzer constructor
      *
      * @param errorHandler the ErrorHandler to use for reporting errors
      */
     public SemanticAnalyzer(ErrorHandler errorHandler) {
+        this(errorHandler, null);
+    }
+
+    /**
+     * SemanticAnalyzer constructor for an analyzer that type checks the fields
+     * and methods of the classes in parallel.  The errors and the annotated
+     * AST are the same as when they are checked one after another.
+     *
+     * @param errorHandler the ErrorHandler to use for reporting errors
+     * @param pool         the pool to type check on, or null to check sequentially
+     */
+    public SemanticAnalyzer(ErrorHandler errorHandler, ForkJoinPool pool) {
         this.errorHandler = errorHandler;
+        this.pool = pool;
     }
 
     /**
@@ -120,6 +154,14 @@ public class SemanticAnalyzer
         return this.classes;
     }
 
+    /**
+     * returns the root of the class hierarchy tree built by the last analysis
+     * @return root
+     */
+    public ClassTreeNode getRoot(){
+        return this.root;
+    }
+
     /**
      * Analyze the AST checking for semantic errors and annotating the tree
      * Also builds an auxiliary class hierarchy tree
@@ -137,8 +179,145 @@ public class SemanticAnalyzer
      * See the lab manual for more details on each of these steps.
      */
     public ClassTreeNode analyze(Program program) {
+        // a later reanalyze() must check everything again
+        memberChecks.clear();
+        classDeclarations = null;
+
+        //steps 1-4
+        analyzeDeclarations(program);
+
+        //step 5:  do type-checking for all expressions.  This includes checking for:
+        //         1. two local variables of the same name with overlapping scopes
+        //         2. break statements not in loops
+        //         3. calling a non-existent method
+        //         4. method calls with the wrong number or types of arguments
+        //         5. use of an undeclared variable
+        doTypeChecking();
+
+        // if errors were found, throw an exception, indicating failure
+        if (errorHandler.errorsFound()) {
+            throw new CompilationException("Checker errors found.");
+        }
+
+        //step 6: store the location of each variable in the nodes that name it,
+        //        so the later phases need not look the names up again
+        new VarResolverVisitor().resolve(program, root);
+
+        return root;
+    }
+
+    /**
+     * Analyzes a program again after an edit, as analyze() does, but type
+     * checks only the fields and methods that could check differently than
+     * at the last call: those that are new since then, as Parser.reparse()
+     * makes for the members it parses again, and those that looked up a class
+     * whose declarations or whose superclasses' declarations changed.  The
+     * errors found last time for every other member are registered again,
+     * moved to the member's current line, and its annotations are kept.  The
+     * class hierarchy and the symbol tables are always built again, which
+     * takes little time next to checking the bodies of the members.
+     * <p>
+     * The first call after analyze() or after creating the analyzer checks
+     * every member.  The errors are always the same as those of analyze(),
+     * and so is the annotated AST once the program checks without errors.
+     *
+     * @param program root of the AST, usually the one given to the last call
+     *                as updated by Parser.reparse()
+     * @return root of the class hierarchy tree (needed for code generation)
+     */
+    public ClassTreeNode reanalyze(Program program) {
+        analyzeDeclarations(program);
+
+        // find the classes whose members could see other declarations now:
+        // those whose declarations changed, and their subclasses
+        HashMap<String, String> declarations = getClassDeclarations();
+        Set<String> changedClasses = new HashSet<>();
+        if (classDeclarations != null) {
+            for (String name : declarations.keySet()) {
+                if (!declarations.get(name).equals(classDeclarations.get(name))) {
+                    changedClasses.add(name);
+                }
+            }
+            for (String name : classDeclarations.keySet()) {
+                if (!declarations.containsKey(name)) {
+                    changedClasses.add(name);
+                }
+            }
+            Set<String> subclasses = new HashSet<>();
+            for (ClassTreeNode treeNode : classMap.values()) {
+                int steps = 0;
+                for (ClassTreeNode node = treeNode.getParent(); node != null
+                        && steps <= classMap.size(); node = node.getParent(), steps++) {
+                    if (changedClasses.contains(node.getName())) {
+                        subclasses.add(treeNode.getName());
+                        break;
+                    }
+                }
+            }
+            changedClasses.addAll(subclasses);
+        }
+        classDeclarations = declarations;
+
+        // check again the members that could check differently, and forget
+        // the members that are no longer in the program
+        IdentityHashMap<Member, MemberCheck> checks = new IdentityHashMap<>();
+        List<Class_> uncheckedClasses = new ArrayList<>();
+        List<Member> uncheckedMembers = new ArrayList<>();
+        for (ASTNode classNode : program.getClassList()) {
+            for (ASTNode member : ((Class_) classNode).getMemberList()) {
+                MemberCheck check = memberChecks.get(member);
+                if (check == null || check.classNode != classNode
+                        || !Collections.disjoint(check.classesUsed, changedClasses)) {
+                    uncheckedClasses.add((Class_) classNode);
+                    uncheckedMembers.add((Member) member);
+                }
+                else {
+                    checks.put((Member) member, check);
+                }
+            }
+        }
+        MemberCheck[] newChecks = checkMembers(uncheckedClasses, uncheckedMembers);
+        for (int i = 0; i < newChecks.length; i++) {
+            checks.put(uncheckedMembers.get(i), newChecks[i]);
+        }
+        memberChecks = checks;
+
+        // register the errors of all the members in the order they appear in
+        // the program, as checking them one after another would
+        for (ASTNode classNode : program.getClassList()) {
+            for (ASTNode member : ((Class_) classNode).getMemberList()) {
+                registerErrors(checks.get(member), (Member) member);
+            }
+        }
+        if (errorHandler.errorsFound()) {
+            throw new CompilationException("Checker errors found.");
+        }
+
+        // resolve the variables of the members checked since they were last resolved
+        VarResolverVisitor resolver = new VarResolverVisitor();
+        for (ASTNode classNode : program.getClassList()) {
+            for (ASTNode member : ((Class_) classNode).getMemberList()) {
+                MemberCheck check = checks.get(member);
+                if (!check.resolved) {
+                    resolver.resolveMember(root, (Class_) classNode, (Member) member);
+                    check.resolved = true;
+                }
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Does steps 1 to 4 of the analysis, which build the class hierarchy tree
+     * and the symbol tables of the classes from the declarations alone
+     *
+     * @param program root of the AST
+     */
+    private void analyzeDeclarations(Program program) {
         this.program = program;
         this.classMap.clear();
+        this.classFieldsAndMethods.clear();
+        this.classes.clear();
 
         // step 1:  add built-in classes to classMap
         addBuiltins();
@@ -159,21 +338,54 @@ public class SemanticAnalyzer
 
         //step 4: check whether there is a Main class with a main method.
         checkForMainClassWithMainMethod();
+    }
 
-        //step 5:  do type-checking for all expressions.  This includes checking for:
-        //         1. two local variables of the same name with overlapping scopes
-        //         2. break statements not in loops
-        //         3. calling a non-existent method
-        //         4. method calls with the wrong number or types of arguments
-        //         5. use of an undeclared variable
-        doTypeChecking();
-
-        // if errors were found, throw an exception, indicating failure
-        if (errorHandler.errorsFound()) {
-            throw new CompilationException("Checker errors found.");
+    /**
+     * @return for each class, a description of its superclass in the class
+     *         hierarchy tree and of the names and types of its fields and
+     *         methods.  A member's check depends on nothing outside the member
+     *         but these declarations of the classes it looks up and of their
+     *         superclasses.
+     */
+    private HashMap<String, String> getClassDeclarations() {
+        HashMap<String, String> declarations = new HashMap<>();
+        for (ClassTreeNode treeNode : classMap.values()) {
+            StringBuilder description = new StringBuilder();
+            description.append(treeNode.getParent() == null ? "" : treeNode.getParent().getName())
+                       .append(" {");
+            for (ASTNode member : treeNode.getASTNode().getMemberList()) {
+                if (member instanceof Field) {
+                    description.append(((Field) member).getType()).append(' ')
+                               .append(((Field) member).getName()).append("; ");
+                }
+                else {
+                    Method method = (Method) member;
+                    description.append(method.getReturnType()).append(' ')
+                               .append(method.getName()).append('(');
+                    for (ASTNode formal : method.getFormalList()) {
+                        description.append(((Formal) formal).getType()).append(',');
+                    }
+                    description.append("); ");
+                }
+            }
+            declarations.put(treeNode.getName(), description.append('}').toString());
         }
+        return declarations;
+    }
 
-        return root;
+    /**
+     * Registers the errors type checking found in a member, moved by the
+     * number of lines the member has moved since
+     *
+     * @param check  the result of checking the member
+     * @param member the member
+     */
+    private void registerErrors(MemberCheck check, Member member) {
+        if (!check.errors.errorsFound()) {
+            return;
+        }
+        // in the order they were registered, as checking the member again would
+        errorHandler.registerAll(check.errors, member.getLineNum() - check.lineNum);
     }
 
     public ErrorHandler getErrorHandler() { return errorHandler; }
@@ -182,10 +394,128 @@ public class SemanticAnalyzer
      * Instantiates the typechecker visitor and begins visitation
      */
     private void doTypeChecking() {
+        if (pool != null) {
+            doParallelTypeChecking();
+            return;
+        }
         TypeCheckerVisitor visitor = new TypeCheckerVisitor(errorHandler, root);
         visitor.visit(program);
     }
 
+    /**
+     * Type checks each field and method on its own task, with its own
+     * TypeCheckerVisitor and ErrorHandler.  The tasks only read the class
+     * tree and symbol tables, which are complete by now, and each one
+     * annotates only the nodes of its own member.  The errors of the members
+     * are then registered in the order the members appear in the program,
+     * just as one visitor checking them in that order would have.
+     */
+    private void doParallelTypeChecking() {
+        List<Class_> memberClasses = new ArrayList<>();
+        List<Member> members = new ArrayList<>();
+        for (ASTNode classNode : program.getClassList()) {
+            for (ASTNode member : ((Class_) classNode).getMemberList()) {
+                memberClasses.add((Class_) classNode);
+                members.add((Member) member);
+            }
+        }
+
+        for (MemberCheck check : checkMembers(memberClasses, members)) {
+            errorHandler.registerAll(check.errors);
+        }
+    }
+
+    /**
+     * Type checks some members on their own, on the pool if there is one
+     *
+     * @param memberClasses the class of each member
+     * @param members       the members
+     * @return what was found for each member
+     */
+    private MemberCheck[] checkMembers(List<Class_> memberClasses, List<Member> members) {
+        MemberCheck[] checks = new MemberCheck[members.size()];
+        if (pool == null) {
+            for (int i = 0; i < checks.length; i++) {
+                checks[i] = checkMember(memberClasses.get(i), members.get(i));
+            }
+            return checks;
+        }
+
+        // number and lay out every class tree now, so the tasks find them ready
+        for (ClassTreeNode treeNode : classMap.values()) {
+            treeNode.getLayout();
+        }
+        pool.invoke(new CheckTask(memberClasses, members, checks, 0, checks.length));
+        return checks;
+    }
+
+    /**
+     * Type checks one member with its own TypeCheckerVisitor and ErrorHandler
+     *
+     * @param classNode the class the member belongs to
+     * @param member    the field or method
+     * @return what was found
+     */
+    private MemberCheck checkMember(Class_ classNode, Member member) {
+        MemberCheck check = new MemberCheck(classNode, member.getLineNum());
+        new TypeCheckerVisitor(check.errors, root, check.classesUsed)
+                .checkMember(classNode, member);
+        return check;
+    }
+
+    /**
+     * What type checking one field or method found
+     */
+    private static class MemberCheck
+    {
+        private final Class_ classNode;  // the class of the member
+        private final int lineNum;  // the line of the member when it was checked
+        private final ErrorHandler errors = new ErrorHandler();
+        private final Set<String> classesUsed = new HashSet<>();  // the classes looked up
+        private boolean resolved;  // whether its variables were resolved since
+
+        MemberCheck(Class_ classNode, int lineNum) {
+            this.classNode = classNode;
+            this.lineNum = lineNum;
+        }
+    }
+
+    /**
+     * Type checks a range of the members of the program, splitting the range
+     * in half until each task has a single member
+     */
+    @SuppressWarnings("serial")  // only run in this process, never serialized
+    private class CheckTask extends RecursiveAction
+    {
+        private List<Class_> memberClasses;
+        private List<Member> members;
+        private MemberCheck[] checks;
+        private int low;
+        private int high;
+
+        CheckTask(List<Class_> memberClasses, List<Member> members,
+                  MemberCheck[] checks, int low, int high) {
+            this.memberClasses = memberClasses;
+            this.members = members;
+            this.checks = checks;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low <= 1) {
+                if (low < high) {
+                    checks[low] = checkMember(memberClasses.get(low), members.get(low));
+                }
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            invokeAll(new CheckTask(memberClasses, members, checks, low, mid),
+                      new CheckTask(memberClasses, members, checks, mid, high));
+        }
+    }
+
     /**
      * Checks for a Main class (or child class of Main) with a void main() method with no parameters.
      */
@@ -422,7 +752,7 @@ public class SemanticAnalyzer
     }
 
     /**
-     * takes an array of file names as input,
+     * takes an array of file names as input, optionally after -parallel,
      * loops through files and scan, parses and checks each one,
      * prints errors to the console
      * @param args an array of file names
@@ -430,9 +760,12 @@ public class SemanticAnalyzer
     public static void main(String[] args) {
         ErrorHandler errorHandler = new ErrorHandler();
         Parser parser = new Parser(errorHandler);
-        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler);
+        // with -parallel, the members are checked on the common fork-join pool
+        boolean parallel = args.length > 0 && args[0].equals("-parallel");
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(errorHandler,
+                parallel ? ForkJoinPool.commonPool() : null);
 
-        for (String inFile : args) {
+        for (String inFile : parallel ? Arrays.copyOfRange(args, 1, args.length) : args) {
             System.out.println("\n========== Results for " + inFile + " =============");
             try {
                 errorHandler.clear();
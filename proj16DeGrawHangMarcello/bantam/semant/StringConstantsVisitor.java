@@ -8,19 +8,22 @@
 
 package proj16DeGrawHangMarcello.bantam.semant;
 
+import proj16DeGrawHangMarcello.bantam.ast.ASTNode;
 import proj16DeGrawHangMarcello.bantam.ast.ConstStringExpr;
-import proj16DeGrawHangMarcello.bantam.ast.FormalList;
 import proj16DeGrawHangMarcello.bantam.ast.Program;
-import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
+import proj16DeGrawHangMarcello.bantam.visitor.Pass;
+import proj16DeGrawHangMarcello.bantam.visitor.PassManager;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * A subclass of the Visitor class, has the public method getStringConstants
+ * A Pass that collects the string constants of a program, has the public
+ * method getStringConstants.  It can be run on its own by
+ * getStringConstants(Program), or together with other passes by a PassManager.
  * @author Lucas DeGraw
  */
-public class StringConstantsVisitor extends Visitor {
+public class StringConstantsVisitor extends Pass {
 
     // create the map of (StringConstant_#, stringConstantValue) pairs
     private HashMap<String,String> stringConstantsMap;
@@ -32,41 +35,52 @@ public class StringConstantsVisitor extends Visitor {
      * @return the HashMap of string constants
      */
     public Map<String,String> getStringConstants(Program ast) {
-        stringConstantsMap = new HashMap<>();
-
         // traverse the abstract syntax tree
-        ast.accept(this);
+        new PassManager().add(this).run(ast);
 
         return stringConstantsMap;
     }
 
+    /**
+     * @return the map of string constants found by the last run of this pass
+     */
+    public Map<String,String> getStringConstants() {
+        return stringConstantsMap;
+    }
+
+    /**
+     * starts a new map for the program
+     *
+     * @param program the root of the AST
+     */
+    @Override
+    public void start(Program program) {
+        stringConstantsMap = new HashMap<>();
+    }
+
     /**
      * each time a ConstStringExpr node is found during the traversal,
-     * this method is called to visit the node
+     * this method is called to add it to the map
      *
-     * @param node the string constant expression node
-     * @return the result of the traversal
+     * @param node the node being entered
      */
-    public Object visit(ConstStringExpr node) {
+    @Override
+    public void enter(ASTNode node) {
+        if (!(node instanceof ConstStringExpr)) {
+            return;
+        }
 
         // get num constants in map
         int numStringsInMap = stringConstantsMap.size();
 
         // build name
-        String name = node.getConstant();
+        String name = ((ConstStringExpr) node).getConstant();
 
         // get string value from ConstStringExpr node
         String value = "StringConstant_" + Integer.toString(numStringsInMap);
 
         // add name, value pair to map
         stringConstantsMap.put(name, value);
-
-        return null;
-    }
-
-
-    public Object visit(FormalList list){
-        return null;
     }
 
 }
@@ -15,6 +15,7 @@ import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.Stack;
 
 /**
@@ -29,13 +30,41 @@ public class TypeCheckerVisitor extends Visitor
     private SymbolTable currentSymbolTable;
     private int currentClassFieldLevel; //level of class fields in currentSymbolTable
     private Stack<Stmt> currentLoop;
+    private Set<String> classesUsed; //names of the classes looked up, or null
 
     public TypeCheckerVisitor(ErrorHandler errorHandler, ClassTreeNode root) {
+        this(errorHandler, root, null);
+    }
+
+    /**
+     * creates a checker that also records the name of every class it looks
+     * up, whether or not the class exists, so that the caller knows which
+     * classes' declarations the result depends on
+     *
+     * @param errorHandler the ErrorHandler to use for reporting errors
+     * @param root         the root of the class hierarchy tree
+     * @param classesUsed  the set the names are added to, or null
+     */
+    TypeCheckerVisitor(ErrorHandler errorHandler, ClassTreeNode root, Set<String> classesUsed) {
         this.errorHandler = errorHandler;
         this.currentClass = root; // the Object class
         this.currentMethod = null;
         this.currentSymbolTable = null;
         this.currentLoop = new Stack<>();
+        this.classesUsed = classesUsed;
+    }
+
+    /**
+     * looks up a class by name, noting that the check used it
+     *
+     * @param className the name of the class
+     * @return the class's tree node, or null if there is no such class
+     */
+    private ClassTreeNode lookupClass(String className) {
+        if (classesUsed != null) {
+            classesUsed.add(className);
+        }
+        return currentClass.lookupClass(className);
     }
 
     /*
@@ -68,15 +97,9 @@ public class TypeCheckerVisitor extends Visitor
             return t2.endsWith("[]") && t1.endsWith("[]") && isSubtype(t1.substring(0,
                     t1.length() - 2), t2.substring(0, t2.length() - 2));
         }
-        ClassTreeNode t1Node = currentClass.lookupClass(t1);
-        ClassTreeNode t2Node = currentClass.lookupClass(t2);
-        while (t1Node != null) {
-            if (t1Node == t2Node) {
-                return true;
-            }
-            t1Node = t1Node.getParent();
-        }
-        return false;
+        ClassTreeNode t1Node = lookupClass(t1);
+        ClassTreeNode t2Node = lookupClass(t2);
+        return t1Node != null && t2Node != null && t1Node.isSubclassOf(t2Node);
     }
 
     private boolean isPrimitiveType(String t2) {
@@ -84,7 +107,7 @@ public class TypeCheckerVisitor extends Visitor
     }
 
     private boolean typeHasBeenDeclared(String type) {
-        return isPrimitiveType(type) || currentClass.lookupClass(type) != null
+        return isPrimitiveType(type) || lookupClass(type) != null
                 || type.endsWith("[]") && typeHasBeenDeclared(type.substring(0, type.length() - 2));
     }
 
@@ -101,14 +124,34 @@ public class TypeCheckerVisitor extends Visitor
      * @return result of the visit
      */
     public Object visit(Class_ node) {
-        // set the currentClass to this class
-        currentClass = currentClass.lookupClass(node.getName());
-        currentSymbolTable = currentClass.getVarSymbolTable();
-        currentClassFieldLevel = currentSymbolTable.getCurrScopeLevel();
+        enterClass(node);
         node.getMemberList().accept(this);
         return null;
     }
 
+    /**
+     * Checks one field or method of a class on its own, as the parallel
+     * checker does for each member
+     *
+     * @param classNode the class the member belongs to
+     * @param member    the field or method
+     */
+    void checkMember(Class_ classNode, Member member) {
+        enterClass(classNode);
+        member.accept(this);
+    }
+
+    /**
+     * sets the currentClass to a class and the currentSymbolTable to its fields
+     *
+     * @param node the class node
+     */
+    private void enterClass(Class_ node) {
+        currentClass = lookupClass(node.getName());
+        currentSymbolTable = currentClass.getVarSymbolTable();
+        currentClassFieldLevel = currentSymbolTable.getCurrScopeLevel();
+    }
+
     /**
      * Visit a field node
      *
@@ -149,7 +192,11 @@ public class TypeCheckerVisitor extends Visitor
                     " of the method " + node.getName() + " is undefined.");
         }
 
-        //create a new scope for the method
+        //create a new scope for the method, in a table of its own whose parent
+        //is the class's table, so that checking never changes the class's table
+        SymbolTable classSymbolTable = currentSymbolTable;
+        currentSymbolTable = new SymbolTable();
+        currentSymbolTable.setParent(classSymbolTable);
         currentSymbolTable.enterScope();
         currentMethod = node;
         node.getFormalList().accept(this);
@@ -158,18 +205,16 @@ public class TypeCheckerVisitor extends Visitor
         //check that non-void methods end with a return stmt
         if(! node.getReturnType().equals("void")) {
             StmtList sList = node.getStmtList();
-            if( sList.getSize() == 0) {
-                registerError(node, "Methods with non-void return type "
-                        + "must end with a return statement.");
-            }
-            ASTNode stmt = sList.get(sList.getSize()-1);
-            if( ! (stmt instanceof ReturnStmt) ) {
+            // the body may be empty, as when the parser recovered from
+            // errors in all of its statements
+            if( sList.getSize() == 0
+                    || ! (sList.get(sList.getSize()-1) instanceof ReturnStmt) ) {
                 registerError(node, "Methods with non-void return type "
                         + "must end with a return statement.");
             }
         }
         currentMethod = null;
-        currentSymbolTable.exitScope();
+        currentSymbolTable = classSymbolTable;
         return null;
     }
 
@@ -208,10 +253,8 @@ public class TypeCheckerVisitor extends Visitor
         }
 
         //check that there are no vars already declared with this name in the curr method
-        SymbolTable clone = currentSymbolTable.clone();
-        clone.setParent(null);
-        int level = clone.getScopeLevel(node.getName());
-        if (level > 1) //it's not a field
+        int level = currentSymbolTable.getLocalScopeLevel(node.getName());
+        if (level > 0) //it's in the method's own table, so it's not a field
         {
             registerError(node,"There is already a local variable with the name " + node.getName());
         }
@@ -355,7 +398,7 @@ public class TypeCheckerVisitor extends Visitor
         if (node.getRefExpr() != null) {
             node.getRefExpr().accept(this);
             String className = node.getRefExpr().getExprType();
-            classOfMethod = currentClass.lookupClass(className);
+            classOfMethod = lookupClass(className);
             if (classOfMethod == null) {
                 registerError(node,"The method " + node.getMethodName() +
                         " is supposed to be in class " + className +
@@ -431,7 +474,7 @@ public class TypeCheckerVisitor extends Visitor
      * @return the type of the expression
      */
     public Object visit(NewExpr node) {
-        if (currentClass.lookupClass(node.getType()) == null) {
+        if (lookupClass(node.getType()) == null) {
             registerError(node,"The type " + node.getType() + " does not exist.");
             node.setExprType("Object"); // to allow analysis to continue
         }
@@ -466,7 +509,7 @@ public class TypeCheckerVisitor extends Visitor
      * @return the type of the expression
      */
     public Object visit(InstanceofExpr node) {
-        if (currentClass.lookupClass(node.getType()) == null) {
+        if (lookupClass(node.getType()) == null) {
             registerError(node,"The reference type " + node.getType() + " does not exist.");
         }
         node.getExpr().accept(this);
@@ -491,7 +534,7 @@ public class TypeCheckerVisitor extends Visitor
      * @return the type of the expression
      */
     public Object visit(CastExpr node) {
-        if (currentClass.lookupClass(node.getType()) == null) {
+        if (lookupClass(node.getType()) == null) {
             registerError(node,"The type " + node.getType() + " does not exist.");
         }
         node.getExpr().accept(this);
@@ -542,11 +585,11 @@ public class TypeCheckerVisitor extends Visitor
                 registerError(node,"The identifier " + refName + " was never declared.");
                 refVarTypeName = "Object";
             }
-            ClassTreeNode refVarType = currentClass.lookupClass(refVarTypeName);
+            ClassTreeNode refVarType = lookupClass(refVarTypeName);
             if (refVarType == null) {
                 registerError(node,"The identifier " + refVarTypeName + " is not the name of " +
                                 "a declared or built-in type.");
-                refVarType = currentClass.lookupClass("Object");
+                refVarType = lookupClass("Object");
             }
             SymbolTable refTable = refVarType.getVarSymbolTable();
             varType = (String) refTable.lookup(varName);
@@ -605,11 +648,11 @@ public class TypeCheckerVisitor extends Visitor
                 registerError(node,"The identifier " + refName + " was never declared.");
                 refVarTypeName = "Object"; // to allow us to continue
             }
-            ClassTreeNode refVarType = currentClass.lookupClass(refVarTypeName);
+            ClassTreeNode refVarType = lookupClass(refVarTypeName);
             if (refVarType == null) {
                 registerError(node,"The identifier " + refVarTypeName +
                         " is not the name of a declared or built-in type.");
-                refVarType = currentClass.lookupClass("Object");  // to allow us to continue
+                refVarType = lookupClass("Object");  // to allow us to continue
             }
             SymbolTable refTable = refVarType.getVarSymbolTable();
             varType = (String) refTable.lookup(varName);
@@ -684,7 +727,7 @@ public class TypeCheckerVisitor extends Visitor
                 varType = "Object";
             }
             else {
-                ClassTreeNode refType = currentClass.lookupClass(refTypeName);
+                ClassTreeNode refType = lookupClass(refTypeName);
                 SymbolTable refTable = refType.getVarSymbolTable();
                 int refFieldLevel = getClassFieldLevel(refType);
                 varType = (String) refTable.lookup(varName, refFieldLevel-1); //check if it is a field
@@ -701,12 +744,7 @@ public class TypeCheckerVisitor extends Visitor
     }
 
     private int getClassFieldLevel(ClassTreeNode node) {
-        int level = 1;
-        while(node.getParent() != null) {
-            level++;
-            node = node.getParent();
-        }
-        return level;
+        return node.getDepth() + 1;
     }
 
     /**
@@ -0,0 +1,309 @@
+/*
+ * File: VarResolverVisitor.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.semant;
+
+import proj16DeGrawHangMarcello.bantam.ast.*;
+import proj16DeGrawHangMarcello.bantam.util.ClassLayout;
+import proj16DeGrawHangMarcello.bantam.util.ClassTreeNode;
+import proj16DeGrawHangMarcello.bantam.util.SymbolTable;
+import proj16DeGrawHangMarcello.bantam.visitor.Visitor;
+
+import java.util.function.Consumer;
+
+/**
+ * Resolves every variable named in a checked program to its Location and
+ * stores it in the node naming it.  Parameters are numbered from 0 in the
+ * order of the formal list, and the locals of a method are given slots from 0
+ * in the order they are declared.  A field is given its byte offset within an
+ * object of the class, from the class's ClassLayout.
+ * <p>
+ * Names are resolved the way the TypeCheckerVisitor looks them up, so this
+ * pass is only run on programs that checked without errors.
+ */
+public class VarResolverVisitor extends Visitor
+{
+    private ClassTreeNode currentClass;
+    private SymbolTable locals;
+    private int numLocals;
+
+    /**
+     * Resolves the variables of a program that checked without errors
+     *
+     * @param program the root of the AST
+     * @param root    the root of the class hierarchy tree
+     */
+    public void resolve(Program program, ClassTreeNode root) {
+        currentClass = root;
+        program.accept(this);
+    }
+
+    /**
+     * Resolves the variables of one field or method of a program that
+     * checked without errors
+     *
+     * @param root      the root of the class hierarchy tree
+     * @param classNode the class the member belongs to
+     * @param member    the field or method
+     */
+    void resolveMember(ClassTreeNode root, Class_ classNode, Member member) {
+        currentClass = root.lookupClass(classNode.getName());
+        member.accept(this);
+    }
+
+    /**
+     * Finds the location of a field of a class or its superclasses
+     *
+     * @param className the name of the class, or null if there is none
+     * @param name      the name of the field
+     * @return the location, or null if the class has no such field
+     */
+    private Location lookupField(String className, String name) {
+        if (className == null || className.endsWith("[]")) {
+            return null;
+        }
+        ClassTreeNode classNode = currentClass.lookupClass(className);
+        return classNode == null ? null : getFieldLocation(classNode, name);
+    }
+
+    /**
+     * @param classNode a class
+     * @param name      the name of a field
+     * @return the location of the field in an object of the class, or null
+     *         if the class has no such field
+     */
+    private Location getFieldLocation(ClassTreeNode classNode, String name) {
+        ClassLayout layout = classNode.getLayout();
+        int index = layout.getFieldIndex(name);
+        if (index < 0) {
+            return null;
+        }
+        return new Location(Location.Kind.FIELD, layout.getFieldOffset(index),
+                layout.getField(index).getType());
+    }
+
+    /**
+     * Finds the location of a name used without a reference object: a local
+     * or parameter of the method, or else a field of the current class
+     *
+     * @param name the name of the variable
+     * @return the location, or null if there is no such variable
+     */
+    private Location lookup(String name) {
+        Location location = locals == null ? null : (Location) locals.lookup(name);
+        return location != null ? location : getFieldLocation(currentClass, name);
+    }
+
+    /**
+     * @param refName     the reference name of an assignment
+     * @param refLocation the location of the reference name if it is a variable
+     * @return the name of the class whose fields the reference name selects
+     *         from, or null if it is not known
+     */
+    private String getRefClassName(String refName, Location refLocation) {
+        if (refName == null || refName.equals("this")) {
+            return currentClass.getName();
+        }
+        else if (refName.equals("super")) {
+            return currentClass.getParent().getName();
+        }
+        return refLocation == null ? null : refLocation.getType();
+    }
+
+    /**
+     * Visit a class node
+     *
+     * @param node the class node
+     * @return result of the visit
+     */
+    public Object visit(Class_ node) {
+        currentClass = currentClass.lookupClass(node.getName());
+        node.getMemberList().accept(this);
+        return null;
+    }
+
+    /**
+     * Visit a method node
+     *
+     * @param node the method node
+     * @return result of the visit
+     */
+    public Object visit(Method node) {
+        locals = new SymbolTable();
+        locals.enterScope();
+        numLocals = 0;
+        int index = 0;
+        for (ASTNode formal : node.getFormalList()) {
+            locals.add(((Formal) formal).getName(), new Location(Location.Kind.PARAM,
+                    index++, ((Formal) formal).getType()));
+        }
+        node.getStmtList().accept(this);
+        locals = null;
+        return null;
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return result of the visit
+     */
+    public Object visit(DeclStmt node) {
+        node.getInit().accept(this);
+        Location location = new Location(Location.Kind.LOCAL, numLocals++, node.getType());
+        node.setLocation(location);
+        locals.add(node.getName(), location);
+        return null;
+    }
+
+    /**
+     * Visit an if statement node
+     *
+     * @param node the if statement node
+     * @return result of the visit
+     */
+    public Object visit(IfStmt node) {
+        node.getPredExpr().accept(this);
+        locals.enterScope();
+        node.getThenStmt().accept(this);
+        locals.exitScope();
+        if (node.getElseStmt() != null) {
+            locals.enterScope();
+            node.getElseStmt().accept(this);
+            locals.exitScope();
+        }
+        return null;
+    }
+
+    /**
+     * Visit a while statement node
+     *
+     * @param node the while statement node
+     * @return result of the visit
+     */
+    public Object visit(WhileStmt node) {
+        node.getPredExpr().accept(this);
+        locals.enterScope();
+        node.getBodyStmt().accept(this);
+        locals.exitScope();
+        return null;
+    }
+
+    /**
+     * Visit a for statement node
+     *
+     * @param node the for statement node
+     * @return result of the visit
+     */
+    public Object visit(ForStmt node) {
+        if (node.getInitExpr() != null) {
+            node.getInitExpr().accept(this);
+        }
+        if (node.getPredExpr() != null) {
+            node.getPredExpr().accept(this);
+        }
+        if (node.getUpdateExpr() != null) {
+            node.getUpdateExpr().accept(this);
+        }
+        locals.enterScope();
+        node.getBodyStmt().accept(this);
+        locals.exitScope();
+        return null;
+    }
+
+    /**
+     * Visit a block statement node
+     *
+     * @param node the block statement node
+     * @return result of the visit
+     */
+    public Object visit(BlockStmt node) {
+        locals.enterScope();
+        node.getStmtList().accept(this);
+        locals.exitScope();
+        return null;
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return result of the visit
+     */
+    public Object visit(AssignExpr node) {
+        resolveAssignment(node.getRefName(), node.getName(), node::setRefLocation,
+                node::setLocation);
+        node.getExpr().accept(this);
+        return null;
+    }
+
+    /**
+     * Visit an array assignment expression node
+     *
+     * @param node the array assignment expression node
+     * @return result of the visit
+     */
+    public Object visit(ArrayAssignExpr node) {
+        resolveAssignment(node.getRefName(), node.getName(), node::setRefLocation,
+                node::setLocation);
+        node.getIndex().accept(this);
+        node.getExpr().accept(this);
+        return null;
+    }
+
+    /**
+     * Resolves the variable assigned to by an assignment or array assignment
+     *
+     * @param refName        the reference name, or null if there is none
+     * @param name           the name of the variable assigned to
+     * @param setRefLocation stores the location of the reference variable
+     * @param setLocation    stores the location of the variable assigned to
+     */
+    private void resolveAssignment(String refName, String name,
+                                   Consumer<Location> setRefLocation,
+                                   Consumer<Location> setLocation) {
+        if (refName == null) {
+            setLocation.accept(lookup(name));
+            return;
+        }
+        Location refLocation = null;
+        if (!refName.equals("this") && !refName.equals("super")) {
+            refLocation = lookup(refName);
+            setRefLocation.accept(refLocation);
+        }
+        setLocation.accept(lookupField(getRefClassName(refName, refLocation), name));
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return result of the visit
+     */
+    public Object visit(VarExpr node) {
+        String name = node.getName();
+        Expr ref = node.getRef();
+        if (ref == null) {
+            if (!name.equals("null") && !name.equals("this") && !name.equals("super")) {
+                node.setLocation(lookup(name));
+            }
+        }
+        else if (ref instanceof VarExpr && ((VarExpr) ref).getRef() == null
+                && ((VarExpr) ref).getName().equals("this")) {
+            node.setLocation(lookupField(currentClass.getName(), name));
+        }
+        else if (ref instanceof VarExpr && ((VarExpr) ref).getRef() == null
+                && ((VarExpr) ref).getName().equals("super")) {
+            node.setLocation(lookupField(currentClass.getParent().getName(), name));
+        }
+        else {
+            ref.accept(this);
+            node.setLocation(lookupField(ref.getExprType(), name));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * File: ClassLayout.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.util;
+
+import proj16DeGrawHangMarcello.bantam.ast.ASTNode;
+import proj16DeGrawHangMarcello.bantam.ast.Field;
+import proj16DeGrawHangMarcello.bantam.ast.Method;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+
+/**
+ * The layout of the objects and the dispatch table of one class.  An object
+ * holds the header words and then one word for each field, the inherited
+ * fields first, in the order they are declared.  The dispatch table holds one
+ * slot for each method, the inherited methods first, and a method that
+ * overrides an inherited one takes the inherited method's slot.
+ * <p>
+ * The layouts of all the classes of a tree are computed together by layOut(),
+ * in one walk down from the root in which each class starts from a copy of
+ * its parent's arrays.  Get the layout of a class from ClassTreeNode.getLayout().
+ */
+public class ClassLayout
+{
+    /**
+     * The number of bytes before the first field: the class id, the size of
+     * the object and the address of the dispatch table
+     */
+    public static final int HEADER_SIZE = 12;
+
+    /**
+     * The number of bytes each field takes
+     */
+    public static final int WORD_SIZE = 4;
+
+    private Field[] fields;
+    private HashMap<String, Integer> fieldIndices;
+    private Method[] methods;
+    private String[] methodClasses;  // the name of the class each method is declared in
+    private HashMap<String, Integer> methodSlots;
+
+    /**
+     * creates the layout of a class from the layout of its parent
+     *
+     * @param classNode    the class
+     * @param parentLayout the layout of its parent, or null if it has none
+     */
+    private ClassLayout(ClassTreeNode classNode, ClassLayout parentLayout) {
+        if (parentLayout == null) {
+            fields = new Field[0];
+            fieldIndices = new HashMap<>();
+            methods = new Method[0];
+            methodClasses = new String[0];
+            methodSlots = new HashMap<>();
+        }
+        else {
+            fields = parentLayout.fields;
+            fieldIndices = new HashMap<>(parentLayout.fieldIndices);
+            methods = parentLayout.methods;
+            methodClasses = parentLayout.methodClasses;
+            methodSlots = new HashMap<>(parentLayout.methodSlots);
+        }
+
+        int numFields = fields.length;
+        int numMethods = methods.length;
+        fields = Arrays.copyOf(fields, numFields + classNode.getASTNode().getMemberList().getSize());
+        methods = Arrays.copyOf(methods, numMethods + classNode.getASTNode().getMemberList().getSize());
+        methodClasses = Arrays.copyOf(methodClasses, methods.length);
+
+        // a second member of the same name in a class is an error the
+        // semantic analyzer reports; the first one is the one laid out
+        HashSet<String> fieldNames = new HashSet<>();
+        HashSet<String> methodNames = new HashSet<>();
+        for (ASTNode member : classNode.getASTNode().getMemberList()) {
+            if (member instanceof Field) {
+                Field field = (Field) member;
+                if (fieldNames.add(field.getName())) {
+                    // a field hiding an inherited one gets a word of its own
+                    fieldIndices.put(field.getName(), numFields);
+                    fields[numFields++] = field;
+                }
+            }
+            else {
+                Method method = (Method) member;
+                if (methodNames.add(method.getName())) {
+                    Integer slot = methodSlots.get(method.getName());
+                    if (slot == null) {
+                        slot = numMethods++;
+                        methodSlots.put(method.getName(), slot);
+                    }
+                    methods[slot] = method;
+                    methodClasses[slot] = classNode.getName();
+                }
+            }
+        }
+        fields = Arrays.copyOf(fields, numFields);
+        methods = Arrays.copyOf(methods, numMethods);
+        methodClasses = Arrays.copyOf(methodClasses, numMethods);
+    }
+
+    /**
+     * Lays out every class of a tree, parents before their children
+     *
+     * @param root the root of the tree
+     */
+    static void layOut(ClassTreeNode root) {
+        ClassLayout rootLayout = new ClassLayout(root, null);
+        root.setLayout(rootLayout);
+        // walk the tree without recursion, since class hierarchies can be deep
+        Deque<Iterator<ClassTreeNode>> stack = new ArrayDeque<>();
+        Deque<ClassTreeNode> path = new ArrayDeque<>();
+        Deque<ClassLayout> layouts = new ArrayDeque<>();
+        stack.push(root.getChildrenList());
+        path.push(root);
+        layouts.push(rootLayout);
+        while (!stack.isEmpty()) {
+            if (stack.peek().hasNext()) {
+                ClassTreeNode child = stack.peek().next();
+                if (child.getParent() != path.peek()) {
+                    continue; // no longer a child of this class
+                }
+                ClassLayout layout = new ClassLayout(child, layouts.peek());
+                child.setLayout(layout);
+                stack.push(child.getChildrenList());
+                path.push(child);
+                layouts.push(layout);
+            }
+            else {
+                stack.pop();
+                path.pop();
+                layouts.pop();
+            }
+        }
+    }
+
+    /**
+     * Lays out a class on its own, without the members of its ancestors, for a
+     * class whose ancestors form a cycle
+     *
+     * @param classNode the class
+     * @return the layout of the class's own members
+     */
+    static ClassLayout layOutAlone(ClassTreeNode classNode) {
+        return new ClassLayout(classNode, null);
+    }
+
+    /**
+     * @return the number of fields in an object, inherited ones included
+     */
+    public int getNumFields() {
+        return fields.length;
+    }
+
+    /**
+     * @param index the index of a field, from 0
+     * @return the field's declaration
+     */
+    public Field getField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Gets the index of the field a name refers to in this class, which is
+     * the field declared lowest in the hierarchy if there are several
+     *
+     * @param name the name of the field
+     * @return the index of the field, or -1 if there is no such field
+     */
+    public int getFieldIndex(String name) {
+        Integer index = fieldIndices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index the index of a field, from 0
+     * @return the offset of the field in bytes from the start of the object
+     */
+    public int getFieldOffset(int index) {
+        return HEADER_SIZE + WORD_SIZE * index;
+    }
+
+    /**
+     * @return the size of an object in bytes
+     */
+    public int getObjectSize() {
+        return HEADER_SIZE + WORD_SIZE * fields.length;
+    }
+
+    /**
+     * @return the number of slots in the dispatch table, inherited methods included
+     */
+    public int getNumMethods() {
+        return methods.length;
+    }
+
+    /**
+     * @param slot the index of a slot in the dispatch table
+     * @return the declaration of the method in the slot, the one lowest
+     *         in the hierarchy if the method is overridden
+     */
+    public Method getMethod(int slot) {
+        return methods[slot];
+    }
+
+    /**
+     * @param slot the index of a slot in the dispatch table
+     * @return the name of the class that declares the method in the slot
+     */
+    public String getMethodClass(int slot) {
+        return methodClasses[slot];
+    }
+
+    /**
+     * @param name the name of a method
+     * @return the slot of the method in the dispatch table, or -1 if the
+     *         class has no such method
+     */
+    public int getMethodSlot(String name) {
+        Integer slot = methodSlots.get(name);
+        return slot == null ? -1 : slot;
+    }
+}
@@ -36,6 +36,8 @@ package proj16DeGrawHangMarcello.bantam.util;
 
 import proj16DeGrawHangMarcello.bantam.ast.Class_;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Vector;
@@ -95,6 +97,42 @@ public class ClassTreeNode {
      */
     private SymbolTable methodSymbolTable = new SymbolTable();
 
+    /**
+     * The numbering of the class tree that preOrder, postOrder and depth come
+     * from, shared by all the nodes numbered together, or null if this node
+     * has not been numbered.  Marking it invalid when the tree changes
+     * invalidates the numbers of every node of the tree at once.
+     */
+    private Numbering numbering;
+
+    /**
+     * The position of this class in a depth-first walk of the class tree,
+     * counting both the entry to and the exit from each class.  A class is
+     * a subclass of another exactly when its interval [preOrder, postOrder]
+     * lies within the other's.
+     */
+    private int preOrder;
+    private int postOrder;
+
+    /**
+     * The number of ancestors of this class
+     */
+    private int depth;
+
+    /**
+     * The layout of the objects and dispatch table of this class, and the
+     * numbering of the tree it was computed with
+     */
+    private ClassLayout layout;
+    private Numbering layoutNumbering;
+
+    /**
+     * One numbering of a class tree
+     */
+    private static class Numbering {
+        private boolean valid = true;
+    }
+
     /**
      * ClassTreeNode constructor
      *
@@ -170,6 +208,13 @@ public class ClassTreeNode {
         }
 
         if (this.parent != parent) {
+            // the numbering of both the old and the new tree is out of date
+            invalidateNumbering();
+            if (this.parent != null) {
+                this.parent.invalidateNumbering();
+            }
+            parent.invalidateNumbering();
+
             // set parent of this class
             this.parent = parent;
 
@@ -231,6 +276,7 @@ public class ClassTreeNode {
             throw new RuntimeException("Internal error: child not found in children Vector in ClassTreeNode.removeChild");
         }
         children.remove(child);
+        invalidateNumbering();
         child.setParent(lookupClass("Object"));
     }
 
@@ -262,6 +308,174 @@ public class ClassTreeNode {
         return numDescendants;
     }
 
+    /**
+     * Is this class a subclass of another class (or the class itself)?
+     * The answer comes from comparing the classes' depth-first intervals,
+     * which are computed for the whole class tree the first time they are
+     * needed and again only after the tree has changed.
+     *
+     * @param ancestor the class tree node of the other class
+     * @return true if this class is the other class or one of its descendants
+     */
+    public boolean isSubclassOf(ClassTreeNode ancestor) {
+        if (!isNumbered()) {
+            number();
+        }
+        if (!ancestor.isNumbered()) {
+            ancestor.number();
+        }
+        if (!isNumbered() || !ancestor.isNumbered()) {
+            // one of the trees has a cycle
+            return isDescendantByWalking(ancestor);
+        }
+        // a valid numbering covers the whole of its tree, so two different
+        // ones mean the classes are in different trees
+        return numbering == ancestor.numbering && ancestor.preOrder <= preOrder
+                && postOrder <= ancestor.postOrder;
+    }
+
+    /**
+     * Get the depth of this class in the class tree
+     *
+     * @return the number of ancestors of this class (0 for Object)
+     */
+    public int getDepth() {
+        if (!isNumbered()) {
+            number();
+            if (!isNumbered()) {
+                return getDepthByWalking();
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Get the layout of the objects and dispatch table of this class.  The
+     * layouts of all the classes of the tree are computed the first time one
+     * of them is needed, and again only after the tree has changed.
+     *
+     * @return the layout of this class
+     */
+    public ClassLayout getLayout() {
+        if (!isNumbered()) {
+            number();
+            if (!isNumbered()) {
+                // the ancestors form a cycle, so there is nothing to inherit
+                return ClassLayout.layOutAlone(this);
+            }
+        }
+        if (layoutNumbering != numbering) {
+            ClassTreeNode root = this;
+            while (root.parent != null) {
+                root = root.parent;
+            }
+            ClassLayout.layOut(root);
+        }
+        return layout;
+    }
+
+    /**
+     * Set the layout of this class, computed with the current numbering of the tree
+     *
+     * @param layout the layout of this class
+     */
+    void setLayout(ClassLayout layout) {
+        this.layout = layout;
+        this.layoutNumbering = numbering;
+    }
+
+    /**
+     * Numbers the classes of the tree this class is in, from its root, so
+     * that every node of the tree shares a new valid Numbering.  If the
+     * ancestors of this class form a cycle, nothing is numbered.
+     */
+    private void number() {
+        ClassTreeNode root = this;
+        for (int steps = 0; root.parent != null; steps++) {
+            if (steps > classMap.size()) {
+                return; // a cycle
+            }
+            root = root.parent;
+        }
+
+        Numbering newNumbering = new Numbering();
+        int count = 0;
+        root.depth = 0;
+        root.preOrder = count++;
+        root.numbering = newNumbering;
+        // walk the tree without recursion, since class hierarchies can be deep
+        Deque<Iterator<ClassTreeNode>> stack = new ArrayDeque<>();
+        Deque<ClassTreeNode> path = new ArrayDeque<>();
+        stack.push(root.children.iterator());
+        path.push(root);
+        while (!stack.isEmpty()) {
+            if (stack.peek().hasNext()) {
+                ClassTreeNode child = stack.peek().next();
+                if (child.parent != path.peek() || child.numbering == newNumbering) {
+                    continue; // no longer a child of this class
+                }
+                child.depth = path.peek().depth + 1;
+                child.preOrder = count++;
+                child.numbering = newNumbering;
+                stack.push(child.children.iterator());
+                path.push(child);
+            }
+            else {
+                stack.pop();
+                path.pop().postOrder = count++;
+            }
+        }
+    }
+
+    /**
+     * @return true if this node has numbers from a numbering of its tree
+     *         that is still valid
+     */
+    private boolean isNumbered() {
+        return numbering != null && numbering.valid;
+    }
+
+    /**
+     * Marks the numbering of the tree this class was numbered in as out of date
+     */
+    private void invalidateNumbering() {
+        if (numbering != null) {
+            numbering.valid = false;
+        }
+    }
+
+    /**
+     * Answers isSubclassOf by following the parents, for the trees that cannot
+     * be numbered
+     *
+     * @param ancestor the class tree node of the other class
+     * @return true if the other class is this class or one of its ancestors
+     */
+    private boolean isDescendantByWalking(ClassTreeNode ancestor) {
+        ClassTreeNode node = this;
+        for (int steps = 0; node != null && steps <= classMap.size(); steps++) {
+            if (node == ancestor) {
+                return true;
+            }
+            node = node.parent;
+        }
+        return false;
+    }
+
+    /**
+     * Answers getDepth by following the parents, for the trees that cannot
+     * be numbered
+     *
+     * @return the number of ancestors, or of classes until the cycle repeats
+     */
+    private int getDepthByWalking() {
+        int steps = 0;
+        for (ClassTreeNode node = parent; node != null && steps <= classMap.size(); node = node.parent) {
+            steps++;
+        }
+        return steps;
+    }
+
     /**
      * Get the variable symbol table of the class
      *
@@ -30,16 +30,77 @@ package proj16DeGrawHangMarcello.bantam.util;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * The <tt>ErrorHandler</tt> class performs error handling.
+ * <p>
+ * An error handler can be shared by several threads.  Registering an error
+ * takes the next free slot of a fixed array with one atomic increment and
+ * never blocks, and at most MAX_ERRORS errors are kept.  The errors are only
+ * sorted when the list is asked for: by file, in the order the files were first
+ * seen, and then by line number, with errors on the same line in the order
+ * they were registered.  Errors without a file come first, the latest one first.
+ * <p>
+ * A Listener added to the handler is told of each error as it is registered,
+ * on the thread that registers it; the IDE uses one to write errors to its
+ * console as they are found.
  */
 public class ErrorHandler {
     /**
-     * The list of errors
+     * The most errors that are kept; later errors are dropped
      */
-    private List<Error> errorList = new ArrayList<>();
+    public static final int MAX_ERRORS = 100;
+
+    /**
+     * Something to be told of each error as soon as it is registered
+     */
+    public interface Listener
+    {
+        /**
+         * Called on the thread that registered the error
+         *
+         * @param error the error
+         */
+        void errorRegistered(Error error);
+    }
+
+    /**
+     * The errors registered since the handler was created or last cleared
+     */
+    private static class Log
+    {
+        // the number of slots handed out, which may exceed the number of slots
+        private final AtomicInteger numReserved = new AtomicInteger();
+        // the errors in the order they were registered; a slot is null until
+        // the thread that reserved it has stored its error
+        private final AtomicReferenceArray<Error> errors =
+                new AtomicReferenceArray<>(MAX_ERRORS);
+        // the last sorted list, or null if none has been sorted yet
+        private volatile SortedList sortedList;
+    }
+
+    /**
+     * A sorted list of errors and the number of slots reserved when it was sorted
+     */
+    private static class SortedList
+    {
+        private final List<Error> errors;
+        private final int numReserved;
+
+        SortedList(List<Error> errors, int numReserved) {
+            this.errors = errors;
+            this.numReserved = numReserved;
+        }
+    }
+
+    private volatile Log log = new Log();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Register an error - auxiliarly method used by the other (public) register methods
@@ -47,10 +108,18 @@ public class ErrorHandler {
      * @param error the error object
      */
     private void register(Error error) {
-        // insert a new error into the error list
-        // but keep at most 100 errors.
-        if (errorList.size() < 100) {
-            insert(error);
+        // keep at most MAX_ERRORS errors
+        Log current = log;
+        int slot = current.numReserved.getAndIncrement();
+        if (slot < MAX_ERRORS) {
+            current.errors.set(slot, error);
+            for (Listener listener : listeners) {
+                listener.errorRegistered(error);
+            }
+        }
+        else {
+            // keep the counter from overflowing when errors keep coming
+            current.numReserved.set(MAX_ERRORS);
         }
     }
 
@@ -80,59 +149,148 @@ public class ErrorHandler {
         register((new Error(kind, null, -1, errorMessage)));
     }
 
+    /**
+     * Register all the errors found by another error handler, such as the
+     * handler used for one file of a batch of files, in the order they were
+     * registered with it.  So merging the handlers used for the parts of a
+     * compilation, in the order of the parts, gives the same list as
+     * registering every error with one handler.
+     *
+     * @param other the other error handler
+     */
+    public void registerAll(ErrorHandler other) {
+        registerAll(other, 0);
+    }
+
+    /**
+     * Register all the errors found by another error handler, in the order they
+     * were registered with it, each moved by a number of lines, as when the code
+     * they were found in has moved since
+     *
+     * @param other     the other error handler
+     * @param lineDelta the number of lines to add to the line of each error
+     */
+    public void registerAll(ErrorHandler other, int lineDelta) {
+        Log otherLog = other.log;
+        for (Error error : getRegisteredErrors(otherLog, otherLog.numReserved.get())) {
+            register(lineDelta == 0 ? error : new Error(error.getKind(), error.getFilename(),
+                    error.getLineNum() + lineDelta, error.getMessage()));
+        }
+    }
+
     /**
      * return true if any errors were reported.
      */
     public boolean errorsFound() {
-        return errorList.size() > 0;
+        return log.numReserved.get() > 0;
     }
 
     /**
-     * Insert an error onto the error list
+     * Adds a listener to be told of each error registered from now on
      *
-     * @param e error object to insert
+     * @param listener the listener
      */
-    private void insert(Error e) {
-        // the algorithm below will insert errors in order by filename first and
-        // then line number.  filenames are kept in the order that they are seen
-        // (i.e., an error is registered with that filename).  line numbers are
-        // ordered numerically.
-
-        int i = 0;
-
-        if (e.getFilename() != null) {
-            // find the section of the list with the same filename (goes to the end
-            // if a section is not found)
-            for (i = 0; i < errorList.size(); i++) {
-                if (errorList.get(i).getFilename() != null) {
-                    if (e.getFilename().equals(errorList.get(i).getFilename())) {
-                        break;
-                    }
-                }
-            }
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
 
-            // find the correct spot in the section for this error's line number
-            for (; i < errorList.size(); i++) {
-                if (!e.getFilename().equals(errorList.get(i).getFilename()) ||
-                        e.getLineNum() < (errorList.get(i)).getLineNum()) {
-                    break;
-                }
+    /**
+     * Removes a listener
+     *
+     * @param listener the listener
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @param current     a log of errors
+     * @param numReserved the number of slots of the log reserved so far
+     * @return the errors of the log that have been stored, in the order they
+     *         were registered
+     */
+    private static List<Error> getRegisteredErrors(Log current, int numReserved) {
+        int numSlots = Math.min(numReserved, MAX_ERRORS);
+        List<Error> errors = new ArrayList<>(numSlots);
+        for (int i = 0; i < numSlots; i++) {
+            Error error = current.errors.get(i);
+            if (error != null) {
+                errors.add(error);
             }
         }
-
-        // add the error to the list
-        errorList.add(i, e);
+        return errors;
     }
 
     /**
-     * @return an unmodifiable copy of the list of registered errors
+     * @return an unmodifiable copy of the list of registered errors, sorted
+     *         by file and then by line number
      */
     public List<Error> getErrorList() {
-        return Collections.unmodifiableList(errorList);
+        Log current = log;
+        int numReserved = current.numReserved.get();
+        SortedList last = current.sortedList;
+        if (numReserved == 0) {
+            return Collections.emptyList();
+        }
+        if (last != null && last.numReserved == numReserved) {
+            return last.errors;
+        }
+
+        List<Error> errors = getRegisteredErrors(current, numReserved);
+        // number the files in the order they were first seen, and sort the
+        // positions of the errors in the order they were registered
+        HashMap<String, Integer> fileOrder = new HashMap<>();
+        List<Integer> positions = new ArrayList<>(errors.size());
+        for (int i = 0; i < errors.size(); i++) {
+            String filename = errors.get(i).getFilename();
+            if (filename != null) {
+                fileOrder.putIfAbsent(filename, fileOrder.size());
+            }
+            positions.add(i);
+        }
+        positions.sort((i1, i2) -> {
+            Error e1 = errors.get(i1);
+            Error e2 = errors.get(i2);
+            if (e1.getFilename() == null || e2.getFilename() == null) {
+                if (e1.getFilename() != null) {
+                    return 1;
+                }
+                if (e2.getFilename() != null) {
+                    return -1;
+                }
+                return Integer.compare(i2, i1);
+            }
+            int result = Integer.compare(fileOrder.get(e1.getFilename()),
+                    fileOrder.get(e2.getFilename()));
+            if (result == 0) {
+                result = Integer.compare(e1.getLineNum(), e2.getLineNum());
+            }
+            return result != 0 ? result : Integer.compare(i1, i2);
+        });
+        List<Error> sorted = new ArrayList<>(errors.size());
+        for (int position : positions) {
+            sorted.add(errors.get(position));
+        }
+
+        List<Error> sortedList = Collections.unmodifiableList(sorted);
+        if (errors.size() == Math.min(numReserved, MAX_ERRORS)) {
+            // no error was still being stored, so the list can be reused
+            // until another one is registered
+            current.sortedList = new SortedList(sortedList, numReserved);
+        }
+        return sortedList;
     }
 
+    /**
+     * Forgets all the errors registered so far.
+     * <p>
+     * Unlike registering, clearing is not safe while other threads may be
+     * registering errors: a thread that took its slot before the clear stores
+     * its error in the forgotten log, and the error is lost.  Clear the handler
+     * only between phases, when no thread is using it.
+     */
     public void clear() {
-        errorList.clear();
+        log = new Log();
     }
 
 }
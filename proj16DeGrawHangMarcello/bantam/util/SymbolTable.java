@@ -34,24 +34,59 @@
 
 package proj16DeGrawHangMarcello.bantam.util;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Class for representing a class symbol table
+ * <p>
+ * The scopes are kept as an undo log rather than as one hash table per scope.
+ * A single map holds the innermost binding of each symbol, and each binding
+ * points to the binding it shadows in an outer scope.  Entering a scope only
+ * marks the end of the log; adding a symbol pushes its binding onto the log,
+ * and exiting a scope pops the scope's bindings, putting back the ones they
+ * shadowed.  So looking up a symbol is a single map lookup per table, and
+ * finding the scope a symbol was declared in needs no copying.
  */
 public class SymbolTable {
     /**
-     * Hash table that maps strings to Objects.  The object value corresponds to
-     * the type of the variable or method.  For variables it will be a String and
-     * for methods it will be an AST node.
+     * A symbol's value in one scope.  The value corresponds to the type of the
+     * variable or method.  For variables it will be a String and for methods
+     * it will be an AST node.
      */
-    private Hashtable<String, Object> hash;
+    private static class Binding {
+        private String name;
+        private Object value;
+        private int scope;          // the scope's index in this table
+        private Binding shadowed;   // the binding of the same name in an outer scope
+
+        Binding(String name, Object value, int scope, Binding shadowed) {
+            this.name = name;
+            this.value = value;
+            this.scope = scope;
+            this.shadowed = shadowed;
+        }
+    }
+
+    /**
+     * Map from each symbol to its binding in the innermost scope holding it
+     */
+    private HashMap<String, Binding> bindings;
+    /**
+     * The bindings of all the scopes, in the order they were added
+     */
+    private ArrayList<Binding> log;
+    /**
+     * The index in the log of the first binding of each scope
+     */
+    private int[] scopeStarts;
     /**
-     * List that holds each scope
+     * The number of scopes entered and not yet exited
      */
-    private Vector<Hashtable<String, Object>> scopes;
+    private int numScopes;
     /**
      * Parent class symbol table (may be null)
      * If lookup fails in this symbol table should lookup in parent
@@ -63,31 +98,13 @@ public class SymbolTable {
      * create an empty symbol table
      */
     public SymbolTable() {
-        hash = null;
-        scopes = new Vector<Hashtable<String, Object>>();
+        bindings = new HashMap<>();
+        log = new ArrayList<>();
+        scopeStarts = new int[4];
+        numScopes = 0;
         parent = null;
     }
 
-    /**
-     * SymbolTable constructor
-     * create a symbol table from an existing one
-     * (used internally for cloning symbol tables)
-     *
-     * @param scopes the scopes of symbols
-     * @param parent parent symbol table
-     */
-    private SymbolTable(Vector<Hashtable<String, Object>> scopes,
-                        SymbolTable parent) {
-        this.scopes = scopes;
-        if (scopes.size() > 0) {
-            this.hash = scopes.elementAt(scopes.size() - 1);
-        }
-        else {
-            this.hash = null;
-        }
-        this.parent = parent;
-    }
-
     /**
      * Set the parent symbol table
      *
@@ -101,24 +118,28 @@ public class SymbolTable {
      * Enter a new scope
      */
     public void enterScope() {
-        hash = new Hashtable<String, Object>();
-        scopes.add(hash);
-
+        if (numScopes == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, 2 * numScopes);
+        }
+        scopeStarts[numScopes++] = log.size();
     }
 
     /**
      * Exit a scope
      */
     public void exitScope() {
-        if (scopes.size() == 0) {
+        if (numScopes == 0) {
             throw new RuntimeException("No scope to exit");
         }
-        scopes.removeElementAt(scopes.size() - 1);
-        if (scopes.size() > 0) {
-            hash = scopes.elementAt(scopes.size() - 1);
-        }
-        else {
-            hash = null;
+        numScopes--;
+        for (int i = log.size() - 1; i >= scopeStarts[numScopes]; i--) {
+            Binding binding = log.remove(i);
+            if (binding.shadowed != null) {
+                bindings.put(binding.name, binding.shadowed);
+            }
+            else {
+                bindings.remove(binding.name);
+            }
         }
     }
 
@@ -130,10 +151,20 @@ public class SymbolTable {
      * @param value value of symbol (i.e., type)
      */
     public void add(String s, Object value) {
-        if (scopes.size() == 0) {
+        if (numScopes == 0) {
             throw new RuntimeException("Must enter a scope before adding to table");
         }
-        hash.put(s, value);
+        if (value == null) {
+            throw new NullPointerException("Symbol '" + s + "' added with no value");
+        }
+        Binding binding = bindings.get(s);
+        if (binding != null && binding.scope == numScopes - 1) {
+            binding.value = value;
+            return;
+        }
+        binding = new Binding(s, value, numScopes - 1, binding);
+        bindings.put(s, binding);
+        log.add(binding);
     }
 
     /**
@@ -143,23 +174,14 @@ public class SymbolTable {
      * @return value of symbol (i.e., type), null if not found
      */
     public Object lookup(String s) {
-        if (scopes.size() == 0) {
+        if (numScopes == 0) {
             throw new RuntimeException("Must enter a scope before looking up in table");
         }
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            Hashtable<String, Object> h = scopes.elementAt(i);
-
-            Object value = h.get(s);
-
-            if (value != null) {
-                return value;
-            }
-        }
-
-        if (parent != null) {
-            return parent.lookup(s);
+        Binding binding = bindings.get(s);
+        if (binding != null) {
+            return binding.value;
         }
-        return null;
+        return parent != null ? parent.lookup(s) : null;
     }
 
     /**
@@ -173,54 +195,15 @@ public class SymbolTable {
      * @return value of symbol (i.e., type), null if not found in particular scope level
      */
     public Object lookup(String s, int level) {
-        int lastLevel = getCurrScopeLevel();
-
-        // some error checking
-        if (scopes.size() == 0) {
-            throw new RuntimeException("Must enter a scope before looking up in table");
-        }
-        else if (level < 0 || level >= lastLevel) {
-            throw new IllegalArgumentException("SymbolTable.lookup(sym,level) called" +
-                    " with level (" + level + ") that is not" +
-                    " between 0 and current level (" +
-                    lastLevel + ") minus one");
-        }
-
-        // get an ordered list of ancestor symbol tables
-        // (starts from Object's table and ends with current class's table)
-        Vector<SymbolTable> tableList = new Vector<SymbolTable>();
-        for (SymbolTable st = this; st != null; st = st.parent)
-            tableList.add(0, st);
-
-        // find the right scope
-        for (int i = 0; i < tableList.size(); i++) {
-            SymbolTable st = tableList.elementAt(i);
-
-            // if level within the next table then do lookup
-            if (level < st.scopes.size()) {
-                // lookup in this scope and earlier scopes until we find
-                // symbol or run out of scopes
-                for (int l = level; l >= 0; l--) {
-                    Hashtable<String, Object> h = st.scopes.elementAt(l);
-                    if (h.get(s) != null) {
-                        return h.get(s);
-                    }
-                }
-                // if we make it here then we try looking up in parent table
-                // (if one exists)
-                if (st.parent != null) {
-                    return st.parent.lookup(s);
-                }
-                // otherwise we return null (not found)
-                return null;
-            }
-
-            // otherwise decrement level and proceed to next table
-            level = level - st.scopes.size();
+        checkLevel("lookup(sym,level)", "looking up in", level);
+        SymbolTable st = getTableAt(level);
+        Binding binding = st.getBindingAtOrOutside(s, level - st.getBaseLevel());
+        if (binding != null) {
+            return binding.value;
         }
-
-        // we should never get here
-        return null;
+        // if we make it here then we try looking up in parent table
+        // (if one exists)
+        return st.parent != null ? st.parent.lookup(s) : null;
     }
 
     /**
@@ -230,10 +213,11 @@ public class SymbolTable {
      * @return value of symbol (i.e., type), null if not found
      */
     public Object peek(String s) {
-        if (scopes.size() == 0) {
+        if (numScopes == 0) {
             throw new RuntimeException("Must enter a scope before peeking in table");
         }
-        return hash.get(s);
+        Binding binding = bindings.get(s);
+        return binding != null && binding.scope == numScopes - 1 ? binding.value : null;
     }
 
     /**
@@ -246,41 +230,11 @@ public class SymbolTable {
      * @return value of symbol (i.e., type), null if not found in particular scope level
      */
     public Object peek(String s, int level) {
-        int lastLevel = getCurrScopeLevel();
-
-        // some error checking
-        if (scopes.size() == 0) {
-            throw new RuntimeException("Must enter a scope before peeking in table");
-        }
-        else if (level < 0 || level >= lastLevel) {
-            throw new IllegalArgumentException("SymbolTable.peek(sym,level) called" +
-                    " with level (" + level + ") that is not" +
-                    " between 0 and current level (" +
-                    lastLevel + ") minus one");
-        }
-
-        // get an ordered list of ancestor symbol tables
-        // (starts from Object's table and ends with current class's table)
-        Vector<SymbolTable> tableList = new Vector<SymbolTable>();
-        for (SymbolTable st = this; st != null; st = st.parent)
-            tableList.add(0, st);
-
-        // find the right scope
-        for (int i = 0; i < tableList.size(); i++) {
-            SymbolTable st = tableList.elementAt(i);
-
-            // if level within the next table then do lookup
-            if (level < st.scopes.size()) {
-                Hashtable<String, Object> h = st.scopes.elementAt(level);
-                return h.get(s);
-            }
-
-            // otherwise decrement level and proceed to next table
-            level = level - st.scopes.size();
-        }
-
-        // we should never get here
-        return null;
+        checkLevel("peek(sym,level)", "peeking in", level);
+        SymbolTable st = getTableAt(level);
+        int scope = level - st.getBaseLevel();
+        Binding binding = st.getBindingAtOrOutside(s, scope);
+        return binding != null && binding.scope == scope ? binding.value : null;
     }
 
     /**
@@ -290,21 +244,16 @@ public class SymbolTable {
      * @param val value to set the symbol to
      */
     public void set(String s, Object val) {
-        if (scopes.size() == 0) {
+        if (numScopes == 0) {
             throw new RuntimeException("Must enter a scope before setting in table");
         }
-
         for (SymbolTable st = this; st != null; st = st.parent) {
-            for (int i = st.scopes.size() - 1; i >= 0; i--) {
-                Hashtable<String, Object> h = st.scopes.elementAt(i);
-                if (h.get(s) != null) {
-                    h.remove(s);
-                    h.put(s, val);
-                    return;
-                }
+            Binding binding = st.bindings.get(s);
+            if (binding != null) {
+                binding.value = val;
+                return;
             }
         }
-
         throw new RuntimeException("Set symbol '" + s +
                 "' is not in the symbol table");
     }
@@ -318,50 +267,16 @@ public class SymbolTable {
      * @param level scope level containing symbol to be set
      */
     public void set(String s, Object val, int level) {
-        int lastLevel = getCurrScopeLevel();
-
-        if (scopes.size() == 0) {
-            throw new RuntimeException("Must enter a scope before setting in table");
-        }
-        else if (level < 0 || level >= lastLevel) {
-            throw new IllegalArgumentException("SymbolTable.set(sym,val,level) called" +
-                    " with level (" + level + ") that is not" +
-                    " between 0 and current level (" +
-                    lastLevel + ") minus one");
+        checkLevel("set(sym,val,level)", "setting in", level);
+        SymbolTable st = getTableAt(level);
+        Binding binding = st.getBindingAtOrOutside(s, level - st.getBaseLevel());
+        if (binding != null) {
+            binding.value = val;
         }
-
-        // get an ordered list of ancestor symbol tables
-        // (starts from Object's table and ends with current class's table)
-        Vector<SymbolTable> tableList = new Vector<SymbolTable>();
-        for (SymbolTable st = this; st != null; st = st.parent)
-            tableList.add(0, st);
-
-        // find the right scope
-        for (int i = 0; i < tableList.size(); i++) {
-            SymbolTable st = tableList.elementAt(i);
-
-            // if level within the next table then do lookup
-            if (level < st.scopes.size()) {
-                // look in this scope and earlier scopes until we find
-                // symbol or run out of scopes
-                for (int l = level; l >= 0; l--) {
-                    Hashtable<String, Object> h = st.scopes.elementAt(l);
-                    if (h.get(s) != null) {
-                        h.remove(s);
-                        h.put(s, val);
-                        return;
-                    }
-                }
-                // if we make it here then we try setting in parent table
-                // (if one exists)
-                if (st.parent != null) {
-                    st.parent.set(s, val);
-                }
-                return;
-            }
-
-            // otherwise decrement level and proceed to next table
-            level = level - st.scopes.size();
+        // if we make it here then we try setting in parent table
+        // (if one exists)
+        else if (st.parent != null) {
+            st.parent.set(s, val);
         }
     }
 
@@ -373,27 +288,33 @@ public class SymbolTable {
      * @return scope level
      */
     public int getScopeLevel(String s) {
-        if (scopes.size() == 0) {
+        if (numScopes == 0) {
             throw new RuntimeException("Must enter a scope before looking up in table");
         }
-
-        for (int i = scopes.size() - 1; i >= 0; i--) {
-            Hashtable<String, Object> h = scopes.elementAt(i);
-            if (h.get(s) != null) {
-                if (parent == null) {
-                    return (i + 1);
-                }
-                else {
-                    return (i + 1) + parent.getCurrScopeLevel();
-                }
-            }
+        Binding binding = bindings.get(s);
+        if (binding != null) {
+            return getBaseLevel() + binding.scope + 1;
         }
+        return parent != null ? parent.getScopeLevel(s) : -1;
+    }
 
-        if (parent != null) {
-            return parent.getScopeLevel(s);
+    /**
+     * Gets the scope level of a symbol counting only the scopes of this table
+     * and not those of its parent tables, which is the level getScopeLevel
+     * would return if this table had no parent.  The first scope of a class's
+     * table holds its fields, so a level above 1 means the symbol is declared
+     * in the method being checked.
+     * (<0 means symbol not in this table)
+     *
+     * @param s string of symbol to lookup
+     * @return scope level within this table
+     */
+    public int getLocalScopeLevel(String s) {
+        if (numScopes == 0) {
+            throw new RuntimeException("Must enter a scope before looking up in table");
         }
-
-        return -1;
+        Binding binding = bindings.get(s);
+        return binding != null ? binding.scope + 1 : -1;
     }
 
     /**
@@ -404,12 +325,8 @@ public class SymbolTable {
      */
     public int getSize() {
         int size = 0;
-
-        for (int i = 0; i < scopes.size(); i++)
-            size += scopes.elementAt(i).size();
-
-        if (parent != null) {
-            return parent.getSize() + size;
+        for (SymbolTable st = this; st != null; st = st.parent) {
+            size += st.log.size();
         }
         return size;
     }
@@ -420,12 +337,10 @@ public class SymbolTable {
      * @return size of current scope
      */
     public int getCurrScopeSize() {
-        if (hash != null) {
-            return hash.size();
-        }
-        else {
+        if (numScopes == 0) {
             return 0;
         }
+        return log.size() - scopeStarts[numScopes - 1];
     }
 
     /**
@@ -435,10 +350,7 @@ public class SymbolTable {
      * @return current scope level
      */
     public int getCurrScopeLevel() {
-        if (parent != null) {
-            return scopes.size() + parent.getCurrScopeLevel();
-        }
-        return scopes.size();
+        return getBaseLevel() + numScopes;
     }
 
     /**
@@ -449,22 +361,17 @@ public class SymbolTable {
      * @return cloned symbol table
      */
     public SymbolTable clone() {
-        // clone parent symbol table (as well as all other ancestors)
-        SymbolTable newParent = null;
+        SymbolTable st = new SymbolTable();
         if (parent != null) {
-            newParent = parent.clone();
+            st.parent = parent.clone();
+        }
+        for (int scope = 0; scope < numScopes; scope++) {
+            st.enterScope();
+            int end = scope + 1 < numScopes ? scopeStarts[scope + 1] : log.size();
+            for (int i = scopeStarts[scope]; i < end; i++) {
+                st.add(log.get(i).name, log.get(i).value);
+            }
         }
-
-        // create new set of clone scopes
-        Vector<Hashtable<String, Object>> newScopes
-                = new Vector<Hashtable<String, Object>>();
-        for (int i = 0; i < scopes.size(); i++)
-            newScopes.add((Hashtable<String, Object>) scopes.elementAt(i).clone());
-
-        // use these to create a new symbol table
-        SymbolTable st = new SymbolTable(newScopes, newParent);
-
-        // return cloned symbol table
         return st;
     }
 
@@ -478,9 +385,72 @@ public class SymbolTable {
             parent.dump();
         }
 
-        Enumeration e = scopes.elements();
-        while (e.hasMoreElements()) {
-            System.out.println(e.nextElement());
+        for (int scope = 0; scope < numScopes; scope++) {
+            Map<String, Object> entries = new LinkedHashMap<>();
+            int end = scope + 1 < numScopes ? scopeStarts[scope + 1] : log.size();
+            for (int i = scopeStarts[scope]; i < end; i++) {
+                entries.put(log.get(i).name, log.get(i).value);
+            }
+            System.out.println(entries);
+        }
+    }
+
+    /**
+     * @return the number of scopes in the parent tables, which is the level
+     *         of this table's first scope minus one
+     */
+    private int getBaseLevel() {
+        return parent != null ? parent.getCurrScopeLevel() : 0;
+    }
+
+    /**
+     * Throws an exception unless there is a scope and the level is one of them
+     *
+     * @param method the name of the method checking, for the message
+     * @param action what the method was doing, for the message
+     * @param level  the level it was given
+     */
+    private void checkLevel(String method, String action, int level) {
+        int lastLevel = getCurrScopeLevel();
+
+        if (numScopes == 0) {
+            throw new RuntimeException("Must enter a scope before " + action + " table");
+        }
+        else if (level < 0 || level >= lastLevel) {
+            throw new IllegalArgumentException("SymbolTable." + method + " called" +
+                    " with level (" + level + ") that is not" +
+                    " between 0 and current level (" +
+                    lastLevel + ") minus one");
+        }
+    }
+
+    /**
+     * Finds the table, this one or an ancestor's, that holds a scope level
+     *
+     * @param level scope level (outermost scope is at level 0)
+     * @return the table whose scopes include the level
+     */
+    private SymbolTable getTableAt(int level) {
+        SymbolTable st = this;
+        while (level < st.getBaseLevel()) {
+            st = st.parent;
+        }
+        return st;
+    }
+
+    /**
+     * Finds the binding of a symbol in a particular scope of this table or
+     * the scopes outside it, but not in the parent tables
+     *
+     * @param s     string of symbol to lookup
+     * @param scope the index of the scope in this table
+     * @return the binding, null if not found
+     */
+    private Binding getBindingAtOrOutside(String s, int scope) {
+        Binding binding = bindings.get(s);
+        while (binding != null && binding.scope > scope) {
+            binding = binding.shadowed;
         }
+        return binding;
     }
 }
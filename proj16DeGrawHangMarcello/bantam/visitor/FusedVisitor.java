@@ -0,0 +1,666 @@
+/*
+ * File: FusedVisitor.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.visitor;
+
+import proj16DeGrawHangMarcello.bantam.ast.*;
+
+import java.util.List;
+
+/**
+ * Walks an AST once for a number of passes together.  Each node is handed
+ * to the enter() method of every pass, in the order of the passes, before its
+ * children are visited, and to their exit() methods, in the reverse order,
+ * after.  The walk visits the children of each node the way Visitor does.
+ */
+class FusedVisitor extends Visitor
+{
+    private Pass[] passes;
+
+    /**
+     * creates a visitor for the given passes
+     *
+     * @param passes the passes, in the order they see each node
+     */
+    FusedVisitor(List<Pass> passes) {
+        this.passes = passes.toArray(new Pass[0]);
+    }
+
+    /**
+     * Walks a program for all the passes
+     *
+     * @param program the root of the AST
+     */
+    void walk(Program program) {
+        program.accept(this);
+    }
+
+    // hands a node to every pass before its children are visited
+    private void enter(ASTNode node) {
+        for (Pass pass : passes) {
+            pass.enter(node);
+        }
+    }
+
+    // hands a node to every pass, last pass first, after its children were visited
+    private void exit(ASTNode node) {
+        for (int i = passes.length - 1; i >= 0; i--) {
+            passes[i].exit(node);
+        }
+    }
+
+    /**
+     * Visit a program node
+     *
+     * @param node the program node
+     * @return result of the visit
+     */
+    public Object visit(Program node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a list node of classes
+     *
+     * @param node the list node of classes
+     * @return result of the visit
+     */
+    public Object visit(ClassList node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a class node
+     *
+     * @param node the class node
+     * @return result of the visit
+     */
+    public Object visit(Class_ node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a list node of members
+     *
+     * @param node the list node of members
+     * @return result of the visit
+     */
+    public Object visit(MemberList node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a field node
+     *
+     * @param node the field node
+     * @return result of the visit
+     */
+    public Object visit(Field node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a method node
+     *
+     * @param node the method node
+     * @return result of the visit
+     */
+    public Object visit(Method node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a list node of formals
+     *
+     * @param node the list node of formals
+     * @return result of the visit
+     */
+    public Object visit(FormalList node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a formal node
+     *
+     * @param node the formal node
+     * @return result of the visit
+     */
+    public Object visit(Formal node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a list node of statements
+     *
+     * @param node the list node of statements
+     * @return result of the visit
+     */
+    public Object visit(StmtList node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a declaration statement node
+     *
+     * @param node the declaration statement node
+     * @return result of the visit
+     */
+    public Object visit(DeclStmt node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit an expression statement node
+     *
+     * @param node the expression statement node
+     * @return result of the visit
+     */
+    public Object visit(ExprStmt node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit an if statement node
+     *
+     * @param node the if statement node
+     * @return result of the visit
+     */
+    public Object visit(IfStmt node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a while statement node
+     *
+     * @param node the while statement node
+     * @return result of the visit
+     */
+    public Object visit(WhileStmt node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a for statement node
+     *
+     * @param node the for statement node
+     * @return result of the visit
+     */
+    public Object visit(ForStmt node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a break statement node
+     *
+     * @param node the break statement node
+     * @return result of the visit
+     */
+    public Object visit(BreakStmt node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a block statement node
+     *
+     * @param node the block statement node
+     * @return result of the visit
+     */
+    public Object visit(BlockStmt node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a return statement node
+     *
+     * @param node the return statement node
+     * @return result of the visit
+     */
+    public Object visit(ReturnStmt node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a list node of expressions
+     *
+     * @param node the list node of expressions
+     * @return result of the visit
+     */
+    public Object visit(ExprList node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a dispatch expression node
+     *
+     * @param node the dispatch expression node
+     * @return result of the visit
+     */
+    public Object visit(DispatchExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a new expression node
+     *
+     * @param node the new expression node
+     * @return result of the visit
+     */
+    public Object visit(NewExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a new array expression node
+     *
+     * @param node the new array expression node
+     * @return result of the visit
+     */
+    public Object visit(NewArrayExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit an instanceof expression node
+     *
+     * @param node the instanceof expression node
+     * @return result of the visit
+     */
+    public Object visit(InstanceofExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a cast expression node
+     *
+     * @param node the cast expression node
+     * @return result of the visit
+     */
+    public Object visit(CastExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit an assignment expression node
+     *
+     * @param node the assignment expression node
+     * @return result of the visit
+     */
+    public Object visit(AssignExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit an array assignment expression node
+     *
+     * @param node the array assignment expression node
+     * @return result of the visit
+     */
+    public Object visit(ArrayAssignExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison equals expression node
+     *
+     * @param node the binary comparison equals expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompEqExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison not equals expression node
+     *
+     * @param node the binary comparison not equals expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompNeExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison less than expression node
+     *
+     * @param node the binary comparison less than expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompLtExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison less than or equal to expression node
+     *
+     * @param node the binary comparison less than or equal to expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompLeqExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison greater than expression node
+     *
+     * @param node the binary comparison greater than expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompGtExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary comparison greater than or equal to expression node
+     *
+     * @param node the binary comparison greater than or equal to expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryCompGeqExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic plus expression node
+     *
+     * @param node the binary arithmetic plus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithPlusExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic minus expression node
+     *
+     * @param node the binary arithmetic minus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithMinusExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic times expression node
+     *
+     * @param node the binary arithmetic times expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithTimesExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic divide expression node
+     *
+     * @param node the binary arithmetic divide expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithDivideExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary arithmetic modulus expression node
+     *
+     * @param node the binary arithmetic modulus expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryArithModulusExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary logical AND expression node
+     *
+     * @param node the binary logical AND expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryLogicAndExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a binary logical OR expression node
+     *
+     * @param node the binary logical OR expression node
+     * @return result of the visit
+     */
+    public Object visit(BinaryLogicOrExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a unary negation expression node
+     *
+     * @param node the unary negation expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryNegExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a unary NOT expression node
+     *
+     * @param node the unary NOT expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryNotExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a unary increment expression node
+     *
+     * @param node the unary increment expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryIncrExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a unary decrement expression node
+     *
+     * @param node the unary decrement expression node
+     * @return result of the visit
+     */
+    public Object visit(UnaryDecrExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a variable expression node
+     *
+     * @param node the variable expression node
+     * @return result of the visit
+     */
+    public Object visit(VarExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit an array expression node
+     *
+     * @param node the array expression node
+     * @return result of the visit
+     */
+    public Object visit(ArrayExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit an int constant expression node
+     *
+     * @param node the int constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstIntExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a boolean constant expression node
+     *
+     * @param node the boolean constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstBooleanExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+
+    /**
+     * Visit a string constant expression node
+     *
+     * @param node the string constant expression node
+     * @return result of the visit
+     */
+    public Object visit(ConstStringExpr node) {
+        enter(node);
+        super.visit(node);
+        exit(node);
+        return null;
+    }
+}
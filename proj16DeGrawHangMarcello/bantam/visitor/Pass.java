@@ -0,0 +1,76 @@
+/*
+ * File: Pass.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.visitor;
+
+import proj16DeGrawHangMarcello.bantam.ast.ASTNode;
+import proj16DeGrawHangMarcello.bantam.ast.Program;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An analysis of the AST that only needs to see each node once, on the way
+ * down and on the way back up, rather than steering a walk of its own the way
+ * a Visitor does.  That lets a PassManager run any number of passes together
+ * in one walk of the tree.
+ * <p>
+ * A pass names the passes whose results it needs.  The PassManager runs them
+ * in an earlier walk, and runs together every pass whose dependencies have
+ * all finished.
+ */
+public abstract class Pass
+{
+    private List<Pass> dependencies;
+
+    /**
+     * creates a pass
+     *
+     * @param dependencies the passes that must have finished before this one starts
+     */
+    protected Pass(Pass... dependencies) {
+        this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+    }
+
+    /**
+     * @return the passes that must have finished before this one starts
+     */
+    public List<Pass> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Called before the walk of a program starts
+     *
+     * @param program the root of the AST
+     */
+    public void start(Program program) {
+    }
+
+    /**
+     * Called for each node of the AST before its children are walked
+     *
+     * @param node the node
+     */
+    public void enter(ASTNode node) {
+    }
+
+    /**
+     * Called for each node of the AST after its children were walked
+     *
+     * @param node the node
+     */
+    public void exit(ASTNode node) {
+    }
+
+    /**
+     * Called after the walk of a program has finished
+     */
+    public void finish() {
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * File: PassManager.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.bantam.visitor;
+
+import proj16DeGrawHangMarcello.bantam.ast.Program;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Runs a number of passes over an AST in as few walks of the tree as their
+ * dependencies allow.  A pass that depends on no other pass runs in the first
+ * walk, and any other pass in the walk after the last of the passes it
+ * depends on, so the passes that do not depend on each other share a walk.
+ * Within a walk, the passes see each node in the order they were added.
+ * <p>
+ * The passes a pass depends on are added along with it, before it.  Since a
+ * pass is given its dependencies when it is created, they cannot form a cycle.
+ */
+public class PassManager
+{
+    private List<Pass> passes = new ArrayList<>();
+    private int numWalks;
+
+    /**
+     * Adds a pass, and the passes it depends on that were not added yet
+     *
+     * @param pass the pass
+     * @return this pass manager, so that calls can be chained
+     */
+    public PassManager add(Pass pass) {
+        if (!passes.contains(pass)) {
+            for (Pass dependency : pass.getDependencies()) {
+                add(dependency);
+            }
+            passes.add(pass);
+        }
+        return this;
+    }
+
+    /**
+     * Runs all the passes over a program
+     *
+     * @param program the root of the AST
+     */
+    public void run(Program program) {
+        // the passes were added after their dependencies, so the walk of
+        // each dependency is known by the time its dependents are reached
+        HashMap<Pass, Integer> walks = new HashMap<>();
+        List<List<Pass>> walkPasses = new ArrayList<>();
+        for (Pass pass : passes) {
+            int walk = 0;
+            for (Pass dependency : pass.getDependencies()) {
+                walk = Math.max(walk, walks.get(dependency) + 1);
+            }
+            walks.put(pass, walk);
+            while (walkPasses.size() <= walk) {
+                walkPasses.add(new ArrayList<>());
+            }
+            walkPasses.get(walk).add(pass);
+        }
+
+        numWalks = walkPasses.size();
+        for (List<Pass> passesOfWalk : walkPasses) {
+            for (Pass pass : passesOfWalk) {
+                pass.start(program);
+            }
+            new FusedVisitor(passesOfWalk).walk(program);
+            for (Pass pass : passesOfWalk) {
+                pass.finish();
+            }
+        }
+    }
+
+    /**
+     * @return the number of walks of the tree the last run took
+     */
+    public int getNumWalks() {
+        return numWalks;
+    }
+}
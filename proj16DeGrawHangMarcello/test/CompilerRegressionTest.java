@@ -0,0 +1,116 @@
+/*
+ * File: CompilerRegressionTest.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.test;
+
+import proj16DeGrawHangMarcello.bantam.ast.Program;
+import proj16DeGrawHangMarcello.bantam.codegenmips.AssemblyWriter;
+import proj16DeGrawHangMarcello.bantam.codegenmips.MipsCodeGenerator;
+import proj16DeGrawHangMarcello.bantam.parser.Parser;
+import proj16DeGrawHangMarcello.bantam.semant.SemanticAnalyzer;
+import proj16DeGrawHangMarcello.bantam.util.ClassTreeNode;
+import proj16DeGrawHangMarcello.bantam.util.CompilationException;
+import proj16DeGrawHangMarcello.bantam.util.Error;
+import proj16DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.io.StringReader;
+
+/**
+ * Compiles small programs that once crashed the compiler, and checks that
+ * each now compiles, or fails with the expected error, without an exception
+ * escaping.  The programs are read through Readers and the assembly is kept
+ * in memory, so nothing is written to disk.
+ * <p>
+ * Usage: java CompilerRegressionTest.  It exits with status 1 if any program
+ * does not compile as expected.
+ */
+public class CompilerRegressionTest
+{
+    private static int numFailed = 0;
+
+    /**
+     * Parses, checks and generates optimized code for a program that has no errors
+     *
+     * @param name    what the program tests
+     * @param program the source of the program
+     */
+    private static void expectSuccess(String name, String program) {
+        ErrorHandler errorHandler = new ErrorHandler();
+        try {
+            Program ast = new Parser(errorHandler).parse(new StringReader(program));
+            ClassTreeNode root = new SemanticAnalyzer(errorHandler).analyze(ast);
+            new MipsCodeGenerator(errorHandler, false, true)
+                    .generate(root, "Test.asm", ast, new AssemblyWriter());
+            pass(name);
+        } catch (CompilationException e) {
+            fail(name, "found errors " + errorHandler.getErrorList());
+        } catch (RuntimeException e) {
+            fail(name, "threw " + e);
+        }
+    }
+
+    /**
+     * Parses a program with error recovery, as the IDE does, and checks it
+     *
+     * @param name    what the program tests
+     * @param program the source of the program
+     * @param message the message of an error that checking must report
+     */
+    private static void expectError(String name, String program, String message) {
+        ErrorHandler errorHandler = new ErrorHandler();
+        try {
+            Program ast = new Parser(errorHandler).parseWithRecovery(new StringReader(program));
+            new SemanticAnalyzer(errorHandler).analyze(ast);
+        } catch (CompilationException e) {
+            // the errors are checked
+        } catch (RuntimeException e) {
+            fail(name, "threw " + e);
+            return;
+        }
+        for (Error error : errorHandler.getErrorList()) {
+            if (error.getMessage().equals(message)) {
+                pass(name);
+                return;
+            }
+        }
+        fail(name, "did not find \"" + message + "\" in " + errorHandler.getErrorList());
+    }
+
+    private static void pass(String name) {
+        System.out.println(name + ": passed");
+    }
+
+    private static void fail(String name, String reason) {
+        numFailed++;
+        System.out.println(name + ": FAILED, " + reason);
+    }
+
+    public static void main(String[] args) {
+        // a constant local used as a statement has no register to read
+        expectSuccess("constant local as a statement",
+                "class Main {\n" +
+                "    void main() {\n" +
+                "        var v = 0 - 35;\n" +
+                "        v;\n" +
+                "    }\n" +
+                "}\n");
+
+        // recovery from the syntax error leaves the method body empty
+        expectError("empty body of a non-void method",
+                "class Main {\n" +
+                "    int f() {\n" +
+                "        x x x;\n" +
+                "    }\n" +
+                "    void main() { }\n" +
+                "}\n",
+                "Methods with non-void return type must end with a return statement.");
+
+        System.out.println(numFailed == 0 ? "All programs compiled as expected."
+                           : numFailed + " programs did not compile as expected.");
+        System.exit(numFailed == 0 ? 0 : 1);
+    }
+}
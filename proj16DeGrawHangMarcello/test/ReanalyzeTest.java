@@ -0,0 +1,143 @@
+/*
+ * File: ReanalyzeTest.java
+ * Names: Lucas DeGraw, Jackie Hang, Chris Marcello
+ * Class: CS 361
+ * Project 16
+ * Date: April 11, 2019
+ */
+package proj16DeGrawHangMarcello.test;
+
+import proj16DeGrawHangMarcello.bantam.ast.Program;
+import proj16DeGrawHangMarcello.bantam.parser.Parser;
+import proj16DeGrawHangMarcello.bantam.semant.SemanticAnalyzer;
+import proj16DeGrawHangMarcello.bantam.util.CompilationException;
+import proj16DeGrawHangMarcello.bantam.util.Error;
+import proj16DeGrawHangMarcello.bantam.util.ErrorHandler;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that SemanticAnalyzer.reanalyze() of a program edited through
+ * Parser.reparse() finds the same errors, in the same order, as analyze() of
+ * the edited program parsed from scratch.  Each edit adds a line above
+ * members with errors, so members that are not checked again must have their
+ * errors moved to their new lines.  The edits are a blank line at the top of
+ * the file and a new statement at the start of each method.
+ * <p>
+ * The programs are read through Readers, as in the IDE's real-time checking,
+ * so the errors have no file name.
+ * <p>
+ * Usage: java ReanalyzeTest [file...], from the proj16DeGrawHangMarcello
+ * directory; with no files it edits test/CheckerTestDeGrawHangMarcello.btm.
+ * It exits with status 1 if any edit gives different errors.
+ */
+public class ReanalyzeTest
+{
+    private static final String DEFAULT_FILE = "test/CheckerTestDeGrawHangMarcello.btm";
+
+    // the statement put at the start of a method body
+    private static final String STATEMENT = "        var reanalyzeTestEdit = 0;";
+
+    /**
+     * @return the errors reanalyze() finds in the edited program after
+     *         analyzing the original, with the parser reparsing the edit
+     */
+    private static List<String> reanalyzeEdit(String original, String edited) {
+        ErrorHandler parseErrors = new ErrorHandler();
+        ErrorHandler checkErrors = new ErrorHandler();
+        Parser parser = new Parser(parseErrors);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(checkErrors);
+
+        Program program = parser.parseWithRecovery(new StringReader(original));
+        check(analyzer, program);
+        parseErrors.clear();
+        checkErrors.clear();
+        program = parser.reparse(program, new StringReader(edited));
+        check(analyzer, program);
+        return describe(checkErrors);
+    }
+
+    /**
+     * @return the errors analyze() finds in the edited program parsed from scratch
+     */
+    private static List<String> analyzeFresh(String edited) {
+        ErrorHandler errorHandler = new ErrorHandler();
+        Program program = new Parser(errorHandler).parseWithRecovery(new StringReader(edited));
+        try {
+            new SemanticAnalyzer(errorHandler).analyze(program);
+        } catch (CompilationException e) {
+            // the errors are compared
+        }
+        return describe(errorHandler);
+    }
+
+    private static void check(SemanticAnalyzer analyzer, Program program) {
+        try {
+            analyzer.reanalyze(program);
+        } catch (CompilationException e) {
+            // the errors are compared
+        }
+    }
+
+    private static List<String> describe(ErrorHandler errorHandler) {
+        List<String> errors = new ArrayList<>();
+        for (Error error : errorHandler.getErrorList()) {
+            // without a file, toString() leaves out the line
+            errors.add(error.getLineNum() + ": " + error.getMessage());
+        }
+        return errors;
+    }
+
+    /**
+     * @return the edited versions of a program: with a blank line first, and
+     *         with a statement added at the start of each method whose header
+     *         ends its line
+     */
+    private static List<String> getEdits(String original) {
+        List<String> edits = new ArrayList<>();
+        edits.add("\n" + original);
+        String[] lines = original.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i].matches("    \\w.*\\)\\s*\\{\\s*")) {
+                StringBuilder edited = new StringBuilder();
+                for (int j = 0; j < lines.length; j++) {
+                    edited.append(lines[j]).append(j + 1 < lines.length ? "\n" : "");
+                    if (j == i) {
+                        edited.append(STATEMENT).append('\n');
+                    }
+                }
+                edits.add(edited.toString());
+            }
+        }
+        return edits;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String[] filenames = args.length > 0 ? args : new String[]{DEFAULT_FILE};
+        int numFailed = 0;
+        for (String filename : filenames) {
+            String original = new String(Files.readAllBytes(Paths.get(filename)),
+                    StandardCharsets.UTF_8);
+            List<String> edits = getEdits(original);
+            for (int i = 0; i < edits.size(); i++) {
+                List<String> expected = analyzeFresh(edits.get(i));
+                List<String> actual = reanalyzeEdit(original, edits.get(i));
+                if (!expected.equals(actual)) {
+                    numFailed++;
+                    System.out.println(filename + ", edit " + i + ": reanalyze() found "
+                            + actual + "\n  but analyze() found " + expected);
+                }
+            }
+            System.out.println(filename + ": " + edits.size() + " edits checked");
+        }
+        System.out.println(numFailed == 0 ? "All edits gave the same errors."
+                           : numFailed + " edits gave different errors.");
+        System.exit(numFailed == 0 ? 0 : 1);
+    }
+}